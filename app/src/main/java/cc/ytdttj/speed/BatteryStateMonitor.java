@@ -0,0 +1,162 @@
+package cc.ytdttj.speed;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.PowerManager;
+import android.util.Log;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 进程内共享的电池和省电状态
+ * <p>
+ * 第一次使用时注册电量变化和系统省电模式变化的广播，之后由广播推送更新，
+ * 读取电量和是否需要省电只是读取volatile字段，不再每次通过粘性广播查询
+ * （每次查询都是一次跨进程调用并解析一个Intent）。
+ * 广播和监听器回调都在主线程中执行；电量百分比变化时通知
+ * {@link Listener#onBatteryLevelChanged}，是否需要省电的判断跨过阈值时通知
+ * {@link Listener#onPowerSavingChanged}。
+ */
+public final class BatteryStateMonitor {
+
+    private static final String TAG = "BatteryStateMonitor";
+
+    private static volatile BatteryStateMonitor instance;
+
+    /**
+     * 电池状态监听器（在主线程中回调）
+     */
+    public interface Listener {
+        /**
+         * @param level 电量百分比
+         */
+        default void onBatteryLevelChanged(int level) {
+        }
+
+        /**
+         * @param powerSaving 是否需要省电（低电量或系统省电模式）
+         */
+        default void onPowerSavingChanged(boolean powerSaving) {
+        }
+    }
+
+    private final PowerManager powerManager;
+    // 在 update 中加锁访问（第一次使用可能不在主线程）
+    private final PowerSavingPolicy policy = new PowerSavingPolicy();
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // 供任意线程读取的最新状态
+    private volatile int level = -1;
+    private volatile boolean lowBattery = false;
+    private volatile boolean powerSaving = false;
+
+    private final BroadcastReceiver receiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_BATTERY_CHANGED.equals(intent.getAction())) {
+                update(parseLevel(intent));
+            } else {
+                update(-1);
+            }
+        }
+    };
+
+    private BatteryStateMonitor(Context context) {
+        powerManager = context.getSystemService(PowerManager.class);
+        IntentFilter filter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+        filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+        // 电量广播是粘性广播，注册时直接返回当前状态
+        Intent current = context.registerReceiver(receiver, filter, Context.RECEIVER_NOT_EXPORTED);
+        update(current != null ? parseLevel(current) : -1);
+    }
+
+    /**
+     * @param context 任意上下文，内部只保存应用上下文
+     */
+    public static BatteryStateMonitor getInstance(Context context) {
+        BatteryStateMonitor monitor = instance;
+        if (monitor == null) {
+            synchronized (BatteryStateMonitor.class) {
+                monitor = instance;
+                if (monitor == null) {
+                    monitor = new BatteryStateMonitor(context.getApplicationContext());
+                    instance = monitor;
+                }
+            }
+        }
+        return monitor;
+    }
+
+    private static int parseLevel(Intent intent) {
+        int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        if (level < 0 || scale <= 0) {
+            return -1;
+        }
+        return Math.round(level * 100 / (float) scale);
+    }
+
+    private synchronized void update(int newLevel) {
+        boolean powerSaveMode = false;
+        try {
+            powerSaveMode = powerManager != null && powerManager.isPowerSaveMode();
+        } catch (Exception e) {
+            Log.e(TAG, "读取省电模式失败", e);
+        }
+        int oldLevel = level;
+        boolean powerSavingChanged = policy.update(newLevel, powerSaveMode);
+        level = policy.getLevel();
+        lowBattery = policy.isLowBattery();
+        powerSaving = policy.isPowerSaving();
+
+        if (level != oldLevel && level >= 0) {
+            for (Listener listener : listeners) {
+                listener.onBatteryLevelChanged(level);
+            }
+        }
+        if (powerSavingChanged) {
+            Log.d(TAG, "省电状态: " + (powerSaving ? "需要省电" : "正常") + "，电量: " + level + "%，系统省电模式: " + powerSaveMode);
+            for (Listener listener : listeners) {
+                listener.onPowerSavingChanged(powerSaving);
+            }
+        }
+    }
+
+    /**
+     * 添加监听器（主线程），添加后立即回调一次当前电量
+     */
+    public void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+        if (level >= 0) {
+            listener.onBatteryLevelChanged(level);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return 电量百分比，未知时为-1
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return 电量是否低于阈值
+     */
+    public boolean isLowBattery() {
+        return lowBattery;
+    }
+
+    /**
+     * @return 是否需要省电（低电量或系统省电模式）
+     */
+    public boolean isPowerSaving() {
+        return powerSaving;
+    }
+}
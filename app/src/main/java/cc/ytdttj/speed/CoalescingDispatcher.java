@@ -0,0 +1,150 @@
+package cc.ytdttj.speed;
+
+/**
+ * 合并高频事件的分发器（纯Java，不依赖Android框架）
+ * <p>
+ * 事件到达时只记录时间，由一个固定的可复用 {@link Runnable} 负责分发：
+ * 最后一个事件之后安静 {@code settleDelay} 毫秒才分发，但从第一个未分发的事件算起
+ * 最多等待 {@code maxLatency} 毫秒，连续变化时也能定期更新。
+ * 每批事件最多调度一次，事件到达时不会移除和重新投递回调，也不分配对象。
+ * 只能在调度器所在的线程中使用。
+ */
+public final class CoalescingDispatcher {
+
+    /**
+     * 延迟执行的调度器（Android上由Handler实现）
+     */
+    public interface Scheduler {
+        void postDelayed(Runnable runnable, long delayMillis);
+
+        void removeCallbacks(Runnable runnable);
+
+        /**
+         * @return 单调递增的时间（毫秒）
+         */
+        long now();
+    }
+
+    /**
+     * 分发目标
+     */
+    public interface Target {
+        /**
+         * 分发合并后的最新状态
+         * @return 是否真正通知了监听器；返回false时本批事件计为丢弃（如变化未超过阈值）
+         */
+        boolean dispatch();
+    }
+
+    private final Scheduler scheduler;
+    private final Target target;
+    private final long settleDelay;
+    private final long maxLatency;
+    private final Runnable dispatchRunnable = this::onScheduled;
+
+    private boolean scheduled = false;
+    private int pendingEvents = 0;
+    private long firstPendingTime = 0;
+    private long lastEventTime = 0;
+
+    // 统计（只在调度器线程写入，dumpsys 可在其他线程读取）
+    private volatile long eventCount = 0;
+    private volatile long dispatchCount = 0;
+    private volatile long coalescedCount = 0;
+    private volatile long droppedCount = 0;
+
+    /**
+     * @param scheduler 调度器
+     * @param target 分发目标
+     * @param settleDelay 最后一个事件后的安静时间（毫秒）
+     * @param maxLatency 第一个未分发事件到分发的最长时间（毫秒）
+     */
+    public CoalescingDispatcher(Scheduler scheduler, Target target, long settleDelay, long maxLatency) {
+        this.scheduler = scheduler;
+        this.target = target;
+        this.settleDelay = settleDelay;
+        this.maxLatency = Math.max(maxLatency, settleDelay);
+    }
+
+    /**
+     * 记录一个新事件
+     */
+    public void submit() {
+        long now = scheduler.now();
+        eventCount++;
+        if (pendingEvents == 0) {
+            firstPendingTime = now;
+        } else {
+            coalescedCount++;
+        }
+        pendingEvents++;
+        lastEventTime = now;
+        if (!scheduled) {
+            scheduled = true;
+            scheduler.postDelayed(dispatchRunnable, settleDelay);
+        }
+    }
+
+    private void onScheduled() {
+        scheduled = false;
+        if (pendingEvents == 0) {
+            return;
+        }
+        long now = scheduler.now();
+        long settleTime = lastEventTime + settleDelay;
+        long deadline = firstPendingTime + maxLatency;
+        if (now < settleTime && now < deadline) {
+            // 期间又有新事件：推迟到安静或到达最长等待时间，只重新调度一次
+            scheduled = true;
+            scheduler.postDelayed(dispatchRunnable, Math.min(settleTime, deadline) - now);
+            return;
+        }
+        int events = pendingEvents;
+        pendingEvents = 0;
+        if (target.dispatch()) {
+            dispatchCount++;
+        } else {
+            droppedCount += events;
+        }
+    }
+
+    /**
+     * 取消未分发的事件（计为丢弃）
+     */
+    public void cancel() {
+        if (scheduled) {
+            scheduler.removeCallbacks(dispatchRunnable);
+            scheduled = false;
+        }
+        droppedCount += pendingEvents;
+        pendingEvents = 0;
+    }
+
+    /**
+     * @return 收到的事件总数
+     */
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * @return 实际通知监听器的次数
+     */
+    public long getDispatchCount() {
+        return dispatchCount;
+    }
+
+    /**
+     * @return 被合并到前一个未分发事件中的事件数
+     */
+    public long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    /**
+     * @return 被目标过滤或取消而没有通知监听器的事件数
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+}
@@ -0,0 +1,55 @@
+package cc.ytdttj.speed;
+
+import android.os.Bundle;
+import android.widget.ScrollView;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * 隐藏的诊断页面（在设置页长按标题进入）
+ * <p>
+ * 显示定位延迟百分位、定位处理计数和完整的决策日志，用于排查“速度一直是0”“距离偏少”等问题。
+ */
+public class DiagnosticsActivity extends AppCompatActivity {
+
+    private TextView diagnosticsText;
+    private ScrollView diagnosticsScroll;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_diagnostics);
+
+        diagnosticsText = findViewById(R.id.diagnostics_text);
+        diagnosticsScroll = findViewById(R.id.diagnostics_scroll);
+        findViewById(R.id.diagnostics_refresh_button).setOnClickListener(v -> refresh());
+        findViewById(R.id.diagnostics_reset_button).setOnClickListener(v -> {
+            PipelineLatency.reset();
+            PipelineMetrics.reset();
+            refresh();
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        refresh();
+    }
+
+    /**
+     * 重新生成诊断文本，并滚动到最新的日志
+     */
+    private void refresh() {
+        StringWriter text = new StringWriter();
+        PrintWriter writer = new PrintWriter(text);
+        PipelineLatency.dump(writer);
+        PipelineMetrics.dump(writer, PipelineMetrics.LOG_CAPACITY);
+        writer.flush();
+        diagnosticsText.setText(text.toString());
+        diagnosticsScroll.post(() -> diagnosticsScroll.fullScroll(ScrollView.FOCUS_DOWN));
+    }
+}
@@ -0,0 +1,129 @@
+package cc.ytdttj.speed;
+
+/**
+ * 两点间距离计算（纯Java，不依赖Android框架）
+ * <p>
+ * 相邻定位点通常只相距几米到几十米，使用WGS84椭球的局部等距投影（中点纬度处的子午圈和卯酉圈曲率半径）
+ * 只需一次正弦、余弦和两次开方；经纬度差超过 {@link #SHORT_HOP_DEGREES} 的长距离
+ * （如隧道后重新定位）使用与 {@code Location.distanceTo} 相同的Vincenty椭球反解。
+ * <p>
+ * 误差：在纬度±80°以内，短距离公式与Vincenty的相对误差小于1e-7（5公里时小于0.5毫米），
+ * 对逐点累积的行程距离没有可见影响。
+ */
+public final class DistanceKernel {
+
+    // 短距离公式的适用范围（经纬度差，度），约5.5公里
+    static final double SHORT_HOP_DEGREES = 0.05;
+
+    // WGS84椭球
+    private static final double WGS84_A = 6378137.0;
+    private static final double WGS84_B = 6356752.3142;
+    private static final double WGS84_F = (WGS84_A - WGS84_B) / WGS84_A;
+    private static final double WGS84_E2 = 1 - (WGS84_B * WGS84_B) / (WGS84_A * WGS84_A);
+
+    private static final int VINCENTY_MAX_ITERATIONS = 20;
+    private static final double VINCENTY_TOLERANCE = 1.0e-12;
+
+    private DistanceKernel() {
+    }
+
+    /**
+     * @return 两个定位点之间的距离（米）
+     */
+    public static double distance(FixRecord a, FixRecord b) {
+        return distance(a.latitude, a.longitude, b.latitude, b.longitude);
+    }
+
+    /**
+     * 按距离长短选择局部投影或Vincenty公式
+     * @return 两点之间的距离（米）
+     */
+    public static double distance(double lat1, double lon1, double lat2, double lon2) {
+        double dLon = lon2 - lon1;
+        if (dLon > 180) {
+            dLon -= 360;
+        } else if (dLon < -180) {
+            dLon += 360;
+        }
+        if (Math.abs(lat2 - lat1) < SHORT_HOP_DEGREES && Math.abs(dLon) < SHORT_HOP_DEGREES) {
+            return equirectangular(lat1, lat2, dLon);
+        }
+        return vincenty(lat1, lon1, lat2, lon2);
+    }
+
+    /**
+     * WGS84局部等距投影
+     * @param dLon 经度差（度，已规范到±180°）
+     */
+    private static double equirectangular(double lat1, double lat2, double dLon) {
+        double midLat = Math.toRadians((lat1 + lat2) * 0.5);
+        double sinLat = Math.sin(midLat);
+        double w2 = 1 - WGS84_E2 * sinLat * sinLat;
+        double w = Math.sqrt(w2);
+        // 卯酉圈曲率半径 N 和子午圈曲率半径 M
+        double primeVertical = WGS84_A / w;
+        double meridional = primeVertical * (1 - WGS84_E2) / w2;
+        double dx = Math.toRadians(dLon) * primeVertical * Math.cos(midLat);
+        double dy = Math.toRadians(lat2 - lat1) * meridional;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Vincenty椭球反解（与 {@code android.location.Location.distanceBetween} 的算法相同）
+     * @return 两点之间的距离（米）
+     */
+    public static double vincenty(double lat1, double lon1, double lat2, double lon2) {
+        lat1 = Math.toRadians(lat1);
+        lat2 = Math.toRadians(lat2);
+        double lambdaL = Math.toRadians(lon2 - lon1);
+
+        double u1 = Math.atan((1.0 - WGS84_F) * Math.tan(lat1));
+        double u2 = Math.atan((1.0 - WGS84_F) * Math.tan(lat2));
+        double sinU1 = Math.sin(u1);
+        double cosU1 = Math.cos(u1);
+        double sinU2 = Math.sin(u2);
+        double cosU2 = Math.cos(u2);
+        double cosU1cosU2 = cosU1 * cosU2;
+        double sinU1sinU2 = sinU1 * sinU2;
+        double aSqMinusBSqOverBSq = (WGS84_A * WGS84_A - WGS84_B * WGS84_B) / (WGS84_B * WGS84_B);
+
+        double sigma = 0.0;
+        double deltaSigma = 0.0;
+        double cosSqAlpha;
+        double cos2SM;
+        double cosSigma;
+        double sinSigma;
+        double lambda = lambdaL;
+        double a = 0.0;
+
+        for (int iter = 0; iter < VINCENTY_MAX_ITERATIONS; iter++) {
+            double lambdaOrig = lambda;
+            double cosLambda = Math.cos(lambda);
+            double sinLambda = Math.sin(lambda);
+            double t1 = cosU2 * sinLambda;
+            double t2 = cosU1 * sinU2 - sinU1 * cosU2 * cosLambda;
+            double sinSqSigma = t1 * t1 + t2 * t2;
+            sinSigma = Math.sqrt(sinSqSigma);
+            cosSigma = sinU1sinU2 + cosU1cosU2 * cosLambda;
+            sigma = Math.atan2(sinSigma, cosSigma);
+            double sinAlpha = (sinSigma == 0) ? 0.0 : cosU1cosU2 * sinLambda / sinSigma;
+            cosSqAlpha = 1.0 - sinAlpha * sinAlpha;
+            cos2SM = (cosSqAlpha == 0) ? 0.0 : cosSigma - 2.0 * sinU1sinU2 / cosSqAlpha;
+
+            double uSquared = cosSqAlpha * aSqMinusBSqOverBSq;
+            a = 1 + (uSquared / 16384.0) * (4096.0 + uSquared * (-768 + uSquared * (320.0 - 175.0 * uSquared)));
+            double b = (uSquared / 1024.0) * (256.0 + uSquared * (-128.0 + uSquared * (74.0 - 47.0 * uSquared)));
+            double c = (WGS84_F / 16.0) * cosSqAlpha * (4.0 + WGS84_F * (4.0 - 3.0 * cosSqAlpha));
+            double cos2SMSq = cos2SM * cos2SM;
+            deltaSigma = b * sinSigma * (cos2SM + (b / 4.0) * (cosSigma * (-1.0 + 2.0 * cos2SMSq)
+                    - (b / 6.0) * cos2SM * (-3.0 + 4.0 * sinSigma * sinSigma) * (-3.0 + 4.0 * cos2SMSq)));
+
+            lambda = lambdaL + (1.0 - c) * WGS84_F * sinAlpha
+                    * (sigma + c * sinSigma * (cos2SM + c * cosSigma * (-1.0 + 2.0 * cos2SM * cos2SM)));
+            if (Math.abs((lambda - lambdaOrig) / lambda) < VINCENTY_TOLERANCE) {
+                break;
+            }
+        }
+        return WGS84_B * a * (sigma - deltaSigma);
+    }
+}
@@ -0,0 +1,356 @@
+package cc.ytdttj.speed;
+
+/**
+ * 多普勒测速：由伪距率（多普勒）观测用加权最小二乘求解接收机速度（纯Java，不依赖Android框架）
+ * <p>
+ * 观测模型：{@code ρ̇ᵢ = (vₛᵢ - vᵣ)·uᵢ + d - δṡᵢ}，其中 uᵢ 为接收机指向卫星的单位向量，
+ * vₛᵢ 和 δṡᵢ 为卫星速度和卫星钟漂（来自卫星PVT），未知量为接收机速度 vᵣ（ECEF，3维）
+ * 和接收机钟漂 d（米/秒）。每个历元只累加4×4法方程，用Cholesky分解求解，
+ * 所有数组都预先分配，求解过程不分配对象。
+ * <p>
+ * 求解后按归一化残差剔除最多 {@link #MAX_REJECTIONS} 个异常观测（如多路径）。
+ * 平台提供的 {@code Location.getSpeed()} 经过平滑，急加速和急刹车时会滞后；
+ * 多普勒速度只取决于当前历元的观测，没有这种滞后。
+ */
+public final class DopplerVelocitySolver {
+
+    public static final int MAX_SATELLITES = 64;
+    // 4个未知量，至少需要5颗卫星才有冗余可以检查残差
+    static final int MIN_SATELLITES = 5;
+    // 高度角截止（10°的正弦），低仰角卫星多路径严重
+    private static final double MIN_ELEVATION_SIN = Math.sin(Math.toRadians(10));
+    // 归一化残差超过该值视为异常观测
+    private static final double MAX_NORMALIZED_RESIDUAL = 4.0;
+    static final int MAX_REJECTIONS = 2;
+    // 伪距率精度的下限，避免权重过大（米/秒）
+    private static final double MIN_UNCERTAINTY = 0.05;
+
+    // WGS84椭球
+    private static final double WGS84_A = 6378137.0;
+    private static final double WGS84_E2 = 6.69437999014e-3;
+
+    private static final int N = 4;
+
+    // 接收机位置（ECEF）及当地东/北/天方向
+    private double rx, ry, rz;
+    private final double[] east = new double[3];
+    private final double[] north = new double[3];
+    private final double[] up = new double[3];
+
+    // 观测：设计矩阵的方向部分、观测值和权重
+    private final double[] ux = new double[MAX_SATELLITES];
+    private final double[] uy = new double[MAX_SATELLITES];
+    private final double[] uz = new double[MAX_SATELLITES];
+    private final double[] y = new double[MAX_SATELLITES];
+    private final double[] w = new double[MAX_SATELLITES];
+    private final boolean[] used = new boolean[MAX_SATELLITES];
+    private int count = 0;
+
+    // 法方程（行优先）、右端项和解
+    private final double[] normal = new double[N * N];
+    private final double[] rhs = new double[N];
+    private final double[] solution = new double[N];
+    private final double[] temp = new double[N];
+
+    // 结果
+    private int usedCount = 0;
+    private int rejectedCount = 0;
+    private double velocityEast, velocityNorth, velocityUp;
+    private double clockDrift;
+    private double speedUncertainty;
+    private double residualRms;
+
+    /**
+     * 开始新的历元
+     * @param latitude 接收机纬度（度）
+     * @param longitude 接收机经度（度）
+     * @param altitude 接收机椭球高（米），视线方向对高度不敏感，未知时可传0
+     */
+    public void begin(double latitude, double longitude, double altitude) {
+        double phi = Math.toRadians(latitude);
+        double lambda = Math.toRadians(longitude);
+        double sinPhi = Math.sin(phi);
+        double cosPhi = Math.cos(phi);
+        double sinLambda = Math.sin(lambda);
+        double cosLambda = Math.cos(lambda);
+        double radius = WGS84_A / Math.sqrt(1 - WGS84_E2 * sinPhi * sinPhi);
+        rx = (radius + altitude) * cosPhi * cosLambda;
+        ry = (radius + altitude) * cosPhi * sinLambda;
+        rz = (radius * (1 - WGS84_E2) + altitude) * sinPhi;
+
+        east[0] = -sinLambda;
+        east[1] = cosLambda;
+        east[2] = 0;
+        north[0] = -sinPhi * cosLambda;
+        north[1] = -sinPhi * sinLambda;
+        north[2] = cosPhi;
+        up[0] = cosPhi * cosLambda;
+        up[1] = cosPhi * sinLambda;
+        up[2] = sinPhi;
+
+        count = 0;
+        usedCount = 0;
+        rejectedCount = 0;
+    }
+
+    /**
+     * 添加一颗卫星的观测
+     * @param satX 卫星位置X（ECEF，米）
+     * @param satY 卫星位置Y
+     * @param satZ 卫星位置Z
+     * @param satVx 卫星速度X（ECEF，米/秒）
+     * @param satVy 卫星速度Y
+     * @param satVz 卫星速度Z
+     * @param satClockDrift 卫星钟漂（米/秒）
+     * @param pseudorangeRate 伪距率（米/秒），远离为正
+     * @param uncertainty 伪距率精度（米/秒，1σ）
+     * @return 观测是否被采用（仰角过低或数量已满时不采用）
+     */
+    public boolean addMeasurement(double satX, double satY, double satZ,
+                                  double satVx, double satVy, double satVz,
+                                  double satClockDrift, double pseudorangeRate, double uncertainty) {
+        if (count >= MAX_SATELLITES || !(uncertainty > 0)) {
+            return false;
+        }
+        double dx = satX - rx;
+        double dy = satY - ry;
+        double dz = satZ - rz;
+        double range = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (range <= 0) {
+            return false;
+        }
+        dx /= range;
+        dy /= range;
+        dz /= range;
+        if (dx * up[0] + dy * up[1] + dz * up[2] < MIN_ELEVATION_SIN) {
+            return false;
+        }
+
+        // 移到左边的已知项：ρ̇ - vₛ·u + δṡ = -u·vᵣ + d
+        ux[count] = dx;
+        uy[count] = dy;
+        uz[count] = dz;
+        y[count] = pseudorangeRate - (satVx * dx + satVy * dy + satVz * dz) + satClockDrift;
+        double sigma = Math.max(uncertainty, MIN_UNCERTAINTY);
+        w[count] = 1 / (sigma * sigma);
+        used[count] = true;
+        count++;
+        return true;
+    }
+
+    /**
+     * 求解当前历元
+     * @return 是否得到有效解
+     */
+    public boolean solve() {
+        for (int pass = 0; ; pass++) {
+            if (!solveOnce()) {
+                return false;
+            }
+            // 找出归一化残差最大的观测
+            int worst = -1;
+            double worstResidual = MAX_NORMALIZED_RESIDUAL;
+            double sum = 0;
+            for (int i = 0; i < count; i++) {
+                if (!used[i]) {
+                    continue;
+                }
+                double residual = y[i] - predicted(i);
+                sum += residual * residual;
+                double normalized = Math.abs(residual) * Math.sqrt(w[i]);
+                if (normalized > worstResidual) {
+                    worstResidual = normalized;
+                    worst = i;
+                }
+            }
+            residualRms = Math.sqrt(sum / usedCount);
+            if (worst < 0 || pass >= MAX_REJECTIONS || usedCount - 1 < MIN_SATELLITES) {
+                break;
+            }
+            used[worst] = false;
+            rejectedCount++;
+        }
+
+        // 转换到当地东/北/天
+        double vx = solution[0];
+        double vy = solution[1];
+        double vz = solution[2];
+        velocityEast = vx * east[0] + vy * east[1] + vz * east[2];
+        velocityNorth = vx * north[0] + vy * north[1] + vz * north[2];
+        velocityUp = vx * up[0] + vy * up[1] + vz * up[2];
+        clockDrift = solution[3];
+
+        // 水平速度沿运动方向的方差：dᵀPd，P为法方程的逆
+        double speed = getSpeed();
+        if (speed > 0.1) {
+            speedUncertainty = Math.sqrt(directionVariance(
+                    (velocityEast * east[0] + velocityNorth * north[0]) / speed,
+                    (velocityEast * east[1] + velocityNorth * north[1]) / speed,
+                    (velocityEast * east[2] + velocityNorth * north[2]) / speed));
+        } else {
+            // 速度接近0时方向不确定，取东、北两个方向的平均
+            speedUncertainty = Math.sqrt((directionVariance(east[0], east[1], east[2])
+                    + directionVariance(north[0], north[1], north[2])) / 2);
+        }
+        return true;
+    }
+
+    private double predicted(int i) {
+        return -(ux[i] * solution[0] + uy[i] * solution[1] + uz[i] * solution[2]) + solution[3];
+    }
+
+    /**
+     * 累加法方程并用Cholesky分解求解
+     */
+    private boolean solveOnce() {
+        for (int i = 0; i < N * N; i++) {
+            normal[i] = 0;
+        }
+        for (int i = 0; i < N; i++) {
+            rhs[i] = 0;
+        }
+        usedCount = 0;
+        for (int k = 0; k < count; k++) {
+            if (!used[k]) {
+                continue;
+            }
+            temp[0] = -ux[k];
+            temp[1] = -uy[k];
+            temp[2] = -uz[k];
+            temp[3] = 1;
+            double wk = w[k];
+            for (int i = 0; i < N; i++) {
+                double whi = wk * temp[i];
+                rhs[i] += whi * y[k];
+                for (int j = 0; j <= i; j++) {
+                    normal[i * N + j] += whi * temp[j];
+                }
+            }
+            usedCount++;
+        }
+        if (usedCount < MIN_SATELLITES) {
+            return false;
+        }
+
+        // 下三角Cholesky分解（原地）
+        for (int i = 0; i < N; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = normal[i * N + j];
+                for (int k = 0; k < j; k++) {
+                    sum -= normal[i * N + k] * normal[j * N + k];
+                }
+                if (i == j) {
+                    if (sum <= 1e-12) {
+                        return false; // 几何退化
+                    }
+                    normal[i * N + i] = Math.sqrt(sum);
+                } else {
+                    normal[i * N + j] = sum / normal[j * N + j];
+                }
+            }
+        }
+        choleskySolve(rhs, solution);
+        return true;
+    }
+
+    /**
+     * 用已分解的法方程求解 L Lᵀ x = b
+     */
+    private void choleskySolve(double[] b, double[] x) {
+        for (int i = 0; i < N; i++) {
+            double sum = b[i];
+            for (int k = 0; k < i; k++) {
+                sum -= normal[i * N + k] * temp[k];
+            }
+            temp[i] = sum / normal[i * N + i];
+        }
+        for (int i = N - 1; i >= 0; i--) {
+            double sum = temp[i];
+            for (int k = i + 1; k < N; k++) {
+                sum -= normal[k * N + i] * x[k];
+            }
+            x[i] = sum / normal[i * N + i];
+        }
+    }
+
+    /**
+     * @return 沿ECEF方向 (dx, dy, dz) 的速度分量方差
+     */
+    private double directionVariance(double dx, double dy, double dz) {
+        rhs[0] = dx;
+        rhs[1] = dy;
+        rhs[2] = dz;
+        rhs[3] = 0;
+        choleskySolve(rhs, rhs);
+        return dx * rhs[0] + dy * rhs[1] + dz * rhs[2];
+    }
+
+    /**
+     * @return 本历元已添加的观测数量
+     */
+    public int getMeasurementCount() {
+        return count;
+    }
+
+    /**
+     * @return 参与最终解的卫星数量
+     */
+    public int getUsedCount() {
+        return usedCount;
+    }
+
+    /**
+     * @return 被剔除的异常观测数量
+     */
+    public int getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public double getVelocityEast() {
+        return velocityEast;
+    }
+
+    public double getVelocityNorth() {
+        return velocityNorth;
+    }
+
+    public double getVelocityUp() {
+        return velocityUp;
+    }
+
+    /**
+     * @return 接收机钟漂（米/秒）
+     */
+    public double getClockDrift() {
+        return clockDrift;
+    }
+
+    /**
+     * @return 水平速度（米/秒）
+     */
+    public double getSpeed() {
+        return Math.sqrt(velocityEast * velocityEast + velocityNorth * velocityNorth);
+    }
+
+    /**
+     * @return 航向（度，正北为0，顺时针）
+     */
+    public double getBearing() {
+        double bearing = Math.toDegrees(Math.atan2(velocityEast, velocityNorth));
+        return bearing < 0 ? bearing + 360 : bearing;
+    }
+
+    /**
+     * @return 水平速度精度（米/秒，1σ）
+     */
+    public double getSpeedUncertainty() {
+        return speedUncertainty;
+    }
+
+    /**
+     * @return 参与求解的观测的残差均方根（米/秒）
+     */
+    public double getResidualRms() {
+        return residualRms;
+    }
+}
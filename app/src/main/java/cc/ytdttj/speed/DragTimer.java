@@ -0,0 +1,272 @@
+package cc.ytdttj.speed;
+
+/**
+ * 性能测试计时（0-100km/h、400米、100-200km/h，纯Java，不依赖Android框架）
+ * <p>
+ * 开启后先等待静止（速度低于 {@link #STANDSTILL_SPEED} 持续 {@link #ARM_TIME_NANOS}），
+ * 静止后进入待发状态，起步后自动计时。定位点每100ms才有一个，直接取定位点时间会有
+ * 最多100ms的误差，所以所有时刻都在相邻两点之间插值：
+ * <ul>
+ * <li>起步时刻：由起步后前两个运动点的速度线性外推到速度为0的时刻</li>
+ * <li>速度阈值：相邻两点之间速度按线性变化，求跨过阈值的时刻</li>
+ * <li>距离阈值：按相邻两点之间匀加速积分距离，解二次方程求到达的时刻和速度</li>
+ * </ul>
+ * 时间使用定位点的单调时钟（{@link FixRecord#elapsedRealtimeNanos}），不受系统时间调整影响。
+ * 加速度在100ms内近似不变时，插值误差在几毫秒以内。
+ * 不是线程安全的，只能在定位处理线程中访问。
+ */
+public final class DragTimer {
+
+    public static final int STATE_OFF = 0;
+    public static final int STATE_WAITING = 1; // 等待静止
+    public static final int STATE_ARMED = 2; // 静止，等待起步
+    public static final int STATE_RUNNING = 3;
+    public static final int STATE_FINISHED = 4;
+
+    // 与 LocationEngine 的静止速度阈值一致（米/秒）
+    static final float STANDSTILL_SPEED = 0.5f;
+    static final long ARM_TIME_NANOS = 1000000000L;
+    // 两点间隔超过该值时插值不可靠，中止本次测试
+    private static final long MAX_FIX_GAP_NANOS = 1500000000L;
+    private static final long MAX_RUN_NANOS = 60000000000L;
+
+    public static final float SPEED_100 = 100 / 3.6f; // 米/秒
+    public static final float SPEED_200 = 200 / 3.6f;
+    public static final double DISTANCE_400 = 400; // 米
+
+    private int state = STATE_OFF;
+
+    // 待发：静止开始时刻和最后一个静止点
+    private long standstillStartNanos = 0;
+    private long lastStandstillNanos = 0;
+
+    // 起步后第一个点（等第二个点才能外推起步时刻）
+    private boolean hasFirstMovingFix = false;
+    private long firstMovingNanos;
+    private float firstMovingSpeed;
+
+    // 运行中：起步时刻和上一个点
+    private long launchNanos;
+    private long previousNanos;
+    private float previousSpeed;
+    private double distance;
+
+    // 本次结果（纳秒，0表示未达到）
+    private long zeroTo100Nanos;
+    private long speed100Nanos; // 达到100km/h的绝对时刻
+    private long hundredTo200Nanos;
+    private long distance400Nanos;
+    private float trapSpeed400; // 到达400米时的速度（米/秒）
+    private int runCount = 0;
+
+    /**
+     * 开启或关闭性能测试
+     */
+    public void setEnabled(boolean enabled) {
+        if (enabled == (state != STATE_OFF)) {
+            return;
+        }
+        state = enabled ? STATE_WAITING : STATE_OFF;
+        standstillStartNanos = 0;
+        hasFirstMovingFix = false;
+    }
+
+    public boolean isEnabled() {
+        return state != STATE_OFF;
+    }
+
+    /**
+     * @return 是否在等待静止、等待起步或计时中；此时定位必须保持最高频率，
+     * 否则起步后第一个定位点延迟到达，起步时刻和成绩都会偏差
+     */
+    public boolean needsFastUpdates() {
+        return state == STATE_WAITING || state == STATE_ARMED || state == STATE_RUNNING;
+    }
+
+    /**
+     * 处理一个定位点
+     * @param fix 最佳位置（静止时速度已被定位引擎置0）
+     */
+    public void onFix(FixRecord fix) {
+        if (state == STATE_OFF) {
+            return;
+        }
+        long nanos = fix.elapsedRealtimeNanos > 0 ? fix.elapsedRealtimeNanos : fix.time * 1000000L;
+        float speed = fix.hasSpeed ? fix.speed : 0;
+
+        switch (state) {
+            case STATE_WAITING:
+            case STATE_FINISHED:
+                if (speed < STANDSTILL_SPEED) {
+                    if (standstillStartNanos == 0) {
+                        standstillStartNanos = nanos;
+                    } else if (nanos - standstillStartNanos >= ARM_TIME_NANOS) {
+                        state = STATE_ARMED;
+                        hasFirstMovingFix = false;
+                    }
+                    lastStandstillNanos = nanos;
+                } else {
+                    standstillStartNanos = 0;
+                }
+                break;
+            case STATE_ARMED:
+                onArmedFix(nanos, speed);
+                break;
+            case STATE_RUNNING:
+                onRunningFix(nanos, speed);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void onArmedFix(long nanos, float speed) {
+        if (speed < STANDSTILL_SPEED) {
+            hasFirstMovingFix = false;
+            lastStandstillNanos = nanos;
+            return;
+        }
+        if (!hasFirstMovingFix) {
+            hasFirstMovingFix = true;
+            firstMovingNanos = nanos;
+            firstMovingSpeed = speed;
+            return;
+        }
+
+        // 起步：由前两个运动点线性外推速度为0的时刻。低于静止阈值的点可能已经在起步之后
+        // （定位引擎把它的速度置0），所以不按最后一个静止点截断，只限制外推范围
+        long launch = lastStandstillNanos;
+        if (speed > firstMovingSpeed && nanos > firstMovingNanos) {
+            double slope = (speed - firstMovingSpeed) / (double) (nanos - firstMovingNanos);
+            long extrapolated = firstMovingNanos - Math.round(firstMovingSpeed / slope);
+            launch = Math.max(firstMovingNanos - ARM_TIME_NANOS, Math.min(firstMovingNanos, extrapolated));
+        }
+        startRun(launch);
+        onRunningFix(firstMovingNanos, firstMovingSpeed);
+        if (state == STATE_RUNNING) {
+            onRunningFix(nanos, speed);
+        }
+    }
+
+    private void startRun(long launch) {
+        state = STATE_RUNNING;
+        launchNanos = launch;
+        previousNanos = launch;
+        previousSpeed = 0;
+        distance = 0;
+        zeroTo100Nanos = 0;
+        speed100Nanos = 0;
+        hundredTo200Nanos = 0;
+        distance400Nanos = 0;
+        trapSpeed400 = 0;
+    }
+
+    private void onRunningFix(long nanos, float speed) {
+        long dt = nanos - previousNanos;
+        if (dt <= 0) {
+            return;
+        }
+        if (dt > MAX_FIX_GAP_NANOS || speed < STANDSTILL_SPEED || nanos - launchNanos > MAX_RUN_NANOS) {
+            finish();
+            return;
+        }
+
+        // 速度阈值
+        if (speed100Nanos == 0 && speed >= SPEED_100) {
+            speed100Nanos = crossing(previousNanos, dt, previousSpeed, speed, SPEED_100);
+            zeroTo100Nanos = speed100Nanos - launchNanos;
+        }
+        if (speed100Nanos != 0 && hundredTo200Nanos == 0 && speed >= SPEED_200) {
+            hundredTo200Nanos = crossing(previousNanos, dt, previousSpeed, speed, SPEED_200) - speed100Nanos;
+        }
+
+        // 距离阈值：区间内匀加速
+        double seconds = dt / 1e9;
+        double nextDistance = distance + (previousSpeed + speed) * 0.5 * seconds;
+        if (distance400Nanos == 0 && nextDistance >= DISTANCE_400) {
+            double remaining = DISTANCE_400 - distance;
+            double acceleration = (speed - previousSpeed) / seconds;
+            double tau;
+            if (Math.abs(acceleration) < 1e-6) {
+                tau = remaining / previousSpeed;
+            } else {
+                double discriminant = previousSpeed * previousSpeed + 2 * acceleration * remaining;
+                tau = (-previousSpeed + Math.sqrt(Math.max(0, discriminant))) / acceleration;
+            }
+            tau = Math.max(0, Math.min(seconds, tau));
+            distance400Nanos = previousNanos + Math.round(tau * 1e9) - launchNanos;
+            trapSpeed400 = (float) (previousSpeed + acceleration * tau);
+        }
+        distance = nextDistance;
+        previousNanos = nanos;
+        previousSpeed = speed;
+
+        if (zeroTo100Nanos != 0 && hundredTo200Nanos != 0 && distance400Nanos != 0) {
+            finish();
+        }
+    }
+
+    /**
+     * 速度在区间内线性变化，求跨过阈值的时刻
+     */
+    private static long crossing(long startNanos, long dt, float startSpeed, float endSpeed, float threshold) {
+        if (endSpeed <= startSpeed) {
+            return startNanos + dt;
+        }
+        double ratio = (threshold - startSpeed) / (double) (endSpeed - startSpeed);
+        return startNanos + Math.round(dt * Math.max(0, Math.min(1, ratio)));
+    }
+
+    private void finish() {
+        state = STATE_FINISHED;
+        standstillStartNanos = 0;
+        hasFirstMovingFix = false;
+        runCount++;
+    }
+
+    public int getState() {
+        return state;
+    }
+
+    /**
+     * @return 已完成（包括中止）的测试次数
+     */
+    public int getRunCount() {
+        return runCount;
+    }
+
+    /**
+     * @return 0-100km/h用时（纳秒），未达到时为0
+     */
+    public long getZeroTo100Nanos() {
+        return zeroTo100Nanos;
+    }
+
+    /**
+     * @return 100-200km/h用时（纳秒），未达到时为0
+     */
+    public long getHundredTo200Nanos() {
+        return hundredTo200Nanos;
+    }
+
+    /**
+     * @return 400米用时（纳秒），未达到时为0
+     */
+    public long getDistance400Nanos() {
+        return distance400Nanos;
+    }
+
+    /**
+     * @return 到达400米时的速度（米/秒）
+     */
+    public float getTrapSpeed400() {
+        return trapSpeed400;
+    }
+
+    /**
+     * @return 起步后的距离（米）
+     */
+    public double getDistance() {
+        return distance;
+    }
+}
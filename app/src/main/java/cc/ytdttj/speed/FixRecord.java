@@ -0,0 +1,78 @@
+package cc.ytdttj.speed;
+
+/**
+ * 可复用的定位点记录，只包含基本类型字段
+ * <p>
+ * 定位处理热路径上只在预先分配好的实例之间复制数据，避免每个定位点都创建新对象。
+ * 实例不是线程安全的，由持有者负责在同一线程内使用。
+ */
+public final class FixRecord {
+    // 定位来源
+    public static final int PROVIDER_UNKNOWN = 0;
+    public static final int PROVIDER_GPS = 1;
+    public static final int PROVIDER_NETWORK = 2;
+    public static final int PROVIDER_FUSED = 3; // 卡尔曼滤波融合结果
+
+    public int provider = PROVIDER_UNKNOWN;
+    public double latitude;
+    public double longitude;
+    public float accuracy; // 米
+    public boolean hasSpeed;
+    public float speed; // m/s，没有速度信息时为0
+    public boolean hasBearing;
+    public float bearing; // 度，正北为0
+    public boolean hasSpeedAccuracy;
+    public float speedAccuracy; // m/s
+    public long time; // UTC时间（毫秒）
+    // 定位时刻的单调时钟（纳秒，对应 Location.getElapsedRealtimeNanos），未知时为0
+    public long elapsedRealtimeNanos;
+
+    /**
+     * 创建预分配的记录数组
+     * @param length 数组长度
+     */
+    public static FixRecord[] newArray(int length) {
+        FixRecord[] records = new FixRecord[length];
+        for (int i = 0; i < length; i++) {
+            records[i] = new FixRecord();
+        }
+        return records;
+    }
+
+    /**
+     * 从另一条记录复制全部字段
+     * @param other 源记录
+     */
+    public void set(FixRecord other) {
+        provider = other.provider;
+        latitude = other.latitude;
+        longitude = other.longitude;
+        accuracy = other.accuracy;
+        hasSpeed = other.hasSpeed;
+        speed = other.speed;
+        hasBearing = other.hasBearing;
+        bearing = other.bearing;
+        hasSpeedAccuracy = other.hasSpeedAccuracy;
+        speedAccuracy = other.speedAccuracy;
+        time = other.time;
+        elapsedRealtimeNanos = other.elapsedRealtimeNanos;
+    }
+
+    /**
+     * 重置为空记录
+     */
+    public void clear() {
+        provider = PROVIDER_UNKNOWN;
+        latitude = 0;
+        longitude = 0;
+        accuracy = 0;
+        hasSpeed = false;
+        speed = 0;
+        hasBearing = false;
+        bearing = 0;
+        hasSpeedAccuracy = false;
+        speedAccuracy = 0;
+        time = 0;
+        elapsedRealtimeNanos = 0;
+    }
+}
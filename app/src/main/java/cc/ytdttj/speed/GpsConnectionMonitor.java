@@ -0,0 +1,106 @@
+package cc.ytdttj.speed;
+
+/**
+ * GPS连接稳定性判断（纯Java，不依赖Android框架）
+ * <p>
+ * 根据 {@link SignalQualityModel} 的信号质量分数判断GPS是否已连接，短暂的信号中断不会立即判定为断开，
+ * 避免频繁切换定位频率和来源。时间由调用方传入，便于测试和回放。
+ */
+public final class GpsConnectionMonitor {
+
+    private static final int MIN_SCORE_CONNECTED = 40; // 至少相当于4颗优质卫星才算连接良好
+    private static final int MIN_SCORE_STABLE = 60; // 相当于6颗或以上优质卫星立即认为稳定
+    private static final int SCORE_INCREASE_STEP = 20; // 分数显著提高时更新稳定分数
+    private static final long STABLE_VERIFY_TIME = 10000; // 40-59分需保持10秒才认为稳定
+    private static final long SIGNAL_LOSS_TOLERANCE = 30000; // 稳定连接允许的中断时间
+
+    private boolean isConnected = false;
+    private boolean hasStableConnection = false;
+    private int stableScore = 0;
+    private long lastGoodConnectionTime = 0;
+
+    /**
+     * 只有卫星数时更新连接状态（如轨迹回放），按 {@link SignalQualityModel#scoreForSatelliteCount} 换算
+     * @param satellitesInFix 参与定位的卫星数
+     * @param currentTime 当前时间（毫秒）
+     * @return 连接状态是否发生变化
+     */
+    public boolean update(int satellitesInFix, long currentTime) {
+        return updateScore(SignalQualityModel.scoreForSatelliteCount(satellitesInFix), currentTime);
+    }
+
+    /**
+     * 根据新的信号质量更新连接状态
+     * @param score 信号质量分数（0-100）
+     * @param currentTime 当前时间（毫秒）
+     * @return 连接状态是否发生变化
+     */
+    public boolean updateScore(int score, long currentTime) {
+        boolean wasConnected = isConnected;
+
+        if (score >= MIN_SCORE_CONNECTED) {
+            // 如果当前连接良好
+            if (!hasStableConnection) {
+                // 首次建立稳定连接
+                if (score >= MIN_SCORE_STABLE) {
+                    hasStableConnection = true;
+                    stableScore = score;
+                    lastGoodConnectionTime = currentTime;
+                } else if (lastGoodConnectionTime == 0) {
+                    // 记录首次连接时间
+                    lastGoodConnectionTime = currentTime;
+                } else if (currentTime - lastGoodConnectionTime > STABLE_VERIFY_TIME) {
+                    // 连续10秒保持连接，认为稳定
+                    hasStableConnection = true;
+                    stableScore = score;
+                }
+            } else {
+                // 已有稳定连接，更新状态
+                lastGoodConnectionTime = currentTime;
+
+                // 如果信号质量显著提高，更新稳定分数
+                if (score > stableScore + SCORE_INCREASE_STEP) {
+                    stableScore = score;
+                }
+            }
+            isConnected = true;
+        } else if (hasStableConnection) {
+            // 有稳定连接但暂时信号不好，30秒内的中断保持连接状态，避免频繁切换
+            if (currentTime - lastGoodConnectionTime >= SIGNAL_LOSS_TOLERANCE) {
+                hasStableConnection = false;
+                isConnected = false;
+                stableScore = 0;
+            }
+        } else {
+            // 没有稳定连接且当前连接不佳
+            isConnected = score > 0;
+            if (!isConnected) {
+                lastGoodConnectionTime = 0;
+            }
+        }
+
+        return wasConnected != isConnected;
+    }
+
+    public boolean isConnected() {
+        return isConnected;
+    }
+
+    public boolean hasStableConnection() {
+        return hasStableConnection;
+    }
+
+    /**
+     * @return 建立稳定连接时的信号质量分数
+     */
+    public int getStableScore() {
+        return stableScore;
+    }
+
+    public void reset() {
+        isConnected = false;
+        hasStableConnection = false;
+        stableScore = 0;
+        lastGoodConnectionTime = 0;
+    }
+}
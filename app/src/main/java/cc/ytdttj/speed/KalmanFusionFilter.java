@@ -0,0 +1,281 @@
+package cc.ytdttj.speed;
+
+/**
+ * 匀速模型卡尔曼滤波器，用于融合GPS和网络定位
+ * <p>
+ * 状态为局部切平面（东/北，米）中的位置和速度 [x, y, vx, vy]，
+ * 协方差保存在固定大小的一维数组中。每个观测分量按标量顺序更新，
+ * 不需要矩阵求逆，也不分配任何对象，单次更新只需几微秒。
+ * 观测噪声直接取自定位提供者报告的精度，因此精度较差的网络定位权重自然较低。
+ */
+public final class KalmanFusionFilter {
+
+    // 加速度过程噪声谱密度（m²/s³），对应日常驾驶的加减速
+    private static final double ACCELERATION_NOISE = 2.0;
+    // 没有速度精度时使用的默认速度观测方差（m²/s²）
+    private static final double DEFAULT_SPEED_VARIANCE = 1.0;
+    // 静止时零速观测的方差（m²/s²）
+    private static final double ZERO_VELOCITY_VARIANCE = 0.01;
+    // 超过该时间间隔没有观测则重新初始化（毫秒）
+    static final long MAX_PREDICT_GAP = 10000;
+    // 偏离原点超过该距离时重新选取切平面原点（米）
+    static final double MAX_ORIGIN_OFFSET = 10000;
+    // 精度小于该值时视为无效，避免方差为0
+    private static final double MIN_ACCURACY = 1.0;
+
+    private static final double EARTH_RADIUS = 6371008.8;
+
+    private static final int N = 4;
+
+    // 状态向量和协方差矩阵（行优先）
+    private final double[] x = new double[N];
+    private final double[] p = new double[N * N];
+    // 标量更新时复用的临时数组
+    private final double[] h = new double[N];
+    private final double[] ph = new double[N];
+
+    // 切平面原点
+    private double originLatitude;
+    private double originLongitude;
+    private double metersPerDegreeLat;
+    private double metersPerDegreeLon;
+
+    private boolean initialized = false;
+    private long lastTime = 0;
+    private long lastElapsedRealtimeNanos = 0;
+
+    /**
+     * 用新的定位点更新滤波器
+     * @param fix 新定位点
+     * @param stationary 是否处于静止状态（静止时附加零速观测）
+     */
+    public void update(FixRecord fix, boolean stationary) {
+        double accuracy = Math.max(fix.accuracy, MIN_ACCURACY);
+        if (!initialized || fix.time - lastTime > MAX_PREDICT_GAP) {
+            initialize(fix, accuracy);
+        } else {
+            // 乱序到达的旧定位点不回退时间，只做观测更新
+            long dtMillis = fix.time - lastTime;
+            if (dtMillis > 0) {
+                predict(dtMillis / 1000.0);
+                lastTime = fix.time;
+                lastElapsedRealtimeNanos = fix.elapsedRealtimeNanos;
+            }
+
+            double variance = accuracy * accuracy;
+            updateComponent(0, toEast(fix.longitude), variance);
+            updateComponent(1, toNorth(fix.latitude), variance);
+            updateVelocity(fix);
+        }
+
+        if (stationary) {
+            updateComponent(2, 0, ZERO_VELOCITY_VARIANCE);
+            updateComponent(3, 0, ZERO_VELOCITY_VARIANCE);
+        }
+
+        if (Math.abs(x[0]) > MAX_ORIGIN_OFFSET || Math.abs(x[1]) > MAX_ORIGIN_OFFSET) {
+            recenter();
+        }
+    }
+
+    /**
+     * 将当前估计写入定位记录
+     * @param out 输出记录
+     */
+    public void getEstimate(FixRecord out) {
+        out.provider = FixRecord.PROVIDER_FUSED;
+        out.latitude = originLatitude + x[1] / metersPerDegreeLat;
+        out.longitude = originLongitude + x[0] / metersPerDegreeLon;
+        out.accuracy = (float) Math.sqrt(Math.max(p[0], p[N + 1]));
+        out.hasSpeed = true;
+        out.speed = (float) Math.sqrt(x[2] * x[2] + x[3] * x[3]);
+        out.hasBearing = out.speed > 0;
+        out.bearing = out.hasBearing ? (float) normalizeBearing(Math.toDegrees(Math.atan2(x[2], x[3]))) : 0;
+        out.hasSpeedAccuracy = true;
+        out.speedAccuracy = (float) Math.sqrt(Math.max(p[2 * N + 2], p[3 * N + 3]));
+        out.time = lastTime;
+        out.elapsedRealtimeNanos = lastElapsedRealtimeNanos;
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    public void reset() {
+        initialized = false;
+        lastTime = 0;
+        lastElapsedRealtimeNanos = 0;
+    }
+
+    /**
+     * 用第一个定位点初始化状态
+     */
+    private void initialize(FixRecord fix, double accuracy) {
+        setOrigin(fix.latitude, fix.longitude);
+        x[0] = 0;
+        x[1] = 0;
+        x[2] = 0;
+        x[3] = 0;
+        double speedVariance = 100; // 初始速度未知
+        if (fix.hasSpeed && fix.hasBearing) {
+            double bearing = Math.toRadians(fix.bearing);
+            x[2] = fix.speed * Math.sin(bearing);
+            x[3] = fix.speed * Math.cos(bearing);
+            speedVariance = speedVariance(fix);
+        }
+        for (int i = 0; i < N * N; i++) {
+            p[i] = 0;
+        }
+        p[0] = accuracy * accuracy;
+        p[N + 1] = accuracy * accuracy;
+        p[2 * N + 2] = speedVariance;
+        p[3 * N + 3] = speedVariance;
+        lastTime = fix.time;
+        lastElapsedRealtimeNanos = fix.elapsedRealtimeNanos;
+        initialized = true;
+    }
+
+    /**
+     * 预测步骤：x = F x，P = F P F' + Q
+     */
+    private void predict(double dt) {
+        x[0] += x[2] * dt;
+        x[1] += x[3] * dt;
+
+        // F只耦合位置和对应的速度，F P F' 可以直接展开
+        for (int r = 0; r < 2; r++) {
+            // P = F P：第0、1行加上dt倍的第2、3行
+            for (int c = 0; c < N; c++) {
+                p[r * N + c] += dt * p[(r + 2) * N + c];
+            }
+        }
+        for (int r = 0; r < N; r++) {
+            // P = P F'：第0、1列加上dt倍的第2、3列
+            p[r * N] += dt * p[r * N + 2];
+            p[r * N + 1] += dt * p[r * N + 3];
+        }
+
+        // 白噪声加速度模型的过程噪声
+        double q = ACCELERATION_NOISE;
+        double dt2 = dt * dt;
+        double qPos = q * dt2 * dt / 3;
+        double qCross = q * dt2 / 2;
+        double qVel = q * dt;
+        for (int axis = 0; axis < 2; axis++) {
+            int pos = axis;
+            int vel = axis + 2;
+            p[pos * N + pos] += qPos;
+            p[pos * N + vel] += qCross;
+            p[vel * N + pos] += qCross;
+            p[vel * N + vel] += qVel;
+        }
+    }
+
+    /**
+     * 速度观测：有航向时分解为东/北分量，否则使用速率的线性化观测
+     */
+    private void updateVelocity(FixRecord fix) {
+        if (!fix.hasSpeed) {
+            return;
+        }
+        double variance = speedVariance(fix);
+        if (fix.hasBearing) {
+            double bearing = Math.toRadians(fix.bearing);
+            updateComponent(2, fix.speed * Math.sin(bearing), variance);
+            updateComponent(3, fix.speed * Math.cos(bearing), variance);
+            return;
+        }
+
+        double speed = Math.sqrt(x[2] * x[2] + x[3] * x[3]);
+        if (speed < 0.1) {
+            // 速度方向未知，无法线性化
+            return;
+        }
+        h[0] = 0;
+        h[1] = 0;
+        h[2] = x[2] / speed;
+        h[3] = x[3] / speed;
+        updateScalar(fix.speed - speed, variance);
+    }
+
+    /**
+     * 直接观测某一个状态分量
+     */
+    private void updateComponent(int index, double z, double variance) {
+        for (int i = 0; i < N; i++) {
+            h[i] = 0;
+        }
+        h[index] = 1;
+        updateScalar(z - x[index], variance);
+    }
+
+    /**
+     * 标量观测更新，观测向量保存在h中
+     * @param innovation 观测残差 z - h x
+     * @param variance 观测方差
+     */
+    private void updateScalar(double innovation, double variance) {
+        // ph = P h'
+        double s = variance;
+        for (int i = 0; i < N; i++) {
+            double sum = 0;
+            for (int j = 0; j < N; j++) {
+                sum += p[i * N + j] * h[j];
+            }
+            ph[i] = sum;
+            s += h[i] * sum;
+        }
+        if (s <= 0) {
+            return;
+        }
+
+        // K = ph / s；x += K * innovation；P -= K ph'
+        double invS = 1.0 / s;
+        for (int i = 0; i < N; i++) {
+            x[i] += ph[i] * invS * innovation;
+        }
+        for (int i = 0; i < N; i++) {
+            double ki = ph[i] * invS;
+            for (int j = 0; j < N; j++) {
+                p[i * N + j] -= ki * ph[j];
+            }
+        }
+    }
+
+    private static double speedVariance(FixRecord fix) {
+        if (fix.hasSpeedAccuracy && fix.speedAccuracy > 0) {
+            return fix.speedAccuracy * fix.speedAccuracy;
+        }
+        return DEFAULT_SPEED_VARIANCE;
+    }
+
+    /**
+     * 把原点移动到当前估计位置，速度和协方差保持不变
+     */
+    void recenter() {
+        double latitude = originLatitude + x[1] / metersPerDegreeLat;
+        double longitude = originLongitude + x[0] / metersPerDegreeLon;
+        setOrigin(latitude, longitude);
+        x[0] = 0;
+        x[1] = 0;
+    }
+
+    private void setOrigin(double latitude, double longitude) {
+        originLatitude = latitude;
+        originLongitude = longitude;
+        metersPerDegreeLat = Math.toRadians(EARTH_RADIUS);
+        metersPerDegreeLon = metersPerDegreeLat * Math.cos(Math.toRadians(latitude));
+    }
+
+    private double toEast(double longitude) {
+        return (longitude - originLongitude) * metersPerDegreeLon;
+    }
+
+    private double toNorth(double latitude) {
+        return (latitude - originLatitude) * metersPerDegreeLat;
+    }
+
+    private static double normalizeBearing(double degrees) {
+        return degrees < 0 ? degrees + 360 : degrees;
+    }
+}
@@ -0,0 +1,123 @@
+package cc.ytdttj.speed;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁延迟直方图（纯Java，不依赖Android框架）
+ * <p>
+ * 按微秒分桶：8微秒以下每微秒一个桶，之后每个2的幂区间分为8个桶，相对误差不超过12.5%，
+ * 上限约134秒，超出的记入最后一个桶。记录只有一次原子自增（和偶尔的最大值CAS），
+ * 不加锁、不分配对象，可以在多个线程中同时记录，并在另一个线程（如dumpsys）中读取。
+ * 读取时各个桶不是同一时刻的快照，百分位可能与最新的几次记录有微小出入。
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 26; // 2^27微秒约134秒
+    static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * 记录一次延迟
+     * @param nanos 延迟（纳秒），负值被忽略
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        buckets.incrementAndGet(bucketIndex(nanos / 1000));
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int sub = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return 桶的下界（微秒）
+     */
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * @return 桶的中点（微秒），作为落在该桶内的延迟的代表值
+     */
+    private static long bucketMidpoint(int index) {
+        long lower = bucketLowerBound(index);
+        if (index < SUB_BUCKETS) {
+            return lower;
+        }
+        long upper = index + 1 < BUCKET_COUNT ? bucketLowerBound(index + 1) : lower * 2;
+        return (lower + upper) / 2;
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @param percentile 百分位（0-100）
+     * @return 延迟（微秒），没有记录时为0
+     */
+    public long getPercentileMicros(double percentile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        // 第 rank 个记录（从1开始）所在的桶
+        long rank = Math.max(1, (long) Math.ceil(count * Math.min(100, percentile) / 100));
+        if (rank >= count) {
+            return getMaxMicros();
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(bucketMidpoint(i), getMaxMicros());
+            }
+        }
+        return getMaxMicros();
+    }
+
+    /**
+     * @return 最大延迟（微秒）
+     */
+    public long getMaxMicros() {
+        return maxNanos.get() / 1000;
+    }
+
+    /**
+     * 清空记录（与并发的记录之间没有原子性，只用于开始新的一轮对比）
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        maxNanos.set(0);
+    }
+}
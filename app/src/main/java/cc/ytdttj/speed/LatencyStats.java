@@ -0,0 +1,52 @@
+package cc.ytdttj.speed;
+
+/**
+ * 简单的延迟统计（次数、平均值、最大值）
+ * <p>
+ * 只在单一线程中记录，不分配对象。
+ */
+public final class LatencyStats {
+
+    private long count = 0;
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+
+    /**
+     * 记录一次延迟
+     * @param nanos 延迟（纳秒），负值被忽略
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        count++;
+        totalNanos += nanos;
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return 平均延迟（微秒）
+     */
+    public long getAverageMicros() {
+        return count == 0 ? 0 : totalNanos / count / 1000;
+    }
+
+    /**
+     * @return 最大延迟（微秒）
+     */
+    public long getMaxMicros() {
+        return maxNanos / 1000;
+    }
+
+    public void reset() {
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+}
@@ -0,0 +1,388 @@
+package cc.ytdttj.speed;
+
+/**
+ * 定位处理引擎（纯Java，不依赖Android框架）
+ * <p>
+ * 负责位置有效性检查、静止状态检测以及GPS/网络定位的最佳来源选择，
+ * 融合模式下改用 {@link KalmanFusionFilter} 同时融合两个来源。
+ * 所有状态都保存在预分配的 {@link FixRecord} 中，处理每个定位点时不分配对象。
+ * 调用方需要在同一线程内使用，并传入当前时间，便于测试和回放。
+ */
+public final class LocationEngine {
+
+    // 最佳位置来源
+    public static final int SOURCE_NONE = 0;
+    public static final int SOURCE_GPS = 1;
+    public static final int SOURCE_NETWORK = 2;
+    public static final int SOURCE_FUSED = 3;
+
+    // 静止状态检测参数
+    private static final float STATIONARY_SPEED_THRESHOLD = 0.5f; // m/s
+    private static final long STATIONARY_TIME_THRESHOLD = 3000; // ms
+    private static final float STATIONARY_RADIUS = 5.0f; // 静止半径（米）
+
+    // 有效性检查参数
+    private static final float MAX_VALID_ACCURACY = 100; // 米
+    private static final long MAX_FIX_AGE = 10000; // ms
+    private static final float MAX_VALID_SPEED = 83.33f; // 300km/h = 83.33m/s
+
+    // GNSS批量模式下定位点的最长缓存时间（毫秒）
+    public static final long MAX_BATCH_DELAY = 60000;
+
+    // 最后获取的位置
+    private final FixRecord lastGpsFix = new FixRecord();
+    private final FixRecord lastNetworkFix = new FixRecord();
+    private boolean hasGpsFix = false;
+    private boolean hasNetworkFix = false;
+
+    // 静止状态检测
+    private final FixRecord lastValidFix = new FixRecord();
+    private boolean hasLastValidFix = false;
+    private long lastMovementTime = 0;
+    private long stationaryStartTime = 0;
+    private boolean isStationary = false;
+
+    // 外部状态
+    private boolean isUsingBalancedMode = false;
+    private boolean isGpsConnected = false;
+    private boolean isFusionMode = false;
+
+    // 融合模式
+    private final KalmanFusionFilter fusionFilter = new KalmanFusionFilter();
+    private final FixRecord fusedFix = new FixRecord();
+
+    private int bestSource = SOURCE_NONE;
+
+    public void setBalancedMode(boolean balancedMode) {
+        this.isUsingBalancedMode = balancedMode;
+    }
+
+    public void setGpsConnected(boolean gpsConnected) {
+        this.isGpsConnected = gpsConnected;
+    }
+
+    /**
+     * 设置是否使用卡尔曼滤波融合模式
+     * @param fusionMode true时融合GPS和网络定位，false时按评分选择单一来源
+     */
+    public void setFusionMode(boolean fusionMode) {
+        if (this.isFusionMode != fusionMode) {
+            this.isFusionMode = fusionMode;
+            fusionFilter.reset();
+        }
+    }
+
+    /**
+     * 处理新的定位点
+     * <p>
+     * 处于静止状态时会把 {@code fix} 的速度改为0。
+     * @param fix 新定位点
+     * @param currentTime 当前UTC时间（毫秒）
+     * @return 定位点是否被接受；被接受后可通过 {@link #getBestSource()} 获取最佳来源
+     */
+    public boolean process(FixRecord fix, long currentTime) {
+        PipelineMetrics.countFix(fix.provider);
+        // 过滤明显错误的位置数据
+        if (!isLocationValid(fix, currentTime)) {
+            // 如果位置无效，但我们之前处于静止状态，则允许速度归零
+            if (isStationary) {
+                PipelineMetrics.record(PipelineMetrics.STATIONARY_KEEP, fix.provider, currentTime, fix.speed);
+                fix.speed = 0;
+            } else {
+                return false;
+            }
+        }
+
+        // 静止状态检测
+        if (fix.speed < STATIONARY_SPEED_THRESHOLD) {
+            if (stationaryStartTime == 0) {
+                stationaryStartTime = currentTime;
+            } else if (!isStationary && currentTime - stationaryStartTime > STATIONARY_TIME_THRESHOLD) {
+                isStationary = true;
+                PipelineMetrics.record(PipelineMetrics.STATIONARY_LOCK, fix.provider, currentTime, fix.speed);
+            }
+        } else {
+            stationaryStartTime = 0;
+            if (isStationary) {
+                isStationary = false;
+                PipelineMetrics.record(PipelineMetrics.STATIONARY_RELEASE, fix.provider, currentTime, fix.speed);
+            }
+        }
+
+        if (isStationary) {
+            fix.speed = 0;
+        }
+
+        // 更新最后获取的位置
+        if (fix.provider == FixRecord.PROVIDER_GPS) {
+            lastGpsFix.set(fix);
+            hasGpsFix = true;
+        } else if (fix.provider == FixRecord.PROVIDER_NETWORK) {
+            lastNetworkFix.set(fix);
+            hasNetworkFix = true;
+        }
+
+        // 选择最佳位置
+        if (isFusionMode) {
+            fusionFilter.update(fix, isStationary);
+            fusionFilter.getEstimate(fusedFix);
+            if (isStationary) {
+                fusedFix.speed = 0;
+            }
+            bestSource = SOURCE_FUSED;
+        } else {
+            bestSource = selectBestSource(currentTime);
+        }
+        FixRecord bestFix = getBestFix();
+
+        // 如果是有效移动或首次获取位置，更新静止检测的参考点
+        if (bestFix != null) {
+            if (!hasLastValidFix || DistanceKernel.distance(lastValidFix, bestFix) >= STATIONARY_RADIUS) {
+                lastValidFix.set(bestFix);
+                hasLastValidFix = true;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 一次处理一批定位点（GNSS批量模式）
+     * <p>
+     * 批量送达的定位点可能比送达时间早几十秒，因此以每个点自己的时间作为当前时间进行
+     * 有效性检查和静止检测；早于 {@code maxBatchAge} 的点仍按送达时间检查（会被判为过时）。
+     * 与逐点调用 {@link #process} 相比，只在调用方一侧产生一次唤醒和一次结果发布。
+     * @param fixes 按时间顺序排列的定位点，处于静止状态时其速度会被改为0
+     * @param count 定位点数量
+     * @param deliveryTime 批量送达时的UTC时间（毫秒）
+     * @param maxBatchAge 允许的最大批量延迟（毫秒）
+     * @param out 接受的定位点对应的最佳位置副本，容量不小于 {@code count}
+     * @return 接受的定位点数量
+     */
+    public int processBatch(FixRecord[] fixes, int count, long deliveryTime, long maxBatchAge, FixRecord[] out) {
+        int accepted = 0;
+        for (int i = 0; i < count; i++) {
+            FixRecord fix = fixes[i];
+            long age = deliveryTime - fix.time;
+            long currentTime = age >= 0 && age <= maxBatchAge ? fix.time : deliveryTime;
+            if (process(fix, currentTime)) {
+                FixRecord bestFix = getBestFix();
+                if (bestFix != null) {
+                    out[accepted++].set(bestFix);
+                }
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * @return 最近一次 {@link #process} 选出的最佳来源
+     */
+    public int getBestSource() {
+        return bestSource;
+    }
+
+    /**
+     * @return 最佳来源对应的定位点，没有时返回null
+     */
+    public FixRecord getBestFix() {
+        switch (bestSource) {
+            case SOURCE_GPS:
+                return lastGpsFix;
+            case SOURCE_NETWORK:
+                return lastNetworkFix;
+            case SOURCE_FUSED:
+                return fusedFix;
+            default:
+                return null;
+        }
+    }
+
+    public boolean isStationary() {
+        return isStationary;
+    }
+
+    /**
+     * 清空所有定位状态
+     */
+    public void reset() {
+        hasGpsFix = false;
+        hasNetworkFix = false;
+        hasLastValidFix = false;
+        lastMovementTime = 0;
+        stationaryStartTime = 0;
+        isStationary = false;
+        bestSource = SOURCE_NONE;
+        fusionFilter.reset();
+    }
+
+    /**
+     * 验证位置数据的有效性
+     * @param fix 位置数据
+     * @param currentTime 当前时间
+     * @return 是否有效
+     */
+    boolean isLocationValid(FixRecord fix, long currentTime) {
+        // 检查基本有效性
+        if (fix.latitude == 0.0 && fix.longitude == 0.0) {
+            PipelineMetrics.record(PipelineMetrics.REJECT_NO_POSITION, fix.provider, currentTime, 0);
+            return false;
+        }
+
+        // 检查精度是否合理（大于100米的位置可能不准确）
+        if (fix.accuracy > MAX_VALID_ACCURACY) {
+            PipelineMetrics.record(PipelineMetrics.REJECT_ACCURACY, fix.provider, currentTime, fix.accuracy);
+            return false;
+        }
+
+        // 检查时间是否太旧（超过10秒的位置数据可能过时）
+        if (currentTime - fix.time > MAX_FIX_AGE) {
+            PipelineMetrics.record(PipelineMetrics.REJECT_STALE, fix.provider, currentTime, currentTime - fix.time);
+            return false;
+        }
+
+        // 检查速度是否合理（超过300km/h的速度可能是错误数据）
+        if (fix.hasSpeed && fix.speed > MAX_VALID_SPEED) {
+            PipelineMetrics.record(PipelineMetrics.REJECT_SPEED, fix.provider, currentTime, fix.speed);
+            return false;
+        }
+
+        // 静止状态检测：过滤GPS漂移
+        if (hasLastValidFix) {
+            double distance = DistanceKernel.distance(lastValidFix, fix);
+
+            // 如果移动距离很小，可能是GPS漂移
+            if (distance < STATIONARY_RADIUS) {
+                // 在静止状态下，只接受精度更高的位置
+                if (isInStationaryState(fix, currentTime)) {
+                    if (fix.accuracy < lastValidFix.accuracy - 2.0f) {
+                        return true;
+                    }
+                    PipelineMetrics.record(PipelineMetrics.REJECT_DRIFT, fix.provider, currentTime, (float) distance);
+                    return false;
+                }
+            } else {
+                // 有明显移动，更新最后移动时间
+                lastMovementTime = currentTime;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * 检查是否处于静止状态
+     * @param fix 当前位置
+     * @param currentTime 当前时间
+     * @return 是否静止
+     */
+    private boolean isInStationaryState(FixRecord fix, long currentTime) {
+        // 如果速度很低且在静止半径内超过阈值时间，认为是静止状态
+        boolean lowSpeed = !fix.hasSpeed || fix.speed < STATIONARY_SPEED_THRESHOLD; // 小于1.8km/h
+        boolean stationaryTime = (currentTime - lastMovementTime) > STATIONARY_TIME_THRESHOLD;
+
+        return lowSpeed && stationaryTime;
+    }
+
+    /**
+     * 选择最佳位置来源
+     * @param currentTime 当前时间
+     * @return 最佳来源
+     */
+    private int selectBestSource(long currentTime) {
+        // 如果只有一个位置可用，直接返回
+        if (!hasGpsFix) return hasNetworkFix ? SOURCE_NETWORK : SOURCE_NONE;
+        if (!hasNetworkFix) return SOURCE_GPS;
+
+        float gpsAccuracy = lastGpsFix.accuracy;
+        float networkAccuracy = lastNetworkFix.accuracy;
+        long gpsTime = lastGpsFix.time;
+        long networkTime = lastNetworkFix.time;
+
+        // 检查位置数据的新鲜度
+        boolean gpsIsFresh = (currentTime - gpsTime) < 5000; // GPS数据5秒内为新鲜
+        boolean networkIsFresh = (currentTime - networkTime) < 10000; // 网络数据10秒内为新鲜
+
+        // 如果在高精度模式下
+        if (!isUsingBalancedMode) {
+            // 优先使用新鲜的GPS数据
+            if (gpsIsFresh) {
+                return SOURCE_GPS;
+            }
+            // 如果GPS数据不新鲜但网络数据新鲜且精度可接受，使用网络数据
+            if (networkIsFresh && networkAccuracy < 50) {
+                return SOURCE_NETWORK;
+            }
+            // 否则仍使用GPS数据（即使不够新鲜）
+            return SOURCE_GPS;
+        }
+
+        // 平衡模式下的智能选择策略
+
+        // 1. 如果GPS连接良好且数据新鲜，优先使用GPS
+        if (isGpsConnected && gpsIsFresh && gpsAccuracy < 20) {
+            return SOURCE_GPS;
+        }
+
+        // 2. 如果GPS精度明显更好且数据不太旧，使用GPS
+        if (gpsAccuracy < networkAccuracy * 0.6 && (currentTime - gpsTime) < 15000) {
+            return SOURCE_GPS;
+        }
+
+        // 3. 如果网络位置更新且精度可接受，使用网络位置
+        if (networkIsFresh && networkAccuracy < 100 && networkTime > gpsTime + 5000) {
+            return SOURCE_NETWORK;
+        }
+
+        // 4. 根据综合评分选择最佳位置
+        float gpsScore = calculateLocationScore(lastGpsFix, currentTime);
+        float networkScore = calculateLocationScore(lastNetworkFix, currentTime);
+
+        return gpsScore >= networkScore ? SOURCE_GPS : SOURCE_NETWORK;
+    }
+
+    /**
+     * 计算位置数据的综合评分
+     * @param fix 位置数据
+     * @param currentTime 当前时间
+     * @return 评分（越高越好）
+     */
+    static float calculateLocationScore(FixRecord fix, long currentTime) {
+        float score = 100; // 基础分数
+
+        // 精度评分（精度越高分数越高）
+        float accuracy = fix.accuracy;
+        if (accuracy <= 5) {
+            score += 50; // 高精度加分
+        } else if (accuracy <= 20) {
+            score += 30; // 中等精度加分
+        } else if (accuracy <= 50) {
+            score += 10; // 低精度少量加分
+        } else {
+            score -= (accuracy - 50) * 0.5f; // 精度太差扣分
+        }
+
+        // 时效性评分（越新鲜分数越高）
+        long age = currentTime - fix.time;
+        if (age <= 1000) {
+            score += 30; // 1秒内的数据加分
+        } else if (age <= 5000) {
+            score += 20; // 5秒内的数据加分
+        } else if (age <= 15000) {
+            score += 10; // 15秒内的数据少量加分
+        } else {
+            score -= (age - 15000) * 0.001f; // 超过15秒的数据扣分
+        }
+
+        // GPS提供者加分
+        if (fix.provider == FixRecord.PROVIDER_GPS) {
+            score += 20;
+        }
+
+        // 如果有速度信息且合理，加分
+        if (fix.hasSpeed && fix.speed >= 0 && fix.speed <= MAX_VALID_SPEED) {
+            score += 15;
+        }
+
+        return Math.max(0, score);
+    }
+}
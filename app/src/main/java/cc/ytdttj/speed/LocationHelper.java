@@ -1,25 +1,39 @@
 package cc.ytdttj.speed;
 
 import android.Manifest;
+import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.pm.PackageManager;
+import android.location.GnssClock;
+import android.location.GnssMeasurement;
+import android.location.GnssMeasurementsEvent;
 import android.location.GnssStatus;
+import android.location.SatellitePvt;
 import android.location.Location;
 import android.location.LocationListener;
 import android.location.LocationManager;
+import android.location.LocationRequest;
 import android.os.Build;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.core.app.ActivityCompat;
 
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * 位置服务助手类，提供高精度和平衡模式的定位功能
+ * <p>
+ * 所有定位和GNSS状态回调都在独立的定位处理线程中执行，不占用主线程。
+ * 监听器回调同样在该线程中调用，界面需要自行切换到主线程。
  */
 public class LocationHelper {
     private static final String TAG = "LocationHelper";
@@ -28,48 +42,87 @@ public class LocationHelper {
     private static final String PROVIDER_GPS = LocationManager.GPS_PROVIDER;
     private static final String PROVIDER_NETWORK = LocationManager.NETWORK_PROVIDER;
     
-    // GPS更新频率（毫秒）- 进一步优化为极快的刷新频率
-    private static final long GPS_UPDATE_INTERVAL_SEARCHING = 100; // 搜星中的更新频率 - 优化到100ms
-    private static final long GPS_UPDATE_INTERVAL_CONNECTED = 100; // 已连接的更新频率 - 保持100ms
-    private static final long GPS_UPDATE_INTERVAL_STABLE = 100; // 稳定连接的更新频率 - 优化到100ms
+    // GPS更新频率由 UpdateIntervalPolicy 根据运动状态选择
     private static final long NETWORK_UPDATE_INTERVAL = 500; // 网络定位更新频率 - 优化到500ms
     
     // 最小距离变化（米）
     private static final float MIN_DISTANCE_CHANGE = 0;
     
+    // GNSS批量模式：定位点由芯片缓存，最多每分钟唤醒一次应用
+    private static final long BATCH_GPS_UPDATE_INTERVAL = 1000; // 批量模式下GPS的最短更新间隔
+    
     private Context context;
     private LocationManager locationManager;
-    private LocationListener locationListener;
+    // 每个提供者使用独立的监听器，移除一个提供者不会影响另一个
+    private LocationListener gpsListener;
+    private LocationListener networkListener;
+    private final ProviderRegistrations registrations = new ProviderRegistrations();
+    private boolean isLocationStarted = false;
     private GnssStatus.Callback gnssStatusCallback;
-    private Handler satelliteStatusHandler = new Handler(Looper.getMainLooper());
+    private boolean isGnssStatusRegistered = false;
+    
+    // 多普勒测速（原始GNSS观测）
+    // 时间差都用单调时钟计算，不受系统时间与GNSS时间偏差的影响
+    private static final long MAX_DOPPLER_POSITION_AGE_NANOS = 2000_000_000L; // 求解所用的接收机位置最长有效时间
+    private static final long DOPPLER_TIMEOUT_NANOS = 1500_000_000L; // 定位点与最近多普勒解相差超过该时间则使用平台速度
+    private GnssMeasurementsEvent.Callback measurementsCallback;
+    private boolean isMeasurementsRegistered = false;
+    private boolean isDopplerEnabled = false;
+    private final DopplerVelocitySolver dopplerSolver = new DopplerVelocitySolver();
+    private final FixRecord lastGpsInput = new FixRecord();
+    private boolean hasGpsInput = false;
+    // 最近一个历元的多普勒速度，只用来替换平台定位点的速度和方向
+    private boolean hasDopplerVelocity = false;
+    private long dopplerEpochNanos = 0;
+    private float dopplerSpeed;
+    private float dopplerBearing;
+    private float dopplerSpeedAccuracy;
+    // 定位处理线程
+    private final HandlerThread processingThread;
+    private final Looper processingLooper;
+    private Handler satelliteStatusHandler;
+    private final CoalescingDispatcher satelliteStatusDispatcher;
     private int lastSentSatelliteCount = -1;
     private int lastSentSatellitesUsedInFix = -1;
+    private int lastSentSignalLevel = -1;
     private static final long SATELLITE_STATUS_UPDATE_DELAY = 1500; // 1.5秒延迟
+    private static final long SATELLITE_STATUS_MAX_LATENCY = 3000; // 连续变化时最多3秒更新一次
     private static final int SATELLITE_COUNT_STABILITY_THRESHOLD = 2; // 2颗卫星的波动阈值
     private Handler handler;
+    private final Executor processingExecutor;
     
     // 状态变量
-    private boolean isGpsConnected = false;
     private boolean isUsingBalancedMode = false;
+    private boolean isPerformanceTiming = false;
+    private boolean isFusionEnabled = false;
+    private boolean hasAppliedLocationMode = false;
+    // 只有影响定位配置的设置变化时才重新应用定位模式（在主线程中回调）
+    private final SettingsStore.Listener settingsListener = (previous, current) -> {
+        if (!previous.hasSameLocationConfig(current)) {
+            updateLocationMode();
+        }
+    };
     private boolean isGpsEnabled = false;
     private boolean isNetworkEnabled = false;
     
     // 卫星信息
     private int satelliteCount = 0;
     private int satellitesInFix = 0;
-    private int stableSatelliteCount = 0; // 稳定连接的卫星数量
-    private long lastGoodConnectionTime = 0; // 上次良好连接的时间
-    private boolean hasStableConnection = false; // 是否有稳定连接
+    private int signalQuality = 0;
+    private final SignalQualityModel signalQualityModel = new SignalQualityModel();
+    private final GpsConnectionMonitor connectionMonitor = new GpsConnectionMonitor();
+    private final UpdateIntervalPolicy intervalPolicy = new UpdateIntervalPolicy();
 
-    // 静止状态检测
-    private static final float STATIONARY_SPEED_THRESHOLD = 0.5f; // m/s
-    private static final long STATIONARY_TIME_THRESHOLD = 3000; // ms
-    private long stationaryStartTime = 0;
-    private boolean isStationary = false;
+    // 定位处理引擎（有效性检查、静止检测和最佳来源选择）
+    private final LocationEngine locationEngine = new LocationEngine();
+    private final FixRecord inputFix = new FixRecord();
+    // 当前定位点在处理线程中被收到的时刻（单调时钟，纳秒），用于延迟统计
+    private long callbackNanos = 0;
     
-    // 最后获取的位置
-    private Location lastGpsLocation;
-    private Location lastNetworkLocation;
+    // GNSS批量模式
+    private boolean isBatchMode = false;
+    private FixRecord[] batchInput = new FixRecord[0];
+    private FixRecord[] batchOutput = new FixRecord[0];
     
     // 回调接口
     private OnLocationUpdateListener locationUpdateListener;
@@ -77,7 +130,28 @@ public class LocationHelper {
     
     public LocationHelper(Context context) {
         this.context = context;
-        this.handler = new Handler(Looper.getMainLooper());
+        this.processingThread = new HandlerThread("LocationProcessing", Process.THREAD_PRIORITY_FOREGROUND);
+        this.processingThread.start();
+        this.processingLooper = processingThread.getLooper();
+        this.handler = new Handler(processingLooper);
+        this.processingExecutor = handler::post;
+        this.satelliteStatusHandler = new Handler(processingLooper);
+        this.satelliteStatusDispatcher = new CoalescingDispatcher(new CoalescingDispatcher.Scheduler() {
+            @Override
+            public void postDelayed(Runnable runnable, long delayMillis) {
+                satelliteStatusHandler.postDelayed(runnable, delayMillis);
+            }
+            
+            @Override
+            public void removeCallbacks(Runnable runnable) {
+                satelliteStatusHandler.removeCallbacks(runnable);
+            }
+            
+            @Override
+            public long now() {
+                return SystemClock.uptimeMillis();
+            }
+        }, this::dispatchSatelliteStatus, SATELLITE_STATUS_UPDATE_DELAY, SATELLITE_STATUS_MAX_LATENCY);
         this.locationManager = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
     }
     
@@ -89,44 +163,156 @@ public class LocationHelper {
     public void initialize(OnLocationUpdateListener locationListener, OnGpsStatusChangeListener gpsStatusListener) {
         this.locationUpdateListener = locationListener;
         this.gpsStatusChangeListener = gpsStatusListener;
+        SettingsStore.getInstance(context).addListener(settingsListener);
         
-        // 检查定位模式
-        updateLocationMode();
-        
-        // 初始化位置监听器
-        initLocationListener();
-        
-        // 初始化GNSS状态回调
-        initGnssStatusCallback();
-        
-        // 开始定位
-        startLocationUpdates();
+        runOnProcessingThread(() -> {
+            // 检查定位模式
+            applyLocationMode();
+            
+            // 初始化位置监听器
+            initLocationListeners();
+            
+            // 初始化GNSS状态回调
+            initGnssStatusCallback();
+            initMeasurementsCallback();
+            
+            // 开始定位
+            registerLocationUpdates();
+        });
+    }
+    
+    /**
+     * @return 定位处理线程的Looper，监听器回调都在该线程中执行
+     */
+    public Looper getProcessingLooper() {
+        return processingLooper;
+    }
+    
+    /**
+     * 释放定位处理线程，之后不能再使用该实例
+     */
+    public void release() {
+        SettingsStore.getInstance(context).removeListener(settingsListener);
+        runOnProcessingThread(() -> {
+            unregisterLocationUpdates();
+            satelliteStatusDispatcher.cancel();
+        });
+        processingThread.quitSafely();
+    }
+
+    /**
+     * 输出卫星状态分发的统计（dumpsys 调用，任意线程）
+     */
+    public void dump(PrintWriter writer) {
+        writer.println("卫星状态: 收到" + satelliteStatusDispatcher.getEventCount()
+                + "次，合并" + satelliteStatusDispatcher.getCoalescedCount()
+                + "次，丢弃" + satelliteStatusDispatcher.getDroppedCount()
+                + "次，通知" + satelliteStatusDispatcher.getDispatchCount() + "次");
+    }
+    
+    /**
+     * 在定位处理线程中执行，已在该线程时直接执行
+     */
+    private void runOnProcessingThread(Runnable runnable) {
+        if (Looper.myLooper() == processingLooper) {
+            runnable.run();
+        } else {
+            handler.post(runnable);
+        }
     }
     
     /**
-     * 更新定位模式（高精度或平衡模式）
+     * 更新定位模式（高精度或平衡模式），实际生效的配置没有变化时不做任何事
      */
     public void updateLocationMode() {
-        isUsingBalancedMode = SettingsActivity.shouldUseBalancedMode(context);
+        runOnProcessingThread(this::applyLocationMode);
+    }
+    
+    private void applyLocationMode() {
+        SettingsSnapshot settings = SettingsStore.getInstance(context).get();
+        boolean balanced = SettingsActivity.shouldUseBalancedMode(context);
+        if (hasAppliedLocationMode && balanced == isUsingBalancedMode
+                && settings.fusionMode == isFusionEnabled && settings.dopplerSpeed == isDopplerEnabled) {
+            return;
+        }
+        hasAppliedLocationMode = true;
+        isUsingBalancedMode = balanced;
+        isFusionEnabled = settings.fusionMode;
+        isDopplerEnabled = settings.dopplerSpeed;
+        locationEngine.setBalancedMode(isUsingBalancedMode);
+        locationEngine.setFusionMode(isFusionEnabled);
+        updateIntervalPolicy(System.currentTimeMillis());
         Log.d(TAG, "定位模式: " + (isUsingBalancedMode ? "平衡模式" : "高精度模式"));
         
-        // 如果已经初始化了定位，则重新启动定位以应用新模式
-        if (locationListener != null) {
-            stopLocationUpdates();
-            startLocationUpdates();
+        // 定位已启动时只调整配置有变化的提供者
+        if (isLocationStarted) {
+            applyProviderConfiguration();
+            updateMeasurementsRegistration();
         }
     }
     
+    /**
+     * 性能测试等待起步或计时期间保持最高定位频率，不降到静止档位
+     * @param timing 是否在等待起步或计时
+     */
+    public void setPerformanceTiming(boolean timing) {
+        runOnProcessingThread(() -> {
+            if (isPerformanceTiming != timing) {
+                isPerformanceTiming = timing;
+                if (updateIntervalPolicy(System.currentTimeMillis()) && isLocationStarted) {
+                    applyProviderConfiguration();
+                }
+            }
+        });
+    }
+    
+    /**
+     * 设置GNSS批量模式（熄屏或后台记录时使用）
+     * <p>
+     * 批量模式下定位点由GNSS芯片缓存，应用每隔一段时间才被唤醒一次，
+     * 一次处理整批定位点，所有定位点仍会被记录。
+     * 每秒回调一次的GNSS状态和原始观测在批量模式下取消注册，退出后重新注册；
+     * 期间卫星数和GPS连接状态不会更新。
+     * @param batchMode 是否使用批量模式
+     */
+    public void setBatchMode(boolean batchMode) {
+        runOnProcessingThread(() -> {
+            if (isBatchMode != batchMode) {
+                isBatchMode = batchMode;
+                Log.d(TAG, batchMode ? "进入GNSS批量模式" : "退出GNSS批量模式");
+                if (isLocationStarted) {
+                    applyProviderConfiguration();
+                }
+                updateGnssStatusRegistration();
+                updateMeasurementsRegistration();
+            }
+        });
+    }
+    
     /**
      * 初始化位置监听器
      */
-    private void initLocationListener() {
-        locationListener = new LocationListener() {
+    private void initLocationListeners() {
+        gpsListener = createLocationListener();
+        networkListener = createLocationListener();
+    }
+    
+    private LocationListener createLocationListener() {
+        return new LocationListener() {
             @Override
             public void onLocationChanged(@NonNull Location location) {
                 processNewLocation(location);
             }
             
+            @Override
+            public void onLocationChanged(@NonNull List<Location> locations) {
+                if (locations.size() == 1) {
+                    processNewLocation(locations.get(0));
+                } else {
+                    processLocationBatch(locations);
+                }
+            }
+            
             @Override
             public void onProviderEnabled(@NonNull String provider) {
                 if (provider.equals(PROVIDER_GPS)) {
@@ -158,48 +344,65 @@ public class LocationHelper {
                 @Override
                 public void onSatelliteStatusChanged(@NonNull GnssStatus status) {
                     super.onSatelliteStatusChanged(status);
-                    satelliteCount = status.getSatelliteCount();
-                    satellitesInFix = 0;
-                    for (int i = 0; i < satelliteCount; i++) {
-                        if (status.usedInFix(i)) {
-                            satellitesInFix++;
-                        }
+                    // 读入预分配的信号质量模型，每颗卫星（每个信号）一项
+                    int count = status.getSatelliteCount();
+                    signalQualityModel.begin();
+                    for (int i = 0; i < count; i++) {
+                        signalQualityModel.add(status.getConstellationType(i), status.getSvid(i),
+                                status.getCn0DbHz(i), status.getElevationDegrees(i),
+                                status.hasCarrierFrequencyHz(i) ? status.getCarrierFrequencyHz(i) : 0,
+                                status.usedInFix(i));
                     }
-
-                    // 更新GPS连接状态和稳定性
-                    boolean wasConnected = isGpsConnected;
-                    updateGpsConnectionStability();
-
-                    // 如果GPS连接状态发生变化，更新GPS更新频率
-                    if (wasConnected != isGpsConnected) {
-                        updateGpsUpdateInterval();
-                    }
-
-                    // 使用 Handler 去抖动卫星状态更新
-                    satelliteStatusHandler.removeCallbacksAndMessages(null);
-                    satelliteStatusHandler.postDelayed(() -> {
-                        // 检查卫星数量变化是否超过阈值，或者是否是首次更新
-                        if (Math.abs(satelliteCount - lastSentSatelliteCount) > SATELLITE_COUNT_STABILITY_THRESHOLD ||
-                            Math.abs(satellitesInFix - lastSentSatellitesUsedInFix) > SATELLITE_COUNT_STABILITY_THRESHOLD ||
-                            lastSentSatelliteCount == -1) {
-
-                            if (gpsStatusChangeListener != null) {
-                                gpsStatusChangeListener.onGpsStatusChanged(satellitesInFix, satelliteCount, isGpsConnected);
-                            }
-                            // 更新上次发送的值
-                            lastSentSatelliteCount = satelliteCount;
-                            lastSentSatellitesUsedInFix = satellitesInFix;
-                        }
-                    }, SATELLITE_STATUS_UPDATE_DELAY);
+                    int score = signalQualityModel.evaluate();
+                    processSatelliteStatus(signalQualityModel.getUsedCount(), count, score, System.currentTimeMillis());
                 }
             };
         }
     }
     
+    /**
+     * 初始化GNSS原始观测回调（多普勒测速）
+     */
+    private void initMeasurementsCallback() {
+        measurementsCallback = new GnssMeasurementsEvent.Callback() {
+            @Override
+            public void onGnssMeasurementsReceived(@NonNull GnssMeasurementsEvent event) {
+                processMeasurements(event);
+            }
+        };
+    }
+    
+    /**
+     * 按设置注册或取消GNSS原始观测回调
+     */
+    private void updateMeasurementsRegistration() {
+        boolean shouldRegister = isDopplerEnabled && isLocationStarted && !isBatchMode && measurementsCallback != null
+                && ActivityCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED;
+        if (shouldRegister == isMeasurementsRegistered) {
+            return;
+        }
+        if (shouldRegister) {
+            try {
+                isMeasurementsRegistered = locationManager.registerGnssMeasurementsCallback(processingExecutor, measurementsCallback);
+                Log.d(TAG, "注册GNSS原始观测: " + isMeasurementsRegistered);
+            } catch (Exception e) {
+                Log.e(TAG, "注册GNSS原始观测失败", e);
+            }
+        } else {
+            locationManager.unregisterGnssMeasurementsCallback(measurementsCallback);
+            isMeasurementsRegistered = false;
+            hasDopplerVelocity = false;
+        }
+    }
+    
     /**
      * 开始位置更新
      */
     public void startLocationUpdates() {
+        runOnProcessingThread(this::registerLocationUpdates);
+    }
+    
+    private void registerLocationUpdates() {
         if (ActivityCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED
                 && ActivityCompat.checkSelfPermission(context, Manifest.permission.ACCESS_COARSE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
             Log.e(TAG, "没有定位权限");
@@ -211,26 +414,33 @@ public class LocationHelper {
         isNetworkEnabled = locationManager.isProviderEnabled(PROVIDER_NETWORK);
         
         // 根据定位模式启动相应的定位提供者
-        if (!isUsingBalancedMode) {
-            // 高精度模式：同时使用GPS和网络定位
-            startGpsProvider();
-            startNetworkProvider();
-        } else {
-            // 平衡模式：根据GPS信号质量动态选择
-            startGpsProvider();
-            // 如果GPS信号不好，也启用网络定位
-            if (!isGpsConnected || satellitesInFix < 4) {
-                startNetworkProvider();
-            }
-        }
+        isLocationStarted = true;
+        applyProviderConfiguration();
         
-        // 注册GNSS状态回调
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N && gnssStatusCallback != null) {
+        updateGnssStatusRegistration();
+        updateMeasurementsRegistration();
+    }
+    
+    /**
+     * 定位已启动且不在批量模式时注册GNSS状态回调，否则取消注册
+     */
+    private void updateGnssStatusRegistration() {
+        boolean shouldRegister = isLocationStarted && !isBatchMode && gnssStatusCallback != null;
+        if (shouldRegister == isGnssStatusRegistered) {
+            return;
+        }
+        if (shouldRegister) {
             try {
-                locationManager.registerGnssStatusCallback(gnssStatusCallback, handler);
+                locationManager.registerGnssStatusCallback(processingExecutor, gnssStatusCallback);
+                isGnssStatusRegistered = true;
             } catch (Exception e) {
                 Log.e(TAG, "注册GNSS状态回调失败", e);
             }
+        } else {
+            locationManager.unregisterGnssStatusCallback(gnssStatusCallback);
+            isGnssStatusRegistered = false;
+            // 未分发的卫星状态不再需要
+            satelliteStatusDispatcher.cancel();
         }
     }
     
@@ -238,138 +448,164 @@ public class LocationHelper {
      * 停止位置更新
      */
     public void stopLocationUpdates() {
-        if (locationManager != null && locationListener != null) {
-            locationManager.removeUpdates(locationListener);
+        runOnProcessingThread(this::unregisterLocationUpdates);
+    }
+    
+    private void unregisterLocationUpdates() {
+        isLocationStarted = false;
+        if (registrations.isActive(ProviderRegistrations.GPS)) {
+            removeProvider(ProviderRegistrations.GPS);
         }
-        
-        // 取消注册GNSS状态回调
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N && gnssStatusCallback != null) {
-            locationManager.unregisterGnssStatusCallback(gnssStatusCallback);
+        if (registrations.isActive(ProviderRegistrations.NETWORK)) {
+            removeProvider(ProviderRegistrations.NETWORK);
         }
+        
+        updateGnssStatusRegistration();
+        updateMeasurementsRegistration();
     }
     
     /**
-     * 启动GPS提供者
+     * 按当前定位模式和调度策略计算各提供者的期望配置，只变更与当前注册不同的提供者
+     * <p>
+     * 对同一个监听器再次请求会直接替换原有注册的参数，不需要先移除，
+     * 因此调整GPS间隔时不会中断GPS和网络定位。
      */
-    private void startGpsProvider() {
-        if (ActivityCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED) {
-            long interval = isGpsConnected ? GPS_UPDATE_INTERVAL_CONNECTED : GPS_UPDATE_INTERVAL_SEARCHING;
-            locationManager.requestLocationUpdates(PROVIDER_GPS, interval, MIN_DISTANCE_CHANGE, locationListener);
-            Log.d(TAG, "启动GPS提供者，更新间隔: " + interval + "ms");
+    private void applyProviderConfiguration() {
+        boolean hasFine = ActivityCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED;
+        boolean hasCoarse = hasFine
+                || ActivityCompat.checkSelfPermission(context, Manifest.permission.ACCESS_COARSE_LOCATION) == PackageManager.PERMISSION_GRANTED;
+        
+        // 批量模式下由芯片缓存定位点，GPS也不需要高于1Hz
+        long maxUpdateDelay = isBatchMode ? LocationEngine.MAX_BATCH_DELAY : 0;
+        long gpsInterval = intervalPolicy.getIntervalMillis();
+        if (isBatchMode) {
+            gpsInterval = Math.max(gpsInterval, BATCH_GPS_UPDATE_INTERVAL);
+        }
+        
+        // GPS：始终使用，间隔和最小距离由调度策略决定
+        applyProvider(ProviderRegistrations.GPS, hasFine,
+                gpsInterval, intervalPolicy.getMinDistanceMeters(), maxUpdateDelay);
+        
+        // 网络定位：高精度模式始终使用；平衡模式下GPS连接稳定时停用以减少耗电
+        boolean useNetwork = !isUsingBalancedMode
+                || !connectionMonitor.hasStableConnection() || signalQuality < SignalQualityModel.scoreForSatelliteCount(4);
+        if (!useNetwork && registrations.isActive(ProviderRegistrations.NETWORK)) {
+            Log.d(TAG, "GPS连接稳定，减少网络定位依赖");
+        }
+        applyProvider(ProviderRegistrations.NETWORK, hasCoarse && useNetwork,
+                NETWORK_UPDATE_INTERVAL, MIN_DISTANCE_CHANGE, maxUpdateDelay);
+    }
+    
+    private void applyProvider(int provider, boolean enabled, long interval, float minDistance, long maxUpdateDelay) {
+        switch (registrations.diff(provider, enabled, interval, minDistance, maxUpdateDelay)) {
+            case ProviderRegistrations.ACTION_REQUEST:
+                requestProvider(provider, interval, minDistance, maxUpdateDelay);
+                break;
+            case ProviderRegistrations.ACTION_REMOVE:
+                removeProvider(provider);
+                break;
+            default:
+                break;
         }
     }
     
+    @SuppressLint("MissingPermission") // 调用方已检查权限
+    private void requestProvider(int provider, long interval, float minDistance, long maxUpdateDelay) {
+        boolean isGps = provider == ProviderRegistrations.GPS;
+        LocationRequest request = new LocationRequest.Builder(interval)
+                .setQuality(isGps ? LocationRequest.QUALITY_HIGH_ACCURACY : LocationRequest.QUALITY_BALANCED_POWER_ACCURACY)
+                .setMinUpdateDistanceMeters(minDistance)
+                .setMaxUpdateDelayMillis(maxUpdateDelay)
+                .build();
+        try {
+            locationManager.requestLocationUpdates(isGps ? PROVIDER_GPS : PROVIDER_NETWORK, request, processingExecutor,
+                    isGps ? gpsListener : networkListener);
+            registrations.onRequested(provider, interval, minDistance, maxUpdateDelay);
+            PipelineMetrics.record(PipelineMetrics.PROVIDER_REQUEST, isGps ? FixRecord.PROVIDER_GPS : FixRecord.PROVIDER_NETWORK,
+                    System.currentTimeMillis(), interval);
+            Log.d(TAG, (isGps ? "GPS" : "网络定位") + "提供者更新间隔: " + interval + "ms，最小距离: " + minDistance
+                    + "m，批量延迟: " + maxUpdateDelay + "ms");
+        } catch (Exception e) {
+            Log.e(TAG, "请求" + (isGps ? "GPS" : "网络定位") + "更新失败", e);
+        }
+    }
+    
+    private void removeProvider(int provider) {
+        boolean isGps = provider == ProviderRegistrations.GPS;
+        locationManager.removeUpdates(isGps ? gpsListener : networkListener);
+        registrations.onRemoved(provider);
+        PipelineMetrics.record(PipelineMetrics.PROVIDER_REMOVE, isGps ? FixRecord.PROVIDER_GPS : FixRecord.PROVIDER_NETWORK,
+                System.currentTimeMillis(), 0);
+        Log.d(TAG, "停止" + (isGps ? "GPS" : "网络定位") + "提供者");
+    }
+    
     /**
-     * 启动网络定位提供者
+     * 处理新的卫星状态
+     * @param inFix 参与定位的卫星数
+     * @param count 可见卫星总数
+     * @param score 信号质量分数
+     * @param currentTime 当前时间（毫秒）
      */
-    private void startNetworkProvider() {
-        if (ActivityCompat.checkSelfPermission(context, Manifest.permission.ACCESS_COARSE_LOCATION) == PackageManager.PERMISSION_GRANTED) {
-            locationManager.requestLocationUpdates(PROVIDER_NETWORK, NETWORK_UPDATE_INTERVAL, MIN_DISTANCE_CHANGE, locationListener);
-            Log.d(TAG, "启动网络定位提供者，更新间隔: " + NETWORK_UPDATE_INTERVAL + "ms");
+    private void processSatelliteStatus(int inFix, int count, int score, long currentTime) {
+        satelliteCount = count;
+        satellitesInFix = inFix;
+        signalQuality = score;
+
+        // 按信号质量更新GPS连接状态和稳定性，连接状态发生变化时更新GPS更新频率
+        if (connectionMonitor.updateScore(score, currentTime)) {
+            boolean connected = connectionMonitor.isConnected();
+            Log.d(TAG, (connected ? "GPS已连接" : "GPS连接丢失，重新搜星") + "，卫星数: " + satellitesInFix
+                    + "，信号质量: " + score + "，最强4颗C/N0: " + signalQualityModel.getTop4Cn0());
+            locationEngine.setGpsConnected(connected);
+            updateIntervalPolicy(currentTime);
+            // 连接状态也决定平衡模式下是否使用网络定位
+            if (isLocationStarted) {
+                applyProviderConfiguration();
+            }
         }
+
+        // 合并高频的卫星状态更新，由分发器定期通知监听器
+        satelliteStatusDispatcher.submit();
     }
     
     /**
-     * 更新GPS更新频率
+     * 通知合并后的最新卫星状态
+     * @return 是否通知了监听器
      */
-    private void updateGpsUpdateInterval() {
-        if (ActivityCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED) {
-            // 先移除当前的GPS更新
-            locationManager.removeUpdates(locationListener);
-            
-            // 根据连接稳定性选择更新频率 - 统一使用100ms高频更新
-            long interval;
-            if (hasStableConnection && stableSatelliteCount >= 6) {
-                // 稳定连接且卫星数充足，使用100ms高频更新保证时效性
-                interval = GPS_UPDATE_INTERVAL_STABLE;
-                Log.d(TAG, "使用稳定连接模式，更新频率: " + interval + "ms，稳定卫星数: " + stableSatelliteCount);
-            } else if (isGpsConnected) {
-                // 有连接但不够稳定，使用100ms高频更新
-                interval = GPS_UPDATE_INTERVAL_CONNECTED;
-                Log.d(TAG, "使用标准连接模式，更新频率: " + interval + "ms");
-            } else {
-                // 搜星模式，使用100ms高频更新快速建立连接
-                interval = GPS_UPDATE_INTERVAL_SEARCHING;
-                Log.d(TAG, "使用搜星模式，更新频率: " + interval + "ms");
-            }
-            
-            locationManager.requestLocationUpdates(PROVIDER_GPS, interval, MIN_DISTANCE_CHANGE, locationListener);
-            
-            // 如果在平衡模式下，根据GPS状态决定是否使用网络定位
-            if (isUsingBalancedMode) {
-                if (!hasStableConnection || satellitesInFix < 4) {
-                    startNetworkProvider();
-                } else {
-                    // 有稳定GPS连接时，可以减少网络定位的使用
-                    Log.d(TAG, "GPS连接稳定，减少网络定位依赖");
-                }
-            }
+    private boolean dispatchSatelliteStatus() {
+        // 检查卫星数量变化是否超过阈值、信号格数是否变化，或者是否是首次更新
+        int signalLevel = SignalQualityModel.levelForScore(signalQuality);
+        if (Math.abs(satelliteCount - lastSentSatelliteCount) <= SATELLITE_COUNT_STABILITY_THRESHOLD &&
+            Math.abs(satellitesInFix - lastSentSatellitesUsedInFix) <= SATELLITE_COUNT_STABILITY_THRESHOLD &&
+            signalLevel == lastSentSignalLevel &&
+            lastSentSatelliteCount != -1) {
+            return false;
         }
+
+        if (gpsStatusChangeListener != null) {
+            gpsStatusChangeListener.onGpsStatusChanged(satellitesInFix, satelliteCount, signalQuality, connectionMonitor.isConnected());
+        }
+        // 更新上次发送的值
+        lastSentSatelliteCount = satelliteCount;
+        lastSentSatellitesUsedInFix = satellitesInFix;
+        lastSentSignalLevel = signalLevel;
+        return true;
     }
     
     /**
-     * 更新GPS连接稳定性
+     * 根据运动状态更新GPS调度档位
+     * @param currentTime 当前时间（毫秒）
+     * @return 更新间隔或最小距离是否变化（变化时需要调整GPS注册）
      */
-    private void updateGpsConnectionStability() {
-        long currentTime = System.currentTimeMillis();
-        
-        // 检查当前连接状态
-        boolean currentlyConnected = satellitesInFix >= 4; // 至少4颗卫星才算稳定连接
-        
-        if (currentlyConnected) {
-            // 如果当前连接良好
-            if (!hasStableConnection) {
-                // 首次建立稳定连接
-                if (satellitesInFix >= 6) {
-                    // 6颗或以上卫星，立即认为稳定
-                    hasStableConnection = true;
-                    stableSatelliteCount = satellitesInFix;
-                    lastGoodConnectionTime = currentTime;
-                    Log.d(TAG, "建立稳定GPS连接，卫星数: " + satellitesInFix);
-                } else if (lastGoodConnectionTime == 0) {
-                    // 记录首次连接时间
-                    lastGoodConnectionTime = currentTime;
-                } else if (currentTime - lastGoodConnectionTime > 10000) {
-                    // 连续10秒保持4-5颗卫星连接，认为稳定
-                    hasStableConnection = true;
-                    stableSatelliteCount = satellitesInFix;
-                    Log.d(TAG, "经过验证建立稳定GPS连接，卫星数: " + satellitesInFix);
-                }
-            } else {
-                // 已有稳定连接，更新状态
-                lastGoodConnectionTime = currentTime;
-                
-                // 如果卫星数量显著增加，更新稳定卫星数
-                if (satellitesInFix > stableSatelliteCount + 2) {
-                    stableSatelliteCount = satellitesInFix;
-                    Log.d(TAG, "稳定连接卫星数增加到: " + satellitesInFix);
-                }
-            }
-            
-            isGpsConnected = true;
-        } else {
-            // 当前连接不佳
-            if (hasStableConnection) {
-                // 有稳定连接但暂时信号不好
-                if (currentTime - lastGoodConnectionTime < 30000) {
-                    // 30秒内的信号中断，保持连接状态，避免频繁切换
-                    isGpsConnected = true;
-                    Log.d(TAG, "GPS信号暂时中断，保持连接状态，卫星数: " + satellitesInFix);
-                } else {
-                    // 超过30秒信号不好，认为连接丢失
-                    hasStableConnection = false;
-                    isGpsConnected = false;
-                    stableSatelliteCount = 0;
-                    Log.d(TAG, "GPS连接丢失，重新搜星");
-                }
-            } else {
-                // 没有稳定连接且当前连接不佳
-                isGpsConnected = satellitesInFix > 0;
-                if (!isGpsConnected) {
-                    lastGoodConnectionTime = 0;
-                }
-            }
+    private boolean updateIntervalPolicy(long currentTime) {
+        FixRecord bestFix = locationEngine.getBestFix();
+        float speed = bestFix != null ? bestFix.speed : 0;
+        if (!intervalPolicy.update(speed, locationEngine.isStationary(), connectionMonitor.isConnected(),
+                isUsingBalancedMode, isPerformanceTiming, currentTime)) {
+            return false;
         }
+        Log.d(TAG, "GPS调度档位: " + intervalPolicy.getTier() + "，更新间隔: " + intervalPolicy.getIntervalMillis() + "ms");
+        return true;
     }
     
     /**
@@ -387,248 +623,193 @@ public class LocationHelper {
      */
     private void processNewLocation(Location location) {
         if (location == null) return;
+        callbackNanos = SystemClock.elapsedRealtimeNanos();
 
-        // 过滤明显错误的位置数据
-        if (!isLocationValid(location)) {
-            // 如果位置无效，但我们之前处于静止状态，则允许速度归零
-            if (isStationary) {
-                location.setSpeed(0);
-            } else {
-                Log.d(TAG, "位置数据无效，已过滤: " + location.getProvider() +
-                        ", 精度: " + location.getAccuracy() + "m");
-                return;
-            }
-        }
-
-        // 静止状态检测
-        if (location.getSpeed() < STATIONARY_SPEED_THRESHOLD) {
-            if (stationaryStartTime == 0) {
-                stationaryStartTime = System.currentTimeMillis();
-            } else if (System.currentTimeMillis() - stationaryStartTime > STATIONARY_TIME_THRESHOLD) {
-                isStationary = true;
-            }
-        } else {
-            stationaryStartTime = 0;
-            isStationary = false;
-        }
-
-        if (isStationary) {
-            location.setSpeed(0);
-        }
-        
+        // 复制到可复用的定位记录，交给定位引擎处理
         String provider = location.getProvider();
-        
-        // 更新最后获取的位置
-        if (PROVIDER_GPS.equals(provider)) {
-            lastGpsLocation = location;
-        } else if (PROVIDER_NETWORK.equals(provider)) {
-            lastNetworkLocation = location;
-        }
-        
-        // 选择最佳位置
-        Location bestLocation = getBestLocation();
-        
-        // 更新lastValidLocation用于静止状态检测
-        if (bestLocation != null) {
-            // 如果是有效移动或首次获取位置，更新lastValidLocation
-            if (lastValidLocation == null || 
-                lastValidLocation.distanceTo(bestLocation) >= STATIONARY_RADIUS) {
-                lastValidLocation = new Location(bestLocation);
-                Log.d(TAG, "更新有效位置参考点，精度: " + bestLocation.getAccuracy() + "m");
-            }
-        }
-        
-        // 通知监听器
-        if (bestLocation != null && locationUpdateListener != null) {
-            locationUpdateListener.onLocationUpdated(bestLocation);
+        fillFixRecord(location, provider, inputFix);
+        PipelineLatency.record(PipelineLatency.STAGE_FIX_TO_CALLBACK, inputFix.elapsedRealtimeNanos, callbackNanos);
+        if (inputFix.provider == FixRecord.PROVIDER_GPS) {
+            // 多普勒测速使用最近的GPS位置计算卫星视线方向
+            lastGpsInput.set(inputFix);
+            hasGpsInput = true;
+            applyDopplerVelocity(inputFix);
         }
+        processFix(inputFix);
     }
     
-    // 静止状态检测参数
-    private Location lastValidLocation = null;
-    private long lastMovementTime = 0;
-    private static final float STATIONARY_RADIUS = 5.0f; // 静止半径（米）
-    private static final long STATIONARY_TIME_THRESHOLD = 3000; // 静止时间阈值（毫秒）
-    
     /**
-     * 验证位置数据的有效性
-     * @param location 位置数据
-     * @return 是否有效
+     * 多普勒解足够新时替换GPS定位点的速度、方向和速度精度；
+     * 位置和时间保持定位点自己的，定位点仍按平台的频率输出
+     * @param fix GPS定位点
      */
-    private boolean isLocationValid(Location location) {
-        // 检查基本有效性
-        if (location.getLatitude() == 0.0 && location.getLongitude() == 0.0) {
-            return false;
-        }
-        
-        // 检查精度是否合理（大于100米的位置可能不准确）
-        if (location.getAccuracy() > 100) {
-            return false;
+    private void applyDopplerVelocity(FixRecord fix) {
+        if (!isMeasurementsRegistered || !hasDopplerVelocity) {
+            return;
         }
-        
-        // 检查时间是否太旧（超过10秒的位置数据可能过时）
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - location.getTime() > 10000) {
-            return false;
+        long fixNanos = fix.elapsedRealtimeNanos > 0 ? fix.elapsedRealtimeNanos : callbackNanos;
+        if (Math.abs(fixNanos - dopplerEpochNanos) > DOPPLER_TIMEOUT_NANOS) {
+            // 没有多普勒解（卫星不足或芯片不提供卫星PVT）时使用平台速度
+            return;
         }
-        
-        // 检查速度是否合理（超过300km/h的速度可能是错误数据）
-        if (location.hasSpeed() && location.getSpeed() > 83.33f) { // 300km/h = 83.33m/s
-            return false;
+        fix.hasSpeed = true;
+        fix.speed = dopplerSpeed;
+        fix.hasBearing = true;
+        fix.bearing = dopplerBearing;
+        fix.hasSpeedAccuracy = true;
+        fix.speedAccuracy = dopplerSpeedAccuracy;
+    }
+    
+    /**
+     * 由GNSS原始观测的伪距率求解速度，保存下来供之后的GPS定位点使用
+     * @param event 一个历元的原始观测
+     */
+    private void processMeasurements(GnssMeasurementsEvent event) {
+        GnssClock clock = event.getClock();
+        long epochNanos = clock.hasElapsedRealtimeNanos()
+                ? clock.getElapsedRealtimeNanos() : SystemClock.elapsedRealtimeNanos();
+        long positionNanos = lastGpsInput.elapsedRealtimeNanos;
+        if (!hasGpsInput || positionNanos <= 0 || Math.abs(epochNanos - positionNanos) > MAX_DOPPLER_POSITION_AGE_NANOS) {
+            return;
         }
-        
-        // 静止状态检测：过滤GPS漂移
-        if (lastValidLocation != null) {
-            float distance = lastValidLocation.distanceTo(location);
-            
-            // 如果移动距离很小，可能是GPS漂移
-            if (distance < STATIONARY_RADIUS) {
-                // 检查是否在静止状态
-                if (isInStationaryState(location)) {
-                    // 在静止状态下，只接受精度更高的位置
-                    return location.getAccuracy() < lastValidLocation.getAccuracy() - 2.0f;
-                }
-            } else {
-                // 有明显移动，更新最后移动时间
-                lastMovementTime = currentTime;
+        dopplerSolver.begin(lastGpsInput.latitude, lastGpsInput.longitude, 0);
+        for (GnssMeasurement measurement : event.getMeasurements()) {
+            if (!measurement.hasSatellitePvt()) {
+                continue;
+            }
+            SatellitePvt pvt = measurement.getSatellitePvt();
+            if (pvt == null || !pvt.hasPositionVelocityClockInfo()) {
+                continue;
             }
+            SatellitePvt.PositionEcef position = pvt.getPositionEcef();
+            SatellitePvt.VelocityEcef velocity = pvt.getVelocityEcef();
+            dopplerSolver.addMeasurement(
+                    position.getXMeters(), position.getYMeters(), position.getZMeters(),
+                    velocity.getXMetersPerSecond(), velocity.getYMetersPerSecond(), velocity.getZMetersPerSecond(),
+                    pvt.getClockInfo().getClockDriftMetersPerSecond(),
+                    measurement.getPseudorangeRateMetersPerSecond(),
+                    measurement.getPseudorangeRateUncertaintyMetersPerSecond());
         }
-        
-        return true;
+        if (!dopplerSolver.solve()) {
+            // 卫星不足或芯片不提供卫星PVT，超时后自动退回平台速度
+            return;
+        }
+        hasDopplerVelocity = true;
+        dopplerEpochNanos = epochNanos;
+        dopplerSpeed = (float) dopplerSolver.getSpeed();
+        dopplerBearing = (float) dopplerSolver.getBearing();
+        dopplerSpeedAccuracy = (float) dopplerSolver.getSpeedUncertainty();
     }
     
     /**
-     * 检查是否处于静止状态
-     * @param location 当前位置
-     * @return 是否静止
+     * 定位点交给定位引擎处理并通知监听器
+     * @param fix 定位点
      */
-    private boolean isInStationaryState(Location location) {
+    private void processFix(FixRecord fix) {
         long currentTime = System.currentTimeMillis();
-        
-        // 如果速度很低且在静止半径内超过阈值时间，认为是静止状态
-        boolean lowSpeed = !location.hasSpeed() || location.getSpeed() < 0.5f; // 小于1.8km/h
-        boolean stationaryTime = (currentTime - lastMovementTime) > STATIONARY_TIME_THRESHOLD;
-        
-        return lowSpeed && stationaryTime;
+        if (!locationEngine.process(fix, currentTime)) {
+            return;
+        }
+        PipelineLatency.record(PipelineLatency.STAGE_CALLBACK_TO_FILTERED, callbackNanos, SystemClock.elapsedRealtimeNanos());
+        if (updateIntervalPolicy(currentTime) && isLocationStarted) {
+            applyProviderConfiguration();
+        }
+
+        // 最佳位置（单一来源或融合结果）
+        FixRecord bestFix = locationEngine.getBestFix();
+
+        // 通知监听器
+        if (bestFix != null && locationUpdateListener != null) {
+            locationUpdateListener.onLocationUpdated(bestFix);
+        }
     }
-    
+
     /**
-     * 获取最佳位置
-     * @return 最佳位置
+     * 处理GNSS批量送达的定位点：整批过滤后一次交给监听器
+     * @param locations 按时间顺序排列的定位点
      */
-    private Location getBestLocation() {
-        // 如果只有一个位置可用，直接返回
-        if (lastGpsLocation == null) return lastNetworkLocation;
-        if (lastNetworkLocation == null) return lastGpsLocation;
-        
-        long currentTime = System.currentTimeMillis();
-        float gpsAccuracy = lastGpsLocation.getAccuracy();
-        float networkAccuracy = lastNetworkLocation.getAccuracy();
-        long gpsTime = lastGpsLocation.getTime();
-        long networkTime = lastNetworkLocation.getTime();
-        
-        // 检查位置数据的新鲜度
-        boolean gpsIsFresh = (currentTime - gpsTime) < 5000; // GPS数据5秒内为新鲜
-        boolean networkIsFresh = (currentTime - networkTime) < 10000; // 网络数据10秒内为新鲜
-        
-        // 如果在高精度模式下
-        if (!isUsingBalancedMode) {
-            // 优先使用新鲜的GPS数据
-            if (gpsIsFresh) {
-                return lastGpsLocation;
-            }
-            // 如果GPS数据不新鲜但网络数据新鲜且精度可接受，使用网络数据
-            if (networkIsFresh && networkAccuracy < 50) {
-                return lastNetworkLocation;
-            }
-            // 否则仍使用GPS数据（即使不够新鲜）
-            return lastGpsLocation;
+    private void processLocationBatch(List<Location> locations) {
+        int count = locations.size();
+        if (batchInput.length < count) {
+            batchInput = FixRecord.newArray(count);
+            batchOutput = FixRecord.newArray(count);
         }
-        
-        // 平衡模式下的智能选择策略
-        
-        // 1. 如果GPS连接良好且数据新鲜，优先使用GPS
-        if (isGpsConnected && gpsIsFresh && gpsAccuracy < 20) {
-            return lastGpsLocation;
+        for (int i = 0; i < count; i++) {
+            Location location = locations.get(i);
+            fillFixRecord(location, location.getProvider(), batchInput[i]);
         }
         
-        // 2. 如果GPS精度明显更好且数据不太旧，使用GPS
-        if (gpsAccuracy < networkAccuracy * 0.6 && (currentTime - gpsTime) < 15000) {
-            return lastGpsLocation;
+        long currentTime = System.currentTimeMillis();
+        int accepted = locationEngine.processBatch(batchInput, count, currentTime, LocationEngine.MAX_BATCH_DELAY, batchOutput);
+        Log.d(TAG, "批量定位: " + count + "个点，接受" + accepted + "个");
+        if (accepted == 0) {
+            return;
         }
-        
-        // 3. 如果网络位置更新且精度可接受，使用网络位置
-        if (networkIsFresh && networkAccuracy < 100 && networkTime > gpsTime + 5000) {
-            return lastNetworkLocation;
+        if (updateIntervalPolicy(currentTime) && isLocationStarted) {
+            applyProviderConfiguration();
         }
         
-        // 4. 根据综合评分选择最佳位置
-        float gpsScore = calculateLocationScore(lastGpsLocation, currentTime);
-        float networkScore = calculateLocationScore(lastNetworkLocation, currentTime);
-        
-        return gpsScore >= networkScore ? lastGpsLocation : lastNetworkLocation;
+        if (locationUpdateListener != null) {
+            locationUpdateListener.onLocationBatch(batchOutput, accepted);
+        }
     }
-    
+
     /**
-     * 计算位置数据的综合评分
-     * @param location 位置数据
-     * @param currentTime 当前时间
-     * @return 评分（越高越好）
+     * 将Location的数据复制到定位记录中
+     * @param location 位置
+     * @param provider 定位提供者
+     * @param fix 目标记录
      */
-    private float calculateLocationScore(Location location, long currentTime) {
-        if (location == null) return 0;
-        
-        float score = 100; // 基础分数
-        
-        // 精度评分（精度越高分数越高）
-        float accuracy = location.getAccuracy();
-        if (accuracy <= 5) {
-            score += 50; // 高精度加分
-        } else if (accuracy <= 20) {
-            score += 30; // 中等精度加分
-        } else if (accuracy <= 50) {
-            score += 10; // 低精度少量加分
-        } else {
-            score -= (accuracy - 50) * 0.5f; // 精度太差扣分
-        }
-        
-        // 时效性评分（越新鲜分数越高）
-        long age = currentTime - location.getTime();
-        if (age <= 1000) {
-            score += 30; // 1秒内的数据加分
-        } else if (age <= 5000) {
-            score += 20; // 5秒内的数据加分
-        } else if (age <= 15000) {
-            score += 10; // 15秒内的数据少量加分
+    private static void fillFixRecord(Location location, String provider, FixRecord fix) {
+        if (PROVIDER_GPS.equals(provider)) {
+            fix.provider = FixRecord.PROVIDER_GPS;
+        } else if (PROVIDER_NETWORK.equals(provider)) {
+            fix.provider = FixRecord.PROVIDER_NETWORK;
         } else {
-            score -= (age - 15000) * 0.001f; // 超过15秒的数据扣分
+            fix.provider = FixRecord.PROVIDER_UNKNOWN;
         }
-        
-        // GPS提供者加分
-        if (PROVIDER_GPS.equals(location.getProvider())) {
-            score += 20;
-        }
-        
-        // 如果有速度信息且合理，加分
-        if (location.hasSpeed() && location.getSpeed() >= 0 && location.getSpeed() <= 83.33f) {
-            score += 15;
-        }
-        
-        return Math.max(0, score);
+        fix.latitude = location.getLatitude();
+        fix.longitude = location.getLongitude();
+        fix.accuracy = location.getAccuracy();
+        fix.hasSpeed = location.hasSpeed();
+        fix.speed = location.getSpeed();
+        fix.hasBearing = location.hasBearing();
+        fix.bearing = location.getBearing();
+        fix.hasSpeedAccuracy = location.hasSpeedAccuracy();
+        fix.speedAccuracy = location.getSpeedAccuracyMetersPerSecond();
+        fix.time = location.getTime();
+        fix.elapsedRealtimeNanos = location.getElapsedRealtimeNanos();
     }
     
     /**
-     * 位置更新监听器接口
+     * 位置更新监听器接口（在定位处理线程中回调）
      */
     public interface OnLocationUpdateListener {
-        void onLocationUpdated(Location location);
+        /**
+         * @param fix 最佳位置；该对象会被复用，需要保留时请复制
+         */
+        void onLocationUpdated(FixRecord fix);
+        
+        /**
+         * GNSS批量模式下一次送达的多个最佳位置，默认逐个转给 {@link #onLocationUpdated}
+         * @param fixes 按时间顺序排列的最佳位置；数组会被复用，需要保留时请复制
+         * @param count 有效数量
+         */
+        default void onLocationBatch(FixRecord[] fixes, int count) {
+            for (int i = 0; i < count; i++) {
+                onLocationUpdated(fixes[i]);
+            }
+        }
     }
     
     /**
-     * GPS状态变化监听器接口
+     * GPS状态变化监听器接口（在定位处理线程中回调）
      */
     public interface OnGpsStatusChangeListener {
-        void onGpsStatusChanged(int satellitesInFix, int satelliteCount, boolean isConnected);
+        /**
+         * @param signalQuality 信号质量分数（0-100），见 {@link SignalQualityModel}
+         */
+        void onGpsStatusChanged(int satellitesInFix, int satelliteCount, int signalQuality, boolean isConnected);
         void onProviderStatusChanged(boolean isGpsEnabled, boolean isNetworkEnabled);
     }
 }
\ No newline at end of file
@@ -5,20 +5,22 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 
 import android.Manifest;
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
 import android.content.pm.PackageManager;
 import android.graphics.Color;
-import android.location.Location;
 import android.location.LocationListener;
 import android.location.GnssStatus;
 import android.location.LocationManager;
-import android.os.BatteryManager;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Debug;
 import android.os.Handler;
+import android.os.IBinder;
 import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
 import android.view.View;
 import android.view.Window;
 import android.view.WindowManager;
@@ -28,43 +30,122 @@ import androidx.constraintlayout.widget.ConstraintLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 import android.content.pm.ActivityInfo;
+import android.content.ServiceConnection;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
 import java.util.Locale;
 
-public class MainActivity extends AppCompatActivity implements LocationHelper.OnLocationUpdateListener, LocationHelper.OnGpsStatusChangeListener {
+public class MainActivity extends AppCompatActivity implements SpeedometerService.OnTripUpdateListener, LocationHelper.OnGpsStatusChangeListener {
 
+    private static final String TAG = "MainActivity";
     private static final int LOCATION_PERMISSION_REQUEST_CODE = 1;
+    // 每隔多少次更新输出一次显示延迟统计
+    private static final int LATENCY_LOG_INTERVAL = 600;
 
-    private TextView speedValue, speedUnit, timeValue, distanceValue, avgSpeedValue, maxSpeedValue, currentTime, gpsSignal, batteryLevel;
+    private TextView speedValue, speedUnit, timeValue, distanceValue, avgSpeedValue, maxSpeedValue, currentTime, gpsSignal, batteryLevel, latencyOverlay;
     private android.widget.ImageView gpsSignalIndicator;
+    private int shownSignalLevel = -1;
+    // 已提示过结果的性能测试次数
+    private int shownDragRunCount = -1;
     private Button startStopButton, pauseButton, resetButton, rotateScreenButton;
     private ImageButton settingsButton;
     private ConstraintLayout mainLayout;
     
     private boolean isLandscape = false;
 
-    // 位置服务助手
-    private LocationHelper locationHelper;
+    // 前台定位服务（持有位置服务助手和行程统计）
+    private SpeedometerService speedometerService;
+    private boolean isServiceBound = false;
     
-    // 电池电量监控
-    private Handler batteryCheckHandler = new Handler();
-    private Runnable batteryCheckRunnable;
-
-    private boolean isRecording = false;
-    private boolean isPaused = false;
+    // 电池电量显示和低电量提示（定位模式由服务根据同一状态切换）
+    private final BatteryStateMonitor.Listener batteryListener = new BatteryStateMonitor.Listener() {
+        @Override
+        public void onBatteryLevelChanged(int level) {
+            batteryText.clear().append(level).append('%');
+            render(batteryText, batteryLevel);
+        }
 
-    private long startTime = 0L;
-    private long timeInMilliseconds = 0L;
-    private long timeSwapBuff = 0L;
-    private long updatedTime = 0L;
+        @Override
+        public void onPowerSavingChanged(boolean powerSaving) {
+            // 如果当前在高精度模式下，提示用户已自动切换到平衡模式
+            if (powerSaving && SettingsActivity.getLocationMode(MainActivity.this) == SettingsActivity.MODE_HIGH_ACCURACY) {
+                Toast.makeText(MainActivity.this, BatteryStateMonitor.getInstance(MainActivity.this).isLowBattery()
+                        ? "电量低于20%，已自动切换到平衡模式以节省电量" : "系统省电模式已开启，已自动切换到平衡模式",
+                        Toast.LENGTH_LONG).show();
+            }
+        }
+    };
 
     private Handler customHandler = new Handler();
 
-    private float totalDistance = 0.0f;
-    private float maxSpeed = 0.0f;
-    private Location lastLocation = null;
+    // 显示延迟：快照发布 -> 主线程收到；快照发布 -> 下一帧绘制、定位生成 -> 下一帧绘制记入 PipelineLatency
+    private final LatencyStats deliveryLatency = new LatencyStats();
+    private long pendingFramePublishNanos = 0;
+    private long pendingFrameFixNanos = 0;
+    private long drawnFixNanos = 0; // 已统计过端到端延迟的定位点
+    private long drawnFrameCount = 0;
+    private boolean latencyOverlayEnabled = false;
+
+    // 无分配的文本渲染：每个TextView一个缓冲区，显示内容不变时跳过setText
+    private NumberText speedText, timeText, distanceText, avgSpeedText, maxSpeedText, clockText, gpsText, batteryText, latencyText;
+    private final Calendar clockCalendar = Calendar.getInstance();
+    private long renderedTextCount = 0;
+    private long skippedTextCount = 0;
+    // 上次输出统计时的已分配字节数（进程级，仅用于估算每帧分配量）
+    private long lastAllocatedBytes = -1;
+
+    // 平滑速度显示：在帧回调中插值，静止后停止帧回调
+    private boolean smoothSpeedEnabled = false;
+    private boolean speedAnimating = false;
+    private final SpeedInterpolator speedInterpolator = new SpeedInterpolator();
+    private final Choreographer.FrameCallback speedFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            renderSpeed(speedInterpolator.valueAt(frameTimeNanos));
+            if (speedInterpolator.isSettled()) {
+                speedAnimating = false;
+            } else {
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        }
+    };
+
+    private final Choreographer.FrameCallback frameLatencyCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            long now = SystemClock.elapsedRealtimeNanos();
+            PipelineLatency.record(PipelineLatency.STAGE_FILTERED_TO_DRAWN, pendingFramePublishNanos, now);
+            if (pendingFrameFixNanos != drawnFixNanos) {
+                // 暂停、计圈等操作也会发布快照，同一个定位点只统计一次端到端延迟
+                PipelineLatency.record(PipelineLatency.STAGE_FIX_TO_DRAWN, pendingFrameFixNanos, now);
+                drawnFixNanos = pendingFrameFixNanos;
+            }
+            pendingFramePublishNanos = 0;
+            if (++drawnFrameCount % LATENCY_LOG_INTERVAL == 0) {
+                LatencyHistogram frameLatency = PipelineLatency.get(PipelineLatency.STAGE_FILTERED_TO_DRAWN);
+                Log.d(TAG, "显示延迟 送达: 平均" + deliveryLatency.getAverageMicros() + "us 最大" + deliveryLatency.getMaxMicros()
+                        + "us，绘制: p50 " + frameLatency.getPercentileMicros(50) + "us p99 " + frameLatency.getPercentileMicros(99) + "us");
+                logAllocationsPerFrame();
+            }
+        }
+    };
+
+    private final ServiceConnection serviceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            speedometerService = ((SpeedometerService.LocalBinder) binder).getService();
+            speedometerService.setClients(MainActivity.this, MainActivity.this);
+            restoreUIState();
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            speedometerService = null;
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -86,13 +167,14 @@ public class MainActivity extends AppCompatActivity implements LocationHelper.On
         setContentView(R.layout.activity_main);
 
         initViews();
-        setupLocationHelper();
+        checkLocationPermission();
         updateCurrentTime();
-        updateBatteryLevel();
-        setupBatteryMonitor();
 
         startStopButton.setOnClickListener(v -> {
-            if (!isRecording) {
+            if (speedometerService == null) {
+                return;
+            }
+            if (!speedometerService.isRecording()) {
                 startRecording();
             } else {
                 stopRecording();
@@ -100,7 +182,10 @@ public class MainActivity extends AppCompatActivity implements LocationHelper.On
         });
 
         pauseButton.setOnClickListener(v -> {
-            if (!isPaused) {
+            if (speedometerService == null) {
+                return;
+            }
+            if (!speedometerService.isPaused()) {
                 pauseRecording();
             } else {
                 resumeRecording();
@@ -112,6 +197,27 @@ public class MainActivity extends AppCompatActivity implements LocationHelper.On
             resetButton.setVisibility(View.GONE);
         });
         
+        // 长按速度开启或关闭性能测试
+        speedValue.setOnLongClickListener(v -> {
+            if (speedometerService == null) {
+                return false;
+            }
+            boolean enabled = !speedometerService.isPerformanceMode();
+            speedometerService.setPerformanceMode(enabled);
+            Toast.makeText(this, enabled ? "性能测试：停车后起步自动计时" : "已关闭性能测试", Toast.LENGTH_SHORT).show();
+            return true;
+        });
+
+        // 长按计时区域手动计圈
+        timeValue.setOnLongClickListener(v -> {
+            if (speedometerService == null || !speedometerService.isRecording()) {
+                return false;
+            }
+            speedometerService.lap();
+            Toast.makeText(this, "第" + (speedometerService.getLatestSnapshot().lapCount + 1) + "圈", Toast.LENGTH_SHORT).show();
+            return true;
+        });
+
         rotateScreenButton.setOnClickListener(v -> {
             toggleScreenOrientation();
         });
@@ -133,63 +239,72 @@ public class MainActivity extends AppCompatActivity implements LocationHelper.On
         gpsSignal = findViewById(R.id.gps_signal);
         gpsSignalIndicator = findViewById(R.id.gps_signal_indicator);
         batteryLevel = findViewById(R.id.battery_level);
+        latencyOverlay = findViewById(R.id.latency_overlay);
         startStopButton = findViewById(R.id.start_stop_button);
         pauseButton = findViewById(R.id.pause_button);
         resetButton = findViewById(R.id.reset_button);
         rotateScreenButton = findViewById(R.id.rotate_screen_button);
         settingsButton = findViewById(R.id.settings_button);
+
+        char decimalSeparator = DecimalFormatSymbols.getInstance().getDecimalSeparator();
+        speedText = new NumberText(8, decimalSeparator);
+        timeText = new NumberText(16, decimalSeparator);
+        distanceText = new NumberText(16, decimalSeparator);
+        avgSpeedText = new NumberText(16, decimalSeparator);
+        maxSpeedText = new NumberText(16, decimalSeparator);
+        clockText = new NumberText(8, decimalSeparator);
+        gpsText = new NumberText(16, decimalSeparator);
+        batteryText = new NumberText(8, decimalSeparator);
+        latencyText = new NumberText(256, decimalSeparator);
     }
 
     /**
-     * 设置位置服务助手
+     * 提交文本缓冲区，内容有变化时才刷新TextView
      */
-    private void setupLocationHelper() {
-        // 检查定位权限
-        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED
-                && ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_COARSE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
-            ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.ACCESS_FINE_LOCATION, Manifest.permission.ACCESS_COARSE_LOCATION},
-                    LOCATION_PERMISSION_REQUEST_CODE);
+    private void render(NumberText text, TextView view) {
+        if (text.commit()) {
+            view.setText(text.getChars(), 0, text.length());
+            renderedTextCount++;
+        } else {
+            skippedTextCount++;
+        }
+    }
+
+    /**
+     * 输出两次统计之间平均每帧分配的字节数和跳过的文本刷新次数
+     */
+    private void logAllocationsPerFrame() {
+        String stat = Debug.getRuntimeStat("art.gc.bytes-allocated");
+        if (stat == null) {
             return;
         }
-        
-        // 初始化位置服务助手
-        locationHelper = new LocationHelper(this);
-        locationHelper.initialize(this, this);
+        long allocatedBytes = Long.parseLong(stat);
+        if (lastAllocatedBytes >= 0) {
+            Log.d(TAG, "每帧分配约" + (allocatedBytes - lastAllocatedBytes) / LATENCY_LOG_INTERVAL
+                    + "字节，文本刷新" + renderedTextCount + "次，跳过" + skippedTextCount + "次");
+        }
+        lastAllocatedBytes = allocatedBytes;
     }
-    
+
     /**
-     * 设置电池监控，用于在电量低时自动切换定位模式
+     * 检查定位和通知权限，定位本身由前台服务在绑定后启动
+     * <p>
+     * 两个权限分别检查，已有定位权限时仍会请求通知权限（前台服务的通知需要）；
+     * 缺少的权限在同一次请求中申请，因为同一时间只能有一个权限请求。
      */
-    private void setupBatteryMonitor() {
-        batteryCheckRunnable = new Runnable() {
-            @Override
-            public void run() {
-                // 检查电池电量
-                IntentFilter ifilter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
-                Intent batteryStatus = registerReceiver(null, ifilter);
-                int level = batteryStatus.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
-                int scale = batteryStatus.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
-                
-                float batteryPct = level * 100 / (float)scale;
-                
-                // 如果电量低于阈值，更新定位模式
-                if (batteryPct < SettingsActivity.LOW_BATTERY_THRESHOLD) {
-                    // 更新定位模式
-                    locationHelper.updateLocationMode();
-                    
-                    // 如果当前在高精度模式下，提示用户已自动切换到平衡模式
-                    if (SettingsActivity.getLocationMode(MainActivity.this) == SettingsActivity.MODE_HIGH_ACCURACY) {
-                        Toast.makeText(MainActivity.this, "电量低于20%，已自动切换到平衡模式以节省电量", Toast.LENGTH_LONG).show();
-                    }
-                }
-                
-                // 每分钟检查一次电量
-                batteryCheckHandler.postDelayed(this, 60000);
-            }
-        };
-        
-        // 开始电池监控
-        batteryCheckHandler.post(batteryCheckRunnable);
+    private void checkLocationPermission() {
+        List<String> missing = new ArrayList<>();
+        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED
+                && ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_COARSE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
+            missing.add(Manifest.permission.ACCESS_FINE_LOCATION);
+            missing.add(Manifest.permission.ACCESS_COARSE_LOCATION);
+        }
+        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
+            missing.add(Manifest.permission.POST_NOTIFICATIONS);
+        }
+        if (!missing.isEmpty()) {
+            ActivityCompat.requestPermissions(this, missing.toArray(new String[0]), LOCATION_PERMISSION_REQUEST_CODE);
+        }
     }
     
     /**
@@ -204,28 +319,25 @@ public class MainActivity extends AppCompatActivity implements LocationHelper.On
      * 开始记录
      */
     private void startRecording() {
-        isRecording = true;
-        isPaused = false;
+        if (!speedometerService.startRecording()) {
+            // 没有定位权限时启动定位类型的前台服务会抛出SecurityException，重新申请权限
+            Toast.makeText(this, "需要定位权限才能开始记录", Toast.LENGTH_SHORT).show();
+            checkLocationPermission();
+            return;
+        }
         startStopButton.setText("结束");
         pauseButton.setVisibility(View.VISIBLE);
         pauseButton.setText("暂停");
         mainLayout.setBackgroundColor(Color.BLACK);
         getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
 
-        startTime = SystemClock.uptimeMillis();
         customHandler.postDelayed(updateTimerThread, 0);
-        
-        // 确保位置更新已启动
-        if (locationHelper != null) {
-            locationHelper.startLocationUpdates();
-        }
 
         // resetData() is called in stopRecording() now
     }
 
     private void stopRecording() {
-        isRecording = false;
-        isPaused = false;
+        speedometerService.stopRecording();
         startStopButton.setText("开始");
         pauseButton.setVisibility(View.GONE);
         resetButton.setVisibility(View.VISIBLE);
@@ -233,194 +345,205 @@ public class MainActivity extends AppCompatActivity implements LocationHelper.On
         getWindow().clearFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
 
         customHandler.removeCallbacks(updateTimerThread);
+        updateTimeDisplay();
         // 不再调用resetData()，只在点击复位按钮时清零
         
         // 如果不再需要高精度位置更新，可以降低更新频率或暂停更新
-        if (locationHelper != null) {
-            // 仍然保持位置更新，但可以降低频率
-            locationHelper.updateLocationMode();
-        }
+        // 仍然保持位置更新，但可以降低频率
+        speedometerService.updateLocationMode();
     }
 
     private void pauseRecording() {
-        isPaused = true;
+        speedometerService.pauseRecording();
         pauseButton.setText("继续");
-        timeSwapBuff += timeInMilliseconds;
         customHandler.removeCallbacks(updateTimerThread);
     }
 
     private void resumeRecording() {
-        isPaused = false;
+        speedometerService.resumeRecording();
         pauseButton.setText("暂停");
-        startTime = SystemClock.uptimeMillis();
         customHandler.postDelayed(updateTimerThread, 0);
     }
 
     private void resetData() {
-        totalDistance = 0.0f;
-        maxSpeed = 0.0f;
-        lastLocation = null;
-        timeSwapBuff = 0L;
-        timeInMilliseconds = 0L;
-        startTime = 0L;
-        updatedTime = 0L;
-        timeValue.setText("00:00:00");
-        distanceValue.setText("0.00 km");
-        avgSpeedValue.setText("0.0 km/h");
-        maxSpeedValue.setText("0.0 km/h");
+        if (speedometerService != null) {
+            speedometerService.resetTrip();
+        }
+        // 经过文本缓冲区显示，保证缓冲区记录的内容与界面一致
+        renderElapsedTime(0);
+        renderTripValues(0, 0, 0);
     }
 
     private Runnable updateTimerThread = new Runnable() {
         public void run() {
-            timeInMilliseconds = SystemClock.uptimeMillis() - startTime;
-            updatedTime = timeSwapBuff + timeInMilliseconds;
-
-            int secs = (int) (updatedTime / 1000);
-            int mins = secs / 60;
-            secs = secs % 60;
-            int hours = mins / 60;
-            mins = mins % 60;
-            timeValue.setText(String.format(Locale.getDefault(), "%02d:%02d:%02d", hours, mins, secs));
+            updateTimeDisplay();
             // 使用100ms更新频率，与GPS更新频率同步
             customHandler.postDelayed(this, 100);
         }
     };
 
+    /**
+     * 显示服务中记录的时间
+     */
+    private void updateTimeDisplay() {
+        if (speedometerService == null) {
+            return;
+        }
+        renderElapsedTime(speedometerService.getLatestSnapshot().getElapsedTime(SystemClock.elapsedRealtime()));
+    }
+
+    /**
+     * 以 HH:mm:ss 显示记录时间，秒数不变时不刷新
+     * @param elapsedTime 记录时间（毫秒）
+     */
+    private void renderElapsedTime(long elapsedTime) {
+        int secs = (int) (elapsedTime / 1000);
+        int mins = secs / 60;
+        secs = secs % 60;
+        int hours = mins / 60;
+        mins = mins % 60;
+        timeText.clear().appendPadded(hours, 2).append(':').appendPadded(mins, 2).append(':').appendPadded(secs, 2);
+        render(timeText, timeValue);
+    }
+
     private void updateCurrentTime() {
         Handler handler = new Handler();
         handler.post(new Runnable() {
             @Override
             public void run() {
-                currentTime.setText(new SimpleDateFormat("HH:mm", Locale.getDefault()).format(new Date()));
+                clockCalendar.setTimeInMillis(System.currentTimeMillis());
+                clockText.clear()
+                        .appendPadded(clockCalendar.get(Calendar.HOUR_OF_DAY), 2)
+                        .append(':')
+                        .appendPadded(clockCalendar.get(Calendar.MINUTE), 2);
+                render(clockText, currentTime);
+                if (latencyOverlayEnabled) {
+                    renderLatencyOverlay();
+                }
                 handler.postDelayed(this, 1000);
             }
         });
     }
     
     /**
-     * 更新电池电量显示
+     * 调试层：各阶段延迟的p50/p90/p99（毫秒）
      */
-    private void updateBatteryLevel() {
-        Handler handler = new Handler();
-        handler.post(new Runnable() {
-            @Override
-            public void run() {
-                IntentFilter ifilter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
-                Intent batteryStatus = registerReceiver(null, ifilter);
-                int level = batteryStatus.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
-                int scale = batteryStatus.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
-                
-                float batteryPct = level * 100 / (float)scale;
-                batteryLevel.setText(String.format(Locale.getDefault(), "%d%%", Math.round(batteryPct)));
-                
-                // 每分钟更新一次电量
-                handler.postDelayed(this, 60000);
+    private void renderLatencyOverlay() {
+        latencyText.clear();
+        for (int stage = 0; stage < PipelineLatency.STAGE_COUNT; stage++) {
+            LatencyHistogram histogram = PipelineLatency.get(stage);
+            if (stage > 0) {
+                latencyText.append('\n');
             }
-        });
+            latencyText.append(PipelineLatency.getStageName(stage))
+                    .append(' ').appendFixed(histogram.getPercentileMicros(50) / 1000.0, 1)
+                    .append('/').appendFixed(histogram.getPercentileMicros(90) / 1000.0, 1)
+                    .append('/').appendFixed(histogram.getPercentileMicros(99) / 1000.0, 1);
+        }
+        render(latencyText, latencyOverlay);
     }
-    
-    // 静止状态检测参数
-    private static final float MIN_MOVEMENT_DISTANCE = 3.0f; // 最小移动距离（米）
-    private static final float MIN_SPEED_THRESHOLD = 1.0f; // 最小速度阈值（km/h）
-    private static final float MAX_ACCURACY_FOR_DISTANCE = 10.0f; // 用于距离计算的最大精度（米）
-    
+
     /**
-     * 位置更新回调
+     * 行程数据更新回调（主线程，统计数据已在定位处理线程中计算好）
      */
     @Override
-    public void onLocationUpdated(Location location) {
-        float speed = location.getSpeed() * 3.6f; // m/s to km/h
-        speedValue.setText(String.format(Locale.getDefault(), "%d", (int) speed));
-
-        if (isRecording && !isPaused) {
-            if (speed > maxSpeed) {
-                maxSpeed = speed;
-                maxSpeedValue.setText(String.format(Locale.getDefault(), "%.1f km/h", maxSpeed));
-            }
-
-            if (lastLocation != null) {
-                float distance = lastLocation.distanceTo(location); // 距离（米）
-                
-                // 智能距离累积：只有在满足条件时才累积距离
-                if (shouldAccumulateDistance(location, distance, speed)) {
-                    totalDistance += distance / 1000; // meters to km
-                    distanceValue.setText(String.format(Locale.getDefault(), "%.2f km", totalDistance));
-                    lastLocation = location; // 只有累积距离时才更新lastLocation
-                } else {
-                    // 不累积距离，但更新位置精度较高时的参考位置
-                    if (location.getAccuracy() < lastLocation.getAccuracy()) {
-                        lastLocation = location;
-                    }
-                }
-            } else {
-                // 首次获取位置
-                lastLocation = location;
-            }
-
-            // 计算平均速度（只有在有实际移动距离时才显示）
-            long elapsedTimeInSeconds = updatedTime / 1000;
-            if (elapsedTimeInSeconds > 0 && totalDistance > 0) {
-                float avgSpeed = totalDistance / (elapsedTimeInSeconds / 3600.0f);
-                avgSpeedValue.setText(String.format(Locale.getDefault(), "%.1f km/h", avgSpeed));
-            } else {
-                avgSpeedValue.setText("0.0 km/h");
+    public void onTripUpdated(TripSnapshot snapshot) {
+        deliveryLatency.record(SystemClock.elapsedRealtimeNanos() - snapshot.publishTimeNanos);
+
+        if (smoothSpeedEnabled) {
+            // 计圈、暂停等操作也会发布快照，只有新的定位点才输入插值器
+            speedInterpolator.update(snapshot.currentSpeed, snapshot.fixTimeNanos, System.nanoTime());
+            if (!speedAnimating && !speedInterpolator.isSettled()) {
+                speedAnimating = true;
+                Choreographer.getInstance().postFrameCallback(speedFrameCallback);
             }
+        } else {
+            renderSpeed(snapshot.currentSpeed);
+        }
+        updateDisplayedData(snapshot);
+        showDragResult(snapshot);
+
+        // 在下一帧记录从发布到绘制的延迟
+        if (pendingFramePublishNanos == 0) {
+            pendingFramePublishNanos = snapshot.publishTimeNanos;
+            pendingFrameFixNanos = snapshot.fixTimeNanos;
+            Choreographer.getInstance().postFrameCallback(frameLatencyCallback);
         }
     }
     
     /**
-     * 判断是否应该累积距离
-     * @param currentLocation 当前位置
-     * @param distance 与上次位置的距离（米）
-     * @param speed 当前速度（km/h）
-     * @return 是否应该累积距离
+     * 性能测试结束时提示一次结果
      */
-    private boolean shouldAccumulateDistance(Location currentLocation, float distance, float speed) {
-        // 1. 检查位置精度：如果精度太差，不累积距离
-        if (currentLocation.getAccuracy() > MAX_ACCURACY_FOR_DISTANCE) {
-            return false;
+    private void showDragResult(TripSnapshot snapshot) {
+        if (snapshot.dragRunCount == shownDragRunCount) {
+            return;
         }
-        
-        // 2. 检查移动距离：必须超过最小移动距离阈值
-        if (distance < MIN_MOVEMENT_DISTANCE) {
-            return false;
+        boolean isNewRun = shownDragRunCount >= 0;
+        shownDragRunCount = snapshot.dragRunCount;
+        if (!isNewRun || snapshot.zeroTo100Nanos == 0 && snapshot.distance400Nanos == 0) {
+            return;
         }
-        
-        // 3. 检查速度：如果速度太低，可能是GPS漂移
-        if (speed < MIN_SPEED_THRESHOLD) {
-            // 低速时需要更大的移动距离才认为是真实移动
-            return distance > MIN_MOVEMENT_DISTANCE * 2;
+        StringBuilder result = new StringBuilder();
+        if (snapshot.zeroTo100Nanos != 0) {
+            result.append(String.format(Locale.US, "0-100km/h: %.2f s", snapshot.zeroTo100Nanos / 1e9));
         }
-        
-        // 4. 检查距离与精度的关系：移动距离应该明显大于GPS精度
-        float combinedAccuracy = currentLocation.getAccuracy() + lastLocation.getAccuracy();
-        if (distance < combinedAccuracy * 1.5f) {
-            return false;
+        if (snapshot.distance400Nanos != 0) {
+            result.append(result.length() > 0 ? "\n" : "")
+                    .append(String.format(Locale.US, "400m: %.2f s @ %.1f km/h", snapshot.distance400Nanos / 1e9, snapshot.trapSpeed400));
         }
-        
-        return true;
+        if (snapshot.hundredTo200Nanos != 0) {
+            result.append(String.format(Locale.US, "\n100-200km/h: %.2f s", snapshot.hundredTo200Nanos / 1e9));
+        }
+        Toast.makeText(this, result, Toast.LENGTH_LONG).show();
+    }
+
+    private void renderSpeed(float speed) {
+        speedText.clear().append((int) speed);
+        render(speedText, speedValue);
+    }
+
+    /**
+     * 停止平滑速度动画
+     */
+    private void stopSpeedAnimation() {
+        Choreographer.getInstance().removeFrameCallback(speedFrameCallback);
+        speedAnimating = false;
+        speedInterpolator.reset();
     }
     
     /**
      * GPS状态变化回调
      */
     @Override
-    public void onGpsStatusChanged(int satellitesInFix, int satelliteCount, boolean isConnected) {
-        gpsSignal.setText("GPS: " + satellitesInFix + "/" + satelliteCount);
-        updateGpsSignalIndicator(satellitesInFix);
-    }
-
-    private void updateGpsSignalIndicator(int satellitesUsedInFix) {
-        if (satellitesUsedInFix >= 12) {
-            gpsSignalIndicator.setImageResource(R.drawable.ic_gps_signal_4);
-        } else if (satellitesUsedInFix >= 8) {
-            gpsSignalIndicator.setImageResource(R.drawable.ic_gps_signal_3);
-        } else if (satellitesUsedInFix >= 4) {
-            gpsSignalIndicator.setImageResource(R.drawable.ic_gps_signal_2);
-        } else if (satellitesUsedInFix > 0) {
-            gpsSignalIndicator.setImageResource(R.drawable.ic_gps_signal_1);
-        } else {
-            gpsSignalIndicator.setImageResource(R.drawable.ic_gps_signal_0);
+    public void onGpsStatusChanged(int satellitesInFix, int satelliteCount, int signalQuality, boolean isConnected) {
+        gpsText.clear().append("GPS: ").append(satellitesInFix).append('/').append(satelliteCount);
+        render(gpsText, gpsSignal);
+        updateGpsSignalIndicator(signalQuality);
+    }
+
+    private void updateGpsSignalIndicator(int signalQuality) {
+        // 按信号质量（C/N0加权的等效卫星数）显示格数，而不是单纯的卫星数
+        int level = SignalQualityModel.levelForScore(signalQuality);
+        if (level == shownSignalLevel) {
+            return;
+        }
+        shownSignalLevel = level;
+        switch (level) {
+            case 4:
+                gpsSignalIndicator.setImageResource(R.drawable.ic_gps_signal_4);
+                break;
+            case 3:
+                gpsSignalIndicator.setImageResource(R.drawable.ic_gps_signal_3);
+                break;
+            case 2:
+                gpsSignalIndicator.setImageResource(R.drawable.ic_gps_signal_2);
+                break;
+            case 1:
+                gpsSignalIndicator.setImageResource(R.drawable.ic_gps_signal_1);
+                break;
+            default:
+                gpsSignalIndicator.setImageResource(R.drawable.ic_gps_signal_0);
+                break;
         }
     }
     
@@ -438,74 +561,87 @@ public class MainActivity extends AppCompatActivity implements LocationHelper.On
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
         if (requestCode == LOCATION_PERMISSION_REQUEST_CODE) {
-            if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
-                // 权限已获取，LocationHelper 将在 onCreate 中初始化
+            boolean locationRequested = false;
+            boolean locationGranted = false;
+            for (int i = 0; i < permissions.length && i < grantResults.length; i++) {
+                if (Manifest.permission.ACCESS_FINE_LOCATION.equals(permissions[i])
+                        || Manifest.permission.ACCESS_COARSE_LOCATION.equals(permissions[i])) {
+                    locationRequested = true;
+                    locationGranted |= grantResults[i] == PackageManager.PERMISSION_GRANTED;
+                }
+            }
+            if (!locationRequested) {
+                // 只申请了通知权限
+                return;
+            }
+            if (locationGranted) {
+                // 权限已获取，由服务启动定位
+                if (speedometerService != null) {
+                    speedometerService.startLocationUpdates();
+                }
             } else {
                 Toast.makeText(this, "权限被拒绝，无法获取速度信息", Toast.LENGTH_SHORT).show();
             }
         }
     }
 
-    // 电池检查间隔（毫秒）
-    private static final long BATTERY_CHECK_INTERVAL = 60000; // 1分钟检查一次
-    
+    @Override
+    protected void onStart() {
+        super.onStart();
+        // 电量由广播推送，界面可见时才需要刷新显示
+        BatteryStateMonitor.getInstance(this).addListener(batteryListener);
+        // 绑定定位服务；未在记录时，解绑后服务会停止定位以节省电量
+        isServiceBound = bindService(new Intent(this, SpeedometerService.class), serviceConnection, Context.BIND_AUTO_CREATE);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        BatteryStateMonitor.getInstance(this).removeListener(batteryListener);
+        Choreographer.getInstance().removeFrameCallback(frameLatencyCallback);
+        pendingFramePublishNanos = 0;
+        stopSpeedAnimation();
+        if (isServiceBound) {
+            if (speedometerService != null) {
+                speedometerService.setClients(null, null);
+            }
+            unbindService(serviceConnection);
+            isServiceBound = false;
+            speedometerService = null;
+        }
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
-        if (isRecording && !isPaused) {
-            startTime = SystemClock.uptimeMillis() - updatedTime;
-            customHandler.postDelayed(updateTimerThread, 0);
+        boolean smooth = SettingsActivity.isSmoothSpeedEnabled(this);
+        if (smooth != smoothSpeedEnabled) {
+            stopSpeedAnimation();
+            smoothSpeedEnabled = smooth;
+        }
+        latencyOverlayEnabled = SettingsActivity.isLatencyOverlayEnabled(this);
+        latencyOverlay.setVisibility(latencyOverlayEnabled ? View.VISIBLE : View.GONE);
+        if (latencyOverlayEnabled) {
+            renderLatencyOverlay();
         }
-        // 恢复位置更新
-        if (locationHelper != null) {
-            locationHelper.startLocationUpdates();
+        if (speedometerService != null && speedometerService.isRecording() && !speedometerService.isPaused()) {
+            customHandler.postDelayed(updateTimerThread, 0);
         }
-        // 恢复电池监控
-        customHandler.postDelayed(batteryCheckRunnable, BATTERY_CHECK_INTERVAL);
     }
 
     @Override
     protected void onPause() {
         super.onPause();
         customHandler.removeCallbacks(updateTimerThread);
-        // 暂停位置更新以节省电量
-        if (locationHelper != null) {
-            locationHelper.stopLocationUpdates();
-        }
-        // 暂停电池监控
-        customHandler.removeCallbacks(batteryCheckRunnable);
     }
     
     /**
-     * 保存实例状态，防止屏幕旋转时数据丢失
+     * 保存实例状态，行程数据保存在服务中，这里只保存界面方向
      */
     @Override
     protected void onSaveInstanceState(@NonNull Bundle outState) {
         super.onSaveInstanceState(outState);
-        
-        // 保存记录状态
-        outState.putBoolean("isRecording", isRecording);
-        outState.putBoolean("isPaused", isPaused);
         outState.putBoolean("isLandscape", isLandscape);
-        
-        // 保存计时器相关数据
-        outState.putLong("startTime", startTime);
-        outState.putLong("timeSwapBuff", timeSwapBuff);
-        outState.putLong("timeInMilliseconds", timeInMilliseconds);
-        outState.putLong("updatedTime", updatedTime);
-        
-        // 保存速度和距离数据
-        outState.putFloat("totalDistance", totalDistance);
-        outState.putFloat("maxSpeed", maxSpeed);
-        
-        // 保存最后位置（如果存在）
-        if (lastLocation != null) {
-            outState.putDouble("lastLocationLatitude", lastLocation.getLatitude());
-            outState.putDouble("lastLocationLongitude", lastLocation.getLongitude());
-            outState.putFloat("lastLocationAccuracy", lastLocation.getAccuracy());
-            outState.putLong("lastLocationTime", lastLocation.getTime());
-            outState.putFloat("lastLocationSpeed", lastLocation.getSpeed());
-        }
     }
     
     /**
@@ -514,93 +650,68 @@ public class MainActivity extends AppCompatActivity implements LocationHelper.On
     @Override
     protected void onRestoreInstanceState(@NonNull Bundle savedInstanceState) {
         super.onRestoreInstanceState(savedInstanceState);
-        
-        // 恢复记录状态
-        isRecording = savedInstanceState.getBoolean("isRecording", false);
-        isPaused = savedInstanceState.getBoolean("isPaused", false);
         isLandscape = savedInstanceState.getBoolean("isLandscape", false);
-        
-        // 恢复计时器相关数据
-        startTime = savedInstanceState.getLong("startTime", 0L);
-        timeSwapBuff = savedInstanceState.getLong("timeSwapBuff", 0L);
-        timeInMilliseconds = savedInstanceState.getLong("timeInMilliseconds", 0L);
-        updatedTime = savedInstanceState.getLong("updatedTime", 0L);
-        
-        // 恢复速度和距离数据
-        totalDistance = savedInstanceState.getFloat("totalDistance", 0.0f);
-        maxSpeed = savedInstanceState.getFloat("maxSpeed", 0.0f);
-        
-        // 恢复最后位置
-        if (savedInstanceState.containsKey("lastLocationLatitude")) {
-            lastLocation = new Location("restored");
-            lastLocation.setLatitude(savedInstanceState.getDouble("lastLocationLatitude"));
-            lastLocation.setLongitude(savedInstanceState.getDouble("lastLocationLongitude"));
-            lastLocation.setAccuracy(savedInstanceState.getFloat("lastLocationAccuracy"));
-            lastLocation.setTime(savedInstanceState.getLong("lastLocationTime"));
-            lastLocation.setSpeed(savedInstanceState.getFloat("lastLocationSpeed"));
-        }
-        
-        // 恢复UI状态
-        restoreUIState();
     }
     
     /**
      * 恢复UI状态
      */
     private void restoreUIState() {
-        if (isRecording) {
+        customHandler.removeCallbacks(updateTimerThread);
+        if (speedometerService.isRecording()) {
             startStopButton.setText("结束");
             pauseButton.setVisibility(View.VISIBLE);
             resetButton.setVisibility(View.GONE);
             mainLayout.setBackgroundColor(Color.BLACK);
             getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
             
-            if (isPaused) {
+            if (speedometerService.isPaused()) {
                 pauseButton.setText("继续");
             } else {
                 pauseButton.setText("暂停");
                 // 重新启动计时器
-                startTime = SystemClock.uptimeMillis() - updatedTime;
                 customHandler.postDelayed(updateTimerThread, 0);
             }
         } else {
             startStopButton.setText("开始");
             pauseButton.setVisibility(View.GONE);
-            resetButton.setVisibility(View.VISIBLE);
+            // 有未复位的行程数据时才显示复位按钮
+            resetButton.setVisibility(speedometerService.getLatestSnapshot().accumulatedTime > 0 ? View.VISIBLE : View.GONE);
             mainLayout.setBackgroundColor(Color.parseColor("#212121"));
             getWindow().clearFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
         }
         
         // 更新显示的数据
-        updateDisplayedData();
+        updateDisplayedData(speedometerService.getLatestSnapshot());
     }
     
     /**
      * 更新显示的数据
      */
-    private void updateDisplayedData() {
+    private void updateDisplayedData(TripSnapshot snapshot) {
         // 更新时间显示
-        if (updatedTime > 0) {
-            int secs = (int) (updatedTime / 1000);
-            int mins = secs / 60;
-            secs = secs % 60;
-            int hours = mins / 60;
-            mins = mins % 60;
-            timeValue.setText(String.format(Locale.getDefault(), "%02d:%02d:%02d", hours, mins, secs));
+        if (snapshot.getElapsedTime(SystemClock.elapsedRealtime()) > 0) {
+            updateTimeDisplay();
         }
         
-        // 更新距离显示
-        distanceValue.setText(String.format(Locale.getDefault(), "%.2f km", totalDistance));
+        renderTripValues(snapshot.totalDistance, snapshot.maxSpeed, snapshot.averageSpeed);
+    }
+    
+    /**
+     * 显示距离、最大速度和平均速度
+     * @param totalDistance 总距离（km）
+     * @param maxSpeed 最大速度（km/h）
+     * @param averageSpeed 平均速度（km/h）
+     */
+    private void renderTripValues(float totalDistance, float maxSpeed, float averageSpeed) {
+        distanceText.clear().appendFixed(totalDistance, 2).append(" km");
+        render(distanceText, distanceValue);
         
-        // 更新最大速度显示
-        maxSpeedValue.setText(String.format(Locale.getDefault(), "%.1f km/h", maxSpeed));
+        maxSpeedText.clear().appendFixed(maxSpeed, 1).append(" km/h");
+        render(maxSpeedText, maxSpeedValue);
         
-        // 更新平均速度显示
-        long elapsedTimeInSeconds = updatedTime / 1000;
-        if (elapsedTimeInSeconds > 0) {
-            float avgSpeed = totalDistance / (elapsedTimeInSeconds / 3600.0f);
-            avgSpeedValue.setText(String.format(Locale.getDefault(), "%.1f km/h", avgSpeed));
-        }
+        avgSpeedText.clear().appendFixed(averageSpeed, 1).append(" km/h");
+        render(avgSpeedText, avgSpeedValue);
     }
     
     /**
@@ -0,0 +1,145 @@
+package cc.ytdttj.speed;
+
+/**
+ * 无分配的数字文本缓冲区（纯Java，不依赖Android框架）
+ * <p>
+ * 先把数字格式化到草稿缓冲区，{@link #commit()} 时与上次显示的内容比较，
+ * 有变化才复制到显示缓冲区。显示缓冲区直接交给 {@code TextView.setText(char[], int, int)}，
+ * TextView 会持有该数组，因此只在下一次 setText 之前修改它，且每个 TextView 必须使用独立的实例。
+ */
+public final class NumberText {
+
+    private final char decimalSeparator;
+    private final char[] draft;
+    private int draftLength = 0;
+    private final char[] shown;
+    private int shownLength = -1;
+
+    /**
+     * @param capacity 最大字符数
+     * @param decimalSeparator 小数点字符（随地区设置）
+     */
+    public NumberText(int capacity, char decimalSeparator) {
+        this.decimalSeparator = decimalSeparator;
+        this.draft = new char[capacity];
+        this.shown = new char[capacity];
+    }
+
+    /**
+     * 清空草稿，开始格式化新内容
+     */
+    public NumberText clear() {
+        draftLength = 0;
+        return this;
+    }
+
+    public NumberText append(char c) {
+        draft[draftLength++] = c;
+        return this;
+    }
+
+    /**
+     * 追加常量字符串（如单位），不产生分配
+     */
+    public NumberText append(String s) {
+        int length = s.length();
+        s.getChars(0, length, draft, draftLength);
+        draftLength += length;
+        return this;
+    }
+
+    public NumberText append(int value) {
+        return appendPadded(value, 1);
+    }
+
+    /**
+     * 追加整数，不足位数时左侧补0
+     * @param value 数值
+     * @param width 最少位数
+     */
+    public NumberText appendPadded(int value, int width) {
+        long v = value;
+        if (v < 0) {
+            draft[draftLength++] = '-';
+            v = -v;
+        }
+        return appendDigits(v, width);
+    }
+
+    /**
+     * 追加定点小数（四舍五入）
+     * @param value 数值
+     * @param decimals 小数位数
+     */
+    public NumberText appendFixed(double value, int decimals) {
+        long scale = 1;
+        for (int i = 0; i < decimals; i++) {
+            scale *= 10;
+        }
+        long scaled = Math.round(Math.abs(value) * scale);
+        if (value < 0 && scaled != 0) {
+            draft[draftLength++] = '-';
+        }
+        appendDigits(scaled / scale, 1);
+        if (decimals > 0) {
+            draft[draftLength++] = decimalSeparator;
+            appendDigits(scaled % scale, decimals);
+        }
+        return this;
+    }
+
+    private NumberText appendDigits(long value, int width) {
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+        int count = Math.max(digits, width);
+        for (int i = draftLength + count - 1; i >= draftLength; i--) {
+            draft[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        draftLength += count;
+        return this;
+    }
+
+    /**
+     * 提交草稿
+     * @return 内容是否与上次提交的不同（不同时需要刷新TextView）
+     */
+    public boolean commit() {
+        if (draftLength == shownLength) {
+            boolean same = true;
+            for (int i = 0; i < draftLength; i++) {
+                if (draft[i] != shown[i]) {
+                    same = false;
+                    break;
+                }
+            }
+            if (same) {
+                return false;
+            }
+        }
+        System.arraycopy(draft, 0, shown, 0, draftLength);
+        shownLength = draftLength;
+        return true;
+    }
+
+    /**
+     * @return 已提交的字符（显示缓冲区）
+     */
+    public char[] getChars() {
+        return shown;
+    }
+
+    /**
+     * @return 已提交的字符数
+     */
+    public int length() {
+        return Math.max(shownLength, 0);
+    }
+
+    @Override
+    public String toString() {
+        return new String(shown, 0, length());
+    }
+}
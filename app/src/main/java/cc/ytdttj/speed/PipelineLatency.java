@@ -0,0 +1,86 @@
+package cc.ytdttj.speed;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * 定位点从GNSS芯片到屏幕的各阶段延迟（进程内共享，纯Java，不依赖Android框架）
+ * <p>
+ * 所有时间戳都取自同一个单调时钟（SystemClock.elapsedRealtimeNanos，
+ * 与 {@link FixRecord#elapsedRealtimeNanos} 相同），不受系统时间和GNSS时间差异的影响：
+ * <ol>
+ * <li>定位生成：{@link FixRecord#elapsedRealtimeNanos}</li>
+ * <li>回调收到：定位处理线程收到 Location 时</li>
+ * <li>处理完成：定位引擎过滤完成时</li>
+ * <li>界面绘制：主线程在收到快照后的下一帧</li>
+ * </ol>
+ * GNSS批量送达的定位点本来就是有意延迟送达的，不计入统计。
+ * 定位处理线程和主线程同时记录，dumpsys 在binder线程读取，因此使用无锁直方图。
+ */
+public final class PipelineLatency {
+
+    public static final int STAGE_FIX_TO_CALLBACK = 0;
+    public static final int STAGE_CALLBACK_TO_FILTERED = 1;
+    public static final int STAGE_FILTERED_TO_DRAWN = 2;
+    public static final int STAGE_FIX_TO_DRAWN = 3;
+    public static final int STAGE_COUNT = 4;
+
+    private static final String[] STAGE_NAMES = {
+            "定位生成->回调收到",
+            "回调收到->处理完成",
+            "处理完成->界面绘制",
+            "定位生成->界面绘制",
+    };
+
+    private static final LatencyHistogram[] HISTOGRAMS = new LatencyHistogram[STAGE_COUNT];
+
+    static {
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            HISTOGRAMS[i] = new LatencyHistogram();
+        }
+    }
+
+    private PipelineLatency() {
+    }
+
+    /**
+     * 记录一个阶段的延迟
+     * @param stage 阶段（STAGE_*）
+     * @param startNanos 阶段开始时刻（单调时钟，纳秒），不大于0时表示没有时间戳，不记录
+     * @param endNanos 阶段结束时刻（单调时钟，纳秒）
+     */
+    public static void record(int stage, long startNanos, long endNanos) {
+        if (startNanos <= 0) {
+            return;
+        }
+        HISTOGRAMS[stage].record(endNanos - startNanos);
+    }
+
+    public static LatencyHistogram get(int stage) {
+        return HISTOGRAMS[stage];
+    }
+
+    public static String getStageName(int stage) {
+        return STAGE_NAMES[stage];
+    }
+
+    public static void reset() {
+        for (LatencyHistogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * 输出各阶段的百分位（毫秒），用于 dumpsys
+     */
+    public static void dump(PrintWriter writer) {
+        writer.println("定位延迟（毫秒）:");
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            LatencyHistogram histogram = HISTOGRAMS[i];
+            writer.printf(Locale.US, "  %s: n=%d p50=%.1f p90=%.1f p99=%.1f max=%.1f%n",
+                    STAGE_NAMES[i], histogram.getCount(),
+                    histogram.getPercentileMicros(50) / 1000.0, histogram.getPercentileMicros(90) / 1000.0,
+                    histogram.getPercentileMicros(99) / 1000.0, histogram.getMaxMicros() / 1000.0);
+        }
+    }
+}
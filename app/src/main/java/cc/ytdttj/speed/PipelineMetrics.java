@@ -0,0 +1,183 @@
+package cc.ytdttj.speed;
+
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 定位处理热路径的计数器和过滤决策日志（进程内共享，纯Java，不依赖Android框架）
+ * <p>
+ * 用户反馈“速度一直是0”“距离偏少”时，用来查看定位点在哪一步被丢弃：
+ * 各提供者收到的定位点数、有效性检查每条规则的拒绝数、静止锁定的进入和退出、
+ * 距离累积每个条件的拒绝数，以及提供者的重新注册次数。
+ * <p>
+ * 每个决策同时写入固定容量的基本类型环形日志（时间、事件、提供者、一个数值），
+ * 新记录覆盖最旧的记录。记录只有几次原子操作，不分配对象，
+ * 不受发布版本去掉 Log.d 的影响。定位处理线程和主线程（注册提供者时）都会记录，
+ * 读取在主线程或dumpsys的binder线程中进行；读取期间被覆盖的记录会被跳过。
+ */
+public final class PipelineMetrics {
+
+    // 收到的定位点（只计数，不写日志）
+    public static final int FIX_GPS = 0;
+    public static final int FIX_NETWORK = 1;
+    public static final int FIX_OTHER = 2;
+    // 有效性检查的拒绝原因（数值：精度、时间差、速度或移动距离）
+    public static final int REJECT_NO_POSITION = 3;
+    public static final int REJECT_ACCURACY = 4;
+    public static final int REJECT_STALE = 5;
+    public static final int REJECT_SPEED = 6;
+    public static final int REJECT_DRIFT = 7;
+    // 静止检测（数值：速度）
+    public static final int STATIONARY_KEEP = 8; // 无效点在静止状态下被保留，速度归零
+    public static final int STATIONARY_LOCK = 9;
+    public static final int STATIONARY_RELEASE = 10;
+    // 距离累积（数值：与参考位置的距离）
+    public static final int DISTANCE_ACCEPT = 11;
+    public static final int DISTANCE_REJECT_ACCURACY = 12;
+    public static final int DISTANCE_REJECT_SHORT = 13;
+    public static final int DISTANCE_REJECT_SLOW = 14;
+    public static final int DISTANCE_REJECT_BELOW_ACCURACY = 15;
+    // 提供者注册（数值：更新间隔）
+    public static final int PROVIDER_REQUEST = 16;
+    public static final int PROVIDER_REMOVE = 17;
+    public static final int EVENT_COUNT = 18;
+
+    private static final String[] EVENT_NAMES = {
+            "收到GPS定位", "收到网络定位", "收到其他定位",
+            "拒绝:无坐标", "拒绝:精度差", "拒绝:过时", "拒绝:速度异常", "拒绝:静止漂移",
+            "静止保留", "静止锁定", "静止解除",
+            "累积距离", "不累积:精度差", "不累积:距离短", "不累积:低速", "不累积:小于精度",
+            "注册提供者", "移除提供者",
+    };
+
+    private static final String[] PROVIDER_NAMES = {"-", "GPS", "网络", "融合"};
+
+    // 日志容量（2的幂）：10Hz时约可保存最近几分钟的决策
+    static final int LOG_CAPACITY = 4096;
+    private static final int LOG_MASK = LOG_CAPACITY - 1;
+
+    private static final AtomicLongArray COUNTERS = new AtomicLongArray(EVENT_COUNT);
+
+    // 环形日志：先原子地领取序号，把该位置的完成序号清零后再写入各字段，
+    // 最后写入完成序号（序号 + 1）。读取方在读字段前后检查完成序号，
+    // 写入期间（完成序号为0）或已被覆盖的记录都不会被当作完整记录
+    private static final AtomicLong LOG_SEQUENCE = new AtomicLong();
+    private static final AtomicLongArray LOG_STAMPS = new AtomicLongArray(LOG_CAPACITY);
+    // 每条记录两个long：时间；(事件 | 提供者 << 8) << 32 | 数值的原始位
+    private static final AtomicLongArray LOG_DATA = new AtomicLongArray(LOG_CAPACITY * 2);
+
+    private PipelineMetrics() {
+    }
+
+    /**
+     * 按提供者统计收到的定位点
+     * @param provider FixRecord.PROVIDER_*
+     */
+    public static void countFix(int provider) {
+        COUNTERS.incrementAndGet(provider == FixRecord.PROVIDER_GPS ? FIX_GPS
+                : provider == FixRecord.PROVIDER_NETWORK ? FIX_NETWORK : FIX_OTHER);
+    }
+
+    /**
+     * 记录一个决策：计数并写入环形日志
+     * @param event 事件（本类的常量）
+     * @param provider 定位点的提供者（FixRecord.PROVIDER_*）
+     * @param time 定位点或事件的UTC时间（毫秒）
+     * @param value 与事件相关的数值，含义见各事件常量
+     */
+    public static void record(int event, int provider, long time, float value) {
+        COUNTERS.incrementAndGet(event);
+        long sequence = LOG_SEQUENCE.getAndIncrement();
+        int i = (int) (sequence & LOG_MASK);
+        // volatile写入：之后的字段写入不会被重排到清零之前
+        LOG_STAMPS.set(i, 0);
+        LOG_DATA.set(i * 2, time);
+        LOG_DATA.set(i * 2 + 1, (long) (event | provider << 8) << 32 | (Float.floatToRawIntBits(value) & 0xFFFFFFFFL));
+        LOG_STAMPS.lazySet(i, sequence + 1);
+    }
+
+    public static long getCount(int event) {
+        return COUNTERS.get(event);
+    }
+
+    public static String getEventName(int event) {
+        return EVENT_NAMES[event];
+    }
+
+    /**
+     * @return 写入过的日志记录总数（包括已被覆盖的）
+     */
+    public static long getLogSequence() {
+        return LOG_SEQUENCE.get();
+    }
+
+    /**
+     * 读取一条日志
+     * @param sequence 记录序号，须在最近 {@link #LOG_CAPACITY} 条之内
+     * @param out 长度至少为3：时间、事件 | 提供者 << 8、数值的原始位（Float.floatToRawIntBits）
+     * @return 记录是否完整（已被覆盖或正在写入时为false）
+     */
+    static boolean readLog(long sequence, long[] out) {
+        int i = (int) (sequence & LOG_MASK);
+        if (LOG_STAMPS.get(i) != sequence + 1) {
+            return false;
+        }
+        long time = LOG_DATA.get(i * 2);
+        long codeAndValue = LOG_DATA.get(i * 2 + 1);
+        if (LOG_STAMPS.get(i) != sequence + 1) {
+            return false;
+        }
+        out[0] = time;
+        out[1] = codeAndValue >>> 32;
+        out[2] = (int) codeAndValue;
+        return true;
+    }
+
+    /**
+     * 清空计数器和日志（与并发的记录之间没有原子性）
+     */
+    public static void reset() {
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            COUNTERS.set(i, 0);
+        }
+        for (int i = 0; i < LOG_CAPACITY; i++) {
+            LOG_STAMPS.set(i, 0);
+        }
+        LOG_SEQUENCE.set(0);
+    }
+
+    /**
+     * 输出计数器和最近的决策日志（最新的在最后）
+     * @param writer 输出
+     * @param maxEntries 最多输出的日志条数
+     */
+    public static void dump(PrintWriter writer, int maxEntries) {
+        writer.println("定位处理计数:");
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            writer.printf(Locale.US, "  %s: %d%n", EVENT_NAMES[i], COUNTERS.get(i));
+        }
+
+        long end = LOG_SEQUENCE.get();
+        long start = Math.max(0, end - Math.min(maxEntries, LOG_CAPACITY));
+        writer.println("最近的决策（" + (end - start) + "条）:");
+        SimpleDateFormat format = new SimpleDateFormat("HH:mm:ss.SSS", Locale.US);
+        Date date = new Date();
+        long[] entry = new long[3];
+        for (long sequence = start; sequence < end; sequence++) {
+            if (!readLog(sequence, entry)) {
+                continue;
+            }
+            int code = (int) entry[1];
+            int event = code & 0xFF;
+            int provider = code >>> 8;
+            date.setTime(entry[0]);
+            writer.printf(Locale.US, "  %s %s %s %.1f%n", format.format(date),
+                    provider < PROVIDER_NAMES.length ? PROVIDER_NAMES[provider] : "?",
+                    EVENT_NAMES[event], Float.intBitsToFloat((int) entry[2]));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package cc.ytdttj.speed;
+
+/**
+ * 根据电量和系统省电模式判断是否需要省电（纯Java，不依赖Android框架）
+ * <p>
+ * 电量低于 {@link #LOW_BATTERY_THRESHOLD} 时进入低电量状态，回升到阈值以上
+ * {@link #RECOVERY_MARGIN} 后才退出，避免电量在阈值附近波动时反复切换定位模式。
+ * 系统省电模式开启时同样需要省电。
+ */
+public final class PowerSavingPolicy {
+
+    public static final int LOW_BATTERY_THRESHOLD = 20; // %
+    static final int RECOVERY_MARGIN = 2; // %
+
+    private int level = -1;
+    private boolean lowBattery = false;
+    private boolean powerSaveMode = false;
+
+    /**
+     * 更新电量和系统省电模式
+     * @param level 电量百分比，未知时为负数（保持之前的判断）
+     * @param powerSaveMode 系统省电模式是否开启
+     * @return 是否需要省电的判断是否发生变化
+     */
+    public boolean update(int level, boolean powerSaveMode) {
+        boolean wasPowerSaving = isPowerSaving();
+        if (level >= 0) {
+            this.level = level;
+            if (level < LOW_BATTERY_THRESHOLD) {
+                lowBattery = true;
+            } else if (level >= LOW_BATTERY_THRESHOLD + RECOVERY_MARGIN) {
+                lowBattery = false;
+            }
+        }
+        this.powerSaveMode = powerSaveMode;
+        return isPowerSaving() != wasPowerSaving;
+    }
+
+    /**
+     * @return 电量百分比，未知时为-1
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    public boolean isLowBattery() {
+        return lowBattery;
+    }
+
+    public boolean isPowerSaveMode() {
+        return powerSaveMode;
+    }
+
+    /**
+     * @return 是否需要省电（低电量或系统省电模式）
+     */
+    public boolean isPowerSaving() {
+        return lowBattery || powerSaveMode;
+    }
+}
@@ -0,0 +1,101 @@
+package cc.ytdttj.speed;
+
+/**
+ * 定位提供者注册状态表（纯Java，不依赖Android框架）
+ * <p>
+ * 记录每个提供者当前生效的注册参数。调整配置时先与期望的参数比较，
+ * 只对有差异的提供者重新请求或移除，其他提供者的注册保持不变，避免重新搜星。
+ * 只能在定位处理线程中使用。
+ */
+public final class ProviderRegistrations {
+
+    public static final int GPS = 0;
+    public static final int NETWORK = 1;
+    static final int COUNT = 2;
+
+    // 比较结果
+    public static final int ACTION_NONE = 0;
+    public static final int ACTION_REQUEST = 1; // 新注册或替换已有注册的参数
+    public static final int ACTION_REMOVE = 2;
+
+    private final boolean[] active = new boolean[COUNT];
+    private final long[] intervals = new long[COUNT];
+    private final float[] minDistances = new float[COUNT];
+    private final long[] maxUpdateDelays = new long[COUNT];
+
+    // 统计实际发生的注册变更次数
+    private int requestCount = 0;
+    private int removeCount = 0;
+
+    /**
+     * 比较期望配置与当前注册
+     * @param provider 提供者（GPS 或 NETWORK）
+     * @param enabled 是否需要该提供者
+     * @param intervalMillis 期望的更新间隔（毫秒）
+     * @param minDistanceMeters 期望的最小距离（米）
+     * @param maxUpdateDelayMillis 期望的最大批量延迟（毫秒），0表示不批量
+     * @return ACTION_NONE、ACTION_REQUEST 或 ACTION_REMOVE
+     */
+    public int diff(int provider, boolean enabled, long intervalMillis, float minDistanceMeters, long maxUpdateDelayMillis) {
+        if (!enabled) {
+            return active[provider] ? ACTION_REMOVE : ACTION_NONE;
+        }
+        if (active[provider] && intervals[provider] == intervalMillis && minDistances[provider] == minDistanceMeters
+                && maxUpdateDelays[provider] == maxUpdateDelayMillis) {
+            return ACTION_NONE;
+        }
+        return ACTION_REQUEST;
+    }
+
+    /**
+     * 记录请求成功的注册
+     */
+    public void onRequested(int provider, long intervalMillis, float minDistanceMeters, long maxUpdateDelayMillis) {
+        active[provider] = true;
+        intervals[provider] = intervalMillis;
+        minDistances[provider] = minDistanceMeters;
+        maxUpdateDelays[provider] = maxUpdateDelayMillis;
+        requestCount++;
+    }
+
+    /**
+     * 记录已移除的注册
+     */
+    public void onRemoved(int provider) {
+        active[provider] = false;
+        removeCount++;
+    }
+
+    public boolean isActive(int provider) {
+        return active[provider];
+    }
+
+    public long getIntervalMillis(int provider) {
+        return intervals[provider];
+    }
+
+    public float getMinDistanceMeters(int provider) {
+        return minDistances[provider];
+    }
+
+    public long getMaxUpdateDelayMillis(int provider) {
+        return maxUpdateDelays[provider];
+    }
+
+    public int getRequestCount() {
+        return requestCount;
+    }
+
+    public int getRemoveCount() {
+        return removeCount;
+    }
+
+    /**
+     * 清除所有注册记录（已统一移除所有提供者时调用）
+     */
+    public void clear() {
+        for (int i = 0; i < COUNT; i++) {
+            active[i] = false;
+        }
+    }
+}
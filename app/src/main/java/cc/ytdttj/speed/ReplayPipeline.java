@@ -0,0 +1,117 @@
+package cc.ytdttj.speed;
+
+/**
+ * 回放用的定位处理流水线（纯Java，不依赖Android框架）
+ * <p>
+ * 与 {@link LocationHelper} 和 {@link SpeedometerService} 中的处理路径一致：
+ * 卫星状态经 {@link GpsConnectionMonitor} 更新连接状态，定位点经 {@link LocationEngine}
+ * 过滤和选择来源后交给 {@link TripRecorder} 统计，参与统计的点再经 {@link TrackSimplifier} 精简。
+ * 每个被接受的点之后按相同的输入更新 {@link UpdateIntervalPolicy}，回放目标可以据此模拟GPS的实际上报频率。
+ */
+public final class ReplayPipeline implements TraceReplayer.Target {
+
+    private final LocationEngine locationEngine = new LocationEngine();
+    private final GpsConnectionMonitor connectionMonitor = new GpsConnectionMonitor();
+    private final TripRecorder tripRecorder = new TripRecorder();
+    private final TrackSimplifier trackSimplifier = new TrackSimplifier();
+    private final UpdateIntervalPolicy intervalPolicy = new UpdateIntervalPolicy();
+    private final FixRecord simplifiedFix = new FixRecord();
+
+    private long acceptedFixCount = 0;
+    private long rejectedFixCount = 0;
+    private long recordedFixCount = 0;
+
+    // 批量处理的输出缓冲区
+    private FixRecord[] batchOutput = new FixRecord[0];
+
+    @Override
+    public void onFix(FixRecord fix, long currentTime) {
+        if (!locationEngine.process(fix, currentTime)) {
+            rejectedFixCount++;
+            return;
+        }
+        acceptedFixCount++;
+
+        FixRecord bestFix = locationEngine.getBestFix();
+        if (bestFix != null && tripRecorder.onLocationUpdated(bestFix)) {
+            recordFix(bestFix);
+        }
+        updateIntervalPolicy(currentTime);
+    }
+
+    /**
+     * 按GNSS批量模式处理一批定位点，与 {@link SpeedometerService} 的批量路径一致
+     * @param fixes 定位点
+     * @param count 数量
+     * @param deliveryTime 批量送达时间
+     */
+    public void onFixBatch(FixRecord[] fixes, int count, long deliveryTime) {
+        if (batchOutput.length < count) {
+            batchOutput = FixRecord.newArray(count);
+        }
+        int accepted = locationEngine.processBatch(fixes, count, deliveryTime, LocationEngine.MAX_BATCH_DELAY, batchOutput);
+        acceptedFixCount += accepted;
+        rejectedFixCount += count - accepted;
+        for (int i = 0; i < accepted; i++) {
+            if (tripRecorder.onLocationUpdated(batchOutput[i])) {
+                recordFix(batchOutput[i]);
+            }
+        }
+        if (accepted > 0) {
+            updateIntervalPolicy(deliveryTime);
+        }
+    }
+
+    @Override
+    public void onSatelliteStatus(int satellitesInFix, int satelliteCount, long currentTime) {
+        if (connectionMonitor.update(satellitesInFix, currentTime)) {
+            locationEngine.setGpsConnected(connectionMonitor.isConnected());
+        }
+    }
+
+    private void updateIntervalPolicy(long currentTime) {
+        FixRecord bestFix = locationEngine.getBestFix();
+        intervalPolicy.update(bestFix != null ? bestFix.speed : 0, locationEngine.isStationary(),
+                connectionMonitor.isConnected(), false, tripRecorder.getDragTimer().needsFastUpdates(), currentTime);
+    }
+
+    private void recordFix(FixRecord fix) {
+        recordedFixCount++;
+        trackSimplifier.offer(fix, simplifiedFix);
+    }
+
+    public LocationEngine getLocationEngine() {
+        return locationEngine;
+    }
+
+    public GpsConnectionMonitor getConnectionMonitor() {
+        return connectionMonitor;
+    }
+
+    public TripRecorder getTripRecorder() {
+        return tripRecorder;
+    }
+
+    public UpdateIntervalPolicy getIntervalPolicy() {
+        return intervalPolicy;
+    }
+
+    public TrackSimplifier getTrackSimplifier() {
+        return trackSimplifier;
+    }
+
+    public long getAcceptedFixCount() {
+        return acceptedFixCount;
+    }
+
+    public long getRejectedFixCount() {
+        return rejectedFixCount;
+    }
+
+    /**
+     * @return 参与行程统计的定位点数量
+     */
+    public long getRecordedFixCount() {
+        return recordedFixCount;
+    }
+}
@@ -0,0 +1,231 @@
+package cc.ytdttj.speed;
+
+/**
+ * 滑动窗口速度统计（纯Java，不依赖Android框架）
+ * <p>
+ * 提供最近10秒和60秒的时间加权平均速度、瞬时加速度（最近1秒的速度变化），
+ * 以及最近60秒的最高和最低速度。
+ * <p>
+ * 每个定位点写入固定容量的基本类型环形缓冲区，同时保存从第一个点开始的速度积分
+ * （相邻两点之间按梯形积分），窗口平均速度 = 窗口两端积分之差 / 窗口时长。
+ * 每个窗口有一个只前进的起点指针；最高和最低速度用两个保存样本序号的单调队列。
+ * 每个定位点的摊还时间为O(1)，不分配对象。不是线程安全的，只能在定位处理线程中访问。
+ */
+public final class RollingSpeedStats {
+
+    // 窗口长度（毫秒）
+    public static final long SHORT_WINDOW = 10000;
+    public static final long LONG_WINDOW = 60000;
+    public static final long ACCELERATION_WINDOW = 1000;
+
+    // 样本容量：10Hz时60秒为600个样本
+    static final int CAPACITY = 1024;
+    private static final int MASK = CAPACITY - 1;
+
+    // 样本环形缓冲区，按序号访问（序号 & MASK）
+    private final long[] times = new long[CAPACITY];
+    private final float[] speeds = new float[CAPACITY];
+    private final double[] areas = new double[CAPACITY]; // 速度积分（米/秒 × 毫秒）
+    private long firstSample = 0;
+    private long nextSample = 0;
+
+    // 各窗口的起点序号
+    private long shortStart = 0;
+    private long longStart = 0;
+    private long accelerationStart = 0;
+
+    // 单调队列（保存样本序号）：最高速度队列递减，最低速度队列递增
+    private final long[] maxQueue = new long[CAPACITY];
+    private long maxHead = 0;
+    private long maxTail = 0;
+    private final long[] minQueue = new long[CAPACITY];
+    private long minHead = 0;
+    private long minTail = 0;
+
+    // 计算结果（米/秒）
+    private float shortAverage = 0;
+    private float longAverage = 0;
+    private float acceleration = 0; // 米/秒²
+    private float maxSpeed = 0;
+    private float minSpeed = 0;
+
+    /**
+     * 清空所有样本
+     */
+    public void reset() {
+        firstSample = 0;
+        nextSample = 0;
+        shortStart = 0;
+        longStart = 0;
+        accelerationStart = 0;
+        maxHead = 0;
+        maxTail = 0;
+        minHead = 0;
+        minTail = 0;
+        shortAverage = 0;
+        longAverage = 0;
+        acceleration = 0;
+        maxSpeed = 0;
+        minSpeed = 0;
+    }
+
+    /**
+     * 添加一个定位点的速度
+     * @param time 定位时间（毫秒）
+     * @param speed 速度（米/秒）
+     */
+    public void update(long time, float speed) {
+        long last = nextSample - 1;
+        if (nextSample > firstSample && time <= times[index(last)]) {
+            return; // 时间没有前进（重复或乱序的定位点）
+        }
+        double area = 0;
+        if (nextSample > firstSample) {
+            int previous = index(last);
+            area = areas[previous] + (speeds[previous] + speed) * 0.5 * (time - times[previous]);
+        }
+        append(time, speed, area);
+
+        long current = nextSample - 1;
+        shortStart = advance(shortStart, time - SHORT_WINDOW);
+        longStart = advance(longStart, time - LONG_WINDOW);
+        accelerationStart = advance(accelerationStart, time - ACCELERATION_WINDOW);
+
+        shortAverage = average(shortStart, time - SHORT_WINDOW, area, time, speed);
+        longAverage = average(longStart, time - LONG_WINDOW, area, time, speed);
+
+        long accelerationFrom = Math.max(time - ACCELERATION_WINDOW, times[index(accelerationStart)]);
+        if (time > accelerationFrom) {
+            float startSpeed = speedAt(accelerationStart, accelerationFrom);
+            acceleration = (speed - startSpeed) * 1000f / (time - accelerationFrom);
+        } else {
+            acceleration = 0;
+        }
+
+        // 单调队列：队尾去掉不可能再成为极值的样本，队首去掉窗口外的样本
+        long windowStart = time - LONG_WINDOW;
+        while (maxTail > maxHead && maxQueue[index(maxHead)] < firstSample) {
+            maxHead++;
+        }
+        while (minTail > minHead && minQueue[index(minHead)] < firstSample) {
+            minHead++;
+        }
+        while (maxTail > maxHead && speeds[index(maxQueue[index(maxTail - 1)])] <= speed) {
+            maxTail--;
+        }
+        maxQueue[index(maxTail++)] = current;
+        while (minTail > minHead && speeds[index(minQueue[index(minTail - 1)])] >= speed) {
+            minTail--;
+        }
+        minQueue[index(minTail++)] = current;
+        while (times[index(maxQueue[index(maxHead)])] < windowStart) {
+            maxHead++;
+        }
+        while (times[index(minQueue[index(minHead)])] < windowStart) {
+            minHead++;
+        }
+        maxSpeed = speeds[index(maxQueue[index(maxHead)])];
+        minSpeed = speeds[index(minQueue[index(minHead)])];
+
+        // 长窗口起点之前的样本不再需要
+        firstSample = longStart;
+    }
+
+    private void append(long time, float speed, double area) {
+        if (nextSample - firstSample >= CAPACITY) {
+            // 容量已满（定位频率远高于10Hz），丢弃最旧的样本
+            firstSample++;
+            shortStart = Math.max(shortStart, firstSample);
+            longStart = Math.max(longStart, firstSample);
+            accelerationStart = Math.max(accelerationStart, firstSample);
+        }
+        int i = index(nextSample);
+        times[i] = time;
+        speeds[i] = speed;
+        areas[i] = area;
+        nextSample++;
+    }
+
+    /**
+     * 起点指针前移到窗口开始时刻之前（或正好在该时刻）的最后一个样本
+     */
+    private long advance(long start, long windowStart) {
+        long last = nextSample - 1;
+        while (start < last && times[index(start + 1)] <= windowStart) {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * 窗口内的时间加权平均速度；数据不足一个窗口时按已有的时长计算
+     */
+    private float average(long start, long windowStart, double area, long time, float speed) {
+        long from = Math.max(windowStart, times[index(start)]);
+        if (time <= from) {
+            return speed;
+        }
+        float fromSpeed = speedAt(start, from);
+        double fromArea = areas[index(start)] + (speeds[index(start)] + fromSpeed) * 0.5 * (from - times[index(start)]);
+        return (float) ((area - fromArea) / (time - from));
+    }
+
+    /**
+     * 在样本 start 和下一个样本之间线性插值 time 时刻的速度
+     */
+    private float speedAt(long start, long time) {
+        int i = index(start);
+        if (start + 1 >= nextSample || time <= times[i]) {
+            return speeds[i];
+        }
+        int j = index(start + 1);
+        float ratio = (float) (time - times[i]) / (times[j] - times[i]);
+        return speeds[i] + (speeds[j] - speeds[i]) * Math.min(1f, ratio);
+    }
+
+    private static int index(long sequence) {
+        return (int) (sequence & MASK);
+    }
+
+    /**
+     * @return 最近10秒的平均速度（米/秒）
+     */
+    public float getShortAverage() {
+        return shortAverage;
+    }
+
+    /**
+     * @return 最近60秒的平均速度（米/秒）
+     */
+    public float getLongAverage() {
+        return longAverage;
+    }
+
+    /**
+     * @return 最近1秒的平均加速度（米/秒²）
+     */
+    public float getAcceleration() {
+        return acceleration;
+    }
+
+    /**
+     * @return 最近60秒的最高速度（米/秒）
+     */
+    public float getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    /**
+     * @return 最近60秒的最低速度（米/秒）
+     */
+    public float getMinSpeed() {
+        return minSpeed;
+    }
+
+    /**
+     * @return 当前保存的样本数
+     */
+    int getSampleCount() {
+        return (int) (nextSample - firstSample);
+    }
+}
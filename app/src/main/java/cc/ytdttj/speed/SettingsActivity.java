@@ -2,34 +2,58 @@ package cc.ytdttj.speed;
 
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
 import android.content.SharedPreferences;
-import android.os.BatteryManager;
+import android.net.Uri;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.RadioButton;
 import android.widget.RadioGroup;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 
+import java.io.File;
+
 public class SettingsActivity extends AppCompatActivity {
 
     // 定位模式常量
     public static final String PREF_NAME = "SpeedSettings";
     public static final String KEY_LOCATION_MODE = "location_mode";
-    public static final int MODE_HIGH_ACCURACY = 0;
-    public static final int MODE_BALANCED = 1;
+    public static final int MODE_HIGH_ACCURACY = SettingsSnapshot.MODE_HIGH_ACCURACY;
+    public static final int MODE_BALANCED = SettingsSnapshot.MODE_BALANCED;
+    public static final String KEY_FUSION_MODE = "fusion_mode";
+    public static final String KEY_SMOOTH_SPEED = "smooth_speed";
+    public static final String KEY_DOPPLER_SPEED = "doppler_speed";
+    public static final String KEY_LATENCY_OVERLAY = "latency_overlay";
     
     // 电量阈值
-    public static final int LOW_BATTERY_THRESHOLD = 20;
+    public static final int LOW_BATTERY_THRESHOLD = PowerSavingPolicy.LOW_BATTERY_THRESHOLD;
     
     private RadioGroup locationModeGroup;
     private RadioButton highAccuracyMode;
     private RadioButton balancedMode;
+    private CheckBox fusionMode;
+    private CheckBox smoothSpeed;
+    private CheckBox dopplerSpeed;
+    private CheckBox latencyOverlay;
     private Button saveSettingsButton;
     
+    // 轨迹导出
+    private File exportJournal;
+    private final ActivityResultLauncher<String> exportGpxLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(TrackExporter.getMimeType(TrackExporter.FORMAT_GPX)),
+            uri -> onExportTargetSelected(uri, TrackExporter.FORMAT_GPX));
+    private final ActivityResultLauncher<String> exportTcxLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(TrackExporter.getMimeType(TrackExporter.FORMAT_TCX)),
+            uri -> onExportTargetSelected(uri, TrackExporter.FORMAT_TCX));
+    private final ActivityResultLauncher<String> exportCsvLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(TrackExporter.getMimeType(TrackExporter.FORMAT_CSV)),
+            uri -> onExportTargetSelected(uri, TrackExporter.FORMAT_CSV));
+    
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -49,12 +73,26 @@ public class SettingsActivity extends AppCompatActivity {
             saveSettings();
             finish();
         });
+        
+        findViewById(R.id.export_gpx_button).setOnClickListener(v -> startExport(exportGpxLauncher, TrackExporter.FORMAT_GPX));
+        findViewById(R.id.export_tcx_button).setOnClickListener(v -> startExport(exportTcxLauncher, TrackExporter.FORMAT_TCX));
+        findViewById(R.id.export_csv_button).setOnClickListener(v -> startExport(exportCsvLauncher, TrackExporter.FORMAT_CSV));
+        
+        // 隐藏入口：长按标题打开诊断页面
+        findViewById(R.id.settings_title).setOnLongClickListener(v -> {
+            startActivity(new Intent(this, DiagnosticsActivity.class));
+            return true;
+        });
     }
     
     private void initViews() {
         locationModeGroup = findViewById(R.id.location_mode_group);
         highAccuracyMode = findViewById(R.id.high_accuracy_mode);
         balancedMode = findViewById(R.id.balanced_mode);
+        fusionMode = findViewById(R.id.fusion_mode);
+        smoothSpeed = findViewById(R.id.smooth_speed);
+        dopplerSpeed = findViewById(R.id.doppler_speed);
+        latencyOverlay = findViewById(R.id.latency_overlay);
         saveSettingsButton = findViewById(R.id.save_settings_button);
     }
     
@@ -67,21 +105,21 @@ public class SettingsActivity extends AppCompatActivity {
         } else {
             balancedMode.setChecked(true);
         }
+        fusionMode.setChecked(prefs.getBoolean(KEY_FUSION_MODE, false));
+        smoothSpeed.setChecked(prefs.getBoolean(KEY_SMOOTH_SPEED, false));
+        dopplerSpeed.setChecked(prefs.getBoolean(KEY_DOPPLER_SPEED, false));
+        latencyOverlay.setChecked(prefs.getBoolean(KEY_LATENCY_OVERLAY, false));
     }
     
     private void checkBatteryLevel() {
-        IntentFilter ifilter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
-        Intent batteryStatus = registerReceiver(null, ifilter);
-        int level = batteryStatus.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
-        int scale = batteryStatus.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
-        
-        float batteryPct = level * 100 / (float)scale;
+        BatteryStateMonitor battery = BatteryStateMonitor.getInstance(this);
         
-        // 如果电量低于阈值，强制选择平衡模式并禁用高精度模式
-        if (batteryPct < LOW_BATTERY_THRESHOLD) {
+        // 如果电量低于阈值或系统省电模式已开启，强制选择平衡模式并禁用高精度模式
+        if (battery.isPowerSaving()) {
             balancedMode.setChecked(true);
             highAccuracyMode.setEnabled(false);
-            Toast.makeText(this, "电量低于20%，已自动切换到平衡模式以节省电量", Toast.LENGTH_LONG).show();
+            Toast.makeText(this, battery.isLowBattery() ? "电量低于20%，已自动切换到平衡模式以节省电量"
+                    : "系统省电模式已开启，已自动切换到平衡模式", Toast.LENGTH_LONG).show();
         }
     }
     
@@ -91,23 +129,90 @@ public class SettingsActivity extends AppCompatActivity {
         
         int selectedMode = highAccuracyMode.isChecked() ? MODE_HIGH_ACCURACY : MODE_BALANCED;
         editor.putInt(KEY_LOCATION_MODE, selectedMode);
+        editor.putBoolean(KEY_FUSION_MODE, fusionMode.isChecked());
+        editor.putBoolean(KEY_SMOOTH_SPEED, smoothSpeed.isChecked());
+        editor.putBoolean(KEY_DOPPLER_SPEED, dopplerSpeed.isChecked());
+        editor.putBoolean(KEY_LATENCY_OVERLAY, latencyOverlay.isChecked());
         editor.apply();
         
         Toast.makeText(this, "设置已保存", Toast.LENGTH_SHORT).show();
     }
     
+    /**
+     * 选择导出位置
+     * @param launcher 对应格式的文件创建启动器
+     * @param format 导出格式
+     */
+    private void startExport(ActivityResultLauncher<String> launcher, int format) {
+        exportJournal = TrackExporter.findLatestJournal(SpeedometerService.getTrackDirectory(getFilesDir()));
+        if (exportJournal == null) {
+            Toast.makeText(this, "没有可导出的行程", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        String name = exportJournal.getName();
+        name = name.substring(0, name.length() - ".bin".length());
+        launcher.launch(name + "." + TrackExporter.getFileExtension(format));
+    }
+    
+    private void onExportTargetSelected(Uri uri, int format) {
+        if (uri == null || exportJournal == null) {
+            return;
+        }
+        Toast.makeText(this, "正在导出…", Toast.LENGTH_SHORT).show();
+        // 回调使用应用上下文，导出期间界面关闭也不会泄漏Activity
+        Context appContext = getApplicationContext();
+        TrackExportTask.export(getContentResolver(), exportJournal, uri, format, (success, pointCount) ->
+                Toast.makeText(appContext, success ? "已导出" + pointCount + "个定位点" : "导出失败",
+                        Toast.LENGTH_SHORT).show());
+    }
+    
     /**
      * 获取当前定位模式
      * @param context 上下文
      * @return 定位模式（MODE_HIGH_ACCURACY 或 MODE_BALANCED）
      */
     public static int getLocationMode(Context context) {
-        SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        return prefs.getInt(KEY_LOCATION_MODE, MODE_HIGH_ACCURACY);
+        return SettingsStore.getInstance(context).get().locationMode;
+    }
+    
+    /**
+     * 是否启用卡尔曼滤波融合定位
+     * @param context 上下文
+     * @return 是否启用融合模式
+     */
+    public static boolean isFusionModeEnabled(Context context) {
+        return SettingsStore.getInstance(context).get().fusionMode;
+    }
+    
+    /**
+     * 是否按屏幕刷新率平滑显示速度
+     * @param context 上下文
+     * @return 是否启用平滑速度显示
+     */
+    public static boolean isSmoothSpeedEnabled(Context context) {
+        return SettingsStore.getInstance(context).get().smoothSpeed;
     }
     
     /**
-     * 检查是否应该使用平衡模式（基于电量或用户设置）
+     * 是否由GNSS原始观测（多普勒）计算速度
+     * @param context 上下文
+     * @return 是否启用多普勒测速
+     */
+    public static boolean isDopplerSpeedEnabled(Context context) {
+        return SettingsStore.getInstance(context).get().dopplerSpeed;
+    }
+    
+    /**
+     * 是否在主界面显示定位延迟统计（调试用）
+     * @param context 上下文
+     * @return 是否显示延迟统计
+     */
+    public static boolean isLatencyOverlayEnabled(Context context) {
+        return SettingsStore.getInstance(context).get().latencyOverlay;
+    }
+    
+    /**
+     * 检查是否应该使用平衡模式（基于电量、系统省电模式或用户设置）
      * @param context 上下文
      * @return 是否应该使用平衡模式
      */
@@ -120,15 +225,7 @@ public class SettingsActivity extends AppCompatActivity {
             return true;
         }
         
-        // 检查电池电量
-        IntentFilter ifilter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
-        Intent batteryStatus = context.registerReceiver(null, ifilter);
-        int level = batteryStatus.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
-        int scale = batteryStatus.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
-        
-        float batteryPct = level * 100 / (float)scale;
-        
-        // 如果电量低于阈值，即使用户选择了高精度模式，也返回平衡模式
-        return batteryPct < LOW_BATTERY_THRESHOLD;
+        // 如果电量低于阈值或系统省电模式已开启，即使用户选择了高精度模式，也返回平衡模式
+        return BatteryStateMonitor.getInstance(context).isPowerSaving();
     }
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package cc.ytdttj.speed;
+
+/**
+ * 用户设置的不可变快照（纯Java，不依赖Android框架）
+ * <p>
+ * 由 {@link SettingsStore} 从 SharedPreferences 读取一次，设置变化时整体替换，
+ * 读取方不需要加锁，也不会看到只更新了一半的设置。
+ */
+public final class SettingsSnapshot {
+
+    // 定位模式
+    public static final int MODE_HIGH_ACCURACY = 0;
+    public static final int MODE_BALANCED = 1;
+
+    public static final SettingsSnapshot DEFAULT = new SettingsSnapshot(MODE_HIGH_ACCURACY, false, false, false, false);
+
+    public final int locationMode; // MODE_*
+    public final boolean fusionMode;
+    public final boolean smoothSpeed;
+    public final boolean dopplerSpeed;
+    public final boolean latencyOverlay;
+
+    public SettingsSnapshot(int locationMode, boolean fusionMode, boolean smoothSpeed,
+                            boolean dopplerSpeed, boolean latencyOverlay) {
+        this.locationMode = locationMode;
+        this.fusionMode = fusionMode;
+        this.smoothSpeed = smoothSpeed;
+        this.dopplerSpeed = dopplerSpeed;
+        this.latencyOverlay = latencyOverlay;
+    }
+
+    /**
+     * @return 影响定位配置的设置（定位模式、融合、多普勒测速）是否相同；
+     * 只有界面显示的设置变化时不需要重新配置定位
+     */
+    public boolean hasSameLocationConfig(SettingsSnapshot other) {
+        return locationMode == other.locationMode
+                && fusionMode == other.fusionMode
+                && dopplerSpeed == other.dopplerSpeed;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SettingsSnapshot)) {
+            return false;
+        }
+        SettingsSnapshot other = (SettingsSnapshot) o;
+        return hasSameLocationConfig(other)
+                && smoothSpeed == other.smoothSpeed
+                && latencyOverlay == other.latencyOverlay;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = locationMode;
+        result = 31 * result + (fusionMode ? 1 : 0);
+        result = 31 * result + (smoothSpeed ? 1 : 0);
+        result = 31 * result + (dopplerSpeed ? 1 : 0);
+        result = 31 * result + (latencyOverlay ? 1 : 0);
+        return result;
+    }
+}
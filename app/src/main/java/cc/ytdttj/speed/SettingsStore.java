@@ -0,0 +1,106 @@
+package cc.ytdttj.speed;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 进程内共享的用户设置
+ * <p>
+ * 第一次使用时从 SharedPreferences 读取一次，生成不可变的 {@link SettingsSnapshot}；
+ * 之后设置页面保存时由 OnSharedPreferenceChangeListener 重新生成快照并整体替换。
+ * 读取设置只是读取一个volatile字段，不再在定位处理和界面刷新中反复查询 SharedPreferences。
+ * 只有快照真正发生变化时才通知 {@link Listener}（在主线程中回调）。
+ */
+public final class SettingsStore {
+
+    private static final String TAG = "SettingsStore";
+
+    private static volatile SettingsStore instance;
+
+    /**
+     * 设置变化监听器（在主线程中回调）
+     */
+    public interface Listener {
+        /**
+         * @param previous 变化前的设置
+         * @param current 变化后的设置
+         */
+        void onSettingsChanged(SettingsSnapshot previous, SettingsSnapshot current);
+    }
+
+    private final SharedPreferences prefs;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile SettingsSnapshot snapshot;
+
+    // SharedPreferences 只弱引用监听器，必须由本对象持有
+    private final SharedPreferences.OnSharedPreferenceChangeListener prefsListener = (sharedPreferences, key) -> reload();
+
+    private SettingsStore(Context context) {
+        prefs = context.getSharedPreferences(SettingsActivity.PREF_NAME, Context.MODE_PRIVATE);
+        snapshot = read();
+        prefs.registerOnSharedPreferenceChangeListener(prefsListener);
+    }
+
+    /**
+     * @param context 任意上下文，内部只保存应用上下文
+     */
+    public static SettingsStore getInstance(Context context) {
+        SettingsStore store = instance;
+        if (store == null) {
+            synchronized (SettingsStore.class) {
+                store = instance;
+                if (store == null) {
+                    store = new SettingsStore(context.getApplicationContext());
+                    instance = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    private SettingsSnapshot read() {
+        try {
+            return new SettingsSnapshot(
+                    prefs.getInt(SettingsActivity.KEY_LOCATION_MODE, SettingsSnapshot.MODE_HIGH_ACCURACY),
+                    prefs.getBoolean(SettingsActivity.KEY_FUSION_MODE, false),
+                    prefs.getBoolean(SettingsActivity.KEY_SMOOTH_SPEED, false),
+                    prefs.getBoolean(SettingsActivity.KEY_DOPPLER_SPEED, false),
+                    prefs.getBoolean(SettingsActivity.KEY_LATENCY_OVERLAY, false));
+        } catch (Exception e) {
+            Log.e(TAG, "读取设置失败", e);
+            return SettingsSnapshot.DEFAULT;
+        }
+    }
+
+    private synchronized void reload() {
+        SettingsSnapshot previous = snapshot;
+        SettingsSnapshot current = read();
+        // 保存设置时每个键都会回调一次，只有内容变化时才替换和通知
+        if (current.equals(previous)) {
+            return;
+        }
+        snapshot = current;
+        Log.d(TAG, "设置已更新");
+        for (Listener listener : listeners) {
+            listener.onSettingsChanged(previous, current);
+        }
+    }
+
+    /**
+     * @return 当前设置（任意线程）
+     */
+    public SettingsSnapshot get() {
+        return snapshot;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+}
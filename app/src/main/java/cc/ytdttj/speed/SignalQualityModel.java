@@ -0,0 +1,242 @@
+package cc.ytdttj.speed;
+
+/**
+ * GNSS信号质量模型（纯Java，不依赖Android框架）
+ * <p>
+ * 每次卫星状态回调时把每颗卫星（每个信号）的星座、载噪比C/N0、仰角和载波频率
+ * 写入预分配的基本类型数组，计算0-100的质量分数，不分配对象。
+ * <p>
+ * 分数等于“等效优质卫星数”的10倍：每颗参与定位的卫星按C/N0和仰角加权，
+ * C/N0达到35 dB-Hz且仰角不低于15°时权重为1；同一卫星的第二频点（L5/E5a/B2a等）
+ * 只作为加分，不重复计数。因此4颗优质卫星得40分，6颗得60分，
+ * 与原先按卫星数判断的阈值一致，但载噪比很低的卫星不再被当作好信号。
+ */
+public final class SignalQualityModel {
+
+    // 与 GnssStatus.CONSTELLATION_* 的取值一致
+    public static final int CONSTELLATION_UNKNOWN = 0;
+    public static final int CONSTELLATION_GPS = 1;
+    public static final int CONSTELLATION_SBAS = 2;
+    public static final int CONSTELLATION_GLONASS = 3;
+    public static final int CONSTELLATION_QZSS = 4;
+    public static final int CONSTELLATION_BEIDOU = 5;
+    public static final int CONSTELLATION_GALILEO = 6;
+    public static final int CONSTELLATION_IRNSS = 7;
+    static final int CONSTELLATION_COUNT = 8;
+
+    public static final int MAX_SIGNALS = 256;
+    // 每颗等效优质卫星的分数
+    public static final int SCORE_PER_SATELLITE = 10;
+    public static final int MAX_SCORE = 100;
+
+    // C/N0权重：低于20 dB-Hz为0，35 dB-Hz及以上为1
+    private static final float CN0_MIN = 20f;
+    private static final float CN0_GOOD = 35f;
+    // 低仰角卫星多路径严重，权重打折
+    private static final float LOW_ELEVATION = 15f;
+    private static final float LOW_ELEVATION_WEIGHT = 0.6f;
+    // 第二频点的加分权重
+    private static final float SECONDARY_BAND_WEIGHT = 0.25f;
+    // 低于该频率视为第二频点（L1/E1/B1约1575MHz，L5/E5a约1176MHz，L2约1227MHz）
+    private static final double SECONDARY_BAND_MAX_HZ = 1.3e9;
+
+    private final int[] constellations = new int[MAX_SIGNALS];
+    private final int[] svids = new int[MAX_SIGNALS];
+    private final float[] cn0s = new float[MAX_SIGNALS];
+    private final float[] elevations = new float[MAX_SIGNALS];
+    private final double[] carriers = new double[MAX_SIGNALS]; // 0表示未知
+    private final boolean[] usedInFix = new boolean[MAX_SIGNALS];
+    private int count = 0;
+
+    // 评估结果
+    private final int[] usedPerConstellation = new int[CONSTELLATION_COUNT];
+    private final float[] cn0SumPerConstellation = new float[CONSTELLATION_COUNT];
+    private final float[] topCn0 = new float[4];
+    private int usedCount = 0;
+    private float effectiveSatellites = 0;
+    private float top4Cn0 = 0;
+    private int score = 0;
+
+    /**
+     * 开始新的卫星状态
+     */
+    public void begin() {
+        count = 0;
+    }
+
+    /**
+     * 添加一个信号
+     * @param constellation 星座类型
+     * @param svid 卫星编号
+     * @param cn0DbHz 载噪比（dB-Hz）
+     * @param elevationDegrees 仰角（度）
+     * @param carrierFrequencyHz 载波频率（Hz），未知时传0
+     * @param used 是否参与定位
+     */
+    public void add(int constellation, int svid, float cn0DbHz, float elevationDegrees, double carrierFrequencyHz, boolean used) {
+        if (count >= MAX_SIGNALS) {
+            return;
+        }
+        constellations[count] = constellation >= 0 && constellation < CONSTELLATION_COUNT ? constellation : CONSTELLATION_UNKNOWN;
+        svids[count] = svid;
+        cn0s[count] = cn0DbHz;
+        elevations[count] = elevationDegrees;
+        carriers[count] = carrierFrequencyHz;
+        usedInFix[count] = used;
+        count++;
+    }
+
+    /**
+     * 计算质量分数
+     * @return 0-100的分数
+     */
+    public int evaluate() {
+        for (int c = 0; c < CONSTELLATION_COUNT; c++) {
+            usedPerConstellation[c] = 0;
+            cn0SumPerConstellation[c] = 0;
+        }
+        for (int k = 0; k < topCn0.length; k++) {
+            topCn0[k] = 0;
+        }
+        usedCount = 0;
+        effectiveSatellites = 0;
+
+        for (int i = 0; i < count; i++) {
+            if (!usedInFix[i]) {
+                continue;
+            }
+            float weight = weight(i);
+            if (isSecondaryBand(i) && hasPrimaryBand(i)) {
+                // 同一卫星的第二频点：提高抗多路径能力，但不是一颗新卫星
+                effectiveSatellites += weight * SECONDARY_BAND_WEIGHT;
+                continue;
+            }
+            effectiveSatellites += weight;
+            usedCount++;
+            int c = constellations[i];
+            usedPerConstellation[c]++;
+            cn0SumPerConstellation[c] += cn0s[i];
+            insertTopCn0(cn0s[i]);
+        }
+
+        int top = Math.min(usedCount, topCn0.length);
+        float sum = 0;
+        for (int k = 0; k < top; k++) {
+            sum += topCn0[k];
+        }
+        top4Cn0 = top > 0 ? sum / top : 0;
+        score = Math.min(MAX_SCORE, Math.round(effectiveSatellites * SCORE_PER_SATELLITE));
+        return score;
+    }
+
+    private float weight(int i) {
+        float weight = Math.max(0f, Math.min(1f, (cn0s[i] - CN0_MIN) / (CN0_GOOD - CN0_MIN)));
+        if (elevations[i] < LOW_ELEVATION) {
+            weight *= LOW_ELEVATION_WEIGHT;
+        }
+        return weight;
+    }
+
+    private boolean isSecondaryBand(int i) {
+        return carriers[i] > 0 && carriers[i] < SECONDARY_BAND_MAX_HZ;
+    }
+
+    /**
+     * @return 同一卫星是否还有参与定位的主频点信号
+     */
+    private boolean hasPrimaryBand(int i) {
+        for (int j = 0; j < count; j++) {
+            if (j != i && usedInFix[j] && svids[j] == svids[i] && constellations[j] == constellations[i] && !isSecondaryBand(j)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void insertTopCn0(float cn0) {
+        for (int k = 0; k < topCn0.length; k++) {
+            if (cn0 > topCn0[k]) {
+                for (int m = topCn0.length - 1; m > k; m--) {
+                    topCn0[m] = topCn0[m - 1];
+                }
+                topCn0[k] = cn0;
+                return;
+            }
+        }
+    }
+
+    /**
+     * 卫星数换算为分数（只有卫星数、没有C/N0时使用，如轨迹回放）
+     * @param satellitesInFix 参与定位的卫星数
+     */
+    public static int scoreForSatelliteCount(int satellitesInFix) {
+        return Math.min(MAX_SCORE, satellitesInFix * SCORE_PER_SATELLITE);
+    }
+
+    /**
+     * 分数换算为信号格数
+     * @param score 质量分数
+     * @return 0-4格
+     */
+    public static int levelForScore(int score) {
+        if (score >= MAX_SCORE) {
+            return 4;
+        } else if (score >= 70) {
+            return 3;
+        } else if (score >= 40) {
+            return 2;
+        } else if (score > 0) {
+            return 1;
+        }
+        return 0;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return 加权后的等效优质卫星数
+     */
+    public float getEffectiveSatellites() {
+        return effectiveSatellites;
+    }
+
+    /**
+     * @return 参与定位的卫星数（第二频点不重复计数）
+     */
+    public int getUsedCount() {
+        return usedCount;
+    }
+
+    /**
+     * @return 参与定位的卫星中最强4颗的平均C/N0（dB-Hz）
+     */
+    public float getTop4Cn0() {
+        return top4Cn0;
+    }
+
+    /**
+     * @param constellation 星座类型
+     * @return 该星座参与定位的卫星数
+     */
+    public int getUsedCount(int constellation) {
+        return usedPerConstellation[constellation];
+    }
+
+    /**
+     * @param constellation 星座类型
+     * @return 该星座参与定位卫星的平均C/N0（dB-Hz），没有时为0
+     */
+    public float getMeanCn0(int constellation) {
+        int used = usedPerConstellation[constellation];
+        return used > 0 ? cn0SumPerConstellation[constellation] / used : 0;
+    }
+
+    /**
+     * @return 本次添加的信号数量
+     */
+    public int getSignalCount() {
+        return count;
+    }
+}
@@ -0,0 +1,118 @@
+package cc.ytdttj.speed;
+
+/**
+ * 两次定位之间的速度插值（纯Java，不依赖Android框架）
+ * <p>
+ * 用 alpha-beta 滤波器从定位速度估计速度和加速度，每帧按加速度外推目标速度，
+ * 显示值再以指数平滑追随目标，使速度数字像指针一样连续变化，而不需要提高定位频率。
+ * 滤波的时间间隔取自定位点自身的单调时间戳，同一个定位点重复输入（计圈、暂停等也会发布快照）时忽略；
+ * 外推以收到定位的时间为起点，使用与 Choreographer 帧时间相同的 {@code System.nanoTime()} 时基。
+ * 只能在主线程中使用。
+ */
+public final class SpeedInterpolator {
+
+    // alpha-beta 滤波增益
+    private static final float ALPHA = 0.6f;
+    private static final float BETA = 0.2f;
+    // 最大加速度（km/h每秒），约0.85g
+    private static final float MAX_ACCELERATION = 30f;
+    // 最长外推时间，定位中断时不会无限外推
+    private static final float MAX_EXTRAPOLATION_TIME = 1.0f; // 秒
+    // 显示值追随目标的时间常数
+    private static final float DISPLAY_TIME_CONSTANT = 0.12f; // 秒
+    // 低于该速度且目标为0时停止动画
+    private static final float SETTLED_SPEED = 0.05f; // km/h
+
+    private boolean hasSpeed = false;
+    private long fixTimeNanos = 0; // 定位点时间戳（elapsedRealtimeNanos）
+    private long arrivalNanos = 0; // 收到定位的时间（System.nanoTime），外推的起点
+    private float speed = 0; // km/h
+    private float acceleration = 0; // km/h每秒
+
+    private float displayedSpeed = 0;
+    private long lastFrameNanos = 0;
+
+    /**
+     * 输入定位速度
+     * @param measuredSpeed 速度（km/h），静止时定位引擎已归零
+     * @param fixTimeNanos 定位点的生成时刻（elapsedRealtimeNanos），与上次相同时忽略
+     * @param arrivalNanos 收到定位的时间（System.nanoTime）
+     * @return 是否作为新的定位输入
+     */
+    public boolean update(float measuredSpeed, long fixTimeNanos, long arrivalNanos) {
+        if (hasSpeed && fixTimeNanos == this.fixTimeNanos) {
+            return false;
+        }
+        if (!hasSpeed) {
+            speed = measuredSpeed;
+            acceleration = 0;
+            displayedSpeed = measuredSpeed;
+            lastFrameNanos = arrivalNanos;
+            hasSpeed = true;
+        } else if (measuredSpeed == 0) {
+            // 静止状态：不再外推，显示值平滑回到0
+            speed = 0;
+            acceleration = 0;
+        } else {
+            float dt = (fixTimeNanos - this.fixTimeNanos) / 1e9f;
+            if (dt <= 0) {
+                speed = measuredSpeed;
+            } else {
+                float predicted = speed + acceleration * dt;
+                float residual = measuredSpeed - predicted;
+                speed = predicted + ALPHA * residual;
+                acceleration += BETA * residual / dt;
+                acceleration = Math.max(-MAX_ACCELERATION, Math.min(MAX_ACCELERATION, acceleration));
+            }
+        }
+        this.fixTimeNanos = fixTimeNanos;
+        this.arrivalNanos = arrivalNanos;
+        return true;
+    }
+
+    /**
+     * @param timeNanos 时间（System.nanoTime）
+     * @return 外推的目标速度（km/h）
+     */
+    public float getTargetSpeed(long timeNanos) {
+        float dt = Math.min((timeNanos - arrivalNanos) / 1e9f, MAX_EXTRAPOLATION_TIME);
+        return Math.max(0, speed + acceleration * Math.max(0, dt));
+    }
+
+    /**
+     * 计算一帧的显示速度
+     * @param frameTimeNanos 帧时间（Choreographer 提供的 System.nanoTime 时基）
+     * @return 显示速度（km/h）
+     */
+    public float valueAt(long frameTimeNanos) {
+        float target = getTargetSpeed(frameTimeNanos);
+        float dt = Math.max(0, (frameTimeNanos - lastFrameNanos) / 1e9f);
+        lastFrameNanos = frameTimeNanos;
+        displayedSpeed += (target - displayedSpeed) * (1 - (float) Math.exp(-dt / DISPLAY_TIME_CONSTANT));
+        if (isSettled()) {
+            displayedSpeed = 0;
+        }
+        return displayedSpeed;
+    }
+
+    /**
+     * @return 是否已静止且显示值已回到0，此时不需要继续请求帧回调
+     */
+    public boolean isSettled() {
+        return speed == 0 && acceleration == 0 && displayedSpeed < SETTLED_SPEED;
+    }
+
+    /**
+     * @return 估计的加速度（km/h每秒）
+     */
+    public float getAcceleration() {
+        return acceleration;
+    }
+
+    public void reset() {
+        hasSpeed = false;
+        speed = 0;
+        acceleration = 0;
+        displayedSpeed = 0;
+    }
+}
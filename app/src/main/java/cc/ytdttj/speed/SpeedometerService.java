@@ -0,0 +1,541 @@
+package cc.ytdttj.speed;
+
+import android.Manifest;
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.content.pm.ServiceInfo;
+import android.os.Binder;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.core.app.ActivityCompat;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 前台定位服务，持有 {@link LocationHelper} 和行程统计
+ * <p>
+ * 界面通过绑定服务获取数据用于显示。记录期间服务以前台服务运行，
+ * 息屏或界面被销毁时定位处理和距离累积仍然继续。
+ * <p>
+ * 线程模型：{@link TripRecorder} 只在定位处理线程中访问，界面的控制命令会转发到该线程；
+ * 每次更新后生成不可变的 {@link TripSnapshot}，合并后投递到主线程。
+ */
+public class SpeedometerService extends Service implements LocationHelper.OnLocationUpdateListener, LocationHelper.OnGpsStatusChangeListener {
+
+    /**
+     * 行程数据更新监听器（在主线程中回调）
+     */
+    public interface OnTripUpdateListener {
+        void onTripUpdated(TripSnapshot snapshot);
+    }
+
+    private static final String TAG = "SpeedometerService";
+
+    private static final String CHANNEL_ID = "recording";
+    private static final int NOTIFICATION_ID = 1;
+
+    // 轨迹日志目录（位于应用私有目录下）
+    private static final String TRACK_DIRECTORY = "tracks";
+
+    // dumpsys 输出的决策日志条数
+    private static final int DUMP_LOG_ENTRIES = 200;
+
+    private final IBinder binder = new LocalBinder();
+
+    // 低电量或系统省电模式跨过阈值时切换定位模式（后台记录时也生效）
+    private final BatteryStateMonitor.Listener batteryListener = new BatteryStateMonitor.Listener() {
+        @Override
+        public void onPowerSavingChanged(boolean powerSaving) {
+            updateLocationMode();
+        }
+    };
+
+    private LocationHelper locationHelper;
+    // 只在定位处理线程中访问
+    private final TripRecorder tripRecorder = new TripRecorder();
+    private TrackJournal trackJournal;
+    private final TrackSimplifier trackSimplifier = new TrackSimplifier();
+    private final FixRecord simplifiedFix = new FixRecord();
+    private Handler processingHandler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // 以下状态只在主线程中访问
+    private boolean isBound = false;
+    private boolean isLocationStarted = false;
+    private boolean isRecording = false;
+    private boolean isPaused = false;
+    private boolean isPerformanceMode = false;
+    // 已通知定位助手的性能测试计时状态（定位处理线程）
+    private boolean isPerformanceTiming = false;
+
+    // 最新的快照；投递到主线程的任务未执行前，新的快照直接覆盖旧的
+    private volatile TripSnapshot latestSnapshot = TripSnapshot.EMPTY;
+    private final AtomicBoolean snapshotPending = new AtomicBoolean(false);
+    private final Runnable deliverSnapshot = new Runnable() {
+        @Override
+        public void run() {
+            snapshotPending.set(false);
+            if (tripClient != null) {
+                tripClient.onTripUpdated(latestSnapshot);
+            }
+        }
+    };
+
+    // 界面回调
+    private OnTripUpdateListener tripClient;
+    private LocationHelper.OnGpsStatusChangeListener gpsStatusClient;
+
+    // 最近一次GPS状态，新绑定的界面可以立即显示
+    private boolean hasGpsStatus = false;
+    private int lastSatellitesInFix;
+    private int lastSignalQuality;
+    private int lastSatelliteCount;
+    private boolean lastGpsConnected;
+
+    /**
+     * 本地绑定器
+     */
+    public class LocalBinder extends Binder {
+        public SpeedometerService getService() {
+            return SpeedometerService.this;
+        }
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        createNotificationChannel();
+        BatteryStateMonitor.getInstance(this).addListener(batteryListener);
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        isBound = true;
+        startLocationUpdates();
+        updateBatchMode();
+        return binder;
+    }
+
+    @Override
+    public void onRebind(Intent intent) {
+        isBound = true;
+        startLocationUpdates();
+        updateBatchMode();
+    }
+
+    @Override
+    public boolean onUnbind(Intent intent) {
+        isBound = false;
+        tripClient = null;
+        gpsStatusClient = null;
+        // 没有界面且没有在记录时，停止定位以节省电量
+        if (!isRecording) {
+            stopLocationUpdates();
+        }
+        updateBatchMode();
+        return true;
+    }
+
+    /**
+     * adb shell dumpsys activity service cc.ytdttj.speed/.SpeedometerService [reset]
+     * 输出定位延迟百分位、定位处理计数、最近的决策日志、卫星状态分发统计和当前行程的轨迹精简比例；
+     * 带 reset 参数时输出后清空，便于对比不同配置
+     */
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        PipelineLatency.dump(writer);
+        PipelineMetrics.dump(writer, DUMP_LOG_ENTRIES);
+        LocationHelper helper = locationHelper;
+        if (helper != null) {
+            helper.dump(writer);
+        }
+        writer.printf(Locale.US, "轨迹精简: 保留%d个点, 丢弃%d个点, 保留比例%.1f%%%n",
+                trackSimplifier.getKeptCount(), trackSimplifier.getDroppedCount(),
+                trackSimplifier.getKeptRatio() * 100);
+        if (args != null && args.length > 0 && "reset".equals(args[0])) {
+            PipelineLatency.reset();
+            PipelineMetrics.reset();
+            writer.println("已清空");
+        }
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        BatteryStateMonitor.getInstance(this).removeListener(batteryListener);
+        runOnProcessingThread(this::closeTrackJournal);
+        stopLocationUpdates();
+        if (locationHelper != null) {
+            locationHelper.release();
+        }
+        mainHandler.removeCallbacksAndMessages(null);
+        super.onDestroy();
+    }
+
+    /**
+     * 设置界面回调
+     */
+    public void setClients(OnTripUpdateListener tripListener, LocationHelper.OnGpsStatusChangeListener gpsStatusListener) {
+        this.tripClient = tripListener;
+        this.gpsStatusClient = gpsStatusListener;
+        if (tripListener != null) {
+            tripListener.onTripUpdated(latestSnapshot);
+        }
+        if (gpsStatusListener != null && hasGpsStatus) {
+            gpsStatusListener.onGpsStatusChanged(lastSatellitesInFix, lastSatelliteCount, lastSignalQuality, lastGpsConnected);
+        }
+    }
+
+    /**
+     * 开始位置更新（首次调用时初始化定位服务助手）
+     */
+    public void startLocationUpdates() {
+        if (!hasLocationPermission()) {
+            Log.e(TAG, "没有定位权限");
+            return;
+        }
+        if (locationHelper == null) {
+            locationHelper = new LocationHelper(this);
+            processingHandler = new Handler(locationHelper.getProcessingLooper());
+            locationHelper.initialize(this, this);
+        } else if (!isLocationStarted) {
+            locationHelper.startLocationUpdates();
+        }
+        isLocationStarted = true;
+    }
+
+    /**
+     * @return 是否有精确或大致定位权限（定位类型的前台服务必须有其中之一）
+     */
+    public boolean hasLocationPermission() {
+        return ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED
+                || ActivityCompat.checkSelfPermission(this, Manifest.permission.ACCESS_COARSE_LOCATION) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    private void stopLocationUpdates() {
+        if (locationHelper != null && isLocationStarted) {
+            locationHelper.stopLocationUpdates();
+        }
+        isLocationStarted = false;
+    }
+
+    /**
+     * 没有界面时的记录使用GNSS批量模式，减少唤醒次数
+     */
+    private void updateBatchMode() {
+        if (locationHelper != null) {
+            locationHelper.setBatchMode(isRecording && !isBound);
+        }
+    }
+
+    /**
+     * 重新读取定位模式
+     */
+    public void updateLocationMode() {
+        if (locationHelper != null && isLocationStarted) {
+            locationHelper.updateLocationMode();
+        }
+    }
+
+    /**
+     * 开始记录，并切换为前台服务
+     * @return 是否已开始；没有定位权限时不能启动定位类型的前台服务，返回false
+     */
+    public boolean startRecording() {
+        if (!hasLocationPermission()) {
+            Log.e(TAG, "没有定位权限，无法开始记录");
+            return false;
+        }
+        startForegroundService(new Intent(this, SpeedometerService.class));
+        startForeground(NOTIFICATION_ID, buildNotification(), ServiceInfo.FOREGROUND_SERVICE_TYPE_LOCATION);
+        startLocationUpdates();
+        isRecording = true;
+        isPaused = false;
+        updateBatchMode();
+        long now = SystemClock.elapsedRealtime();
+        long startTime = System.currentTimeMillis();
+        runOnProcessingThread(() -> {
+            tripRecorder.start(now);
+            openTrackJournal(startTime);
+        });
+        return true;
+    }
+
+    /**
+     * 结束记录，退出前台服务（统计数据保留到复位）
+     */
+    public void stopRecording() {
+        isRecording = false;
+        isPaused = false;
+        updateBatchMode();
+        long now = SystemClock.elapsedRealtime();
+        runOnProcessingThread(() -> {
+            tripRecorder.stop(now);
+            closeTrackJournal();
+        });
+        stopForeground(STOP_FOREGROUND_REMOVE);
+        if (!isBound) {
+            stopLocationUpdates();
+        }
+    }
+
+    public void pauseRecording() {
+        isPaused = true;
+        long now = SystemClock.elapsedRealtime();
+        runOnProcessingThread(() -> {
+            tripRecorder.pause(now);
+            flushTrackJournal();
+        });
+    }
+
+    public void resumeRecording() {
+        isPaused = false;
+        long now = SystemClock.elapsedRealtime();
+        runOnProcessingThread(() -> tripRecorder.resume(now));
+    }
+
+    /**
+     * 开启或关闭性能测试（停车后起步自动计时）
+     */
+    public void setPerformanceMode(boolean enabled) {
+        isPerformanceMode = enabled;
+        runOnProcessingThread(() -> {
+            tripRecorder.setPerformanceMode(enabled);
+            updatePerformanceTiming();
+        });
+    }
+
+    /**
+     * 性能测试等待起步或计时期间，让定位助手保持最高定位频率（定位处理线程）
+     */
+    private void updatePerformanceTiming() {
+        boolean timing = tripRecorder.getDragTimer().needsFastUpdates();
+        if (timing != isPerformanceTiming && locationHelper != null) {
+            isPerformanceTiming = timing;
+            locationHelper.setPerformanceTiming(timing);
+        }
+    }
+
+    public boolean isPerformanceMode() {
+        return isPerformanceMode;
+    }
+
+    /**
+     * 手动计圈
+     */
+    public void lap() {
+        runOnProcessingThread(tripRecorder::lap);
+    }
+
+    /**
+     * 复位统计数据；服务不再需要保留数据，界面解绑后即可销毁
+     */
+    public void resetTrip() {
+        runOnProcessingThread(tripRecorder::reset);
+        stopSelf();
+    }
+
+    public boolean isRecording() {
+        return isRecording;
+    }
+
+    public boolean isPaused() {
+        return isPaused;
+    }
+
+    /**
+     * @return 最新的行程快照（任意线程可读）
+     */
+    public TripSnapshot getLatestSnapshot() {
+        return latestSnapshot;
+    }
+
+    /**
+     * 在定位处理线程中修改行程状态，然后发布新的快照
+     */
+    private void runOnProcessingThread(Runnable command) {
+        Runnable task = () -> {
+            command.run();
+            publishSnapshot();
+        };
+        if (processingHandler != null) {
+            processingHandler.post(task);
+        } else {
+            // 没有定位权限时尚未创建处理线程，直接在主线程执行
+            task.run();
+        }
+    }
+
+    /**
+     * 生成快照并投递到主线程，界面未处理的旧快照会被合并
+     */
+    private void publishSnapshot() {
+        latestSnapshot = tripRecorder.snapshot(SystemClock.elapsedRealtime(), SystemClock.elapsedRealtimeNanos());
+        if (snapshotPending.compareAndSet(false, true)) {
+            mainHandler.post(deliverSnapshot);
+        }
+    }
+
+    @Override
+    public void onLocationUpdated(FixRecord fix) {
+        // 定位处理线程
+        recordFix(fix);
+        updatePerformanceTiming();
+        publishSnapshot();
+    }
+
+    @Override
+    public void onLocationBatch(FixRecord[] fixes, int count) {
+        // 定位处理线程：一次遍历完成距离累积和轨迹写入，整批只发布一次快照
+        for (int i = 0; i < count; i++) {
+            recordFix(fixes[i]);
+        }
+        updatePerformanceTiming();
+        publishSnapshot();
+    }
+
+    /**
+     * 统计并写入轨迹日志（经过精简，直线匀速时大部分点不写入）
+     */
+    private void recordFix(FixRecord fix) {
+        if (tripRecorder.onLocationUpdated(fix) && trackJournal != null
+                && trackSimplifier.offer(fix, simplifiedFix)) {
+            appendToTrackJournal(simplifiedFix);
+        }
+    }
+
+    private void appendToTrackJournal(FixRecord fix) {
+        try {
+            trackJournal.append(fix);
+        } catch (IOException e) {
+            Log.e(TAG, "写入轨迹日志失败", e);
+            closeTrackJournal();
+        }
+    }
+
+    /**
+     * 写入精简阶段尚未决定的最后一个点
+     */
+    private void appendPendingFix() {
+        if (trackJournal != null && trackSimplifier.flush(simplifiedFix)) {
+            appendToTrackJournal(simplifiedFix);
+        }
+    }
+
+    @Override
+    public void onGpsStatusChanged(int satellitesInFix, int satelliteCount, int signalQuality, boolean isConnected) {
+        // 定位处理线程，切换到主线程通知界面
+        mainHandler.post(() -> {
+            hasGpsStatus = true;
+            lastSatellitesInFix = satellitesInFix;
+            lastSignalQuality = signalQuality;
+            lastSatelliteCount = satelliteCount;
+            lastGpsConnected = isConnected;
+            if (gpsStatusClient != null) {
+                gpsStatusClient.onGpsStatusChanged(satellitesInFix, satelliteCount, signalQuality, isConnected);
+            }
+        });
+    }
+
+    @Override
+    public void onProviderStatusChanged(boolean isGpsEnabled, boolean isNetworkEnabled) {
+        mainHandler.post(() -> {
+            if (gpsStatusClient != null) {
+                gpsStatusClient.onProviderStatusChanged(isGpsEnabled, isNetworkEnabled);
+            }
+        });
+    }
+
+    /**
+     * @return 轨迹日志目录
+     */
+    public static File getTrackDirectory(File filesDir) {
+        return new File(filesDir, TRACK_DIRECTORY);
+    }
+
+    /**
+     * 为新行程创建轨迹日志（定位处理线程）
+     * @param startTime 行程开始的UTC时间
+     */
+    private void openTrackJournal(long startTime) {
+        closeTrackJournal();
+        File directory = getTrackDirectory(getFilesDir());
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.e(TAG, "无法创建轨迹目录: " + directory);
+            return;
+        }
+        trackSimplifier.reset();
+        try {
+            trackJournal = TrackJournal.create(new File(directory, "track-" + startTime + ".bin"), startTime);
+        } catch (IOException e) {
+            Log.e(TAG, "创建轨迹日志失败", e);
+        }
+    }
+
+    private void flushTrackJournal() {
+        appendPendingFix();
+        if (trackJournal == null) {
+            return;
+        }
+        try {
+            trackJournal.flush();
+        } catch (IOException e) {
+            Log.e(TAG, "同步轨迹日志失败", e);
+        }
+    }
+
+    private void closeTrackJournal() {
+        appendPendingFix();
+        if (trackJournal == null) {
+            return;
+        }
+        Log.d(TAG, "轨迹精简: 保留 " + trackSimplifier.getKeptCount() + " 个点, 丢弃 "
+                + trackSimplifier.getDroppedCount() + " 个点");
+        try {
+            trackJournal.close();
+        } catch (IOException e) {
+            Log.e(TAG, "关闭轨迹日志失败", e);
+        }
+        trackJournal = null;
+    }
+
+    private void createNotificationChannel() {
+        NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "行程记录", NotificationManager.IMPORTANCE_LOW);
+        channel.setDescription("记录行程时保持定位");
+        NotificationManager manager = getSystemService(NotificationManager.class);
+        if (manager != null) {
+            manager.createNotificationChannel(channel);
+        }
+    }
+
+    private Notification buildNotification() {
+        Intent intent = new Intent(this, MainActivity.class);
+        intent.setFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP);
+        PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, intent, PendingIntent.FLAG_IMMUTABLE);
+        return new Notification.Builder(this, CHANNEL_ID)
+                .setContentTitle(getString(R.string.app_name))
+                .setContentText("正在记录行程")
+                .setSmallIcon(R.drawable.ic_gps_signal_4)
+                .setContentIntent(pendingIntent)
+                .setOngoing(true)
+                .build();
+    }
+}
@@ -0,0 +1,350 @@
+package cc.ytdttj.speed;
+
+/**
+ * 分段与计圈统计（纯Java，不依赖Android框架）
+ * <p>
+ * 每个参与统计的定位点提交一次（累计移动时间，累计距离），得到：
+ * <ul>
+ * <li>每公里自动分段的用时（按相邻两点线性插值出跨过整公里的时刻）</li>
+ * <li>手动计圈的用时和距离</li>
+ * <li>最快1公里用时和最远5分钟距离（任意起点的滚动窗口）</li>
+ * </ul>
+ * 样本保存在固定容量的基本类型环形缓冲区中。累计时间和累计距离都单调不减，
+ * 所以滑动窗口的最优起点只会向前移动：每个窗口只需一个单调前进的起点指针
+ * （相当于只从队首出队的单调队列），每个定位点的摊还时间为O(1)。
+ * 距离不变的连续样本（停车）合并为首尾两个，内存与记录时长无关。
+ * 不是线程安全的，只能在定位处理线程中访问。
+ */
+public final class SplitEngine {
+
+    // 自动分段距离（米）
+    public static final double SPLIT_DISTANCE = 1000;
+    // 最快距离窗口（米）
+    public static final double BEST_DISTANCE_WINDOW = 1000;
+    // 最远时间窗口（毫秒）
+    public static final long BEST_TIME_WINDOW = 5 * 60 * 1000;
+
+    // 样本容量：10Hz时5分钟为3000个样本；1公里的样本数受最小累积距离限制，远小于此值
+    static final int CAPACITY = 4096;
+    private static final int MASK = CAPACITY - 1;
+    // 保留的最近分段和计圈数量
+    public static final int MAX_RECORDS = 256;
+
+    // 样本环形缓冲区，按序号访问（序号 & MASK）
+    private final long[] sampleTimes = new long[CAPACITY];
+    private final double[] sampleDistances = new double[CAPACITY];
+    private long firstSample = 0;
+    private long nextSample = 0;
+
+    // 两个滚动窗口的起点序号
+    private long distanceWindowStart = 0;
+    private long timeWindowStart = 0;
+
+    // 累计移动时间（毫秒，不含暂停）和距离（米）
+    private long activeTime = 0;
+    private double distance = 0;
+    private long lastFixTime = 0;
+    private boolean hasLastFix = false;
+
+    // 自动分段
+    private final long[] splitTimes = new long[MAX_RECORDS];
+    private int splitCount = 0;
+    private double nextSplitDistance = SPLIT_DISTANCE;
+    private double lastSplitCrossTime = 0;
+    private long bestSplitTime = 0;
+
+    // 计圈
+    private final long[] lapTimes = new long[MAX_RECORDS];
+    private final double[] lapDistances = new double[MAX_RECORDS];
+    private int lapCount = 0;
+    private long lapStartTime = 0;
+    private double lapStartDistance = 0;
+
+    // 最佳记录，0表示尚无记录
+    private long bestDistanceWindowTime = 0;
+    private double bestTimeWindowDistance = 0;
+
+    /**
+     * 清零所有数据
+     */
+    public void reset() {
+        firstSample = 0;
+        nextSample = 0;
+        distanceWindowStart = 0;
+        timeWindowStart = 0;
+        activeTime = 0;
+        distance = 0;
+        hasLastFix = false;
+        splitCount = 0;
+        nextSplitDistance = SPLIT_DISTANCE;
+        lastSplitCrossTime = 0;
+        bestSplitTime = 0;
+        lapCount = 0;
+        lapStartTime = 0;
+        lapStartDistance = 0;
+        bestDistanceWindowTime = 0;
+        bestTimeWindowDistance = 0;
+    }
+
+    /**
+     * 暂停：下一个定位点之前的时间不计入移动时间
+     */
+    public void pause() {
+        hasLastFix = false;
+    }
+
+    /**
+     * 提交一个参与统计的定位点
+     * @param fixTime 定位时间（毫秒）
+     * @param distanceDelta 本次累积的距离（米），未累积时为0
+     */
+    public void onSample(long fixTime, double distanceDelta) {
+        if (hasLastFix && fixTime > lastFixTime) {
+            activeTime += fixTime - lastFixTime;
+        }
+        if (!hasLastFix || fixTime > lastFixTime) {
+            lastFixTime = fixTime;
+        }
+        hasLastFix = true;
+
+        double previousDistance = distance;
+        long previousTime = nextSample > 0 ? sampleTimes[(int) ((nextSample - 1) & MASK)] : 0;
+        distance += Math.max(0, distanceDelta);
+        append(activeTime, distance);
+
+        while (distance >= nextSplitDistance) {
+            onSplit(previousTime, previousDistance);
+        }
+        updateDistanceWindow();
+        updateTimeWindow();
+    }
+
+    private void append(long time, double value) {
+        long count = nextSample - firstSample;
+        if (count >= 2) {
+            int last = (int) ((nextSample - 1) & MASK);
+            int beforeLast = (int) ((nextSample - 2) & MASK);
+            if (sampleDistances[last] == value && sampleDistances[beforeLast] == value) {
+                // 停车期间距离不变：只移动最后一个样本的时间
+                sampleTimes[last] = time;
+                return;
+            }
+        }
+        if (count >= CAPACITY) {
+            // 容量已满（极少见），丢弃最旧的样本，窗口起点随之前移
+            firstSample++;
+            distanceWindowStart = Math.max(distanceWindowStart, firstSample);
+            timeWindowStart = Math.max(timeWindowStart, firstSample);
+        }
+        int index = (int) (nextSample & MASK);
+        sampleTimes[index] = time;
+        sampleDistances[index] = value;
+        nextSample++;
+    }
+
+    /**
+     * 记录一个整公里分段
+     */
+    private void onSplit(long previousTime, double previousDistance) {
+        double crossTime = interpolate(previousDistance, distance, previousTime, activeTime, nextSplitDistance);
+        long splitTime = Math.round(crossTime - lastSplitCrossTime);
+        splitTimes[splitCount % MAX_RECORDS] = splitTime;
+        splitCount++;
+        if (bestSplitTime == 0 || splitTime < bestSplitTime) {
+            bestSplitTime = splitTime;
+        }
+        lastSplitCrossTime = crossTime;
+        nextSplitDistance += SPLIT_DISTANCE;
+    }
+
+    /**
+     * 最快1公里：起点指针前移到覆盖该距离的最晚样本
+     */
+    private void updateDistanceWindow() {
+        if (distance < BEST_DISTANCE_WINDOW) {
+            return;
+        }
+        double target = distance - BEST_DISTANCE_WINDOW;
+        long last = nextSample - 1;
+        while (distanceWindowStart < last && distanceAt(distanceWindowStart + 1) <= target) {
+            distanceWindowStart++;
+        }
+        long s = distanceWindowStart;
+        double startTime = interpolate(distanceAt(s), distanceAt(s + 1), timeAt(s), timeAt(s + 1), target);
+        long windowTime = Math.round(activeTime - startTime);
+        if (windowTime > 0 && (bestDistanceWindowTime == 0 || windowTime < bestDistanceWindowTime)) {
+            bestDistanceWindowTime = windowTime;
+        }
+        trimSamples();
+    }
+
+    /**
+     * 最远5分钟：起点指针前移到窗口开始前的最后一个样本
+     */
+    private void updateTimeWindow() {
+        if (activeTime < BEST_TIME_WINDOW) {
+            return;
+        }
+        long target = activeTime - BEST_TIME_WINDOW;
+        long last = nextSample - 1;
+        while (timeWindowStart < last && timeAt(timeWindowStart + 1) <= target) {
+            timeWindowStart++;
+        }
+        long s = timeWindowStart;
+        double startDistance = interpolate(timeAt(s), timeAt(s + 1), distanceAt(s), distanceAt(s + 1), target);
+        double windowDistance = distance - startDistance;
+        if (windowDistance > bestTimeWindowDistance) {
+            bestTimeWindowDistance = windowDistance;
+        }
+        trimSamples();
+    }
+
+    /**
+     * 两个窗口都不再需要的样本可以丢弃
+     */
+    private void trimSamples() {
+        if (distance >= BEST_DISTANCE_WINDOW && activeTime >= BEST_TIME_WINDOW) {
+            firstSample = Math.min(distanceWindowStart, timeWindowStart);
+        }
+    }
+
+    private long timeAt(long sequence) {
+        return sampleTimes[(int) (sequence & MASK)];
+    }
+
+    private double distanceAt(long sequence) {
+        return sampleDistances[(int) (sequence & MASK)];
+    }
+
+    /**
+     * 在 (x0, y0) 和 (x1, y1) 之间线性插值 x 处的 y
+     */
+    private static double interpolate(double x0, double x1, double y0, double y1, double x) {
+        if (x1 <= x0) {
+            return y1;
+        }
+        double ratio = Math.max(0, Math.min(1, (x - x0) / (x1 - x0)));
+        return y0 + (y1 - y0) * ratio;
+    }
+
+    /**
+     * 手动计圈
+     * @return 本圈的用时（毫秒）
+     */
+    public long lap() {
+        long lapTime = activeTime - lapStartTime;
+        lapTimes[lapCount % MAX_RECORDS] = lapTime;
+        lapDistances[lapCount % MAX_RECORDS] = distance - lapStartDistance;
+        lapCount++;
+        lapStartTime = activeTime;
+        lapStartDistance = distance;
+        return lapTime;
+    }
+
+    /**
+     * @return 累计移动时间（毫秒，不含暂停）
+     */
+    public long getActiveTime() {
+        return activeTime;
+    }
+
+    /**
+     * @return 累计距离（米）
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return 已完成的整公里分段数
+     */
+    public int getSplitCount() {
+        return splitCount;
+    }
+
+    /**
+     * @param index 分段序号（从0开始），只保留最近 {@link #MAX_RECORDS} 个
+     * @return 该分段的用时（毫秒）
+     */
+    public long getSplitTime(int index) {
+        if (index < 0 || index >= splitCount || index < splitCount - MAX_RECORDS) {
+            throw new IndexOutOfBoundsException("分段不存在: " + index);
+        }
+        return splitTimes[index % MAX_RECORDS];
+    }
+
+    /**
+     * @return 最近一个分段的用时（毫秒），没有时为0
+     */
+    public long getLastSplitTime() {
+        return splitCount > 0 ? splitTimes[(splitCount - 1) % MAX_RECORDS] : 0;
+    }
+
+    /**
+     * @return 最快的整公里分段用时（毫秒），没有时为0
+     */
+    public long getBestSplitTime() {
+        return bestSplitTime;
+    }
+
+    public int getLapCount() {
+        return lapCount;
+    }
+
+    /**
+     * @param index 圈序号（从0开始），只保留最近 {@link #MAX_RECORDS} 圈
+     * @return 该圈的用时（毫秒）
+     */
+    public long getLapTime(int index) {
+        if (index < 0 || index >= lapCount || index < lapCount - MAX_RECORDS) {
+            throw new IndexOutOfBoundsException("圈不存在: " + index);
+        }
+        return lapTimes[index % MAX_RECORDS];
+    }
+
+    /**
+     * @param index 圈序号（从0开始），只保留最近 {@link #MAX_RECORDS} 圈
+     * @return 该圈的距离（米）
+     */
+    public double getLapDistance(int index) {
+        if (index < 0 || index >= lapCount || index < lapCount - MAX_RECORDS) {
+            throw new IndexOutOfBoundsException("圈不存在: " + index);
+        }
+        return lapDistances[index % MAX_RECORDS];
+    }
+
+    /**
+     * @return 最近一圈的用时（毫秒），没有时为0
+     */
+    public long getLastLapTime() {
+        return lapCount > 0 ? lapTimes[(lapCount - 1) % MAX_RECORDS] : 0;
+    }
+
+    /**
+     * @return 当前圈已用时间（毫秒）
+     */
+    public long getCurrentLapTime() {
+        return activeTime - lapStartTime;
+    }
+
+    /**
+     * @return 任意起点的最快1公里用时（毫秒），不足1公里时为0
+     */
+    public long getBestDistanceWindowTime() {
+        return bestDistanceWindowTime;
+    }
+
+    /**
+     * @return 任意起点的5分钟内最远距离（米），不足5分钟时为0
+     */
+    public double getBestTimeWindowDistance() {
+        return bestTimeWindowDistance;
+    }
+
+    /**
+     * @return 当前保存的样本数
+     */
+    int getSampleCount() {
+        return (int) (nextSample - firstSample);
+    }
+}
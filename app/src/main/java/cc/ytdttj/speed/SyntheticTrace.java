@@ -0,0 +1,176 @@
+package cc.ytdttj.speed;
+
+import java.util.Random;
+
+/**
+ * 合成的行驶轨迹，用于回放测试（纯Java，不依赖Android框架）
+ * <p>
+ * 沿固定方向直线行驶：静止 → 匀加速 → 匀速 → 匀减速 → 静止，
+ * 匀速阶段中间可以有一段隧道（没有GPS定位，参与定位的卫星数为0）。
+ * 产生10Hz的GPS定位、1Hz的网络定位和1Hz的卫星状态，并加入可重复的随机噪声。
+ * GPS位置误差是随时间缓慢变化的一阶高斯-马尔可夫过程，与真实接收机一样相邻定位点的误差高度相关。
+ */
+public final class SyntheticTrace implements TraceReplayer.Source {
+
+    public static final long START_TIME = 1700000000000L;
+
+    private static final long GPS_INTERVAL = 100;
+    private static final long NETWORK_INTERVAL = 1000;
+    private static final long SATELLITE_INTERVAL = 1000;
+
+    private static final long STATIONARY_TIME = 30000; // 起步前和停车后的静止时间
+    private static final long RAMP_TIME = 10000; // 加速和减速时间
+
+    private static final double ORIGIN_LATITUDE = 31.2304;
+    private static final double ORIGIN_LONGITUDE = 121.4737;
+    private static final double HEADING = Math.toRadians(60);
+    private static final double EARTH_RADIUS = 6371008.8;
+
+    private static final double GPS_POSITION_NOISE = 1.5; // 米
+    private static final double GPS_NOISE_CORRELATION_TIME = 20000; // 误差相关时间（毫秒）
+    private static final double GPS_SPEED_NOISE = 0.2; // m/s
+    private static final double NETWORK_POSITION_NOISE = 15; // 米
+
+    private final Random random;
+    private final double cruiseSpeed;
+    private final long cruiseTime;
+    private final long tunnelStart;
+    private final long tunnelEnd;
+    private final long duration;
+
+    private long nextGpsTime = 0;
+    private long nextNetworkTime = 0;
+    private long nextSatelliteTime = 0;
+
+    // 当前的GPS位置误差（米）
+    private double gpsErrorNorth = 0;
+    private double gpsErrorEast = 0;
+
+    /**
+     * @param seed 随机种子，相同的种子产生完全相同的轨迹
+     * @param cruiseSpeed 匀速阶段的速度（m/s）
+     * @param cruiseTime 匀速阶段的时长（毫秒）
+     * @param tunnelTime 匀速阶段中间隧道的时长（毫秒），0表示没有隧道
+     */
+    public SyntheticTrace(long seed, double cruiseSpeed, long cruiseTime, long tunnelTime) {
+        this.random = new Random(seed);
+        this.cruiseSpeed = cruiseSpeed;
+        this.cruiseTime = cruiseTime;
+        long cruiseStart = STATIONARY_TIME + RAMP_TIME;
+        this.tunnelStart = cruiseStart + (cruiseTime - tunnelTime) / 2;
+        this.tunnelEnd = tunnelStart + tunnelTime;
+        this.duration = cruiseStart + cruiseTime + RAMP_TIME + STATIONARY_TIME;
+    }
+
+    @Override
+    public boolean next(TraceReplayer.Event out) {
+        while (true) {
+            long time = Math.min(nextSatelliteTime, Math.min(nextGpsTime, nextNetworkTime));
+            if (time > duration) {
+                return false;
+            }
+            boolean inTunnel = time >= tunnelStart && time < tunnelEnd;
+
+            if (time == nextSatelliteTime) {
+                nextSatelliteTime += SATELLITE_INTERVAL;
+                out.type = TraceReplayer.Event.TYPE_SATELLITES;
+                out.time = START_TIME + time;
+                out.satelliteCount = inTunnel ? 0 : 20 + random.nextInt(4);
+                out.satellitesInFix = inTunnel ? 0 : 7 + random.nextInt(3);
+                return true;
+            }
+
+            if (time == nextGpsTime) {
+                nextGpsTime += GPS_INTERVAL;
+                if (inTunnel) {
+                    continue;
+                }
+                double alpha = Math.exp(-GPS_INTERVAL / GPS_NOISE_CORRELATION_TIME);
+                double drive = Math.sqrt(1 - alpha * alpha) * GPS_POSITION_NOISE;
+                gpsErrorNorth = gpsErrorNorth * alpha + random.nextGaussian() * drive;
+                gpsErrorEast = gpsErrorEast * alpha + random.nextGaussian() * drive;
+                fillFix(out, time, FixRecord.PROVIDER_GPS, gpsErrorNorth, gpsErrorEast);
+                out.fix.accuracy = (float) (4 + Math.abs(random.nextGaussian()) * 0.5);
+                out.fix.hasSpeed = true;
+                out.fix.speed = (float) Math.abs(getTrueSpeed(time) + random.nextGaussian() * GPS_SPEED_NOISE);
+                return true;
+            }
+
+            nextNetworkTime += NETWORK_INTERVAL;
+            fillFix(out, time, FixRecord.PROVIDER_NETWORK,
+                    random.nextGaussian() * NETWORK_POSITION_NOISE, random.nextGaussian() * NETWORK_POSITION_NOISE);
+            out.fix.accuracy = (float) (30 + Math.abs(random.nextGaussian()) * 5);
+            return true;
+        }
+    }
+
+    private void fillFix(TraceReplayer.Event out, long time, int provider, double errorNorth, double errorEast) {
+        double distance = getTrueDistance(time);
+        double north = distance * Math.cos(HEADING) + errorNorth;
+        double east = distance * Math.sin(HEADING) + errorEast;
+
+        FixRecord fix = out.fix;
+        fix.clear();
+        fix.provider = provider;
+        fix.latitude = ORIGIN_LATITUDE + Math.toDegrees(north / EARTH_RADIUS);
+        fix.longitude = ORIGIN_LONGITUDE
+                + Math.toDegrees(east / (EARTH_RADIUS * Math.cos(Math.toRadians(ORIGIN_LATITUDE))));
+        fix.time = START_TIME + time;
+        out.type = TraceReplayer.Event.TYPE_FIX;
+        out.time = fix.time;
+    }
+
+    /**
+     * @param time 相对轨迹开始的时间（毫秒）
+     * @return 真实速度（m/s）
+     */
+    public double getTrueSpeed(long time) {
+        double acceleration = cruiseSpeed / (RAMP_TIME / 1000.0);
+        long accelStart = STATIONARY_TIME;
+        long cruiseStart = accelStart + RAMP_TIME;
+        long decelStart = cruiseStart + cruiseTime;
+        long stopTime = decelStart + RAMP_TIME;
+
+        if (time < accelStart || time >= stopTime) {
+            return 0;
+        } else if (time < cruiseStart) {
+            return acceleration * (time - accelStart) / 1000.0;
+        } else if (time < decelStart) {
+            return cruiseSpeed;
+        }
+        return cruiseSpeed - acceleration * (time - decelStart) / 1000.0;
+    }
+
+    /**
+     * @param time 相对轨迹开始的时间（毫秒）
+     * @return 从起点行驶的真实距离（米）
+     */
+    public double getTrueDistance(long time) {
+        double acceleration = cruiseSpeed / (RAMP_TIME / 1000.0);
+        double rampDistance = 0.5 * cruiseSpeed * RAMP_TIME / 1000.0;
+        long accelStart = STATIONARY_TIME;
+        long cruiseStart = accelStart + RAMP_TIME;
+        long decelStart = cruiseStart + cruiseTime;
+        long stopTime = decelStart + RAMP_TIME;
+
+        if (time < accelStart) {
+            return 0;
+        } else if (time < cruiseStart) {
+            double t = (time - accelStart) / 1000.0;
+            return 0.5 * acceleration * t * t;
+        } else if (time < decelStart) {
+            return rampDistance + cruiseSpeed * (time - cruiseStart) / 1000.0;
+        } else if (time < stopTime) {
+            double t = (time - decelStart) / 1000.0;
+            return rampDistance + cruiseSpeed * cruiseTime / 1000.0 + cruiseSpeed * t - 0.5 * acceleration * t * t;
+        }
+        return 2 * rampDistance + cruiseSpeed * cruiseTime / 1000.0;
+    }
+
+    /**
+     * @return 轨迹总时长（毫秒）
+     */
+    public long getDuration() {
+        return duration;
+    }
+}
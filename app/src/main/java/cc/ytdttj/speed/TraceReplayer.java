@@ -0,0 +1,189 @@
+package cc.ytdttj.speed;
+
+import java.io.IOException;
+
+/**
+ * 定位轨迹回放器（纯Java，不依赖Android框架）
+ * <p>
+ * 按时间顺序把定位点和卫星状态交给 {@link Target}，可以按原速、加速或不限速回放。
+ * 传给目标的当前时间始终是轨迹中的时间，因此无论回放速度多快，处理结果都完全一致。
+ */
+public final class TraceReplayer {
+
+    // 不限速回放
+    public static final double SPEED_MAX = 0;
+
+    /**
+     * 回放事件（由数据源填充，会被复用）
+     */
+    public static final class Event {
+        public static final int TYPE_FIX = 0;
+        public static final int TYPE_SATELLITES = 1;
+
+        public int type;
+        // 事件发生的时间（毫秒）
+        public long time;
+        public final FixRecord fix = new FixRecord();
+        public int satellitesInFix;
+        public int satelliteCount;
+    }
+
+    /**
+     * 回放数据源
+     */
+    public interface Source {
+        /**
+         * @param out 下一个事件（会被覆盖）
+         * @return 是否还有事件
+         */
+        boolean next(Event out) throws IOException;
+    }
+
+    /**
+     * 回放目标，与真实定位时的处理路径相同
+     */
+    public interface Target {
+        void onFix(FixRecord fix, long currentTime);
+        void onSatelliteStatus(int satellitesInFix, int satelliteCount, long currentTime);
+    }
+
+    /**
+     * 回放使用的时钟，测试时可以替换为不真正等待的时钟
+     */
+    interface Clock {
+        long nanoTime();
+        void sleepNanos(long nanos) throws InterruptedException;
+    }
+
+    private static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public void sleepNanos(long nanos) throws InterruptedException {
+            Thread.sleep(nanos / 1000000L, (int) (nanos % 1000000L));
+        }
+    };
+
+    private final double speedFactor;
+    private final Clock clock;
+    private final Event event = new Event();
+    private volatile boolean cancelled = false;
+
+    private long eventCount = 0;
+    private long fixCount = 0;
+    private long elapsedNanos = 0;
+
+    /**
+     * @param speedFactor 回放速度倍数，1为原速，{@link #SPEED_MAX} 为不限速
+     */
+    public TraceReplayer(double speedFactor) {
+        this(speedFactor, SYSTEM_CLOCK);
+    }
+
+    TraceReplayer(double speedFactor, Clock clock) {
+        if (speedFactor < 0) {
+            throw new IllegalArgumentException("回放速度不能为负数: " + speedFactor);
+        }
+        this.speedFactor = speedFactor;
+        this.clock = clock;
+    }
+
+    /**
+     * 回放数据源中的全部事件，在当前线程中阻塞执行
+     * @param source 数据源
+     * @param target 回放目标
+     * @return 是否完整回放（被取消或中断时返回false）
+     */
+    public boolean run(Source source, Target target) throws IOException {
+        long startNanos = clock.nanoTime();
+        long firstEventTime = 0;
+        boolean first = true;
+        try {
+            while (!cancelled && source.next(event)) {
+                if (first) {
+                    firstEventTime = event.time;
+                    first = false;
+                }
+                if (speedFactor != SPEED_MAX && !waitUntil(startNanos, event.time - firstEventTime)) {
+                    return false;
+                }
+
+                if (event.type == Event.TYPE_FIX) {
+                    target.onFix(event.fix, event.time);
+                    fixCount++;
+                } else {
+                    target.onSatelliteStatus(event.satellitesInFix, event.satelliteCount, event.time);
+                }
+                eventCount++;
+            }
+            return !cancelled;
+        } finally {
+            elapsedNanos += clock.nanoTime() - startNanos;
+        }
+    }
+
+    /**
+     * 按回放速度等待到事件对应的时刻
+     * @param startNanos 回放开始时间
+     * @param traceOffset 事件相对第一个事件的时间（毫秒）
+     * @return 是否继续回放
+     */
+    private boolean waitUntil(long startNanos, long traceOffset) {
+        long dueNanos = startNanos + (long) (traceOffset * 1000000L / speedFactor);
+        long remaining;
+        while (!cancelled && (remaining = dueNanos - clock.nanoTime()) > 0) {
+            try {
+                clock.sleepNanos(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return !cancelled;
+    }
+
+    /**
+     * 取消回放，可在其他线程中调用
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    public long getFixCount() {
+        return fixCount;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return 回放吞吐量（定位点/秒）
+     */
+    public double getFixesPerSecond() {
+        return elapsedNanos > 0 ? fixCount * 1e9 / elapsedNanos : 0;
+    }
+
+    /**
+     * 以轨迹日志作为数据源，日志中只有定位点，没有卫星状态
+     * @param reader 轨迹日志读取器
+     * @return 数据源
+     */
+    public static Source fromJournal(TrackJournalReader reader) {
+        return out -> {
+            if (!reader.next(out.fix)) {
+                return false;
+            }
+            out.type = Event.TYPE_FIX;
+            out.time = out.fix.time;
+            return true;
+        };
+    }
+}
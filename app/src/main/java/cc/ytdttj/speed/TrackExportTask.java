@@ -0,0 +1,68 @@
+package cc.ytdttj.speed;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 在后台线程中把轨迹日志导出到存储访问框架（SAF）选择的文件
+ */
+public final class TrackExportTask {
+
+    private static final String TAG = "TrackExportTask";
+
+    // 导出任务串行执行，避免多个导出同时占用磁盘
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "TrackExport");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    public interface Callback {
+        /**
+         * 导出完成（主线程回调）
+         * @param success 是否成功
+         * @param pointCount 导出的定位点数量
+         */
+        void onExportFinished(boolean success, long pointCount);
+    }
+
+    private TrackExportTask() {
+    }
+
+    /**
+     * 开始导出
+     * @param resolver 内容解析器
+     * @param journal 轨迹日志文件
+     * @param target 目标文件Uri
+     * @param format 导出格式（{@link TrackExporter} 中的常量）
+     * @param callback 完成回调
+     */
+    public static void export(ContentResolver resolver, File journal, Uri target, int format, Callback callback) {
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        EXECUTOR.execute(() -> {
+            boolean success = false;
+            long count = 0;
+            try (OutputStream out = resolver.openOutputStream(target, "wt")) {
+                if (out == null) {
+                    Log.e(TAG, "无法打开导出文件: " + target);
+                } else {
+                    count = new TrackExporter().export(journal, out, format);
+                    success = true;
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "导出轨迹失败", e);
+            }
+            final boolean result = success;
+            final long pointCount = count;
+            mainHandler.post(() -> callback.onExportFinished(result, pointCount));
+        });
+    }
+}
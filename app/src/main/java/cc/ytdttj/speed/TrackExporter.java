@@ -0,0 +1,302 @@
+package cc.ytdttj.speed;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 将轨迹日志流式导出为GPX、TCX或CSV
+ * <p>
+ * 逐条读取 {@link TrackJournalReader} 并通过缓冲写入器输出，不把整条轨迹加载到内存，
+ * 数字和时间格式化都写入复用的字符缓冲区，避免每个点创建字符串。
+ * 不是线程安全的，应在后台线程中使用。
+ */
+public final class TrackExporter {
+
+    public static final int FORMAT_GPX = 0;
+    public static final int FORMAT_TCX = 1;
+    public static final int FORMAT_CSV = 2;
+
+    private static final int WRITER_BUFFER_SIZE = 64 * 1024;
+    private static final String CREATOR = "车速表";
+    private static final String GPX_TRACK_POINT_EXTENSION = "http://www.garmin.com/xmlschemas/TrackPointExtension/v2";
+
+    // 数字格式化用的临时缓冲区
+    private final char[] scratch = new char[32];
+    private final FixRecord fix = new FixRecord();
+    private final FixRecord previous = new FixRecord();
+
+    /**
+     * 导出轨迹
+     * @param journal 轨迹日志文件
+     * @param out 输出流（不会被关闭）
+     * @param format 导出格式
+     * @return 导出的定位点数量
+     */
+    public long export(File journal, OutputStream out, int format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITER_BUFFER_SIZE);
+        long count;
+        switch (format) {
+            case FORMAT_GPX:
+                count = writeGpx(journal, writer);
+                break;
+            case FORMAT_TCX:
+                count = writeTcx(journal, writer);
+                break;
+            case FORMAT_CSV:
+                count = writeCsv(journal, writer);
+                break;
+            default:
+                throw new IllegalArgumentException("未知的导出格式: " + format);
+        }
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * 查找最近的轨迹日志
+     * @param directory 轨迹目录
+     * @return 最近修改的轨迹文件，没有时返回null
+     */
+    public static File findLatestJournal(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith("track-") && name.endsWith(".bin"));
+        if (files == null) {
+            return null;
+        }
+        File latest = null;
+        for (File file : files) {
+            if (latest == null || file.lastModified() > latest.lastModified()) {
+                latest = file;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * @return 导出格式对应的文件扩展名
+     */
+    public static String getFileExtension(int format) {
+        switch (format) {
+            case FORMAT_GPX:
+                return "gpx";
+            case FORMAT_TCX:
+                return "tcx";
+            default:
+                return "csv";
+        }
+    }
+
+    /**
+     * @return 导出格式对应的MIME类型
+     */
+    public static String getMimeType(int format) {
+        switch (format) {
+            case FORMAT_GPX:
+                return "application/gpx+xml";
+            case FORMAT_TCX:
+                return "application/vnd.garmin.tcx+xml";
+            default:
+                return "text/csv";
+        }
+    }
+
+    private long writeGpx(File journal, Writer w) throws IOException {
+        long count = 0;
+        try (TrackJournalReader reader = TrackJournalReader.open(journal)) {
+            w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            w.write("<gpx version=\"1.1\" creator=\"");
+            w.write(CREATOR);
+            // GPX 1.1 的扩展元素必须属于其他命名空间，速度使用Garmin轨迹点扩展（米/秒）
+            w.write("\" xmlns=\"http://www.topografix.com/GPX/1/1\" xmlns:gpxtpx=\"");
+            w.write(GPX_TRACK_POINT_EXTENSION);
+            w.write("\">\n");
+            w.write("<metadata><time>");
+            writeIsoTime(w, reader.getStartTime());
+            w.write("</time></metadata>\n<trk><trkseg>\n");
+            while (reader.next(fix)) {
+                w.write("<trkpt lat=\"");
+                writeFixed(w, fix.latitude, 7);
+                w.write("\" lon=\"");
+                writeFixed(w, fix.longitude, 7);
+                w.write("\"><time>");
+                writeIsoTime(w, fix.time);
+                w.write("</time><extensions><gpxtpx:TrackPointExtension><gpxtpx:speed>");
+                writeFixed(w, fix.speed, 2);
+                w.write("</gpxtpx:speed></gpxtpx:TrackPointExtension></extensions></trkpt>\n");
+                count++;
+            }
+            w.write("</trkseg></trk>\n</gpx>\n");
+        }
+        return count;
+    }
+
+    private long writeTcx(File journal, Writer w) throws IOException {
+        // TCX的圈数据要求总时间和总距离写在轨迹点之前，先顺序扫描一遍计算汇总
+        long firstTime = 0;
+        long lastTime = 0;
+        double totalDistance = 0;
+        float maxSpeed = 0;
+        boolean hasPrevious = false;
+        try (TrackJournalReader reader = TrackJournalReader.open(journal)) {
+            while (reader.next(fix)) {
+                if (hasPrevious) {
+                    totalDistance += DistanceKernel.distance(previous, fix);
+                } else {
+                    firstTime = fix.time;
+                }
+                lastTime = fix.time;
+                maxSpeed = Math.max(maxSpeed, fix.speed);
+                previous.set(fix);
+                hasPrevious = true;
+            }
+        }
+
+        long count = 0;
+        try (TrackJournalReader reader = TrackJournalReader.open(journal)) {
+            long startTime = hasPrevious ? firstTime : reader.getStartTime();
+            w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            w.write("<TrainingCenterDatabase xmlns=\"http://www.garmin.com/xmlschemas/TrainingCenterDatabase/v2\">\n");
+            w.write("<Activities><Activity Sport=\"Other\"><Id>");
+            writeIsoTime(w, startTime);
+            w.write("</Id>\n<Lap StartTime=\"");
+            writeIsoTime(w, startTime);
+            w.write("\"><TotalTimeSeconds>");
+            writeFixed(w, (lastTime - firstTime) / 1000.0, 1);
+            w.write("</TotalTimeSeconds><DistanceMeters>");
+            writeFixed(w, totalDistance, 1);
+            w.write("</DistanceMeters><MaximumSpeed>");
+            writeFixed(w, maxSpeed, 2);
+            w.write("</MaximumSpeed><Calories>0</Calories><Intensity>Active</Intensity>"
+                    + "<TriggerMethod>Manual</TriggerMethod>\n<Track>\n");
+
+            double distance = 0;
+            hasPrevious = false;
+            while (reader.next(fix)) {
+                if (hasPrevious) {
+                    distance += DistanceKernel.distance(previous, fix);
+                }
+                previous.set(fix);
+                hasPrevious = true;
+
+                w.write("<Trackpoint><Time>");
+                writeIsoTime(w, fix.time);
+                w.write("</Time><Position><LatitudeDegrees>");
+                writeFixed(w, fix.latitude, 7);
+                w.write("</LatitudeDegrees><LongitudeDegrees>");
+                writeFixed(w, fix.longitude, 7);
+                w.write("</LongitudeDegrees></Position><DistanceMeters>");
+                writeFixed(w, distance, 1);
+                w.write("</DistanceMeters></Trackpoint>\n");
+                count++;
+            }
+            w.write("</Track>\n</Lap>\n<Creator xsi:type=\"Device_t\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"><Name>");
+            w.write(CREATOR);
+            w.write("</Name><UnitId>0</UnitId><ProductID>0</ProductID>"
+                    + "<Version><VersionMajor>0</VersionMajor><VersionMinor>0</VersionMinor></Version></Creator>\n");
+            w.write("</Activity></Activities>\n</TrainingCenterDatabase>\n");
+        }
+        return count;
+    }
+
+    private long writeCsv(File journal, Writer w) throws IOException {
+        long count = 0;
+        try (TrackJournalReader reader = TrackJournalReader.open(journal)) {
+            w.write("time,latitude,longitude,speed_kmh,accuracy_m\n");
+            while (reader.next(fix)) {
+                writeIsoTime(w, fix.time);
+                w.write(',');
+                writeFixed(w, fix.latitude, 7);
+                w.write(',');
+                writeFixed(w, fix.longitude, 7);
+                w.write(',');
+                writeFixed(w, fix.speed * 3.6, 1);
+                w.write(',');
+                writeFixed(w, fix.accuracy, 1);
+                w.write('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 写入定点小数（四舍五入）
+     * @param w 输出
+     * @param value 数值
+     * @param decimals 小数位数
+     */
+    void writeFixed(Writer w, double value, int decimals) throws IOException {
+        long scale = 1;
+        for (int i = 0; i < decimals; i++) {
+            scale *= 10;
+        }
+        long scaled = Math.round(Math.abs(value) * scale);
+        boolean negative = value < 0 && scaled != 0;
+
+        int pos = scratch.length;
+        for (int i = 0; i < decimals; i++) {
+            scratch[--pos] = (char) ('0' + scaled % 10);
+            scaled /= 10;
+        }
+        if (decimals > 0) {
+            scratch[--pos] = '.';
+        }
+        do {
+            scratch[--pos] = (char) ('0' + scaled % 10);
+            scaled /= 10;
+        } while (scaled > 0);
+        if (negative) {
+            scratch[--pos] = '-';
+        }
+        w.write(scratch, pos, scratch.length - pos);
+    }
+
+    /**
+     * 写入ISO 8601格式的UTC时间，例如 2024-01-02T03:04:05.678Z
+     * @param w 输出
+     * @param millis UTC时间（毫秒）
+     */
+    void writeIsoTime(Writer w, long millis) throws IOException {
+        long days = Math.floorDiv(millis, 86400000L);
+        int millisOfDay = (int) Math.floorMod(millis, 86400000L);
+
+        // 由天数计算公历日期（Howard Hinnant的civil_from_days算法）
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+
+        char[] c = scratch;
+        putDigits(c, 0, (int) year, 4);
+        c[4] = '-';
+        putDigits(c, 5, month, 2);
+        c[7] = '-';
+        putDigits(c, 8, day, 2);
+        c[10] = 'T';
+        putDigits(c, 11, millisOfDay / 3600000, 2);
+        c[13] = ':';
+        putDigits(c, 14, millisOfDay / 60000 % 60, 2);
+        c[16] = ':';
+        putDigits(c, 17, millisOfDay / 1000 % 60, 2);
+        c[19] = '.';
+        putDigits(c, 20, millisOfDay % 1000, 3);
+        c[23] = 'Z';
+        w.write(c, 0, 24);
+    }
+
+    private static void putDigits(char[] c, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            c[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
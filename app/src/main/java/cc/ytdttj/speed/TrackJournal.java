@@ -0,0 +1,142 @@
+package cc.ytdttj.speed;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 只追加的二进制轨迹日志
+ * <p>
+ * 文件由固定长度的文件头和定长记录组成，每个定位点占 {@link #RECORD_SIZE} 字节：
+ * <pre>
+ * int   相对开始时间的毫秒数
+ * int   纬度 × 1e7
+ * int   经度 × 1e7
+ * short 速度（cm/s）
+ * short 精度（dm）
+ * </pre>
+ * 记录先写入预分配的直接缓冲区，攒满一批（或超过最长间隔）后一次写入并同步到磁盘，
+ * 因此崩溃时最多丢失最后一批数据。不是线程安全的，只能在定位处理线程中使用。
+ */
+public final class TrackJournal implements Closeable {
+
+    static final int MAGIC = 0x53504A31; // "SPJ1"
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 16;
+
+    // 每批记录数，100ms一个点时约5秒同步一次
+    static final int BATCH_RECORDS = 50;
+    // 定位频率较低时，超过该时间也会同步（毫秒）
+    private static final long MAX_BATCH_INTERVAL = 5000;
+
+    private static final double COORDINATE_SCALE = 1e7;
+
+    private final File file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final long startTime;
+
+    private long lastSyncTime;
+    private long recordCount = 0;
+
+    private TrackJournal(File file, FileChannel channel, long startTime) {
+        this.file = file;
+        this.channel = channel;
+        this.startTime = startTime;
+        this.lastSyncTime = startTime;
+        this.buffer = ByteBuffer.allocateDirect(BATCH_RECORDS * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * 创建新的轨迹日志文件
+     * @param file 目标文件（已存在时会被覆盖）
+     * @param startTime 行程开始的UTC时间（毫秒）
+     * @return 轨迹日志
+     */
+    public static TrackJournal create(File file, long startTime) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC);
+            header.putInt(RECORD_SIZE);
+            header.putLong(startTime);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new TrackJournal(file, channel, startTime);
+    }
+
+    /**
+     * 追加一个定位点
+     * @param fix 定位点
+     */
+    public void append(FixRecord fix) throws IOException {
+        long offset = fix.time - startTime;
+        buffer.putInt((int) Math.max(0, Math.min(Integer.MAX_VALUE, offset)));
+        buffer.putInt((int) Math.round(fix.latitude * COORDINATE_SCALE));
+        buffer.putInt((int) Math.round(fix.longitude * COORDINATE_SCALE));
+        buffer.putShort(clampToShort(fix.speed * 100));
+        buffer.putShort(clampToShort(fix.accuracy * 10));
+        recordCount++;
+
+        if (!buffer.hasRemaining() || fix.time - lastSyncTime >= MAX_BATCH_INTERVAL) {
+            sync(fix.time);
+        }
+    }
+
+    /**
+     * 写入缓冲区中的数据并同步到磁盘
+     */
+    public void flush() throws IOException {
+        sync(lastSyncTime);
+    }
+
+    private void sync(long time) throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        channel.force(false);
+        lastSyncTime = time;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static short clampToShort(float value) {
+        return (short) Math.max(0, Math.min(Short.MAX_VALUE, Math.round(value)));
+    }
+}
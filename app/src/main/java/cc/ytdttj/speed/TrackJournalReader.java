@@ -0,0 +1,115 @@
+package cc.ytdttj.speed;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 顺序读取 {@link TrackJournal} 写入的轨迹日志
+ * <p>
+ * 使用固定大小的缓冲区分块读取，内存占用与轨迹长度无关。
+ * 崩溃留下的不完整尾部记录会被忽略。
+ */
+public final class TrackJournalReader implements Closeable {
+
+    // 每次从文件读取的记录数
+    private static final int READ_RECORDS = 4096;
+
+    private static final double COORDINATE_SCALE = 1e7;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final long startTime;
+    private final long recordCount;
+
+    private TrackJournalReader(FileChannel channel, long startTime, long recordCount) {
+        this.channel = channel;
+        this.startTime = startTime;
+        this.recordCount = recordCount;
+        this.buffer = ByteBuffer.allocateDirect(READ_RECORDS * TrackJournal.RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.limit(0);
+    }
+
+    /**
+     * 打开轨迹日志
+     * @param file 日志文件
+     * @return 读取器
+     * @throws IOException 文件无法读取或格式不正确
+     */
+    public static TrackJournalReader open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(TrackJournal.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new IOException("轨迹文件头不完整: " + file);
+                }
+            }
+            header.flip();
+            if (header.getInt() != TrackJournal.MAGIC || header.getInt() != TrackJournal.RECORD_SIZE) {
+                throw new IOException("不支持的轨迹文件格式: " + file);
+            }
+            long startTime = header.getLong();
+            long recordCount = (channel.size() - TrackJournal.HEADER_SIZE) / TrackJournal.RECORD_SIZE;
+            return new TrackJournalReader(channel, startTime, recordCount);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 读取下一个定位点
+     * @param out 输出记录（会被覆盖）
+     * @return 是否读取成功，到达末尾时返回false
+     */
+    public boolean next(FixRecord out) throws IOException {
+        if (buffer.remaining() < TrackJournal.RECORD_SIZE && !fill()) {
+            return false;
+        }
+        out.clear();
+        out.provider = FixRecord.PROVIDER_GPS;
+        out.time = startTime + (buffer.getInt() & 0xFFFFFFFFL);
+        out.latitude = buffer.getInt() / COORDINATE_SCALE;
+        out.longitude = buffer.getInt() / COORDINATE_SCALE;
+        out.speed = buffer.getShort() / 100f;
+        out.hasSpeed = true;
+        out.accuracy = buffer.getShort() / 10f;
+        return true;
+    }
+
+    /**
+     * 从文件读取下一块数据
+     * @return 是否至少有一条完整记录
+     */
+    private boolean fill() throws IOException {
+        buffer.compact();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() >= TrackJournal.RECORD_SIZE;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return 文件中完整记录的数量
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
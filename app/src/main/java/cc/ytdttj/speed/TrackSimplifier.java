@@ -0,0 +1,245 @@
+package cc.ytdttj.speed;
+
+/**
+ * 轨迹在线精简（纯Java，不依赖Android框架）
+ * <p>
+ * 写入轨迹日志之前逐点决定是否保留，使用扇形走廊（sleeve）算法：从上一个保留点出发，
+ * 每个后续点把允许的方向收窄到 {@code ±asin(容差/距离)}，同时把速度随时间的允许斜率
+ * 收窄到 {@code ±速度容差}；新点超出走廊时保留它的前一个点，并以此为新起点。
+ * 因此被丢弃的点到保留点连线的距离不超过空间容差，速度与两端线性插值之差不超过速度容差。
+ * <p>
+ * 每次决定只使用固定的几个字段（O(1)内存），直线匀速行驶时绝大多数点被丢弃，
+ * 转弯、变速和静止后重新起步时保留足够的点。只能在一个线程中使用。
+ */
+public final class TrackSimplifier {
+
+    // 默认空间容差（米），与GPS定位误差相当
+    public static final double DEFAULT_SPATIAL_TOLERANCE = 2.0;
+    // 默认速度容差（米/秒），约1.8km/h
+    public static final double DEFAULT_SPEED_TOLERANCE = 0.5;
+    // 两个保留点之间的最长时间（毫秒），保证导出的轨迹有足够的时间分辨率
+    public static final long DEFAULT_MAX_INTERVAL = 30000;
+
+    private static final double METERS_PER_DEGREE = 111319.49;
+
+    private double spatialTolerance;
+    private double speedTolerance;
+    private long maxInterval;
+
+    // 上一个保留点（走廊起点）
+    private final FixRecord anchor = new FixRecord();
+    private boolean hasAnchor = false;
+    private double metersPerDegreeLon;
+
+    // 尚未决定的最后一个点
+    private final FixRecord pending = new FixRecord();
+    private boolean hasPending = false;
+
+    // 方向走廊（相对 referenceBearing 的弧度）
+    private boolean hasSleeve = false;
+    private double referenceBearing;
+    private double minAngle;
+    private double maxAngle;
+
+    // 速度走廊（米/秒每毫秒）
+    private boolean hasSpeedSleeve = false;
+    private double minSlope;
+    private double maxSlope;
+
+    // 统计（只在记录线程写入，dumpsys 可在其他线程读取）
+    private volatile long keptCount = 0;
+    private volatile long droppedCount = 0;
+
+    public TrackSimplifier() {
+        this(DEFAULT_SPATIAL_TOLERANCE, DEFAULT_SPEED_TOLERANCE, DEFAULT_MAX_INTERVAL);
+    }
+
+    /**
+     * @param spatialTolerance 空间容差（米），不大于0时保留所有点
+     * @param speedTolerance 速度容差（米/秒）
+     * @param maxInterval 两个保留点之间的最长时间（毫秒）
+     */
+    public TrackSimplifier(double spatialTolerance, double speedTolerance, long maxInterval) {
+        setTolerances(spatialTolerance, speedTolerance, maxInterval);
+    }
+
+    /**
+     * 修改容差，从下一个走廊开始生效
+     */
+    public void setTolerances(double spatialTolerance, double speedTolerance, long maxInterval) {
+        this.spatialTolerance = spatialTolerance;
+        this.speedTolerance = speedTolerance;
+        this.maxInterval = maxInterval;
+    }
+
+    /**
+     * 开始新的轨迹（统计数据也清零）
+     */
+    public void reset() {
+        hasAnchor = false;
+        hasPending = false;
+        hasSleeve = false;
+        hasSpeedSleeve = false;
+        keptCount = 0;
+        droppedCount = 0;
+    }
+
+    /**
+     * 提交一个定位点
+     * @param fix 已通过有效性检查的定位点
+     * @param out 需要保存的点（返回true时写入）
+     * @return 是否有点需要保存；保存的可能是之前提交的点，新点本身要等到后续点才能决定
+     */
+    public boolean offer(FixRecord fix, FixRecord out) {
+        if (!hasAnchor) {
+            startSleeve(fix);
+            keptCount++;
+            out.set(fix);
+            return true;
+        }
+        if (fix.time <= anchor.time) {
+            droppedCount++;
+            return false;
+        }
+        if (spatialTolerance > 0 && fix.time - anchor.time <= maxInterval && fitsSleeve(fix)) {
+            if (hasPending) {
+                droppedCount++;
+            }
+            pending.set(fix);
+            hasPending = true;
+            return false;
+        }
+        if (!hasPending) {
+            // 紧跟在保留点之后就超出走廊（或不精简）：直接保留
+            startSleeve(fix);
+            keptCount++;
+            out.set(fix);
+            return true;
+        }
+        // 保留前一个点，以它为新起点重新判断当前点
+        keptCount++;
+        out.set(pending);
+        startSleeve(pending);
+        // 新走廊中的第一个点总在走廊内，只用它确定走廊；若已超过最长时间，下次提交时保留
+        fitsSleeve(fix);
+        pending.set(fix);
+        hasPending = true;
+        return true;
+    }
+
+    /**
+     * 保留尚未决定的最后一个点（暂停或结束记录时调用）
+     * @param out 需要保存的点
+     * @return 是否有点需要保存
+     */
+    public boolean flush(FixRecord out) {
+        if (!hasPending) {
+            return false;
+        }
+        keptCount++;
+        out.set(pending);
+        startSleeve(pending);
+        return true;
+    }
+
+    private void startSleeve(FixRecord fix) {
+        anchor.set(fix);
+        hasAnchor = true;
+        hasPending = false;
+        hasSleeve = false;
+        hasSpeedSleeve = false;
+        metersPerDegreeLon = METERS_PER_DEGREE * Math.cos(Math.toRadians(fix.latitude));
+    }
+
+    /**
+     * 检查新点是否在走廊内，在走廊内时用它收窄走廊
+     */
+    private boolean fitsSleeve(FixRecord fix) {
+        // 方向走廊
+        double east = (fix.longitude - anchor.longitude) * metersPerDegreeLon;
+        double north = (fix.latitude - anchor.latitude) * METERS_PER_DEGREE;
+        double distance = Math.sqrt(east * east + north * north);
+        double angle = 0;
+        double halfWidth = 0;
+        boolean constrains = distance > spatialTolerance;
+        if (constrains) {
+            double bearing = Math.atan2(east, north);
+            if (!hasSleeve) {
+                referenceBearing = bearing;
+            } else {
+                angle = normalize(bearing - referenceBearing);
+                if (angle < minAngle || angle > maxAngle) {
+                    return false;
+                }
+            }
+            halfWidth = Math.asin(spatialTolerance / distance);
+        }
+
+        // 速度走廊
+        boolean speedConstrains = speedTolerance > 0 && fix.hasSpeed && anchor.hasSpeed;
+        double slope = 0;
+        double slopeWidth = 0;
+        if (speedConstrains) {
+            double dt = fix.time - anchor.time;
+            slope = (fix.speed - anchor.speed) / dt;
+            slopeWidth = speedTolerance / dt;
+            if (hasSpeedSleeve && (slope < minSlope || slope > maxSlope)) {
+                return false;
+            }
+        }
+
+        // 收窄走廊
+        if (constrains) {
+            if (!hasSleeve) {
+                minAngle = -halfWidth;
+                maxAngle = halfWidth;
+                hasSleeve = true;
+            } else {
+                minAngle = Math.max(minAngle, angle - halfWidth);
+                maxAngle = Math.min(maxAngle, angle + halfWidth);
+            }
+        }
+        if (speedConstrains) {
+            if (!hasSpeedSleeve) {
+                minSlope = slope - slopeWidth;
+                maxSlope = slope + slopeWidth;
+                hasSpeedSleeve = true;
+            } else {
+                minSlope = Math.max(minSlope, slope - slopeWidth);
+                maxSlope = Math.min(maxSlope, slope + slopeWidth);
+            }
+        }
+        return true;
+    }
+
+    private static double normalize(double angle) {
+        if (angle > Math.PI) {
+            return angle - 2 * Math.PI;
+        } else if (angle < -Math.PI) {
+            return angle + 2 * Math.PI;
+        }
+        return angle;
+    }
+
+    /**
+     * @return 保留的点数
+     */
+    public long getKeptCount() {
+        return keptCount;
+    }
+
+    /**
+     * @return 丢弃的点数
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * @return 保留比例（0-1），没有点时为1
+     */
+    public double getKeptRatio() {
+        long total = keptCount + droppedCount;
+        return total > 0 ? (double) keptCount / total : 1;
+    }
+}
@@ -0,0 +1,277 @@
+package cc.ytdttj.speed;
+
+/**
+ * 行程统计（纯Java，不依赖Android框架）
+ * <p>
+ * 保存记录状态、计时、总距离和最快速度，并负责智能距离累积；分段和计圈由 {@link SplitEngine} 统计，
+ * 最近一段时间的平均速度和加速度由 {@link RollingSpeedStats} 统计，性能测试由 {@link DragTimer} 计时。
+ * 时间由调用方传入（单调时钟，毫秒），便于在服务中使用和测试。
+ * 不是线程安全的，只能在定位处理线程中访问，界面通过 {@link TripSnapshot} 读取数据。
+ */
+public final class TripRecorder {
+
+    // 距离累积参数
+    private static final float MIN_MOVEMENT_DISTANCE = 3.0f; // 最小移动距离（米）
+    private static final float MIN_SPEED_THRESHOLD = 1.0f; // 最小速度阈值（km/h）
+    private static final float MAX_ACCURACY_FOR_DISTANCE = 10.0f; // 用于距离计算的最大精度（米）
+
+    private boolean isRecording = false;
+    private boolean isPaused = false;
+
+    // 计时：已累计的时间 + 当前计时段的起点
+    private long accumulatedTime = 0L;
+    private long segmentStartTime = 0L;
+
+    private float totalDistance = 0.0f; // km
+    private float maxSpeed = 0.0f; // km/h
+    private float currentSpeed = 0.0f; // km/h
+
+    private final FixRecord lastLocation = new FixRecord();
+    private boolean hasLastLocation = false;
+
+    private final SplitEngine splitEngine = new SplitEngine();
+    // 滑动窗口统计不受记录状态影响，未开始记录时也更新
+    private final RollingSpeedStats rollingStats = new RollingSpeedStats();
+    private final DragTimer dragTimer = new DragTimer();
+    // 最近一个定位点的生成时刻（单调时钟，纳秒），随快照交给界面统计端到端延迟
+    private long lastFixNanos = 0L;
+
+    /**
+     * 开始记录
+     * @param now 当前单调时间（毫秒）
+     */
+    public void start(long now) {
+        isRecording = true;
+        isPaused = false;
+        segmentStartTime = now;
+    }
+
+    /**
+     * 结束记录，保留统计数据直到复位
+     * @param now 当前单调时间（毫秒）
+     */
+    public void stop(long now) {
+        if (isRecording && !isPaused) {
+            accumulatedTime += now - segmentStartTime;
+        }
+        splitEngine.pause();
+        isRecording = false;
+        isPaused = false;
+    }
+
+    public void pause(long now) {
+        if (isRecording && !isPaused) {
+            accumulatedTime += now - segmentStartTime;
+            isPaused = true;
+            splitEngine.pause();
+        }
+    }
+
+    public void resume(long now) {
+        if (isRecording && isPaused) {
+            segmentStartTime = now;
+            isPaused = false;
+        }
+    }
+
+    /**
+     * 清零所有统计数据
+     */
+    public void reset() {
+        accumulatedTime = 0L;
+        segmentStartTime = 0L;
+        totalDistance = 0.0f;
+        maxSpeed = 0.0f;
+        hasLastLocation = false;
+        splitEngine.reset();
+        rollingStats.reset();
+    }
+
+    /**
+     * 开启或关闭性能测试（与是否记录行程无关）
+     */
+    public void setPerformanceMode(boolean enabled) {
+        dragTimer.setEnabled(enabled);
+    }
+
+    /**
+     * 手动计圈（正在记录时有效）
+     */
+    public void lap() {
+        if (isRecording) {
+            splitEngine.lap();
+        }
+    }
+
+    /**
+     * 处理新的位置
+     * @param location 最佳位置
+     * @return 统计数据是否参与了本次更新（正在记录且未暂停）
+     */
+    public boolean onLocationUpdated(FixRecord location) {
+        float speed = location.speed * 3.6f; // m/s to km/h
+        currentSpeed = speed;
+        lastFixNanos = location.elapsedRealtimeNanos;
+        rollingStats.update(location.time, location.speed);
+        dragTimer.onFix(location);
+
+        if (!isRecording || isPaused) {
+            return false;
+        }
+
+        if (speed > maxSpeed) {
+            maxSpeed = speed;
+        }
+
+        float accumulated = 0f;
+        if (hasLastLocation) {
+            float distance = (float) DistanceKernel.distance(lastLocation, location); // 距离（米）
+
+            // 智能距离累积：只有在满足条件时才累积距离
+            if (shouldAccumulateDistance(location, distance, speed)) {
+                totalDistance += distance / 1000; // meters to km
+                accumulated = distance;
+                lastLocation.set(location); // 只有累积距离时才更新lastLocation
+            } else {
+                // 不累积距离，但在原地漂移时换用精度较高的参考位置；
+                // 移动中不能移动参考位置，否则这段真实移动的距离会丢失
+                if (location.accuracy < lastLocation.accuracy && speed < MIN_SPEED_THRESHOLD) {
+                    lastLocation.set(location);
+                }
+            }
+        } else {
+            // 首次获取位置
+            lastLocation.set(location);
+            hasLastLocation = true;
+        }
+        splitEngine.onSample(location.time, accumulated);
+        return true;
+    }
+
+    /**
+     * 判断是否应该累积距离
+     * @param currentLocation 当前位置
+     * @param distance 与上次位置的距离（米）
+     * @param speed 当前速度（km/h）
+     * @return 是否应该累积距离
+     */
+    boolean shouldAccumulateDistance(FixRecord currentLocation, float distance, float speed) {
+        // 1. 检查位置精度：如果精度太差，不累积距离
+        if (currentLocation.accuracy > MAX_ACCURACY_FOR_DISTANCE) {
+            return recordDistanceDecision(PipelineMetrics.DISTANCE_REJECT_ACCURACY, currentLocation, distance);
+        }
+
+        // 2. 检查移动距离：必须超过最小移动距离阈值
+        if (distance < MIN_MOVEMENT_DISTANCE) {
+            return recordDistanceDecision(PipelineMetrics.DISTANCE_REJECT_SHORT, currentLocation, distance);
+        }
+
+        // 3. 检查速度：如果速度太低，可能是GPS漂移
+        if (speed < MIN_SPEED_THRESHOLD) {
+            // 低速时需要更大的移动距离才认为是真实移动
+            return recordDistanceDecision(distance > MIN_MOVEMENT_DISTANCE * 2
+                    ? PipelineMetrics.DISTANCE_ACCEPT : PipelineMetrics.DISTANCE_REJECT_SLOW, currentLocation, distance);
+        }
+
+        // 4. 检查距离与精度的关系：移动距离应该明显大于GPS精度
+        float combinedAccuracy = currentLocation.accuracy + lastLocation.accuracy;
+        if (distance < combinedAccuracy * 1.5f) {
+            return recordDistanceDecision(PipelineMetrics.DISTANCE_REJECT_BELOW_ACCURACY, currentLocation, distance);
+        }
+
+        return recordDistanceDecision(PipelineMetrics.DISTANCE_ACCEPT, currentLocation, distance);
+    }
+
+    /**
+     * 记录距离累积的决策
+     * @return 是否累积距离
+     */
+    private static boolean recordDistanceDecision(int event, FixRecord location, float distance) {
+        PipelineMetrics.record(event, location.provider, location.time, distance);
+        return event == PipelineMetrics.DISTANCE_ACCEPT;
+    }
+
+    public boolean isRecording() {
+        return isRecording;
+    }
+
+    public boolean isPaused() {
+        return isPaused;
+    }
+
+    /**
+     * @return 总距离（km）
+     */
+    public float getTotalDistance() {
+        return totalDistance;
+    }
+
+    /**
+     * @return 最快速度（km/h）
+     */
+    public float getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    /**
+     * @return 最近一次定位的速度（km/h）
+     */
+    public float getCurrentSpeed() {
+        return currentSpeed;
+    }
+
+    /**
+     * @param now 当前单调时间（毫秒）
+     * @return 已记录的时间（毫秒，不含暂停时间）
+     */
+    public long getElapsedTime(long now) {
+        if (isRecording && !isPaused) {
+            return accumulatedTime + (now - segmentStartTime);
+        }
+        return accumulatedTime;
+    }
+
+    /**
+     * 生成当前状态的不可变快照
+     * @param now 当前单调时间（毫秒）
+     * @param publishTimeNanos 快照发布时间（纳秒）
+     * @return 快照
+     */
+    public TripSnapshot snapshot(long now, long publishTimeNanos) {
+        return new TripSnapshot(isRecording, isPaused, accumulatedTime, segmentStartTime,
+                currentSpeed, totalDistance, maxSpeed, getAverageSpeed(now),
+                splitEngine.getSplitCount(), splitEngine.getLastSplitTime(), splitEngine.getBestSplitTime(),
+                splitEngine.getBestDistanceWindowTime(), (float) splitEngine.getBestTimeWindowDistance(),
+                splitEngine.getLapCount(), splitEngine.getLastLapTime(),
+                rollingStats.getShortAverage() * 3.6f, rollingStats.getLongAverage() * 3.6f,
+                rollingStats.getAcceleration(), rollingStats.getMaxSpeed() * 3.6f, rollingStats.getMinSpeed() * 3.6f,
+                dragTimer.getState(), dragTimer.getRunCount(), dragTimer.getZeroTo100Nanos(),
+                dragTimer.getDistance400Nanos(), dragTimer.getTrapSpeed400() * 3.6f, dragTimer.getHundredTo200Nanos(),
+                lastFixNanos, publishTimeNanos);
+    }
+
+    public SplitEngine getSplitEngine() {
+        return splitEngine;
+    }
+
+    public RollingSpeedStats getRollingStats() {
+        return rollingStats;
+    }
+
+    public DragTimer getDragTimer() {
+        return dragTimer;
+    }
+
+    /**
+     * 计算平均速度（只有在有实际移动距离时才有值）
+     * @param now 当前单调时间（毫秒）
+     * @return 平均速度（km/h）
+     */
+    public float getAverageSpeed(long now) {
+        long elapsedTimeInSeconds = getElapsedTime(now) / 1000;
+        if (elapsedTimeInSeconds > 0 && totalDistance > 0) {
+            return totalDistance / (elapsedTimeInSeconds / 3600.0f);
+        }
+        return 0.0f;
+    }
+}
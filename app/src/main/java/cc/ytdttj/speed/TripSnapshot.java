@@ -0,0 +1,98 @@
+package cc.ytdttj.speed;
+
+/**
+ * 行程数据的不可变快照
+ * <p>
+ * 由定位处理线程生成，发布给界面线程显示。界面只读取快照，不直接访问 {@link TripRecorder}。
+ */
+public final class TripSnapshot {
+
+    public static final TripSnapshot EMPTY = new TripSnapshot(false, false, 0L, 0L, 0f, 0f, 0f, 0f,
+            0, 0L, 0L, 0L, 0f, 0, 0L, 0f, 0f, 0f, 0f, 0f,
+            DragTimer.STATE_OFF, 0, 0L, 0L, 0f, 0L, 0L, 0L);
+
+    public final boolean isRecording;
+    public final boolean isPaused;
+    // 计时：已累计的时间 + 当前计时段的起点（单调时钟，毫秒）
+    public final long accumulatedTime;
+    public final long segmentStartTime;
+    public final float currentSpeed; // km/h
+    public final float totalDistance; // km
+    public final float maxSpeed; // km/h
+    public final float averageSpeed; // km/h
+    // 分段和计圈（毫秒，没有记录时为0）
+    public final int splitCount;
+    public final long lastSplitTime;
+    public final long bestSplitTime;
+    public final long best1kmTime; // 任意起点的最快1公里
+    public final float best5minDistance; // 任意起点的5分钟最远距离（米）
+    public final int lapCount;
+    public final long lastLapTime;
+    // 滑动窗口统计
+    public final float averageSpeed10s; // km/h
+    public final float averageSpeed60s; // km/h
+    public final float acceleration; // m/s²，最近1秒
+    public final float maxSpeed60s; // km/h
+    public final float minSpeed60s; // km/h
+    // 性能测试（纳秒，未达到时为0）
+    public final int dragState;
+    public final int dragRunCount;
+    public final long zeroTo100Nanos;
+    public final long distance400Nanos;
+    public final float trapSpeed400; // km/h
+    public final long hundredTo200Nanos;
+    // 最近一个定位点的生成时刻（单调时钟，纳秒），没有定位点时为0
+    public final long fixTimeNanos;
+    // 快照发布时间（单调时钟，纳秒），用于测量线程切换到界面显示的延迟
+    public final long publishTimeNanos;
+
+    public TripSnapshot(boolean isRecording, boolean isPaused, long accumulatedTime, long segmentStartTime,
+                        float currentSpeed, float totalDistance, float maxSpeed, float averageSpeed,
+                        int splitCount, long lastSplitTime, long bestSplitTime,
+                        long best1kmTime, float best5minDistance, int lapCount, long lastLapTime,
+                        float averageSpeed10s, float averageSpeed60s, float acceleration,
+                        float maxSpeed60s, float minSpeed60s,
+                        int dragState, int dragRunCount, long zeroTo100Nanos,
+                        long distance400Nanos, float trapSpeed400, long hundredTo200Nanos,
+                        long fixTimeNanos, long publishTimeNanos) {
+        this.isRecording = isRecording;
+        this.isPaused = isPaused;
+        this.accumulatedTime = accumulatedTime;
+        this.segmentStartTime = segmentStartTime;
+        this.currentSpeed = currentSpeed;
+        this.totalDistance = totalDistance;
+        this.maxSpeed = maxSpeed;
+        this.averageSpeed = averageSpeed;
+        this.splitCount = splitCount;
+        this.lastSplitTime = lastSplitTime;
+        this.bestSplitTime = bestSplitTime;
+        this.best1kmTime = best1kmTime;
+        this.best5minDistance = best5minDistance;
+        this.lapCount = lapCount;
+        this.lastLapTime = lastLapTime;
+        this.averageSpeed10s = averageSpeed10s;
+        this.averageSpeed60s = averageSpeed60s;
+        this.acceleration = acceleration;
+        this.maxSpeed60s = maxSpeed60s;
+        this.minSpeed60s = minSpeed60s;
+        this.dragState = dragState;
+        this.dragRunCount = dragRunCount;
+        this.zeroTo100Nanos = zeroTo100Nanos;
+        this.distance400Nanos = distance400Nanos;
+        this.trapSpeed400 = trapSpeed400;
+        this.hundredTo200Nanos = hundredTo200Nanos;
+        this.fixTimeNanos = fixTimeNanos;
+        this.publishTimeNanos = publishTimeNanos;
+    }
+
+    /**
+     * @param now 当前单调时间（毫秒）
+     * @return 已记录的时间（毫秒，不含暂停时间）
+     */
+    public long getElapsedTime(long now) {
+        if (isRecording && !isPaused) {
+            return accumulatedTime + (now - segmentStartTime);
+        }
+        return accumulatedTime;
+    }
+}
@@ -0,0 +1,151 @@
+package cc.ytdttj.speed;
+
+/**
+ * GPS更新间隔调度策略（纯Java，不依赖Android框架）
+ * <p>
+ * 根据速度、静止状态、GPS连接和电量选择定位间隔和最小距离：
+ * <ul>
+ * <li>搜星中：1秒</li>
+ * <li>变速行驶：100毫秒</li>
+ * <li>匀速巡航：1秒</li>
+ * <li>静止：5秒，且至少移动5米才上报</li>
+ * </ul>
+ * 切换到更快的档位立即生效；切换到更慢的档位需要条件持续一段时间，
+ * 巡航判断的进入和退出使用不同的速度阈值，避免在边界附近来回切换。
+ * 性能测试等待起步或计时期间始终使用100毫秒档位（不受省电影响），
+ * 否则停车超过10秒后降到静止档位，起步后的第一个定位点会晚几秒才到。
+ * 时间由调用方传入，便于测试和回放。
+ */
+public final class UpdateIntervalPolicy {
+
+    public static final int TIER_SEARCHING = 0;
+    public static final int TIER_FAST = 1;
+    public static final int TIER_CRUISE = 2;
+    public static final int TIER_STATIONARY = 3;
+
+    // 各档位的更新间隔（毫秒）
+    static final long INTERVAL_SEARCHING = 1000;
+    static final long INTERVAL_FAST = 100;
+    static final long INTERVAL_CRUISE = 1000;
+    static final long INTERVAL_STATIONARY = 5000;
+    // 静止时的最小距离（米）
+    static final float MIN_DISTANCE_STATIONARY = 5.0f;
+
+    // 巡航判断：速度偏离参考速度在进入阈值内持续一段时间则进入巡航，超过退出阈值立即退出
+    private static final float CRUISE_MIN_SPEED = 5.0f; // m/s，低速（步行、拥堵）保持高频
+    private static final float CRUISE_ENTER_DEVIATION = 1.5f; // m/s
+    private static final float CRUISE_EXIT_DEVIATION = 3.0f; // m/s
+    private static final long CRUISE_ENTER_TIME = 15000; // ms
+    // 静止持续该时间后才降到静止档位
+    private static final long STATIONARY_ENTER_TIME = 10000; // ms
+
+    private int tier = TIER_SEARCHING;
+    private boolean lowBattery = false;
+    private boolean performanceTiming = false;
+
+    // 巡航判断的参考速度和开始时间
+    private float cruiseReferenceSpeed = 0;
+    private long steadySince = -1;
+    // 静止开始时间
+    private long stationarySince = -1;
+
+    /**
+     * 根据最新状态更新档位
+     * @param speed 当前速度（m/s）
+     * @param stationary 定位引擎是否判定为静止
+     * @param gpsConnected GPS是否已连接
+     * @param lowBattery 是否需要省电（平衡模式或低电量），省电时不使用100毫秒档位
+     * @param performanceTiming 性能测试是否在等待起步或计时（见 {@link DragTimer#needsFastUpdates()}）
+     * @param currentTime 当前时间（毫秒）
+     * @return 更新间隔或最小距离是否发生变化
+     */
+    public boolean update(float speed, boolean stationary, boolean gpsConnected, boolean lowBattery,
+                          boolean performanceTiming, long currentTime) {
+        long oldInterval = getIntervalMillis();
+        float oldMinDistance = getMinDistanceMeters();
+        this.lowBattery = lowBattery;
+        this.performanceTiming = performanceTiming;
+        tier = nextTier(speed, stationary, gpsConnected, currentTime);
+        return oldInterval != getIntervalMillis() || oldMinDistance != getMinDistanceMeters();
+    }
+
+    private int nextTier(float speed, boolean stationary, boolean gpsConnected, long currentTime) {
+        if (!gpsConnected) {
+            steadySince = -1;
+            stationarySince = -1;
+            return TIER_SEARCHING;
+        }
+
+        if (performanceTiming) {
+            steadySince = -1;
+            stationarySince = -1;
+            return TIER_FAST;
+        }
+
+        if (stationary) {
+            steadySince = -1;
+            if (stationarySince < 0) {
+                stationarySince = currentTime;
+            }
+            if (tier == TIER_STATIONARY || currentTime - stationarySince >= STATIONARY_ENTER_TIME) {
+                return TIER_STATIONARY;
+            }
+            return TIER_FAST;
+        }
+        stationarySince = -1;
+
+        if (tier == TIER_CRUISE) {
+            // 速度明显变化或降到低速，立即恢复高频
+            if (Math.abs(speed - cruiseReferenceSpeed) > CRUISE_EXIT_DEVIATION || speed < CRUISE_MIN_SPEED) {
+                steadySince = -1;
+                return TIER_FAST;
+            }
+            return TIER_CRUISE;
+        }
+
+        if (speed < CRUISE_MIN_SPEED) {
+            steadySince = -1;
+            return TIER_FAST;
+        }
+        if (steadySince < 0 || Math.abs(speed - cruiseReferenceSpeed) > CRUISE_ENTER_DEVIATION) {
+            // 重新开始计时，以当前速度为参考
+            steadySince = currentTime;
+            cruiseReferenceSpeed = speed;
+            return TIER_FAST;
+        }
+        return currentTime - steadySince >= CRUISE_ENTER_TIME ? TIER_CRUISE : TIER_FAST;
+    }
+
+    public int getTier() {
+        return tier;
+    }
+
+    /**
+     * @return 当前档位的更新间隔（毫秒）
+     */
+    public long getIntervalMillis() {
+        switch (tier) {
+            case TIER_FAST:
+                return lowBattery && !performanceTiming ? INTERVAL_CRUISE : INTERVAL_FAST;
+            case TIER_CRUISE:
+                return INTERVAL_CRUISE;
+            case TIER_STATIONARY:
+                return INTERVAL_STATIONARY;
+            default:
+                return INTERVAL_SEARCHING;
+        }
+    }
+
+    /**
+     * @return 当前档位的最小距离（米）
+     */
+    public float getMinDistanceMeters() {
+        return tier == TIER_STATIONARY ? MIN_DISTANCE_STATIONARY : 0;
+    }
+
+    public void reset() {
+        tier = TIER_SEARCHING;
+        steadySince = -1;
+        stationarySince = -1;
+    }
+}
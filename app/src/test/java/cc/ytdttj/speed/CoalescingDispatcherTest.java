@@ -0,0 +1,113 @@
+package cc.ytdttj.speed;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 事件合并分发器测试
+ */
+public class CoalescingDispatcherTest {
+
+    /**
+     * 手动推进时间的调度器，同一时间最多一个待执行的回调
+     */
+    private static final class ManualScheduler implements CoalescingDispatcher.Scheduler {
+        long now = 0;
+        Runnable pending;
+        long dueTime;
+        int postCount = 0;
+
+        @Override
+        public void postDelayed(Runnable runnable, long delayMillis) {
+            assertNull("不应重复投递", pending);
+            pending = runnable;
+            dueTime = now + delayMillis;
+            postCount++;
+        }
+
+        @Override
+        public void removeCallbacks(Runnable runnable) {
+            if (pending == runnable) {
+                pending = null;
+            }
+        }
+
+        @Override
+        public long now() {
+            return now;
+        }
+
+        void advanceTo(long time) {
+            while (pending != null && dueTime <= time) {
+                now = dueTime;
+                Runnable runnable = pending;
+                pending = null;
+                runnable.run();
+            }
+            now = time;
+        }
+    }
+
+    @Test
+    public void burst_isDispatchedOnceAfterSettle() {
+        ManualScheduler scheduler = new ManualScheduler();
+        int[] dispatched = {0};
+        CoalescingDispatcher dispatcher = new CoalescingDispatcher(scheduler, () -> {
+            dispatched[0]++;
+            return true;
+        }, 1500, 3000);
+
+        for (int i = 0; i < 5; i++) {
+            scheduler.advanceTo(i * 100);
+            dispatcher.submit();
+        }
+        scheduler.advanceTo(10000);
+
+        assertEquals(1, dispatched[0]);
+        assertEquals(5, dispatcher.getEventCount());
+        assertEquals(4, dispatcher.getCoalescedCount());
+        assertEquals(1, dispatcher.getDispatchCount());
+        // 5个事件只投递了两次回调（首次和一次推迟）
+        assertTrue(scheduler.postCount <= 2);
+    }
+
+    @Test
+    public void continuousEvents_areDispatchedWithinMaxLatency() {
+        ManualScheduler scheduler = new ManualScheduler();
+        long[] dispatchTimes = new long[100];
+        int[] count = {0};
+        CoalescingDispatcher dispatcher = new CoalescingDispatcher(scheduler, () -> {
+            dispatchTimes[count[0]++] = scheduler.now;
+            return true;
+        }, 1500, 3000);
+
+        // 1Hz持续变化，旧的去抖动方式永远不会触发
+        for (long t = 0; t <= 30000; t += 1000) {
+            scheduler.advanceTo(t);
+            dispatcher.submit();
+        }
+
+        assertTrue("持续变化时也要定期分发", count[0] >= 9);
+        for (int i = 1; i < count[0]; i++) {
+            assertTrue(dispatchTimes[i] - dispatchTimes[i - 1] <= 3000 + 1000);
+        }
+    }
+
+    @Test
+    public void rejectedAndCancelledEvents_areCountedAsDropped() {
+        ManualScheduler scheduler = new ManualScheduler();
+        CoalescingDispatcher dispatcher = new CoalescingDispatcher(scheduler, () -> false, 1500, 3000);
+
+        dispatcher.submit();
+        dispatcher.submit();
+        scheduler.advanceTo(2000);
+        assertEquals(2, dispatcher.getDroppedCount());
+        assertEquals(0, dispatcher.getDispatchCount());
+
+        dispatcher.submit();
+        dispatcher.cancel();
+        assertNull(scheduler.pending);
+        assertEquals(3, dispatcher.getDroppedCount());
+    }
+}
@@ -0,0 +1,72 @@
+package cc.ytdttj.speed;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * 距离计算测试：短距离局部投影与Vincenty公式的误差
+ */
+public class DistanceKernelTest {
+
+    private static final double[] LATITUDES = {0, 31.2304, 45, 60, 75, -33.87};
+
+    @Test
+    public void shortHop_matchesVincenty() {
+        for (double latitude : LATITUDES) {
+            for (double hop : new double[]{1e-5, 1e-4, 1e-3, 0.01, 0.049}) {
+                double lon = 121.4737;
+                double expected = DistanceKernel.vincenty(latitude, lon, latitude + hop * 0.6, lon + hop);
+                double actual = DistanceKernel.distance(latitude, lon, latitude + hop * 0.6, lon + hop);
+                assertEquals("lat=" + latitude + " hop=" + hop, expected, actual, expected * 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void longGap_usesVincenty() {
+        // 上海到北京
+        double actual = DistanceKernel.distance(31.2304, 121.4737, 39.9042, 116.4074);
+        assertEquals(DistanceKernel.vincenty(31.2304, 121.4737, 39.9042, 116.4074), actual, 0);
+        assertEquals(1067000, actual, 2000);
+    }
+
+    @Test
+    public void antimeridian_isShortHop() {
+        double actual = DistanceKernel.distance(0, 179.9999, 0, -179.9999);
+        assertEquals(22.26, actual, 0.01);
+        assertEquals(0, DistanceKernel.distance(31.2304, 121.4737, 31.2304, 121.4737), 0);
+    }
+
+    @Test
+    public void longTrace_totalDistanceDriftIsNegligible() throws IOException {
+        // 2小时高速行驶，逐点累积约7万个100ms定位点
+        SyntheticTrace trace = new SyntheticTrace(11, 33, 7200000, 0);
+        TraceReplayer.Event event = new TraceReplayer.Event();
+        FixRecord previous = new FixRecord();
+        boolean hasPrevious = false;
+        double kernelTotal = 0;
+        double vincentyTotal = 0;
+        int hops = 0;
+        while (trace.next(event)) {
+            if (event.type != TraceReplayer.Event.TYPE_FIX || event.fix.provider != FixRecord.PROVIDER_GPS) {
+                continue;
+            }
+            if (hasPrevious) {
+                kernelTotal += DistanceKernel.distance(previous, event.fix);
+                vincentyTotal += DistanceKernel.vincenty(previous.latitude, previous.longitude,
+                        event.fix.latitude, event.fix.longitude);
+                hops++;
+            }
+            previous.set(event.fix);
+            hasPrevious = true;
+        }
+
+        assertTrue(hops > 70000);
+        assertTrue(vincentyTotal > 200000);
+        // 总距离偏差小于1米
+        assertEquals(vincentyTotal, kernelTotal, 1.0);
+    }
+}
@@ -0,0 +1,118 @@
+package cc.ytdttj.speed;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 多普勒测速求解测试：用合成的卫星几何和伪距率检查求解结果
+ */
+public class DopplerVelocitySolverTest {
+
+    private static final double LATITUDE = 31.2304;
+    private static final double LONGITUDE = 121.4737;
+    private static final double RANGE = 22000000; // 接收机到卫星的距离（米）
+    private static final double CLOCK_DRIFT = 120.0; // 接收机钟漂（米/秒）
+
+    // 卫星方位角/仰角（度）
+    private static final double[][] SKY = {
+            {10, 70}, {75, 35}, {140, 50}, {200, 25}, {255, 60}, {310, 30}, {30, 20}, {170, 15}
+    };
+
+    /**
+     * 按给定的接收机速度合成一个历元的观测
+     * @param errorIndex 加入粗差的观测序号，-1表示没有
+     */
+    private static void addSky(DopplerVelocitySolver solver, double speed, double bearing, long seed, int errorIndex) {
+        Random random = new Random(seed);
+        double phi = Math.toRadians(LATITUDE);
+        double lambda = Math.toRadians(LONGITUDE);
+        double[] e = {-Math.sin(lambda), Math.cos(lambda), 0};
+        double[] n = {-Math.sin(phi) * Math.cos(lambda), -Math.sin(phi) * Math.sin(lambda), Math.cos(phi)};
+        double[] u = {Math.cos(phi) * Math.cos(lambda), Math.cos(phi) * Math.sin(lambda), Math.sin(phi)};
+        double radius = 6378137.0 / Math.sqrt(1 - 6.69437999014e-3 * Math.sin(phi) * Math.sin(phi));
+        double[] receiver = {radius * u[0], radius * u[1], radius * (1 - 6.69437999014e-3) * Math.sin(phi)};
+
+        double ve = speed * Math.sin(Math.toRadians(bearing));
+        double vn = speed * Math.cos(Math.toRadians(bearing));
+        double[] vr = new double[3];
+        for (int k = 0; k < 3; k++) {
+            vr[k] = ve * e[k] + vn * n[k];
+        }
+
+        for (int i = 0; i < SKY.length; i++) {
+            double az = Math.toRadians(SKY[i][0]);
+            double el = Math.toRadians(SKY[i][1]);
+            double[] los = new double[3];
+            double[] sat = new double[3];
+            double[] vs = new double[3];
+            for (int k = 0; k < 3; k++) {
+                los[k] = Math.cos(el) * Math.sin(az) * e[k] + Math.cos(el) * Math.cos(az) * n[k] + Math.sin(el) * u[k];
+                sat[k] = receiver[k] + RANGE * los[k];
+                vs[k] = (random.nextDouble() - 0.5) * 6000;
+            }
+            double satDrift = (random.nextDouble() - 0.5) * 2;
+            double rate = 0;
+            for (int k = 0; k < 3; k++) {
+                rate += (vs[k] - vr[k]) * los[k];
+            }
+            rate += CLOCK_DRIFT - satDrift + random.nextGaussian() * 0.05;
+            if (i == errorIndex) {
+                rate += 8; // 多路径
+            }
+            solver.addMeasurement(sat[0], sat[1], sat[2], vs[0], vs[1], vs[2], satDrift, rate, 0.05);
+        }
+    }
+
+    @Test
+    public void solve_recoversReceiverVelocity() {
+        DopplerVelocitySolver solver = new DopplerVelocitySolver();
+        solver.begin(LATITUDE, LONGITUDE, 0);
+        addSky(solver, 25, 30, 1, -1);
+
+        assertTrue(solver.solve());
+        assertEquals(SKY.length, solver.getUsedCount());
+        assertEquals(25, solver.getSpeed(), 0.1);
+        assertEquals(30, solver.getBearing(), 0.5);
+        assertEquals(0, solver.getVelocityUp(), 0.3);
+        assertEquals(CLOCK_DRIFT, solver.getClockDrift(), 0.2);
+        assertTrue(solver.getSpeedUncertainty() > 0 && solver.getSpeedUncertainty() < 0.2);
+    }
+
+    @Test
+    public void outlier_isRejected() {
+        DopplerVelocitySolver solver = new DopplerVelocitySolver();
+        solver.begin(LATITUDE, LONGITUDE, 0);
+        addSky(solver, 12, 250, 2, 2);
+
+        assertTrue(solver.solve());
+        assertEquals(1, solver.getRejectedCount());
+        assertEquals(12, solver.getSpeed(), 0.15);
+        assertEquals(250, solver.getBearing(), 1);
+    }
+
+    @Test
+    public void solverIsReusedAcrossEpochs() {
+        DopplerVelocitySolver solver = new DopplerVelocitySolver();
+        for (int epoch = 0; epoch < 20; epoch++) {
+            // 急刹车：每个历元速度下降2 m/s，多普勒速度没有平滑滞后
+            double speed = 40 - 2 * epoch;
+            solver.begin(LATITUDE, LONGITUDE, 0);
+            addSky(solver, speed, 90, epoch, -1);
+            assertTrue(solver.solve());
+            assertEquals(speed, solver.getSpeed(), 0.1);
+        }
+    }
+
+    @Test
+    public void lowElevationAndTooFewSatellites_areRejected() {
+        DopplerVelocitySolver solver = new DopplerVelocitySolver();
+        solver.begin(LATITUDE, LONGITUDE, 0);
+        // 地平线以下的卫星不被采用
+        assertFalse(solver.addMeasurement(0, 0, 0, 0, 0, 0, 0, 0, 0.1));
+        assertEquals(0, solver.getMeasurementCount());
+        assertFalse(solver.solve());
+    }
+}
@@ -0,0 +1,131 @@
+package cc.ytdttj.speed;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 性能测试计时：定位点间隔100ms时，插值结果应精确到几毫秒
+ */
+public class DragTimerTest {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final long FIX_INTERVAL = 100 * NANOS_PER_MILLI;
+
+    @Test
+    public void constantAcceleration_isTimedToMilliseconds() {
+        Random random = new Random(1);
+        for (int run = 0; run < 20; run++) {
+            // 起步时刻随机落在两个定位点之间
+            long launch = 5000 * NANOS_PER_MILLI + random.nextInt(100) * NANOS_PER_MILLI;
+            DragTimer timer = runProfile(launch, 4.0, 0, random);
+
+            assertEquals(DragTimer.STATE_FINISHED, timer.getState());
+            assertEquals(DragTimer.SPEED_100 / 4.0, timer.getZeroTo100Nanos() / 1e9, 0.003);
+            assertEquals((DragTimer.SPEED_200 - DragTimer.SPEED_100) / 4.0, timer.getHundredTo200Nanos() / 1e9, 0.003);
+            assertEquals(Math.sqrt(2 * 400 / 4.0), timer.getDistance400Nanos() / 1e9, 0.003);
+            assertEquals(Math.sqrt(2 * 400 * 4.0), timer.getTrapSpeed400(), 0.05);
+        }
+    }
+
+    @Test
+    public void fadingAcceleration_isTimedToMilliseconds() {
+        Random random = new Random(2);
+        // 加速度随时间线性减小：a(t) = 8 - 0.3t
+        long launch = 5030 * NANOS_PER_MILLI;
+        DragTimer timer = runProfile(launch, 8.0, 0.3, random);
+
+        double t100 = solveSpeed(8.0, 0.3, DragTimer.SPEED_100);
+        double t200 = solveSpeed(8.0, 0.3, DragTimer.SPEED_200);
+        double t400 = solveDistance(8.0, 0.3, 400);
+        assertEquals(t100, timer.getZeroTo100Nanos() / 1e9, 0.005);
+        assertEquals(t200 - t100, timer.getHundredTo200Nanos() / 1e9, 0.005);
+        assertEquals(t400, timer.getDistance400Nanos() / 1e9, 0.005);
+    }
+
+    @Test
+    public void noStandstill_doesNotArm() {
+        DragTimer timer = new DragTimer();
+        timer.setEnabled(true);
+        FixRecord fix = new FixRecord();
+        fix.hasSpeed = true;
+        for (int i = 0; i < 100; i++) {
+            fix.elapsedRealtimeNanos = i * FIX_INTERVAL;
+            fix.speed = 10 + i * 0.5f;
+            timer.onFix(fix);
+        }
+
+        assertEquals(DragTimer.STATE_WAITING, timer.getState());
+        assertEquals(0, timer.getRunCount());
+    }
+
+    @Test
+    public void stoppingEarly_finishesWithPartialResult() {
+        DragTimer timer = new DragTimer();
+        timer.setEnabled(true);
+        FixRecord fix = new FixRecord();
+        fix.hasSpeed = true;
+        long time = 0;
+        for (int i = 0; i < 20; i++) {
+            fix.elapsedRealtimeNanos = time += FIX_INTERVAL;
+            fix.speed = 0;
+            timer.onFix(fix);
+        }
+        assertEquals(DragTimer.STATE_ARMED, timer.getState());
+
+        // 加速到约36km/h后刹车
+        for (int i = 1; i <= 20; i++) {
+            fix.elapsedRealtimeNanos = time += FIX_INTERVAL;
+            fix.speed = i * 0.5f;
+            timer.onFix(fix);
+        }
+        assertEquals(DragTimer.STATE_RUNNING, timer.getState());
+        fix.elapsedRealtimeNanos = time + FIX_INTERVAL;
+        fix.speed = 0;
+        timer.onFix(fix);
+
+        assertEquals(DragTimer.STATE_FINISHED, timer.getState());
+        assertEquals(1, timer.getRunCount());
+        assertEquals(0, timer.getZeroTo100Nanos());
+        assertEquals(0, timer.getDistance400Nanos());
+    }
+
+    /**
+     * 按加速度 a(t) = a0 - k·t 生成10Hz定位点（定位时刻有±2ms抖动），起步前静止5秒
+     */
+    private static DragTimer runProfile(long launchNanos, double a0, double k, Random random) {
+        DragTimer timer = new DragTimer();
+        timer.setEnabled(true);
+        FixRecord fix = new FixRecord();
+        fix.hasSpeed = true;
+        for (int i = 0; i < 600 && timer.getState() != DragTimer.STATE_FINISHED; i++) {
+            long nanos = i * FIX_INTERVAL + (random.nextInt(5) - 2) * NANOS_PER_MILLI;
+            double t = Math.max(0, (nanos - launchNanos) / 1e9);
+            fix.elapsedRealtimeNanos = nanos;
+            fix.speed = (float) (a0 * t - 0.5 * k * t * t);
+            timer.onFix(fix);
+        }
+        return timer;
+    }
+
+    private static double solveSpeed(double a0, double k, double speed) {
+        // a0·t - k·t²/2 = v
+        return (a0 - Math.sqrt(a0 * a0 - 2 * k * speed)) / k;
+    }
+
+    private static double solveDistance(double a0, double k, double distance) {
+        double lo = 0;
+        double hi = 60;
+        for (int i = 0; i < 100; i++) {
+            double t = (lo + hi) / 2;
+            if (a0 * t * t / 2 - k * t * t * t / 6 < distance) {
+                lo = t;
+            } else {
+                hi = t;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,176 @@
+package cc.ytdttj.speed;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 卡尔曼滤波融合测试
+ */
+public class KalmanFusionFilterTest {
+
+    private static final long START = 1700000000000L;
+    private static final double LATITUDE = 31.2304;
+    private static final double LONGITUDE = 121.4737;
+    private static final double METERS_PER_DEGREE = Math.toRadians(6371008.8);
+
+    @Test
+    public void constantVelocity_converges() {
+        KalmanFusionFilter filter = new KalmanFusionFilter();
+        Random random = new Random(1);
+        FixRecord estimate = new FixRecord();
+        // 以15m/s向东北行驶30秒，10Hz的GPS位置误差3米、速度误差0.3m/s
+        double speed = 15;
+        double bearing = 45;
+        for (int i = 0; i <= 300; i++) {
+            double distance = speed * i / 10.0;
+            double east = distance * Math.sin(Math.toRadians(bearing));
+            double north = distance * Math.cos(Math.toRadians(bearing));
+            filter.update(fix(FixRecord.PROVIDER_GPS, START + i * 100L,
+                    east + random.nextGaussian() * 3, north + random.nextGaussian() * 3, 3,
+                    speed + random.nextGaussian() * 0.3, bearing + random.nextGaussian()), false);
+            filter.getEstimate(estimate);
+            if (i == 300) {
+                assertEquals(0, distanceTo(estimate, east, north), 1.5);
+            }
+        }
+
+        assertEquals(FixRecord.PROVIDER_FUSED, estimate.provider);
+        assertEquals(START + 30000, estimate.time);
+        assertEquals(speed, estimate.speed, 0.2);
+        assertEquals(bearing, estimate.bearing, 2);
+        // 估计的精度好于单个定位点
+        assertTrue(estimate.accuracy < 3);
+    }
+
+    @Test
+    public void networkFix_isWeightedBelowGps() {
+        // 同样偏离100米，精度50米的网络定位对估计的影响远小于精度5米的GPS定位
+        double networkShift = shiftAfterOutlier(FixRecord.PROVIDER_NETWORK, 50);
+        double gpsShift = shiftAfterOutlier(FixRecord.PROVIDER_GPS, 5);
+
+        assertTrue("网络定位偏移: " + networkShift, networkShift < 5);
+        assertTrue("GPS定位偏移: " + gpsShift, gpsShift > networkShift * 10);
+    }
+
+    @Test
+    public void stationary_forcesZeroVelocity() {
+        KalmanFusionFilter filter = new KalmanFusionFilter();
+        FixRecord estimate = new FixRecord();
+        filter.update(fix(FixRecord.PROVIDER_GPS, START, 0, 0, 5, 5, 0), false);
+        filter.getEstimate(estimate);
+        assertEquals(5, estimate.speed, 0.01);
+
+        // 没有速度信息的定位点只有零速观测约束速度
+        for (int i = 1; i <= 3; i++) {
+            FixRecord fix = fix(FixRecord.PROVIDER_GPS, START + i * 1000L, 0, 0, 5, 0, 0);
+            fix.hasSpeed = false;
+            fix.hasBearing = false;
+            filter.update(fix, true);
+        }
+        filter.getEstimate(estimate);
+        assertEquals(0, estimate.speed, 0.1);
+        assertTrue(estimate.speedAccuracy < 0.1);
+    }
+
+    @Test
+    public void longGap_reinitializes() {
+        FixRecord estimate = new FixRecord();
+        long time = START + 4900 + KalmanFusionFilter.MAX_PREDICT_GAP;
+
+        // 间隔不超过上限时只做预测和更新，估计不会跳到新的定位点上
+        KalmanFusionFilter continued = drivingEast();
+        continued.update(fix(FixRecord.PROVIDER_GPS, time, 1000, 1000, 5, 3, 0), false);
+        continued.getEstimate(estimate);
+        assertTrue(distanceTo(estimate, 1000, 1000) > 1);
+
+        // 超过上限后直接使用新的定位点重新初始化
+        KalmanFusionFilter filter = drivingEast();
+        filter.update(fix(FixRecord.PROVIDER_GPS, time + 1, 1000, 1000, 5, 3, 0), false);
+        filter.getEstimate(estimate);
+        assertEquals(0, distanceTo(estimate, 1000, 1000), 0.01);
+        assertEquals(3, estimate.speed, 1e-4);
+        assertEquals(5, estimate.accuracy, 1e-4);
+        assertEquals(time + 1, estimate.time);
+    }
+
+    @Test
+    public void recenter_keepsEstimatedPosition() {
+        KalmanFusionFilter filter = new KalmanFusionFilter();
+        FixRecord before = new FixRecord();
+        FixRecord after = new FixRecord();
+        for (int i = 0; i < 20; i++) {
+            filter.update(fix(FixRecord.PROVIDER_GPS, START + i * 100L, 5000 + i * 3.0, 4000, 5, 30, 90), false);
+        }
+        filter.getEstimate(before);
+        filter.recenter();
+        filter.getEstimate(after);
+
+        assertEquals(before.latitude, after.latitude, 1e-9);
+        assertEquals(before.longitude, after.longitude, 1e-9);
+        assertEquals(before.speed, after.speed, 0f);
+        assertEquals(before.accuracy, after.accuracy, 0f);
+    }
+
+    @Test
+    public void longDrive_crossesOriginLimitWithoutJump() {
+        KalmanFusionFilter filter = new KalmanFusionFilter();
+        FixRecord estimate = new FixRecord();
+        // 以30m/s向东行驶超过原点偏移上限，每一步的估计都紧跟定位点
+        int steps = (int) (KalmanFusionFilter.MAX_ORIGIN_OFFSET * 1.5 / 3);
+        double maxError = 0;
+        for (int i = 0; i <= steps; i++) {
+            filter.update(fix(FixRecord.PROVIDER_GPS, START + i * 100L, i * 3.0, 0, 3, 30, 90), false);
+            filter.getEstimate(estimate);
+            maxError = Math.max(maxError, distanceTo(estimate, i * 3.0, 0));
+        }
+
+        assertTrue("最大误差: " + maxError + " 米", maxError < 0.5);
+        assertEquals(30, estimate.speed, 0.01);
+    }
+
+    private static double shiftAfterOutlier(int provider, float accuracy) {
+        KalmanFusionFilter filter = new KalmanFusionFilter();
+        for (int i = 0; i < 50; i++) {
+            filter.update(fix(FixRecord.PROVIDER_GPS, START + i * 100L, 0, 0, 5, 0, 0), false);
+        }
+        filter.update(fix(provider, START + 5000, 100, 0, accuracy, 0, 0), false);
+        FixRecord estimate = new FixRecord();
+        filter.getEstimate(estimate);
+        return distanceTo(estimate, 0, 0);
+    }
+
+    /**
+     * @return 以20m/s向东行驶5秒后的滤波器
+     */
+    private static KalmanFusionFilter drivingEast() {
+        KalmanFusionFilter filter = new KalmanFusionFilter();
+        for (int i = 0; i < 50; i++) {
+            filter.update(fix(FixRecord.PROVIDER_GPS, START + i * 100L, i * 2.0, 0, 5, 20, 90), false);
+        }
+        return filter;
+    }
+
+    private static FixRecord fix(int provider, long time, double east, double north, float accuracy,
+                                 double speed, double bearing) {
+        FixRecord fix = new FixRecord();
+        fix.provider = provider;
+        fix.time = time;
+        fix.latitude = LATITUDE + north / METERS_PER_DEGREE;
+        fix.longitude = LONGITUDE + east / (METERS_PER_DEGREE * Math.cos(Math.toRadians(LATITUDE)));
+        fix.accuracy = accuracy;
+        fix.hasSpeed = true;
+        fix.speed = (float) speed;
+        fix.hasBearing = true;
+        fix.bearing = (float) ((bearing + 360) % 360);
+        return fix;
+    }
+
+    private static double distanceTo(FixRecord fix, double east, double north) {
+        double dNorth = (fix.latitude - LATITUDE) * METERS_PER_DEGREE - north;
+        double dEast = (fix.longitude - LONGITUDE) * METERS_PER_DEGREE * Math.cos(Math.toRadians(LATITUDE)) - east;
+        return Math.sqrt(dNorth * dNorth + dEast * dEast);
+    }
+}
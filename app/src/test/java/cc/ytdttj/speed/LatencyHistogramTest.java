@@ -0,0 +1,80 @@
+package cc.ytdttj.speed;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 无锁延迟直方图测试
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketBounds_areContinuous() {
+        for (int i = 1; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            long lower = LatencyHistogram.bucketLowerBound(i);
+            assertTrue(lower > LatencyHistogram.bucketLowerBound(i - 1));
+            assertEquals(i, LatencyHistogram.bucketIndex(lower));
+            assertEquals(i - 1, LatencyHistogram.bucketIndex(lower - 1));
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE / 1000));
+    }
+
+    @Test
+    public void percentiles_matchSortedSamplesWithinBucketError() {
+        Random random = new Random(4);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] samples = new long[10000];
+        for (int i = 0; i < samples.length; i++) {
+            // 对数正态分布，中位数约50ms
+            samples[i] = (long) (Math.exp(Math.log(50e6) + random.nextGaussian() * 0.8));
+            histogram.record(samples[i]);
+        }
+        Arrays.sort(samples);
+
+        assertEquals(samples.length, histogram.getCount());
+        for (double percentile : new double[]{50, 90, 99}) {
+            long expected = samples[(int) Math.ceil(samples.length * percentile / 100) - 1] / 1000;
+            assertEquals(expected, histogram.getPercentileMicros(percentile), expected * 0.07);
+        }
+        assertEquals(samples[samples.length - 1] / 1000, histogram.getMaxMicros());
+        assertEquals(histogram.getMaxMicros(), histogram.getPercentileMicros(100));
+    }
+
+    @Test
+    public void concurrentRecords_areNotLost() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final long latency = (t + 1) * 1000000L;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100000; i++) {
+                    histogram.record(latency);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400000, histogram.getCount());
+        assertEquals(4000, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void negativeAndEmpty_areIgnored() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentileMicros(50));
+        histogram.record(-5);
+        assertEquals(0, histogram.getCount());
+
+        histogram.record(3000);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxMicros());
+    }
+}
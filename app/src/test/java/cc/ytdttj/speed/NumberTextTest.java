@@ -0,0 +1,55 @@
+package cc.ytdttj.speed;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 数字文本缓冲区测试
+ */
+public class NumberTextTest {
+
+    @Test
+    public void format_matchesStringFormat() {
+        NumberText text = new NumberText(32, '.');
+        float[] values = {0f, 0.004f, 0.005f, 1.25f, 9.995f, 12.345f, 99.96f, 123.456f, 1234.5f};
+        for (float value : values) {
+            text.clear().appendFixed(value, 2).append(" km");
+            text.commit();
+            assertEquals(String.format(java.util.Locale.ROOT, "%.2f km", value), text.toString());
+
+            text.clear().appendFixed(value, 1).append(" km/h");
+            text.commit();
+            assertEquals(String.format(java.util.Locale.ROOT, "%.1f km/h", value), text.toString());
+        }
+    }
+
+    @Test
+    public void appendPadded_formatsTime() {
+        NumberText text = new NumberText(16, '.');
+        text.clear().appendPadded(1, 2).append(':').appendPadded(5, 2).append(':').appendPadded(59, 2);
+        text.commit();
+        assertEquals("01:05:59", text.toString());
+
+        text.clear().appendPadded(123, 2).append(' ').append(-7);
+        text.commit();
+        assertEquals("123 -7", text.toString());
+    }
+
+    @Test
+    public void commit_skipsUnchangedContent() {
+        NumberText text = new NumberText(8, ',');
+        assertTrue(text.clear().appendFixed(3.14159, 2).commit());
+        assertEquals("3,14", text.toString());
+        char[] shown = text.getChars();
+
+        assertFalse(text.clear().appendFixed(3.1449, 2).commit());
+        assertTrue(text.clear().appendFixed(3.146, 2).commit());
+        assertSame(shown, text.getChars());
+        assertEquals("3,15", text.toString());
+
+        // 长度变化也要刷新
+        assertTrue(text.clear().appendFixed(3.146, 1).commit());
+        assertEquals("3,1", text.toString());
+    }
+}
@@ -0,0 +1,155 @@
+package cc.ytdttj.speed;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+/**
+ * 定位处理计数和决策日志测试
+ */
+public class PipelineMetricsTest {
+
+    private static final long START = 1700000000000L;
+    // 约1米的纬度差
+    private static final double METER = 1.0 / 111000;
+
+    @Before
+    public void setUp() {
+        PipelineMetrics.reset();
+    }
+
+    @Test
+    public void invalidFixes_areCountedByRule() {
+        LocationEngine engine = new LocationEngine();
+        FixRecord fix = gpsFix(START, 0, 10);
+        fix.latitude = 0;
+        fix.longitude = 0;
+        assertFalse(engine.process(fix, START));
+        fix = gpsFix(START, 0, 10);
+        fix.accuracy = 150;
+        assertFalse(engine.process(fix, START));
+        assertFalse(engine.process(gpsFix(START - 20000, 0, 10), START));
+        assertFalse(engine.process(gpsFix(START, 0, 100), START));
+
+        assertEquals(4, PipelineMetrics.getCount(PipelineMetrics.FIX_GPS));
+        assertEquals(1, PipelineMetrics.getCount(PipelineMetrics.REJECT_NO_POSITION));
+        assertEquals(1, PipelineMetrics.getCount(PipelineMetrics.REJECT_ACCURACY));
+        assertEquals(1, PipelineMetrics.getCount(PipelineMetrics.REJECT_STALE));
+        assertEquals(1, PipelineMetrics.getCount(PipelineMetrics.REJECT_SPEED));
+
+        // 日志按发生顺序保存，数值为被拒绝的原因对应的量
+        long[] entry = new long[3];
+        assertEquals(4, PipelineMetrics.getLogSequence());
+        assertTrue(PipelineMetrics.readLog(1, entry));
+        assertEquals(PipelineMetrics.REJECT_ACCURACY | FixRecord.PROVIDER_GPS << 8, entry[1]);
+        assertEquals(150f, Float.intBitsToFloat((int) entry[2]), 0f);
+        assertTrue(PipelineMetrics.readLog(2, entry));
+        assertEquals(20000f, Float.intBitsToFloat((int) entry[2]), 0f);
+    }
+
+    @Test
+    public void stationaryLock_isRecordedOnTransitions() {
+        LocationEngine engine = new LocationEngine();
+        // 原地不动、精度没有提高的点被当作漂移丢弃
+        for (int i = 0; i < 10; i++) {
+            engine.process(gpsFix(START + i * 100L, 0, 0.1f), START + i * 100L);
+        }
+        assertEquals(9, PipelineMetrics.getCount(PipelineMetrics.REJECT_DRIFT));
+        // 低速来回漂移超过静止半径，3秒后锁定静止，然后起步
+        for (int i = 10; i <= 50; i++) {
+            engine.process(gpsFix(START + i * 100L, (i % 2) * 6 * METER, 0.1f), START + i * 100L);
+        }
+        assertTrue(engine.isStationary());
+        engine.process(gpsFix(START + 5100, 30 * METER, 5), START + 5100);
+
+        assertEquals(1, PipelineMetrics.getCount(PipelineMetrics.STATIONARY_LOCK));
+        assertEquals(1, PipelineMetrics.getCount(PipelineMetrics.STATIONARY_RELEASE));
+        assertFalse(engine.isStationary());
+    }
+
+    @Test
+    public void distanceDecisions_areCountedByReason() {
+        TripRecorder recorder = new TripRecorder();
+        recorder.start(0);
+        recorder.onLocationUpdated(gpsFix(START, 0, 10));
+        // 距离太短
+        recorder.onLocationUpdated(gpsFix(START + 1000, 1 * METER, 10));
+        // 精度太差
+        FixRecord inaccurate = gpsFix(START + 2000, 30 * METER, 10);
+        inaccurate.accuracy = 20;
+        recorder.onLocationUpdated(inaccurate);
+        // 正常移动
+        recorder.onLocationUpdated(gpsFix(START + 3000, 30 * METER, 10));
+
+        assertEquals(1, PipelineMetrics.getCount(PipelineMetrics.DISTANCE_REJECT_SHORT));
+        assertEquals(1, PipelineMetrics.getCount(PipelineMetrics.DISTANCE_REJECT_ACCURACY));
+        assertEquals(1, PipelineMetrics.getCount(PipelineMetrics.DISTANCE_ACCEPT));
+    }
+
+    @Test
+    public void log_keepsNewestEntriesAndDumps() {
+        int total = PipelineMetrics.LOG_CAPACITY + 1000;
+        for (int i = 0; i < total; i++) {
+            PipelineMetrics.record(PipelineMetrics.PROVIDER_REQUEST, FixRecord.PROVIDER_NETWORK, START + i, i);
+        }
+
+        long[] entry = new long[3];
+        assertFalse(PipelineMetrics.readLog(999, entry));
+        assertTrue(PipelineMetrics.readLog(1000, entry));
+        assertEquals(START + 1000, entry[0]);
+        assertEquals(total, PipelineMetrics.getCount(PipelineMetrics.PROVIDER_REQUEST));
+
+        StringWriter text = new StringWriter();
+        PipelineMetrics.dump(new PrintWriter(text), 10);
+        String dump = text.toString();
+        assertTrue(dump.contains("注册提供者: " + total));
+        assertTrue(dump.contains("网络 注册提供者 " + (total - 1) + ".0"));
+    }
+
+    @Test
+    public void concurrentReads_neverSeeTornEntries() throws InterruptedException {
+        // 每条记录的时间、事件和数值都由同一个k决定，读到不一致的组合说明记录只写了一半
+        int total = 2000000;
+        Thread writer = new Thread(() -> {
+            for (int k = 1; k <= total; k++) {
+                PipelineMetrics.record(k % PipelineMetrics.EVENT_COUNT, FixRecord.PROVIDER_GPS, k, k);
+            }
+        });
+        writer.start();
+
+        long[] entry = new long[3];
+        long complete = 0;
+        while (writer.isAlive()) {
+            // 只读最旧的几条：这些位置正在或即将被写入方覆盖（最新领取的序号可能还在写入中）
+            long start = Math.max(0, PipelineMetrics.getLogSequence() - 1 - PipelineMetrics.LOG_CAPACITY);
+            for (long sequence = start; sequence < start + 64; sequence++) {
+                if (!PipelineMetrics.readLog(sequence, entry)) {
+                    continue;
+                }
+                long k = entry[0];
+                assertEquals(sequence + 1, k);
+                assertEquals(k % PipelineMetrics.EVENT_COUNT | FixRecord.PROVIDER_GPS << 8, entry[1]);
+                assertEquals((float) k, Float.intBitsToFloat((int) entry[2]), 0f);
+                complete++;
+            }
+        }
+        writer.join();
+        assertTrue(complete > 0);
+    }
+
+    private static FixRecord gpsFix(long time, double latitudeOffset, float speed) {
+        FixRecord fix = new FixRecord();
+        fix.provider = FixRecord.PROVIDER_GPS;
+        fix.latitude = 31.2 + latitudeOffset;
+        fix.longitude = 121.4;
+        fix.accuracy = 5;
+        fix.hasSpeed = true;
+        fix.speed = speed;
+        fix.time = time;
+        return fix;
+    }
+}
@@ -0,0 +1,53 @@
+package cc.ytdttj.speed;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 省电判断测试
+ */
+public class PowerSavingPolicyTest {
+
+    @Test
+    public void lowBattery_crossesThresholdOnceWithHysteresis() {
+        PowerSavingPolicy policy = new PowerSavingPolicy();
+        assertFalse(policy.update(50, false));
+        assertFalse(policy.update(20, false));
+        assertTrue(policy.update(19, false));
+        assertTrue(policy.isLowBattery());
+
+        // 在阈值附近波动不反复切换
+        assertFalse(policy.update(20, false));
+        assertFalse(policy.update(19, false));
+        assertFalse(policy.update(21, false));
+        assertTrue(policy.isPowerSaving());
+
+        assertTrue(policy.update(PowerSavingPolicy.LOW_BATTERY_THRESHOLD + PowerSavingPolicy.RECOVERY_MARGIN, false));
+        assertFalse(policy.isPowerSaving());
+    }
+
+    @Test
+    public void powerSaveMode_forcesPowerSaving() {
+        PowerSavingPolicy policy = new PowerSavingPolicy();
+        policy.update(80, false);
+        assertTrue(policy.update(80, true));
+        assertTrue(policy.isPowerSaving());
+        assertFalse(policy.isLowBattery());
+
+        // 省电模式和低电量同时存在时，退出其中一个不改变判断
+        assertFalse(policy.update(10, true));
+        assertFalse(policy.update(10, false));
+        assertTrue(policy.update(30, false));
+    }
+
+    @Test
+    public void unknownLevel_keepsPreviousState() {
+        PowerSavingPolicy policy = new PowerSavingPolicy();
+        assertEquals(-1, policy.getLevel());
+        policy.update(15, false);
+        assertFalse(policy.update(-1, false));
+        assertEquals(15, policy.getLevel());
+        assertTrue(policy.isLowBattery());
+    }
+}
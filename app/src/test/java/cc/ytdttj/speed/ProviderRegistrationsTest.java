@@ -0,0 +1,59 @@
+package cc.ytdttj.speed;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 定位提供者注册比较测试
+ */
+public class ProviderRegistrationsTest {
+
+    @Test
+    public void unchangedConfiguration_needsNoAction() {
+        ProviderRegistrations registrations = new ProviderRegistrations();
+        assertEquals(ProviderRegistrations.ACTION_REQUEST, registrations.diff(ProviderRegistrations.GPS, true, 100, 0, 0));
+        registrations.onRequested(ProviderRegistrations.GPS, 100, 0, 0);
+        registrations.onRequested(ProviderRegistrations.NETWORK, 500, 0, 0);
+
+        assertEquals(ProviderRegistrations.ACTION_NONE, registrations.diff(ProviderRegistrations.GPS, true, 100, 0, 0));
+        assertEquals(ProviderRegistrations.ACTION_NONE, registrations.diff(ProviderRegistrations.NETWORK, true, 500, 0, 0));
+    }
+
+    @Test
+    public void changedInterval_onlyTouchesThatProvider() {
+        ProviderRegistrations registrations = new ProviderRegistrations();
+        registrations.onRequested(ProviderRegistrations.GPS, 100, 0, 0);
+        registrations.onRequested(ProviderRegistrations.NETWORK, 500, 0, 0);
+
+        assertEquals(ProviderRegistrations.ACTION_REQUEST, registrations.diff(ProviderRegistrations.GPS, true, 5000, 5, 0));
+        assertEquals(ProviderRegistrations.ACTION_NONE, registrations.diff(ProviderRegistrations.NETWORK, true, 500, 0, 0));
+        registrations.onRequested(ProviderRegistrations.GPS, 5000, 5, 0);
+        assertEquals(5000, registrations.getIntervalMillis(ProviderRegistrations.GPS));
+        assertTrue(registrations.isActive(ProviderRegistrations.NETWORK));
+        assertEquals(0, registrations.getRemoveCount());
+    }
+
+    @Test
+    public void batchDelayChange_requiresRequest() {
+        ProviderRegistrations registrations = new ProviderRegistrations();
+        registrations.onRequested(ProviderRegistrations.GPS, 1000, 0, 0);
+
+        assertEquals(ProviderRegistrations.ACTION_REQUEST, registrations.diff(ProviderRegistrations.GPS, true, 1000, 0, 60000));
+        registrations.onRequested(ProviderRegistrations.GPS, 1000, 0, 60000);
+        assertEquals(ProviderRegistrations.ACTION_NONE, registrations.diff(ProviderRegistrations.GPS, true, 1000, 0, 60000));
+        assertEquals(60000, registrations.getMaxUpdateDelayMillis(ProviderRegistrations.GPS));
+    }
+
+    @Test
+    public void disabledProvider_isRemovedOnce() {
+        ProviderRegistrations registrations = new ProviderRegistrations();
+        assertEquals(ProviderRegistrations.ACTION_NONE, registrations.diff(ProviderRegistrations.NETWORK, false, 500, 0, 0));
+        registrations.onRequested(ProviderRegistrations.NETWORK, 500, 0, 0);
+
+        assertEquals(ProviderRegistrations.ACTION_REMOVE, registrations.diff(ProviderRegistrations.NETWORK, false, 500, 0, 0));
+        registrations.onRemoved(ProviderRegistrations.NETWORK);
+        assertEquals(ProviderRegistrations.ACTION_NONE, registrations.diff(ProviderRegistrations.NETWORK, false, 500, 0, 0));
+        assertEquals(ProviderRegistrations.ACTION_REQUEST, registrations.diff(ProviderRegistrations.NETWORK, true, 500, 0, 0));
+    }
+}
@@ -0,0 +1,112 @@
+package cc.ytdttj.speed;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 滑动窗口速度统计测试
+ */
+public class RollingSpeedStatsTest {
+
+    private static final long START = 1700000000000L;
+
+    @Test
+    public void constantSpeed_allStatsEqual() {
+        RollingSpeedStats stats = new RollingSpeedStats();
+        for (int i = 0; i < 1200; i++) {
+            stats.update(START + i * 100L, 15f);
+        }
+
+        assertEquals(15f, stats.getShortAverage(), 1e-4f);
+        assertEquals(15f, stats.getLongAverage(), 1e-4f);
+        assertEquals(0f, stats.getAcceleration(), 1e-4f);
+        assertEquals(15f, stats.getMaxSpeed(), 0f);
+        assertEquals(15f, stats.getMinSpeed(), 0f);
+        assertTrue(stats.getSampleCount() <= 602);
+    }
+
+    @Test
+    public void linearAcceleration_averagesAndAcceleration() {
+        RollingSpeedStats stats = new RollingSpeedStats();
+        // 2m/s²匀加速30秒
+        for (int i = 0; i <= 300; i++) {
+            stats.update(START + i * 100L, i * 0.2f);
+        }
+
+        // 最近10秒（20-30秒）平均速度为25秒时的速度
+        assertEquals(50f, stats.getShortAverage(), 1e-3f);
+        // 不足60秒时按已有的30秒计算
+        assertEquals(30f, stats.getLongAverage(), 1e-3f);
+        assertEquals(2f, stats.getAcceleration(), 1e-3f);
+        assertEquals(60f, stats.getMaxSpeed(), 1e-4f);
+        assertEquals(0f, stats.getMinSpeed(), 0f);
+    }
+
+    @Test
+    public void irregularIntervals_areTimeWeighted() {
+        RollingSpeedStats stats = new RollingSpeedStats();
+        // 9秒内保持10m/s（只有两个点），然后1秒内保持20m/s（10个点）
+        stats.update(START, 10f);
+        stats.update(START + 9000, 10f);
+        for (int i = 1; i <= 10; i++) {
+            stats.update(START + 9000 + i * 100L, 20f);
+        }
+
+        // (9秒×10 + 0.1秒×15 + 0.9秒×20) / 10秒 = 10.95m/s，而不是按点数平均的约18m/s
+        assertEquals(10.95f, stats.getShortAverage(), 1e-3f);
+    }
+
+    @Test
+    public void rollingMaxMin_expireAfterWindow() {
+        RollingSpeedStats stats = new RollingSpeedStats();
+        stats.update(START, 40f);
+        for (int i = 1; i <= 700; i++) {
+            stats.update(START + i * 100L, 10f + (i % 10));
+        }
+
+        // 40m/s的点已超过60秒
+        assertEquals(19f, stats.getMaxSpeed(), 0f);
+        assertEquals(10f, stats.getMinSpeed(), 0f);
+    }
+
+    @Test
+    public void randomSpeeds_matchBruteForce() {
+        Random random = new Random(5);
+        RollingSpeedStats stats = new RollingSpeedStats();
+        int n = 5000;
+        long[] times = new long[n];
+        float[] speeds = new float[n];
+        long time = START;
+        for (int i = 0; i < n; i++) {
+            time += 50 + random.nextInt(200);
+            times[i] = time;
+            speeds[i] = random.nextFloat() * 30;
+            stats.update(time, speeds[i]);
+
+            if (i % 97 == 0) {
+                float max = 0;
+                float min = Float.MAX_VALUE;
+                for (int k = i; k >= 0 && times[k] >= time - RollingSpeedStats.LONG_WINDOW; k--) {
+                    max = Math.max(max, speeds[k]);
+                    min = Math.min(min, speeds[k]);
+                }
+                assertEquals(max, stats.getMaxSpeed(), 0f);
+                assertEquals(min, stats.getMinSpeed(), 0f);
+            }
+        }
+    }
+
+    @Test
+    public void duplicateTime_isIgnored() {
+        RollingSpeedStats stats = new RollingSpeedStats();
+        stats.update(START, 10f);
+        stats.update(START + 100, 10f);
+        stats.update(START + 100, 50f);
+
+        assertEquals(10f, stats.getMaxSpeed(), 0f);
+        assertEquals(10f, stats.getShortAverage(), 1e-4f);
+    }
+}
@@ -0,0 +1,38 @@
+package cc.ytdttj.speed;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 设置快照测试
+ */
+public class SettingsSnapshotTest {
+
+    @Test
+    public void displayOnlyChanges_keepLocationConfig() {
+        SettingsSnapshot base = SettingsSnapshot.DEFAULT;
+        SettingsSnapshot smooth = new SettingsSnapshot(SettingsSnapshot.MODE_HIGH_ACCURACY, false, true, false, true);
+
+        assertFalse(base.equals(smooth));
+        assertTrue(base.hasSameLocationConfig(smooth));
+    }
+
+    @Test
+    public void locationChanges_changeLocationConfig() {
+        SettingsSnapshot base = SettingsSnapshot.DEFAULT;
+
+        assertFalse(base.hasSameLocationConfig(new SettingsSnapshot(SettingsSnapshot.MODE_BALANCED, false, false, false, false)));
+        assertFalse(base.hasSameLocationConfig(new SettingsSnapshot(SettingsSnapshot.MODE_HIGH_ACCURACY, true, false, false, false)));
+        assertFalse(base.hasSameLocationConfig(new SettingsSnapshot(SettingsSnapshot.MODE_HIGH_ACCURACY, false, false, true, false)));
+    }
+
+    @Test
+    public void equalSettings_areEqual() {
+        SettingsSnapshot a = new SettingsSnapshot(SettingsSnapshot.MODE_BALANCED, true, false, true, false);
+        SettingsSnapshot b = new SettingsSnapshot(SettingsSnapshot.MODE_BALANCED, true, false, true, false);
+
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+    }
+}
@@ -0,0 +1,81 @@
+package cc.ytdttj.speed;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 信号质量模型测试
+ */
+public class SignalQualityModelTest {
+
+    private static final double L1 = 1575.42e6;
+    private static final double L5 = 1176.45e6;
+
+    @Test
+    public void strongSatellites_scoreLikeSatelliteCount() {
+        SignalQualityModel model = new SignalQualityModel();
+        model.begin();
+        for (int i = 0; i < 6; i++) {
+            model.add(SignalQualityModel.CONSTELLATION_GPS, i + 1, 42, 45, L1, true);
+        }
+        model.add(SignalQualityModel.CONSTELLATION_GPS, 20, 42, 45, L1, false); // 未参与定位
+
+        assertEquals(60, model.evaluate());
+        assertEquals(SignalQualityModel.scoreForSatelliteCount(6), model.getScore());
+        assertEquals(6, model.getUsedCount());
+        assertEquals(42, model.getTop4Cn0(), 0.01);
+    }
+
+    @Test
+    public void weakSignals_scoreLowerThanTheirCount() {
+        SignalQualityModel model = new SignalQualityModel();
+        model.begin();
+        // 城市峡谷：8颗卫星参与定位，但C/N0都很低
+        for (int i = 0; i < 8; i++) {
+            model.add(SignalQualityModel.CONSTELLATION_BEIDOU, i + 1, 24, 30, 1561.098e6, true);
+        }
+        int score = model.evaluate();
+        assertTrue("弱信号分数应低于连接阈值: " + score, score < 40);
+        assertEquals(8, model.getUsedCount(SignalQualityModel.CONSTELLATION_BEIDOU));
+
+        // GpsConnectionMonitor 使用同一分数判断连接
+        GpsConnectionMonitor monitor = new GpsConnectionMonitor();
+        monitor.updateScore(score, 0);
+        assertFalse(monitor.hasStableConnection());
+    }
+
+    @Test
+    public void secondFrequency_isNotCountedAsNewSatellite() {
+        SignalQualityModel model = new SignalQualityModel();
+        model.begin();
+        for (int i = 0; i < 4; i++) {
+            model.add(SignalQualityModel.CONSTELLATION_GALILEO, i + 1, 40, 50, L1, true);
+            model.add(SignalQualityModel.CONSTELLATION_GALILEO, i + 1, 38, 50, L5, true);
+        }
+        model.evaluate();
+        assertEquals(4, model.getUsedCount());
+        assertEquals(5.0, model.getEffectiveSatellites(), 0.01);
+        assertEquals(50, model.getScore());
+    }
+
+    @Test
+    public void lowElevation_isDiscounted() {
+        SignalQualityModel model = new SignalQualityModel();
+        model.begin();
+        model.add(SignalQualityModel.CONSTELLATION_GPS, 1, 40, 5, L1, true);
+        model.add(SignalQualityModel.CONSTELLATION_GLONASS, 2, 40, 60, 1602e6, true);
+        model.evaluate();
+        assertEquals(1.6, model.getEffectiveSatellites(), 0.01);
+        assertEquals(40, model.getMeanCn0(SignalQualityModel.CONSTELLATION_GLONASS), 0.01);
+    }
+
+    @Test
+    public void levels_followScore() {
+        assertEquals(0, SignalQualityModel.levelForScore(0));
+        assertEquals(1, SignalQualityModel.levelForScore(15));
+        assertEquals(2, SignalQualityModel.levelForScore(40));
+        assertEquals(3, SignalQualityModel.levelForScore(75));
+        assertEquals(4, SignalQualityModel.levelForScore(100));
+    }
+}
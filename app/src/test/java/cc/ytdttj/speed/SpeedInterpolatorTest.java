@@ -0,0 +1,87 @@
+package cc.ytdttj.speed;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 速度插值测试
+ */
+public class SpeedInterpolatorTest {
+
+    private static final long SECOND = 1000000000L;
+    private static final long FRAME = SECOND / 60;
+
+    @Test
+    public void constantAcceleration_isExtrapolatedBetweenFixes() {
+        SpeedInterpolator interpolator = new SpeedInterpolator();
+        // 1Hz定位，每秒加速5 km/h
+        for (int i = 0; i <= 10; i++) {
+            interpolator.update(20 + 5 * i, i * SECOND, i * SECOND);
+        }
+        assertEquals(5, interpolator.getAcceleration(), 0.5);
+        // 两次定位中间的目标速度应接近真实速度，而不是停留在上次定位的值
+        assertEquals(72.5, interpolator.getTargetSpeed(10 * SECOND + SECOND / 2), 1.0);
+    }
+
+    @Test
+    public void displayedSpeed_movesSmoothlyEveryFrame() {
+        SpeedInterpolator interpolator = new SpeedInterpolator();
+        interpolator.update(50, 0, 0);
+        interpolator.valueAt(0);
+        interpolator.update(60, SECOND, SECOND);
+
+        float previous = interpolator.valueAt(SECOND);
+        for (long t = SECOND + FRAME; t < 2 * SECOND; t += FRAME) {
+            float value = interpolator.valueAt(t);
+            assertTrue("显示速度应单调上升", value >= previous);
+            assertTrue("每帧变化应很小", value - previous < 3);
+            previous = value;
+        }
+    }
+
+    @Test
+    public void stationary_settlesAtZero() {
+        SpeedInterpolator interpolator = new SpeedInterpolator();
+        interpolator.update(30, 0, 0);
+        interpolator.update(20, SECOND, SECOND);
+        assertFalse(interpolator.isSettled());
+
+        interpolator.update(0, 2 * SECOND, 2 * SECOND);
+        long t = 2 * SECOND;
+        while (!interpolator.isSettled() && t < 4 * SECOND) {
+            assertTrue(interpolator.valueAt(t) >= 0);
+            t += FRAME;
+        }
+        assertTrue(interpolator.isSettled());
+        assertEquals(0f, interpolator.valueAt(t), 0f);
+    }
+
+    @Test
+    public void repeatedFix_doesNotChangeEstimate() {
+        SpeedInterpolator interpolator = new SpeedInterpolator();
+        // 1Hz定位，每秒减速20 km/h；主线程收到定位比定位时刻晚50ms
+        for (int i = 0; i <= 4; i++) {
+            assertTrue(interpolator.update(100 - 20 * i, i * SECOND, i * SECOND + SECOND / 20));
+        }
+        float acceleration = interpolator.getAcceleration();
+        float target = interpolator.getTargetSpeed(4 * SECOND + SECOND / 2);
+
+        // 3ms后计圈又发布了同一个定位点的快照
+        assertFalse(interpolator.update(20, 4 * SECOND, 4 * SECOND + SECOND / 20 + 3000000));
+        assertEquals(acceleration, interpolator.getAcceleration(), 0f);
+        assertEquals(target, interpolator.getTargetSpeed(4 * SECOND + SECOND / 2), 0f);
+    }
+
+    @Test
+    public void extrapolation_isBoundedWhenFixesStop() {
+        SpeedInterpolator interpolator = new SpeedInterpolator();
+        for (int i = 0; i <= 5; i++) {
+            interpolator.update(100 - 10 * i, i * SECOND, i * SECOND);
+        }
+        // 定位中断很久后也不会外推成负数或无限减小
+        float far = interpolator.getTargetSpeed(60 * SECOND);
+        assertEquals(interpolator.getTargetSpeed(6 * SECOND), far, 0f);
+        assertTrue(far >= 0);
+    }
+}
@@ -0,0 +1,200 @@
+package cc.ytdttj.speed;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 分段与计圈统计测试
+ */
+public class SplitEngineTest {
+
+    private static final long START = 1700000000000L;
+
+    @Test
+    public void constantSpeed_splitsAndBestWindows() {
+        SplitEngine engine = new SplitEngine();
+        // 10m/s，每100ms一个点，共6分钟
+        for (int i = 0; i <= 3600; i++) {
+            engine.onSample(START + i * 100L, i == 0 ? 0 : 1.0);
+        }
+
+        assertEquals(3, engine.getSplitCount());
+        assertEquals(100000, engine.getSplitTime(0));
+        assertEquals(100000, engine.getSplitTime(2));
+        assertEquals(100000, engine.getBestSplitTime());
+        assertEquals(100000, engine.getBestDistanceWindowTime());
+        assertEquals(3000, engine.getBestTimeWindowDistance(), 1e-6);
+    }
+
+    @Test
+    public void fastSegment_isFoundAtAnyOffset() {
+        SplitEngine engine = new SplitEngine();
+        // 10m/s行驶500米，20m/s行驶1500米，再10m/s行驶1000米
+        long time = START;
+        engine.onSample(time, 0);
+        for (int i = 0; i < 3000; i++) {
+            double speed = i >= 500 && i < 2000 ? 20 : 10;
+            time += Math.round(1000 / speed);
+            engine.onSample(time, 1.0);
+        }
+
+        // 最快1公里完全落在高速段：50秒
+        assertEquals(50000, engine.getBestDistanceWindowTime());
+        // 整公里分段：第1段 50+25秒，第2段50秒，第3段 100秒
+        assertEquals(75000, engine.getSplitTime(0));
+        assertEquals(50000, engine.getSplitTime(1));
+        assertEquals(100000, engine.getSplitTime(2));
+        assertEquals(50000, engine.getBestSplitTime());
+    }
+
+    @Test
+    public void splitTime_isInterpolatedBetweenFixes() {
+        SplitEngine engine = new SplitEngine();
+        engine.onSample(START, 0);
+        engine.onSample(START + 60000, 900);
+        // 下一个点跨过1公里：按距离比例插值出跨越时刻
+        engine.onSample(START + 62000, 200);
+
+        assertEquals(1, engine.getSplitCount());
+        assertEquals(60000 + 1000, engine.getSplitTime(0));
+    }
+
+    @Test
+    public void pause_excludesTime() {
+        SplitEngine engine = new SplitEngine();
+        engine.onSample(START, 0);
+        engine.onSample(START + 30000, 300);
+        engine.pause();
+        engine.onSample(START + 600000, 0);
+        engine.onSample(START + 630000, 300);
+
+        assertEquals(60000, engine.getActiveTime());
+        assertEquals(600, engine.getDistance(), 1e-9);
+    }
+
+    @Test
+    public void laps_recordTimeAndDistance() {
+        SplitEngine engine = new SplitEngine();
+        engine.onSample(START, 0);
+        engine.onSample(START + 40000, 400);
+        assertEquals(40000, engine.lap());
+        engine.onSample(START + 70000, 450);
+        engine.lap();
+
+        assertEquals(2, engine.getLapCount());
+        assertEquals(40000, engine.getLapTime(0));
+        assertEquals(400, engine.getLapDistance(0), 1e-9);
+        assertEquals(30000, engine.getLastLapTime());
+        assertEquals(450, engine.getLapDistance(1), 1e-9);
+        assertEquals(0, engine.getCurrentLapTime());
+    }
+
+    @Test
+    public void randomTrace_matchesBruteForce() {
+        Random random = new Random(9);
+        int n = 20000;
+        long[] times = new long[n];
+        double[] distances = new double[n];
+        SplitEngine engine = new SplitEngine();
+        long time = START;
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            double delta = 0;
+            if (i > 0) {
+                time += 100;
+                // 时走时停，停车时不累积距离
+                delta = (i / 3000) % 2 == 1 && random.nextInt(4) == 0 ? 0 : random.nextDouble() * 4;
+                if ((i / 1000) % 5 == 4) {
+                    delta = 0;
+                }
+            }
+            total += delta;
+            engine.onSample(time, delta);
+            times[i] = time - START;
+            distances[i] = total;
+        }
+
+        // 只在样本点上取窗口终点，用二分查找插值起点
+        long best1km = 0;
+        double best5min = 0;
+        for (int j = 0; j < n; j++) {
+            if (distances[j] >= 1000) {
+                double start = interpolateTime(times, distances, distances[j] - 1000);
+                long window = Math.round(times[j] - start);
+                if (best1km == 0 || window < best1km) {
+                    best1km = window;
+                }
+            }
+            if (times[j] >= SplitEngine.BEST_TIME_WINDOW) {
+                best5min = Math.max(best5min, distances[j] - interpolateDistance(times, distances, times[j] - SplitEngine.BEST_TIME_WINDOW));
+            }
+        }
+
+        assertEquals(best1km, engine.getBestDistanceWindowTime(), 1);
+        assertEquals(best5min, engine.getBestTimeWindowDistance(), 1e-6);
+    }
+
+    @Test
+    public void dayLongSession_hasBoundedMemory() {
+        SplitEngine engine = new SplitEngine();
+        Random random = new Random(3);
+        long time = START;
+        int maxSamples = 0;
+        // 24小时、10Hz，每半小时停车10分钟
+        for (int i = 0; i < 24 * 3600 * 10; i++) {
+            time += 100;
+            boolean stopped = (i / 6000) % 3 == 2 && (i % 18000) >= 12000;
+            engine.onSample(time, stopped ? 0 : 2 + random.nextDouble());
+            maxSamples = Math.max(maxSamples, engine.getSampleCount());
+        }
+
+        assertTrue(maxSamples <= SplitEngine.CAPACITY);
+        assertTrue(engine.getSplitCount() > 1000);
+        assertEquals(Math.min(engine.getSplitCount(), SplitEngine.MAX_RECORDS) > 0, engine.getLastSplitTime() > 0);
+    }
+
+    private static double interpolateTime(long[] times, double[] distances, double target) {
+        int i = lastAtOrBelow(distances, target);
+        if (i + 1 >= distances.length || distances[i + 1] == distances[i]) {
+            return times[i];
+        }
+        return times[i] + (times[i + 1] - times[i]) * (target - distances[i]) / (distances[i + 1] - distances[i]);
+    }
+
+    private static double interpolateDistance(long[] times, double[] distances, long target) {
+        int lo = 0;
+        int hi = times.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (times[mid] <= target) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (lo + 1 >= times.length) {
+            return distances[lo];
+        }
+        return distances[lo] + (distances[lo + 1] - distances[lo]) * (target - times[lo]) / (times[lo + 1] - times[lo]);
+    }
+
+    /**
+     * @return 距离不超过目标值的最后一个样本
+     */
+    private static int lastAtOrBelow(double[] distances, double target) {
+        int lo = 0;
+        int hi = distances.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (distances[mid] <= target) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,297 @@
+package cc.ytdttj.speed;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * 轨迹回放测试：通过真实的处理路径验证过滤、静止检测和距离累积
+ */
+public class TraceReplayTest {
+
+    @Test
+    public void replay_isDeterministic() throws IOException {
+        ReplayPipeline first = replay(new SyntheticTrace(42, 15, 120000, 0));
+        ReplayPipeline second = replay(new SyntheticTrace(42, 15, 120000, 0));
+
+        assertEquals(first.getAcceptedFixCount(), second.getAcceptedFixCount());
+        assertEquals(first.getTripRecorder().getTotalDistance(), second.getTripRecorder().getTotalDistance(), 0f);
+        assertEquals(first.getTripRecorder().getMaxSpeed(), second.getTripRecorder().getMaxSpeed(), 0f);
+    }
+
+    @Test
+    public void distance_matchesGroundTruth() throws IOException {
+        SyntheticTrace trace = new SyntheticTrace(7, 15, 300000, 0);
+        ReplayPipeline pipeline = replay(trace);
+
+        double expected = trace.getTrueDistance(trace.getDuration());
+        double actual = pipeline.getTripRecorder().getTotalDistance() * 1000;
+        assertEquals(expected, actual, expected * 0.05);
+        assertEquals(15 * 3.6, pipeline.getTripRecorder().getMaxSpeed(), 4);
+    }
+
+    @Test
+    public void stationaryJitter_isNotAccumulated() throws IOException {
+        ReplayPipeline pipeline = replay(new SyntheticTrace(3, 0, 60000, 0));
+
+        assertEquals(0f, pipeline.getTripRecorder().getTotalDistance(), 0f);
+        assertTrue(pipeline.getLocationEngine().isStationary());
+        assertEquals(0f, pipeline.getLocationEngine().getBestFix().speed, 0f);
+    }
+
+    @Test
+    public void invalidFixes_areRejected() throws IOException {
+        long now = SyntheticTrace.START_TIME;
+        FixRecord[] fixes = new FixRecord[4];
+        for (int i = 0; i < fixes.length; i++) {
+            fixes[i] = new FixRecord();
+            fixes[i].provider = FixRecord.PROVIDER_GPS;
+            fixes[i].latitude = 31.2304;
+            fixes[i].longitude = 121.4737;
+            fixes[i].accuracy = 5;
+            fixes[i].time = now;
+        }
+        fixes[0].accuracy = 150; // 精度太差
+        fixes[1].hasSpeed = true;
+        fixes[1].speed = 100; // 超过300km/h
+        fixes[2].time = now - 20000; // 过时
+        fixes[3].latitude = 0; // 无效坐标
+        fixes[3].longitude = 0;
+
+        int[] index = {0};
+        TraceReplayer.Source source = out -> {
+            if (index[0] >= fixes.length) {
+                return false;
+            }
+            out.type = TraceReplayer.Event.TYPE_FIX;
+            out.time = now;
+            out.fix.set(fixes[index[0]++]);
+            return true;
+        };
+
+        ReplayPipeline pipeline = new ReplayPipeline();
+        assertTrue(new TraceReplayer(TraceReplayer.SPEED_MAX).run(source, pipeline));
+        assertEquals(4, pipeline.getRejectedFixCount());
+        assertEquals(0, pipeline.getAcceptedFixCount());
+    }
+
+    @Test
+    public void shortTunnel_keepsGpsConnected() throws IOException {
+        ReplayPipeline pipeline = new ReplayPipeline();
+        boolean[] disconnected = {false};
+        TraceReplayer.Target target = new TraceReplayer.Target() {
+            @Override
+            public void onFix(FixRecord fix, long currentTime) {
+                pipeline.onFix(fix, currentTime);
+            }
+
+            @Override
+            public void onSatelliteStatus(int satellitesInFix, int satelliteCount, long currentTime) {
+                boolean wasConnected = pipeline.getConnectionMonitor().isConnected();
+                pipeline.onSatelliteStatus(satellitesInFix, satelliteCount, currentTime);
+                if (wasConnected && !pipeline.getConnectionMonitor().isConnected()) {
+                    disconnected[0] = true;
+                }
+            }
+        };
+
+        new TraceReplayer(TraceReplayer.SPEED_MAX).run(new SyntheticTrace(5, 20, 120000, 20000), target);
+        assertFalse(disconnected[0]);
+        assertTrue(pipeline.getConnectionMonitor().hasStableConnection());
+    }
+
+    @Test
+    public void longTunnel_dropsGpsConnection() throws IOException {
+        GpsConnectionMonitor monitor = new GpsConnectionMonitor();
+        assertTrue(monitor.update(8, 0));
+        assertTrue(monitor.hasStableConnection());
+        assertFalse(monitor.update(0, 29000));
+        assertTrue(monitor.isConnected());
+        assertTrue(monitor.update(0, 30000));
+        assertFalse(monitor.isConnected());
+    }
+
+    @Test
+    public void pacedReplay_followsTraceClock() throws IOException {
+        // 模拟时钟：等待时直接拨快，回放按轨迹时间的1/100精确推进
+        long[] now = {0};
+        TraceReplayer.Clock clock = new TraceReplayer.Clock() {
+            @Override
+            public long nanoTime() {
+                return now[0];
+            }
+
+            @Override
+            public void sleepNanos(long nanos) {
+                now[0] += nanos;
+            }
+        };
+        SyntheticTrace trace = new SyntheticTrace(1, 10, 0, 0);
+        TraceReplayer replayer = new TraceReplayer(100, clock);
+        long[] lateNanos = {0};
+        TraceReplayer.Target target = new TraceReplayer.Target() {
+            @Override
+            public void onFix(FixRecord fix, long currentTime) {
+                long dueNanos = (currentTime - SyntheticTrace.START_TIME) * 1000000L / 100;
+                lateNanos[0] = Math.max(lateNanos[0], Math.abs(now[0] - dueNanos));
+            }
+
+            @Override
+            public void onSatelliteStatus(int satellitesInFix, int satelliteCount, long currentTime) {
+            }
+        };
+        assertTrue(replayer.run(trace, target));
+
+        assertEquals(0, lateNanos[0]);
+        assertEquals(trace.getDuration() * 1000000L / 100, replayer.getElapsedNanos());
+    }
+
+    @Test
+    public void maxSpeedReplay_processesWholeTrace() throws IOException {
+        // 2小时行程，约7.4万个GPS定位点；吞吐量见 TraceReplayBenchmark
+        SyntheticTrace trace = new SyntheticTrace(11, 25, 7200000, 60000);
+        ReplayPipeline pipeline = new ReplayPipeline();
+        pipeline.getTripRecorder().start(0);
+        TraceReplayer replayer = new TraceReplayer(TraceReplayer.SPEED_MAX);
+        assertTrue(replayer.run(trace, pipeline));
+
+        assertEquals(replayer.getFixCount(), pipeline.getAcceptedFixCount() + pipeline.getRejectedFixCount());
+        assertTrue(replayer.getFixCount() > 70000);
+        assertEquals(trace.getTrueDistance(trace.getDuration()), pipeline.getTripRecorder().getTotalDistance() * 1000,
+                trace.getTrueDistance(trace.getDuration()) * 0.05);
+    }
+
+    @Test
+    public void batchedReplay_recordsSameDistance() throws IOException {
+        SyntheticTrace trace = new SyntheticTrace(7, 15, 300000, 0);
+        ReplayPipeline single = replay(new SyntheticTrace(7, 15, 300000, 0));
+
+        // 模拟GNSS批量模式：定位点缓存60秒后一次送达
+        ReplayPipeline batched = new ReplayPipeline();
+        batched.getTripRecorder().start(0);
+        FixRecord[] buffer = FixRecord.newArray(1000);
+        int[] count = {0};
+        long[] batchStart = {-1};
+        TraceReplayer.Target target = new TraceReplayer.Target() {
+            @Override
+            public void onFix(FixRecord fix, long currentTime) {
+                if (batchStart[0] < 0) {
+                    batchStart[0] = currentTime;
+                }
+                buffer[count[0]++].set(fix);
+                if (currentTime - batchStart[0] >= LocationEngine.MAX_BATCH_DELAY || count[0] == buffer.length) {
+                    batched.onFixBatch(buffer, count[0], currentTime);
+                    count[0] = 0;
+                    batchStart[0] = -1;
+                }
+            }
+
+            @Override
+            public void onSatelliteStatus(int satellitesInFix, int satelliteCount, long currentTime) {
+                batched.onSatelliteStatus(satellitesInFix, satelliteCount, currentTime);
+            }
+        };
+        assertTrue(new TraceReplayer(TraceReplayer.SPEED_MAX).run(trace, target));
+        batched.onFixBatch(buffer, count[0], trace.getDuration() + SyntheticTrace.START_TIME);
+
+        // 批量送达的点按自身时间检查，不会因为延迟被判为过时
+        double expected = single.getTripRecorder().getTotalDistance();
+        assertEquals(expected, batched.getTripRecorder().getTotalDistance(), expected * 0.02);
+        assertTrue(batched.getRecordedFixCount() > single.getRecordedFixCount() * 0.95);
+    }
+
+    @Test
+    public void performanceMode_keepsFastUpdatesWhileParked() throws IOException {
+        // 停车20秒（超过静止档位的10秒）后以4m/s²起步
+        long[] result = new long[2];
+        replayAtPolicyRate(true, result);
+
+        assertEquals(DragTimer.SPEED_100 / 4.0, result[0] / 1e9, 0.01);
+        assertTrue("性能测试时GPS间隔: " + result[1] + " ms", result[1] <= UpdateIntervalPolicy.INTERVAL_FAST);
+
+        // 对照：不开性能测试时停车后降到静止档位，起步后的定位点晚几秒才到
+        replayAtPolicyRate(false, result);
+        assertTrue(result[1] >= UpdateIntervalPolicy.INTERVAL_STATIONARY);
+    }
+
+    /**
+     * 回放一段停车后匀加速起步的轨迹，按调度策略当前的间隔和最小距离丢弃GPS定位点，模拟GPS芯片的实际上报
+     * @param result 输出：测得的0-100km/h时间（纳秒，性能测试关闭时为0）、
+     *               相邻两个送达的GPS定位点的最大间隔（毫秒）
+     */
+    private static void replayAtPolicyRate(boolean performanceMode, long[] result) throws IOException {
+        long parkTime = 20000;
+        double acceleration = 4;
+        long[] time = {0};
+        boolean[] satellitesSent = {false};
+        TraceReplayer.Source source = out -> {
+            long t = time[0];
+            if (t > parkTime + 10000) {
+                return false;
+            }
+            out.time = SyntheticTrace.START_TIME + t;
+            // 每秒一次卫星状态，在同一时刻的定位点之前
+            if (t % 1000 == 0 && !satellitesSent[0]) {
+                satellitesSent[0] = true;
+                out.type = TraceReplayer.Event.TYPE_SATELLITES;
+                out.satellitesInFix = 8;
+                out.satelliteCount = 20;
+                return true;
+            }
+            satellitesSent[0] = false;
+            time[0] += 100;
+            double seconds = Math.max(0, t - parkTime) / 1000.0;
+            // 停车时位置来回漂移6米（超过静止半径，不会被当作漂移丢弃），速度接近0
+            double north = 0.5 * acceleration * seconds * seconds + (t < parkTime ? (t / 100 % 2) * 6 : 0);
+            FixRecord fix = out.fix;
+            fix.clear();
+            fix.provider = FixRecord.PROVIDER_GPS;
+            fix.latitude = 31.2304 + north / 111000;
+            fix.longitude = 121.4737;
+            fix.accuracy = 5;
+            fix.hasSpeed = true;
+            fix.speed = t < parkTime ? 0.1f : (float) (acceleration * seconds);
+            fix.time = out.time;
+            out.type = TraceReplayer.Event.TYPE_FIX;
+            return true;
+        };
+
+        ReplayPipeline pipeline = new ReplayPipeline();
+        pipeline.getTripRecorder().setPerformanceMode(performanceMode);
+        DragTimer timer = pipeline.getTripRecorder().getDragTimer();
+        UpdateIntervalPolicy policy = pipeline.getIntervalPolicy();
+        FixRecord lastGps = new FixRecord();
+        result[1] = 0;
+        TraceReplayer.Target target = new TraceReplayer.Target() {
+            @Override
+            public void onFix(FixRecord fix, long currentTime) {
+                if (lastGps.time > 0) {
+                    // 留出半个定位周期的余量，100毫秒档位时每个点都送达
+                    if (currentTime - lastGps.time < policy.getIntervalMillis() - 50
+                            || DistanceKernel.distance(lastGps, fix) < policy.getMinDistanceMeters()) {
+                        return;
+                    }
+                    result[1] = Math.max(result[1], currentTime - lastGps.time);
+                }
+                lastGps.set(fix);
+                pipeline.onFix(fix, currentTime);
+            }
+
+            @Override
+            public void onSatelliteStatus(int satellitesInFix, int satelliteCount, long currentTime) {
+                pipeline.onSatelliteStatus(satellitesInFix, satelliteCount, currentTime);
+            }
+        };
+        assertTrue(new TraceReplayer(TraceReplayer.SPEED_MAX).run(source, target));
+        result[0] = timer.getZeroTo100Nanos();
+    }
+
+    private static ReplayPipeline replay(SyntheticTrace trace) throws IOException {
+        ReplayPipeline pipeline = new ReplayPipeline();
+        pipeline.getTripRecorder().start(0);
+        assertTrue(new TraceReplayer(TraceReplayer.SPEED_MAX).run(trace, pipeline));
+        return pipeline;
+    }
+}
@@ -0,0 +1,141 @@
+package cc.ytdttj.speed;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * 轨迹导出测试
+ */
+public class TrackExporterTest {
+
+    private static final long START_TIME = 1700000000000L; // 2023-11-14T22:13:20Z
+
+    @Test
+    public void csv_containsAllPoints() throws IOException {
+        File file = createJournal(3);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(3, new TrackExporter().export(file, out, TrackExporter.FORMAT_CSV));
+            String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+            assertEquals(4, lines.length);
+            assertEquals("time,latitude,longitude,speed_kmh,accuracy_m", lines[0]);
+            assertEquals("2023-11-14T22:13:20.000Z,31.2304000,121.4737000,0.0,3.5", lines[1]);
+            assertEquals("2023-11-14T22:13:20.100Z,31.2304100,121.4736900,0.4,4.5", lines[2]);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void gpxAndTcx_areWellFormed() throws IOException {
+        File file = createJournal(100);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new TrackExporter().export(file, out, TrackExporter.FORMAT_GPX);
+            String gpx = new String(out.toByteArray(), StandardCharsets.UTF_8);
+            assertTrue(gpx.contains("<trkpt lat=\"31.2304000\" lon=\"121.4737000\"><time>2023-11-14T22:13:20.000Z</time>"));
+            // 扩展元素不能在GPX的默认命名空间中
+            assertTrue(gpx.contains(" xmlns:gpxtpx=\"http://www.garmin.com/xmlschemas/TrackPointExtension/v2\""));
+            assertTrue(gpx.contains("<time>2023-11-14T22:13:20.100Z</time><extensions><gpxtpx:TrackPointExtension>"
+                    + "<gpxtpx:speed>0.10</gpxtpx:speed></gpxtpx:TrackPointExtension></extensions></trkpt>"));
+            assertFalse(gpx.contains("<speed>"));
+            assertTrue(gpx.endsWith("</gpx>\n"));
+
+            out.reset();
+            new TrackExporter().export(file, out, TrackExporter.FORMAT_TCX);
+            String tcx = new String(out.toByteArray(), StandardCharsets.UTF_8);
+            assertTrue(tcx.contains("<TotalTimeSeconds>9.9</TotalTimeSeconds>"));
+            assertEquals(100, tcx.split("<Trackpoint>", -1).length - 1);
+            assertTrue(tcx.endsWith("</TrainingCenterDatabase>\n"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void writeFixed_roundsAndSigns() throws IOException {
+        TrackExporter exporter = new TrackExporter();
+        StringWriter w = new StringWriter();
+        exporter.writeFixed(w, -33.86785, 4);
+        w.write(' ');
+        exporter.writeFixed(w, 0.05, 1);
+        w.write(' ');
+        exporter.writeFixed(w, -0.00001, 2);
+        w.write(' ');
+        exporter.writeFixed(w, 12.5, 0);
+        assertEquals("-33.8679 0.1 0.00 13", w.toString());
+    }
+
+    @Test
+    public void writeIsoTime_handlesLeapYears() throws IOException {
+        TrackExporter exporter = new TrackExporter();
+        StringWriter w = new StringWriter();
+        exporter.writeIsoTime(w, 951782400000L + 86399999L); // 2000-02-29 23:59:59.999
+        w.write(' ');
+        exporter.writeIsoTime(w, 0L);
+        assertEquals("2000-02-29T23:59:59.999Z 1970-01-01T00:00:00.000Z", w.toString());
+    }
+
+    @Test
+    public void throughput_oneMillionPoints() throws IOException {
+        int points = 1_000_000;
+        File file = createJournal(points);
+        try {
+            CountingOutputStream out = new CountingOutputStream();
+            TrackExporter exporter = new TrackExporter();
+            for (int format = TrackExporter.FORMAT_GPX; format <= TrackExporter.FORMAT_CSV; format++) {
+                long start = System.nanoTime();
+                assertEquals(points, exporter.export(file, out, format));
+                long elapsedMillis = (System.nanoTime() - start) / 1000000;
+                assertTrue("导出过慢: " + elapsedMillis + " ms", elapsedMillis < 10000);
+                out.count = 0;
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static File createJournal(int count) throws IOException {
+        File file = File.createTempFile("track", ".bin");
+        FixRecord fix = new FixRecord();
+        try (TrackJournal journal = TrackJournal.create(file, START_TIME)) {
+            for (int i = 0; i < count; i++) {
+                fix.clear();
+                fix.provider = FixRecord.PROVIDER_GPS;
+                fix.time = START_TIME + i * 100L;
+                fix.latitude = 31.2304 + i * 1e-5;
+                fix.longitude = 121.4737 - i * 1e-5;
+                fix.speed = (i % 400) / 10f;
+                fix.hasSpeed = true;
+                fix.accuracy = 3.5f + (i % 10);
+                journal.append(fix);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * 只统计字节数的输出流，避免测试本身占用大量内存
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package cc.ytdttj.speed;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+/**
+ * 轨迹日志读写测试
+ */
+public class TrackJournalTest {
+
+    private static final long START_TIME = 1700000000000L;
+
+    @Test
+    public void roundTrip_preservesFixes() throws IOException {
+        File file = File.createTempFile("track", ".bin");
+        try {
+            FixRecord fix = new FixRecord();
+            try (TrackJournal journal = TrackJournal.create(file, START_TIME)) {
+                for (int i = 0; i < 1000; i++) {
+                    fillFix(fix, i);
+                    journal.append(fix);
+                }
+            }
+
+            assertEquals(TrackJournal.HEADER_SIZE + 1000L * TrackJournal.RECORD_SIZE, file.length());
+
+            FixRecord expected = new FixRecord();
+            try (TrackJournalReader reader = TrackJournalReader.open(file)) {
+                assertEquals(START_TIME, reader.getStartTime());
+                assertEquals(1000, reader.getRecordCount());
+                for (int i = 0; i < 1000; i++) {
+                    assertTrue(reader.next(fix));
+                    fillFix(expected, i);
+                    assertEquals(expected.time, fix.time);
+                    assertEquals(expected.latitude, fix.latitude, 1e-7);
+                    assertEquals(expected.longitude, fix.longitude, 1e-7);
+                    assertEquals(expected.speed, fix.speed, 0.01f);
+                    assertEquals(expected.accuracy, fix.accuracy, 0.1f);
+                }
+                assertFalse(reader.next(fix));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void unflushedBatch_isOnlyLossAfterCrash() throws IOException {
+        File file = File.createTempFile("track", ".bin");
+        try {
+            FixRecord fix = new FixRecord();
+            TrackJournal journal = TrackJournal.create(file, START_TIME);
+            int written = TrackJournal.BATCH_RECORDS * 2 + 7;
+            for (int i = 0; i < written; i++) {
+                fillFix(fix, i);
+                journal.append(fix);
+            }
+            // 不关闭日志，模拟进程崩溃：只有完整的批次已写入磁盘
+            try (TrackJournalReader reader = TrackJournalReader.open(file)) {
+                assertEquals(TrackJournal.BATCH_RECORDS * 2, reader.getRecordCount());
+            }
+            journal.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void truncatedTail_isIgnored() throws IOException {
+        File file = File.createTempFile("track", ".bin");
+        try {
+            FixRecord fix = new FixRecord();
+            try (TrackJournal journal = TrackJournal.create(file, START_TIME)) {
+                for (int i = 0; i < 10; i++) {
+                    fillFix(fix, i);
+                    journal.append(fix);
+                }
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(raf.length() - 5);
+            }
+
+            int count = 0;
+            try (TrackJournalReader reader = TrackJournalReader.open(file)) {
+                while (reader.next(fix)) {
+                    count++;
+                }
+            }
+            assertEquals(9, count);
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void fillFix(FixRecord fix, int i) {
+        fix.clear();
+        fix.provider = FixRecord.PROVIDER_GPS;
+        fix.time = START_TIME + i * 100L;
+        fix.latitude = 31.2304 + i * 1e-5;
+        fix.longitude = 121.4737 - i * 1e-5;
+        fix.speed = (i % 400) / 10f;
+        fix.hasSpeed = true;
+        fix.accuracy = 3.5f + (i % 10);
+    }
+}
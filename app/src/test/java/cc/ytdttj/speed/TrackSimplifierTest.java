@@ -0,0 +1,171 @@
+package cc.ytdttj.speed;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 轨迹在线精简测试：丢弃比例和误差上限
+ */
+public class TrackSimplifierTest {
+
+    private static final double LATITUDE = 31.2304;
+    private static final double LONGITUDE = 121.4737;
+    private static final double METERS_PER_DEGREE = 111319.49;
+
+    @Test
+    public void straightLine_keepsEndpointsAndMaxInterval() {
+        TrackSimplifier simplifier = new TrackSimplifier();
+        List<FixRecord> kept = new ArrayList<>();
+        // 60秒、每100ms一个点，匀速20m/s向东
+        for (int i = 0; i <= 600; i++) {
+            offer(simplifier, fix(i * 100L, i * 2.0, 0, 20), kept);
+        }
+        flush(simplifier, kept);
+
+        assertEquals(0, kept.get(0).time);
+        assertEquals(60000, kept.get(kept.size() - 1).time);
+        assertTrue("kept " + kept.size(), kept.size() <= 4);
+        assertEquals(601, simplifier.getKeptCount() + simplifier.getDroppedCount());
+        assertTrue(simplifier.getKeptRatio() < 0.01);
+    }
+
+    @Test
+    public void turn_keepsCorner() {
+        TrackSimplifier simplifier = new TrackSimplifier();
+        List<FixRecord> kept = new ArrayList<>();
+        // 向东100米后向北100米
+        for (int i = 0; i <= 50; i++) {
+            offer(simplifier, fix(i * 100L, i * 2.0, 0, 20), kept);
+        }
+        for (int i = 1; i <= 50; i++) {
+            offer(simplifier, fix(5000 + i * 100L, 100, i * 2.0, 20), kept);
+        }
+        flush(simplifier, kept);
+
+        // 拐角后第一个点离东向直线正好2米，仍在容差内，也可以作为拐点
+        assertEquals(3, kept.size());
+        assertTrue("corner " + kept.get(1).time, kept.get(1).time == 5000 || kept.get(1).time == 5100);
+    }
+
+    @Test
+    public void speedChange_isKept() {
+        TrackSimplifier simplifier = new TrackSimplifier();
+        List<FixRecord> kept = new ArrayList<>();
+        // 匀速10秒后急刹车到0
+        double x = 0;
+        for (int i = 0; i <= 200; i++) {
+            double speed = i <= 100 ? 20 : Math.max(0, 20 - (i - 100) * 0.8);
+            x += speed * 0.1;
+            offer(simplifier, fix(i * 100L, x, 0, speed), kept);
+        }
+        flush(simplifier, kept);
+
+        // 只按位置判断时整条直线只保留两端，速度容差要求保留刹车开始和停止的点
+        assertTrue("kept " + kept.size(), kept.size() >= 4);
+    }
+
+    @Test
+    public void zeroTolerance_keepsAll() {
+        TrackSimplifier simplifier = new TrackSimplifier(0, 0, TrackSimplifier.DEFAULT_MAX_INTERVAL);
+        List<FixRecord> kept = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            offer(simplifier, fix(i * 100L, i * 2.0, 0, 20), kept);
+        }
+        flush(simplifier, kept);
+
+        assertEquals(100, kept.size());
+        assertEquals(0, simplifier.getDroppedCount());
+    }
+
+    @Test
+    public void noisyTrace_errorIsBounded() throws IOException {
+        SyntheticTrace trace = new SyntheticTrace(5, 25, 600000, 0);
+        TraceReplayer.Event event = new TraceReplayer.Event();
+        TrackSimplifier simplifier = new TrackSimplifier();
+        List<FixRecord> all = new ArrayList<>();
+        List<FixRecord> kept = new ArrayList<>();
+        while (trace.next(event)) {
+            if (event.type == TraceReplayer.Event.TYPE_FIX && event.fix.provider == FixRecord.PROVIDER_GPS) {
+                FixRecord fix = new FixRecord();
+                fix.set(event.fix);
+                all.add(fix);
+                offer(simplifier, fix, kept);
+            }
+        }
+        flush(simplifier, kept);
+
+        assertTrue("ratio " + simplifier.getKeptRatio(), simplifier.getKeptRatio() < 0.25);
+
+        // 每个丢弃的点到前后两个保留点连线的距离不超过空间容差，速度与线性插值之差不超过速度容差
+        int segment = 0;
+        for (FixRecord fix : all) {
+            while (kept.get(segment + 1).time < fix.time) {
+                segment++;
+            }
+            FixRecord a = kept.get(segment);
+            FixRecord b = kept.get(segment + 1);
+            if (fix.time == a.time || fix.time == b.time) {
+                continue;
+            }
+            assertTrue("t=" + fix.time, distanceToLine(fix, a, b) <= TrackSimplifier.DEFAULT_SPATIAL_TOLERANCE + 0.01);
+            double ratio = (double) (fix.time - a.time) / (b.time - a.time);
+            double interpolated = a.speed + (b.speed - a.speed) * ratio;
+            assertEquals("t=" + fix.time, interpolated, fix.speed, TrackSimplifier.DEFAULT_SPEED_TOLERANCE + 1e-3);
+        }
+    }
+
+    private static void offer(TrackSimplifier simplifier, FixRecord fix, List<FixRecord> kept) {
+        FixRecord out = new FixRecord();
+        if (simplifier.offer(fix, out)) {
+            kept.add(out);
+        }
+    }
+
+    private static void flush(TrackSimplifier simplifier, List<FixRecord> kept) {
+        FixRecord out = new FixRecord();
+        if (simplifier.flush(out)) {
+            kept.add(out);
+        }
+    }
+
+    /**
+     * @param east 向东的距离（米）
+     * @param north 向北的距离（米）
+     */
+    private static FixRecord fix(long time, double east, double north, double speed) {
+        FixRecord fix = new FixRecord();
+        fix.provider = FixRecord.PROVIDER_GPS;
+        fix.time = time;
+        fix.latitude = LATITUDE + north / METERS_PER_DEGREE;
+        fix.longitude = LONGITUDE + east / (METERS_PER_DEGREE * Math.cos(Math.toRadians(LATITUDE)));
+        fix.hasSpeed = true;
+        fix.speed = (float) speed;
+        fix.accuracy = 3;
+        return fix;
+    }
+
+    /**
+     * @return 点p到射线a→b的距离（米）
+     */
+    private static double distanceToLine(FixRecord p, FixRecord a, FixRecord b) {
+        double scale = METERS_PER_DEGREE * Math.cos(Math.toRadians(a.latitude));
+        double bx = (b.longitude - a.longitude) * scale;
+        double by = (b.latitude - a.latitude) * METERS_PER_DEGREE;
+        double px = (p.longitude - a.longitude) * scale;
+        double py = (p.latitude - a.latitude) * METERS_PER_DEGREE;
+        double length = Math.sqrt(bx * bx + by * by);
+        if (length == 0) {
+            return Math.sqrt(px * px + py * py);
+        }
+        double along = (px * bx + py * by) / length;
+        if (along <= 0) {
+            return Math.sqrt(px * px + py * py);
+        }
+        return Math.abs(px * by - py * bx) / length;
+    }
+}
@@ -0,0 +1,106 @@
+package cc.ytdttj.speed;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * GPS更新间隔调度测试
+ */
+public class UpdateIntervalPolicyTest {
+
+    private static final long STEP = 100; // 10Hz定位
+
+    /**
+     * 以固定速度持续输入一段时间
+     * @return 结束时间
+     */
+    private static long drive(UpdateIntervalPolicy policy, float speed, boolean stationary, long start, long duration) {
+        for (long t = start; t < start + duration; t += STEP) {
+            policy.update(speed, stationary, true, false, false, t);
+        }
+        return start + duration;
+    }
+
+    @Test
+    public void disconnected_usesSearchingTier() {
+        UpdateIntervalPolicy policy = new UpdateIntervalPolicy();
+        policy.update(20, false, false, false, false, 0);
+        assertEquals(UpdateIntervalPolicy.TIER_SEARCHING, policy.getTier());
+        assertEquals(UpdateIntervalPolicy.INTERVAL_SEARCHING, policy.getIntervalMillis());
+
+        assertTrue(policy.update(20, false, true, false, false, STEP));
+        assertEquals(UpdateIntervalPolicy.TIER_FAST, policy.getTier());
+        assertEquals(UpdateIntervalPolicy.INTERVAL_FAST, policy.getIntervalMillis());
+    }
+
+    @Test
+    public void steadySpeed_entersCruiseAfterHoldTime() {
+        UpdateIntervalPolicy policy = new UpdateIntervalPolicy();
+        long t = drive(policy, 25, false, 0, 10000);
+        assertEquals("匀速不足15秒仍保持高频", UpdateIntervalPolicy.TIER_FAST, policy.getTier());
+
+        drive(policy, 25.5f, false, t, 6000);
+        assertEquals(UpdateIntervalPolicy.TIER_CRUISE, policy.getTier());
+        assertEquals(UpdateIntervalPolicy.INTERVAL_CRUISE, policy.getIntervalMillis());
+    }
+
+    @Test
+    public void speedChange_leavesCruiseImmediately() {
+        UpdateIntervalPolicy policy = new UpdateIntervalPolicy();
+        long t = drive(policy, 25, false, 0, 20000);
+        assertEquals(UpdateIntervalPolicy.TIER_CRUISE, policy.getTier());
+
+        // 刹车：偏离超过退出阈值立即恢复100毫秒
+        assertTrue(policy.update(21, false, true, false, false, t));
+        assertEquals(UpdateIntervalPolicy.TIER_FAST, policy.getTier());
+        assertEquals(UpdateIntervalPolicy.INTERVAL_FAST, policy.getIntervalMillis());
+    }
+
+    @Test
+    public void noiseNearThreshold_doesNotFlap() {
+        UpdateIntervalPolicy policy = new UpdateIntervalPolicy();
+        long t = drive(policy, 25, false, 0, 20000);
+        assertEquals(UpdateIntervalPolicy.TIER_CRUISE, policy.getTier());
+
+        // 速度在进入阈值和退出阈值之间抖动，保持巡航
+        int changes = 0;
+        for (int i = 0; i < 600; i++) {
+            float speed = 25 + ((i % 2 == 0) ? 2.5f : -2.5f);
+            if (policy.update(speed, false, true, false, false, t + i * STEP)) {
+                changes++;
+            }
+        }
+        assertEquals(0, changes);
+        assertEquals(UpdateIntervalPolicy.TIER_CRUISE, policy.getTier());
+    }
+
+    @Test
+    public void stationary_slowsDownAfterHoldTimeAndResumesImmediately() {
+        UpdateIntervalPolicy policy = new UpdateIntervalPolicy();
+        long t = drive(policy, 0, true, 0, 9000);
+        assertEquals("静止不足10秒仍保持高频", UpdateIntervalPolicy.TIER_FAST, policy.getTier());
+
+        t = drive(policy, 0, true, t, 2000);
+        assertEquals(UpdateIntervalPolicy.TIER_STATIONARY, policy.getTier());
+        assertEquals(UpdateIntervalPolicy.INTERVAL_STATIONARY, policy.getIntervalMillis());
+        assertEquals(UpdateIntervalPolicy.MIN_DISTANCE_STATIONARY, policy.getMinDistanceMeters(), 0);
+
+        // 起步：立即恢复高频并取消最小距离
+        assertTrue(policy.update(3, false, true, false, false, t));
+        assertEquals(UpdateIntervalPolicy.TIER_FAST, policy.getTier());
+        assertEquals(0, policy.getMinDistanceMeters(), 0);
+    }
+
+    @Test
+    public void lowBattery_capsUpdateRate() {
+        UpdateIntervalPolicy policy = new UpdateIntervalPolicy();
+        policy.update(10, false, true, true, false, 0);
+        assertEquals(UpdateIntervalPolicy.TIER_FAST, policy.getTier());
+        assertEquals(UpdateIntervalPolicy.INTERVAL_CRUISE, policy.getIntervalMillis());
+
+        // 恢复电量后回到100毫秒
+        assertTrue(policy.update(10, false, true, false, false, STEP));
+        assertEquals(UpdateIntervalPolicy.INTERVAL_FAST, policy.getIntervalMillis());
+    }
+}
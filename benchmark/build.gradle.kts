@@ -0,0 +1,56 @@
+// JVM基准测试模块：直接编译app中不依赖Android框架的定位处理类，用JMH测量热路径
+plugins {
+    java
+    id("me.champeau.jmh")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include(
+                "cc/ytdttj/speed/FixRecord.java",
+                "cc/ytdttj/speed/LocationEngine.java",
+                "cc/ytdttj/speed/PipelineMetrics.java",
+                "cc/ytdttj/speed/DistanceKernel.java",
+                "cc/ytdttj/speed/KalmanFusionFilter.java",
+                "cc/ytdttj/speed/GpsConnectionMonitor.java",
+                "cc/ytdttj/speed/UpdateIntervalPolicy.java",
+                "cc/ytdttj/speed/SignalQualityModel.java",
+                "cc/ytdttj/speed/SplitEngine.java",
+                "cc/ytdttj/speed/RollingSpeedStats.java",
+                "cc/ytdttj/speed/DragTimer.java",
+                "cc/ytdttj/speed/TripRecorder.java",
+                "cc/ytdttj/speed/TripSnapshot.java",
+                "cc/ytdttj/speed/TraceReplayer.java",
+                "cc/ytdttj/speed/ReplayPipeline.java",
+                "cc/ytdttj/speed/SyntheticTrace.java",
+                "cc/ytdttj/speed/TrackSimplifier.java",
+                "cc/ytdttj/speed/TrackJournal.java",
+                "cc/ytdttj/speed/TrackJournalReader.java",
+                "cc/ytdttj/speed/TrackExporter.java",
+                "cc/ytdttj/speed/NumberText.java",
+                "cc/ytdttj/speed/DopplerVelocitySolver.java"
+            )
+        }
+    }
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    // 报告每次操作的分配量（gc.alloc.rate.norm）
+    profilers.add("gc")
+    resultFormat.set("JSON")
+}
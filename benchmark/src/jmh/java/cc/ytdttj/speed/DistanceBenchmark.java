@@ -0,0 +1,80 @@
+package cc.ytdttj.speed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 距离计算基准测试
+ * <p>
+ * 相邻的100ms定位点之间：DistanceKernel（短距离局部投影）对比
+ * Vincenty（{@code Location.distanceTo} 使用的算法）和球面haversine公式。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DistanceBenchmark {
+
+    private static final double EARTH_RADIUS = 6371008.8;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SyntheticTrace trace = new SyntheticTrace(1, 20, 600000, 0);
+        TraceReplayer.Event event = new TraceReplayer.Event();
+        int count = 0;
+        latitudes = new double[8192];
+        longitudes = new double[8192];
+        while (count < latitudes.length && trace.next(event)) {
+            if (event.type == TraceReplayer.Event.TYPE_FIX && event.fix.provider == FixRecord.PROVIDER_GPS) {
+                latitudes[count] = event.fix.latitude;
+                longitudes[count] = event.fix.longitude;
+                count++;
+            }
+        }
+        // 轨迹的定位点可能少于数组长度，未填充的(0,0)会混入一段上万公里和一串零长度的距离
+        latitudes = Arrays.copyOf(latitudes, count);
+        longitudes = Arrays.copyOf(longitudes, count);
+    }
+
+    private int next() {
+        int i = cursor;
+        cursor = (cursor + 1) % (latitudes.length - 1);
+        return i;
+    }
+
+    @Benchmark
+    public double kernel() {
+        int i = next();
+        return DistanceKernel.distance(latitudes[i], longitudes[i], latitudes[i + 1], longitudes[i + 1]);
+    }
+
+    @Benchmark
+    public double vincenty() {
+        int i = next();
+        return DistanceKernel.vincenty(latitudes[i], longitudes[i], latitudes[i + 1], longitudes[i + 1]);
+    }
+
+    @Benchmark
+    public double haversine() {
+        int i = next();
+        double lat1 = Math.toRadians(latitudes[i]);
+        double lat2 = Math.toRadians(latitudes[i + 1]);
+        double sinDLat = Math.sin((lat2 - lat1) * 0.5);
+        double sinDLon = Math.sin(Math.toRadians(longitudes[i + 1] - longitudes[i]) * 0.5);
+        double h = sinDLat * sinDLat + Math.cos(lat1) * Math.cos(lat2) * sinDLon * sinDLon;
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1.0, Math.sqrt(h)));
+    }
+}
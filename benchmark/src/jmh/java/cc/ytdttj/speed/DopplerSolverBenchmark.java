@@ -0,0 +1,90 @@
+package cc.ytdttj.speed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多普勒测速求解基准测试
+ * <p>
+ * 每次操作求解一个历元：添加全部卫星观测并完成加权最小二乘和残差检查。
+ * 观测在准备阶段按随机天空分布预先合成，按可见卫星数参数化。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DopplerSolverBenchmark {
+
+    private static final int EPOCHS = 64;
+    private static final double LATITUDE = 31.2304;
+    private static final double LONGITUDE = 121.4737;
+
+    // 每个历元的卫星数
+    @Param({"8", "16", "32"})
+    public int satellites;
+
+    // 每颗卫星：位置3、速度3、钟漂、伪距率、精度
+    private static final int STRIDE = 9;
+    private double[][] epochs;
+    private final DopplerVelocitySolver solver = new DopplerVelocitySolver();
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(1);
+        double phi = Math.toRadians(LATITUDE);
+        double lambda = Math.toRadians(LONGITUDE);
+        double[] e = {-Math.sin(lambda), Math.cos(lambda), 0};
+        double[] n = {-Math.sin(phi) * Math.cos(lambda), -Math.sin(phi) * Math.sin(lambda), Math.cos(phi)};
+        double[] u = {Math.cos(phi) * Math.cos(lambda), Math.cos(phi) * Math.sin(lambda), Math.sin(phi)};
+        double[] receiver = {6371000 * u[0], 6371000 * u[1], 6371000 * u[2]};
+
+        epochs = new double[EPOCHS][satellites * STRIDE];
+        for (int epoch = 0; epoch < EPOCHS; epoch++) {
+            double speed = random.nextDouble() * 40;
+            double[] vr = new double[3];
+            for (int k = 0; k < 3; k++) {
+                vr[k] = speed * (0.6 * e[k] + 0.8 * n[k]);
+            }
+            for (int i = 0; i < satellites; i++) {
+                double az = random.nextDouble() * 2 * Math.PI;
+                double el = Math.toRadians(15 + random.nextDouble() * 70);
+                double[] data = epochs[epoch];
+                int base = i * STRIDE;
+                double rate = 100;
+                for (int k = 0; k < 3; k++) {
+                    double los = Math.cos(el) * Math.sin(az) * e[k] + Math.cos(el) * Math.cos(az) * n[k] + Math.sin(el) * u[k];
+                    data[base + k] = receiver[k] + 22000000 * los;
+                    data[base + 3 + k] = (random.nextDouble() - 0.5) * 6000;
+                    rate += (data[base + 3 + k] - vr[k]) * los;
+                }
+                data[base + 6] = 0;
+                data[base + 7] = rate + random.nextGaussian() * 0.1;
+                data[base + 8] = 0.1;
+            }
+        }
+    }
+
+    @Benchmark
+    public double solveEpoch() {
+        double[] data = epochs[cursor];
+        cursor = (cursor + 1) % EPOCHS;
+        solver.begin(LATITUDE, LONGITUDE, 0);
+        for (int i = 0; i < satellites; i++) {
+            int base = i * STRIDE;
+            solver.addMeasurement(data[base], data[base + 1], data[base + 2],
+                    data[base + 3], data[base + 4], data[base + 5],
+                    data[base + 6], data[base + 7], data[base + 8]);
+        }
+        return solver.solve() ? solver.getSpeed() : -1;
+    }
+}
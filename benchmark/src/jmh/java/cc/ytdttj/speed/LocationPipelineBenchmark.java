@@ -0,0 +1,177 @@
+package cc.ytdttj.speed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定位处理热路径基准测试
+ * <p>
+ * 每次操作处理轨迹中的一个定位点，轨迹由 {@link SyntheticTrace} 生成（10Hz GPS + 1Hz网络定位），
+ * 按行程时长参数化，循环到轨迹末尾时复位状态重新开始。
+ * 使用 {@code ./gradlew :benchmark:jmh} 运行，GC分析器会报告每次操作的分配字节数。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LocationPipelineBenchmark {
+
+    // 行程时长（分钟）
+    @Param({"1", "60", "360"})
+    public int traceMinutes;
+
+    private FixRecord[] movingTrace;
+    private FixRecord[] stationaryTrace;
+    private final FixRecord input = new FixRecord();
+
+    private final LocationEngine validationEngine = new LocationEngine();
+    private final LocationEngine highAccuracyEngine = new LocationEngine();
+    private final LocationEngine balancedEngine = new LocationEngine();
+    private final LocationEngine fusionEngine = new LocationEngine();
+    private final LocationEngine stationaryEngine = new LocationEngine();
+    private final TripRecorder tripRecorder = new TripRecorder();
+    private final ReplayPipeline pipeline = new ReplayPipeline();
+
+    private int validationCursor;
+    private int highAccuracyCursor;
+    private int balancedCursor;
+    private int fusionCursor;
+    private int stationaryCursor;
+    private int distanceCursor;
+    private int tripCursor;
+    private int pipelineCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long cruiseTime = traceMinutes * 60000L;
+        movingTrace = collectFixes(new SyntheticTrace(1, 20, cruiseTime, 0));
+        stationaryTrace = collectFixes(new SyntheticTrace(2, 0, cruiseTime, 0));
+
+        // 校验基准需要已有参考位置，才会走到静止漂移过滤的分支
+        input.set(movingTrace[0]);
+        validationEngine.process(input, input.time);
+
+        balancedEngine.setBalancedMode(true);
+        balancedEngine.setGpsConnected(true);
+        fusionEngine.setFusionMode(true);
+        tripRecorder.start(0);
+        pipeline.getTripRecorder().start(0);
+    }
+
+    private static FixRecord[] collectFixes(SyntheticTrace trace) {
+        List<FixRecord> fixes = new ArrayList<>();
+        TraceReplayer.Event event = new TraceReplayer.Event();
+        while (trace.next(event)) {
+            if (event.type == TraceReplayer.Event.TYPE_FIX) {
+                FixRecord fix = new FixRecord();
+                fix.set(event.fix);
+                fixes.add(fix);
+            }
+        }
+        return fixes.toArray(new FixRecord[0]);
+    }
+
+    @Benchmark
+    public boolean fixValidation() {
+        FixRecord fix = movingTrace[validationCursor];
+        validationCursor = (validationCursor + 1) % movingTrace.length;
+        return validationEngine.isLocationValid(fix, fix.time);
+    }
+
+    @Benchmark
+    public int bestSourceHighAccuracy() {
+        if (highAccuracyCursor == 0) {
+            highAccuracyEngine.reset();
+        }
+        input.set(movingTrace[highAccuracyCursor]);
+        highAccuracyCursor = (highAccuracyCursor + 1) % movingTrace.length;
+        highAccuracyEngine.process(input, input.time);
+        return highAccuracyEngine.getBestSource();
+    }
+
+    @Benchmark
+    public int bestSourceBalanced() {
+        if (balancedCursor == 0) {
+            balancedEngine.reset();
+        }
+        input.set(movingTrace[balancedCursor]);
+        balancedCursor = (balancedCursor + 1) % movingTrace.length;
+        balancedEngine.process(input, input.time);
+        return balancedEngine.getBestSource();
+    }
+
+    @Benchmark
+    public int bestSourceFusion() {
+        if (fusionCursor == 0) {
+            fusionEngine.reset();
+        }
+        input.set(movingTrace[fusionCursor]);
+        fusionCursor = (fusionCursor + 1) % movingTrace.length;
+        fusionEngine.process(input, input.time);
+        return fusionEngine.getBestSource();
+    }
+
+    @Benchmark
+    public boolean stationaryDetection() {
+        if (stationaryCursor == 0) {
+            stationaryEngine.reset();
+        }
+        input.set(stationaryTrace[stationaryCursor]);
+        stationaryCursor = (stationaryCursor + 1) % stationaryTrace.length;
+        stationaryEngine.process(input, input.time);
+        return stationaryEngine.isStationary();
+    }
+
+    @Benchmark
+    public double distance() {
+        FixRecord from = movingTrace[distanceCursor];
+        distanceCursor = (distanceCursor + 1) % movingTrace.length;
+        return DistanceKernel.distance(from, movingTrace[distanceCursor]);
+    }
+
+    /**
+     * 行程统计更新（原 MainActivity.onLocationUpdated 中的最快速度和距离累积）
+     */
+    @Benchmark
+    public float tripStatistics() {
+        if (tripCursor == 0) {
+            tripRecorder.reset();
+        }
+        tripRecorder.onLocationUpdated(movingTrace[tripCursor]);
+        tripCursor = (tripCursor + 1) % movingTrace.length;
+        return tripRecorder.getTotalDistance();
+    }
+
+    /**
+     * 每个定位点发布给界面的快照
+     */
+    @Benchmark
+    public TripSnapshot tripSnapshot() {
+        return tripRecorder.snapshot(tripCursor * 100L, tripCursor);
+    }
+
+    /**
+     * 完整处理路径：定位引擎 + 行程统计
+     */
+    @Benchmark
+    public long fullPipeline() {
+        if (pipelineCursor == 0) {
+            pipeline.getLocationEngine().reset();
+            pipeline.getTripRecorder().reset();
+        }
+        input.set(movingTrace[pipelineCursor]);
+        pipelineCursor = (pipelineCursor + 1) % movingTrace.length;
+        pipeline.onFix(input, input.time);
+        return pipeline.getRecordedFixCount();
+    }
+}
@@ -0,0 +1,32 @@
+package cc.ytdttj.speed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定位处理计数和决策日志的记录开销（目标：每个事件50ns以内，不分配对象）
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PipelineMetricsBenchmark {
+
+    private long time = 1700000000000L;
+
+    @Benchmark
+    public void countFix() {
+        PipelineMetrics.countFix(FixRecord.PROVIDER_GPS);
+    }
+
+    @Benchmark
+    public void recordDecision() {
+        time += 100;
+        PipelineMetrics.record(PipelineMetrics.DISTANCE_ACCEPT, FixRecord.PROVIDER_GPS, time, 2.5f);
+    }
+}
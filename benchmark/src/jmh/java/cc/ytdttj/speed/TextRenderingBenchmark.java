@@ -0,0 +1,67 @@
+package cc.ytdttj.speed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 界面文本格式化基准测试：String.format 与 {@link NumberText} 对比
+ * <p>
+ * 每次操作格式化一次界面上的行程数据（速度、时间、距离、平均速度、最大速度）。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TextRenderingBenchmark {
+
+    private final NumberText speedText = new NumberText(8, '.');
+    private final NumberText timeText = new NumberText(16, '.');
+    private final NumberText distanceText = new NumberText(16, '.');
+    private final NumberText avgSpeedText = new NumberText(16, '.');
+    private final NumberText maxSpeedText = new NumberText(16, '.');
+
+    private int tick = 0;
+
+    @Benchmark
+    public int stringFormat() {
+        int t = tick++;
+        float speed = (t % 1200) / 10f;
+        int length = String.format(Locale.getDefault(), "%d", (int) speed).length();
+        length += String.format(Locale.getDefault(), "%02d:%02d:%02d", t / 36000, t / 600 % 60, t / 10 % 60).length();
+        length += String.format(Locale.getDefault(), "%.2f km", t / 360f).length();
+        length += String.format(Locale.getDefault(), "%.1f km/h", speed * 0.8f).length();
+        length += String.format(Locale.getDefault(), "%.1f km/h", 120f).length();
+        return length;
+    }
+
+    @Benchmark
+    public int numberText() {
+        int t = tick++;
+        float speed = (t % 1200) / 10f;
+        int changed = 0;
+        if (speedText.clear().append((int) speed).commit()) {
+            changed++;
+        }
+        timeText.clear().appendPadded(t / 36000, 2).append(':').appendPadded(t / 600 % 60, 2)
+                .append(':').appendPadded(t / 10 % 60, 2);
+        if (timeText.commit()) {
+            changed++;
+        }
+        if (distanceText.clear().appendFixed(t / 360f, 2).append(" km").commit()) {
+            changed++;
+        }
+        if (avgSpeedText.clear().appendFixed(speed * 0.8f, 1).append(" km/h").commit()) {
+            changed++;
+        }
+        if (maxSpeedText.clear().appendFixed(120f, 1).append(" km/h").commit()) {
+            changed++;
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,31 @@
+package cc.ytdttj.speed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 不限速回放的吞吐量：每次操作生成并回放一段2小时的合成行程（约7.4万个GPS定位点）
+ * <p>
+ * 包括轨迹生成、{@link TraceReplayer} 分发和 {@link ReplayPipeline} 的完整处理，
+ * 结果除以定位点数即为每个点的开销。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TraceReplayBenchmark {
+
+    @Benchmark
+    public long replayTwoHours() throws IOException {
+        ReplayPipeline pipeline = new ReplayPipeline();
+        pipeline.getTripRecorder().start(0);
+        new TraceReplayer(TraceReplayer.SPEED_MAX).run(new SyntheticTrace(11, 25, 7200000, 60000), pipeline);
+        return pipeline.getRecordedFixCount();
+    }
+}
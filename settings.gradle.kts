@@ -15,3 +15,4 @@ dependencyResolutionManagement {
 
 rootProject.name = "车速表"
 include(":app")
+include(":benchmark")